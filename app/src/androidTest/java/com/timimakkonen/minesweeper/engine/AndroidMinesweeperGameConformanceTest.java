@@ -0,0 +1,23 @@
+package com.timimakkonen.minesweeper.engine;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.timimakkonen.minesweeper.jni.AndroidMinesweeperGame;
+
+import org.junit.runner.RunWith;
+
+/**
+ * Runs the engine conformance suite against the native engine on a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AndroidMinesweeperGameConformanceTest extends MinesweeperGameConformanceTest {
+
+    static {
+        System.loadLibrary("libandroidminesweeper");
+    }
+
+    @Override
+    protected MinesweeperGame createGame() {
+        return new AndroidMinesweeperGame();
+    }
+}
@@ -0,0 +1,512 @@
+package com.timimakkonen.minesweeper.engine;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.timimakkonen.minesweeper.jni.AndroidMinesweeperGame;
+import com.timimakkonen.minesweeper.jni.MinesweeperGameSession;
+import com.timimakkonen.minesweeper.solver.DeductionSolver;
+import com.timimakkonen.minesweeper.solver.NoGuessGameGenerator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>
+ * Times the native and the pure-Java engine on the same workload and logs the results (tag
+ * 'MinesweeperGameBenchmark').
+ * </p>
+ * <p>
+ * Each game is started on a hard grid, and then every cell is checked in random order until the
+ * game ends, reading the changes and the status after each check, as the repository does.
+ * </p>
+ * <p>
+ * The large grid benchmarks time starting a million-cell game and revealing its first (mostly
+ * empty) area, which is dominated by board setup and the cascade reveal, with the board
+ * generated on one thread and on all cores (see {@link RowBandExecutor}). The empty grid
+ * benchmarks isolate the cascade: a single check opens a whole million-cell grid without mines.
+ * The huge grid benchmark starts 10000 x 10000 games on the chunked engine (see {@link
+ * ChunkedMinesweeperGame}), and logs the memory used for the area explored by the first check.
+ * </p>
+ * <p>
+ * The density benchmarks time starting a game and making its first check (which places the
+ * mines) at densities from 1% to 95%. Placement should not slow down as density rises, while the
+ * opened area shrinks.
+ * </p>
+ * <p>
+ * The solver benchmark plays hard games following the hints of a {@link DeductionSolver} (known
+ * safe cells first, random cells when there are none), and times its update after each move.
+ * </p>
+ * <p>
+ * The no-guess benchmarks generate boards that can be solved without guessing (see {@link
+ * NoGuessGameGenerator}) on all cores, per board size and density, and log the percentiles of
+ * the generation time and the number of candidates tried per board. Dense grids need far more
+ * candidates, so these show the cost before no guessing is used for hard games.
+ * </p>
+ * <p>
+ * The parallel benchmarks play the same games on native game sessions, on one thread and on all
+ * cores, to show how throughput scales.
+ * </p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class MinesweeperGameBenchmark {
+
+    private static final String TAG = "MinesweeperGameBenchmark";
+
+    private static final int GRID_HEIGHT = 16;
+    private static final int GRID_WIDTH = 30;
+    private static final int NUM_OF_MINES = 99;
+
+    private static final int NUM_OF_WARM_UP_GAMES = 50;
+    private static final int NUM_OF_MEASURED_GAMES = 500;
+    private static final long SEED = 1234L;
+
+    private static final int LARGE_GRID_SIZE = 1000;
+    private static final int LARGE_GRID_NUM_OF_MINES = 10000;
+    private static final int NUM_OF_LARGE_GRID_GAMES = 10;
+    private static final int NUM_OF_EMPTY_GRID_GAMES = 10;
+
+    private static final int HUGE_GRID_SIZE = 10000;
+    private static final double HUGE_GRID_PROPORTION_OF_MINES = 0.15;
+    private static final int NUM_OF_HUGE_GRID_GAMES = 10;
+
+    private static final int DENSITY_GRID_SIZE = 500;
+    private static final double[] DENSITIES = {0.01, 0.05, 0.10, 0.25, 0.50, 0.75, 0.90, 0.95};
+    private static final int NUM_OF_GAMES_PER_DENSITY = 5;
+
+    // (gridHeight, gridWidth) of the no-guess boards, and their densities of mines
+    private static final int[][] NO_GUESS_GRID_SIZES = {{9, 9}, {16, 16}, {16, 30}};
+    private static final double[] NO_GUESS_DENSITIES = {0.12, 0.16, 0.21};
+    private static final int NUM_OF_NO_GUESS_GAMES = 20;
+    private static final int MAX_NUM_OF_NO_GUESS_CANDIDATES = 10000;
+
+    static {
+        System.loadLibrary("libandroidminesweeper");
+    }
+
+    @Test
+    public void benchmarkNativeEngine() {
+        try (AndroidMinesweeperGame game = new AndroidMinesweeperGame()) {
+            benchmark("native", game);
+        }
+    }
+
+    @Test
+    public void benchmarkJavaEngine() {
+        try (JavaMinesweeperGame game = new JavaMinesweeperGame()) {
+            benchmark("java", game);
+        }
+    }
+
+    @Test
+    public void benchmarkBitboardEngine() {
+        try (BitboardMinesweeperGame game = new BitboardMinesweeperGame()) {
+            benchmark("bitboard", game);
+        }
+    }
+
+    @Test
+    public void benchmarkJavaEngineOnLargeGrid() {
+        try (JavaMinesweeperGame game = new JavaMinesweeperGame()) {
+            benchmarkLargeGrid("java", game);
+        }
+    }
+
+    @Test
+    public void benchmarkBitboardEngineOnLargeGrid() {
+        try (BitboardMinesweeperGame game = new BitboardMinesweeperGame()) {
+            benchmarkLargeGrid("bitboard", game);
+        }
+    }
+
+    @Test
+    public void benchmarkChunkedEngineOnLargeGrid() {
+        try (ChunkedMinesweeperGame game = new ChunkedMinesweeperGame()) {
+            benchmarkLargeGrid("chunked", game);
+        }
+    }
+
+    @Test
+    public void benchmarkChunkedEngineOnHugeGrid() {
+        try (ChunkedMinesweeperGame game = new ChunkedMinesweeperGame()) {
+            benchmarkHugeGrid("chunked", game);
+        }
+    }
+
+    @Test
+    public void benchmarkJavaEngineOnLargeGridOnAllCores() {
+        try (RowBandExecutor bandExecutor = new RowBandExecutor(
+                Runtime.getRuntime().availableProcessors());
+             JavaMinesweeperGame game = new JavaMinesweeperGame(new Random(), bandExecutor)) {
+            benchmarkLargeGrid("java on all cores", game);
+        }
+    }
+
+    @Test
+    public void benchmarkBitboardEngineOnLargeGridOnAllCores() {
+        try (RowBandExecutor bandExecutor = new RowBandExecutor(
+                Runtime.getRuntime().availableProcessors());
+             BitboardMinesweeperGame game = new BitboardMinesweeperGame(new Random(),
+                                                                        bandExecutor)) {
+            benchmarkLargeGrid("bitboard on all cores", game);
+        }
+    }
+
+    @Test
+    public void benchmarkNativeEngineOnEmptyGrid() {
+        try (AndroidMinesweeperGame game = new AndroidMinesweeperGame()) {
+            benchmarkEmptyGrid("native", game);
+        }
+    }
+
+    @Test
+    public void benchmarkJavaEngineOnEmptyGrid() {
+        try (JavaMinesweeperGame game = new JavaMinesweeperGame()) {
+            benchmarkEmptyGrid("java", game);
+        }
+    }
+
+    @Test
+    public void benchmarkBitboardEngineOnEmptyGrid() {
+        try (BitboardMinesweeperGame game = new BitboardMinesweeperGame()) {
+            benchmarkEmptyGrid("bitboard", game);
+        }
+    }
+
+    @Test
+    public void benchmarkChunkedEngineOnEmptyGrid() {
+        try (ChunkedMinesweeperGame game = new ChunkedMinesweeperGame()) {
+            benchmarkEmptyGrid("chunked", game);
+        }
+    }
+
+    @Test
+    public void benchmarkNativeEngineAcrossDensities() {
+        try (AndroidMinesweeperGame game = new AndroidMinesweeperGame()) {
+            benchmarkDensities("native", game);
+        }
+    }
+
+    @Test
+    public void benchmarkJavaEngineAcrossDensities() {
+        try (JavaMinesweeperGame game = new JavaMinesweeperGame()) {
+            benchmarkDensities("java", game);
+        }
+    }
+
+    @Test
+    public void benchmarkBitboardEngineAcrossDensities() {
+        try (BitboardMinesweeperGame game = new BitboardMinesweeperGame()) {
+            benchmarkDensities("bitboard", game);
+        }
+    }
+
+    @Test
+    public void benchmarkDeductionSolver() {
+        try (JavaMinesweeperGame game = new JavaMinesweeperGame()) {
+            benchmarkSolver(game);
+        }
+    }
+
+    @Test
+    public void benchmarkNoGuessGenerationOnNativeSessions() throws Exception {
+        benchmarkNoGuessGeneration("native sessions", gameIndex -> new MinesweeperGameSession());
+    }
+
+    @Test
+    public void benchmarkNoGuessGenerationOnJavaEngine() throws Exception {
+        benchmarkNoGuessGeneration(
+                "java", gameIndex -> new JavaMinesweeperGame(new Random(SEED + gameIndex)));
+    }
+
+    @Test
+    public void benchmarkNativeSessionsOnOneThread() throws Exception {
+        benchmarkParallelSessions(1);
+    }
+
+    @Test
+    public void benchmarkNativeSessionsOnAllCores() throws Exception {
+        benchmarkParallelSessions(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static void benchmarkParallelSessions(int numOfThreads) throws Exception {
+        try (ParallelGameRunner runner = new ParallelGameRunner(
+                gameIndex -> new MinesweeperGameSession(), numOfThreads)) {
+            final ParallelGameRunner.GameTask<Integer> task = (game, gameIndex) -> playGame(
+                    game, new Random(SEED + gameIndex), new int[GRID_HEIGHT * GRID_WIDTH],
+                    new int[MinesweeperGame.STATUS_SIZE]);
+            runner.runGames(NUM_OF_WARM_UP_GAMES, task);
+
+            final long startTime = System.nanoTime();
+            final List<Integer> numsOfChecks = runner.runGames(NUM_OF_MEASURED_GAMES, task);
+            final long elapsedNanos = System.nanoTime() - startTime;
+
+            long numOfChecks = 0;
+            for (int n : numsOfChecks) {
+                numOfChecks += n;
+            }
+            assertTrue(numOfChecks > 0);
+            Log.i(TAG, String.format("sessions on %d threads: %d games, %d checks in %.1f ms "
+                                     + "(%.0f games per second)", numOfThreads,
+                                     NUM_OF_MEASURED_GAMES, numOfChecks, elapsedNanos / 1e6,
+                                     NUM_OF_MEASURED_GAMES / (elapsedNanos / 1e9)));
+        }
+    }
+
+    private static void benchmarkNoGuessGeneration(String engineName,
+                                                   ParallelGameRunner.GameFactory gameFactory)
+            throws Exception {
+        try (NoGuessGameGenerator generator = new NoGuessGameGenerator(gameFactory)) {
+            for (int[] gridSize : NO_GUESS_GRID_SIZES) {
+                final int gridHeight = gridSize[0];
+                final int gridWidth = gridSize[1];
+                for (double density : NO_GUESS_DENSITIES) {
+                    final int numOfMines = (int) Math.round(density * gridHeight * gridWidth);
+                    final long[] elapsedNanos = new long[NUM_OF_NO_GUESS_GAMES];
+                    long numOfCandidates = 0;
+                    int numOfBoardsNotFound = 0;
+                    for (int i = 0; i < NUM_OF_NO_GUESS_GAMES; i++) {
+                        final long startTime = System.nanoTime();
+                        final MinesweeperGame game = generator.generate(
+                                gridHeight, gridWidth, numOfMines, gridWidth / 2, gridHeight / 2,
+                                MAX_NUM_OF_NO_GUESS_CANDIDATES);
+                        elapsedNanos[i] = System.nanoTime() - startTime;
+                        numOfCandidates += generator.getNumOfCandidatesOfLastGeneration();
+                        if (game != null) {
+                            game.close();
+                        } else {
+                            numOfBoardsNotFound++;
+                        }
+                    }
+
+                    Arrays.sort(elapsedNanos);
+                    assertTrue(numOfCandidates > 0);
+                    Log.i(TAG, String.format(
+                            "%s: no guess %dx%d with %.0f%% mines: p50 %.1f ms, p90 %.1f ms, "
+                            + "p99 %.1f ms, max %.1f ms (%.1f candidates per board, %d of %d "
+                            + "not found)", engineName, gridHeight, gridWidth, 100 * density,
+                            percentile(elapsedNanos, 0.50) / 1e6,
+                            percentile(elapsedNanos, 0.90) / 1e6,
+                            percentile(elapsedNanos, 0.99) / 1e6,
+                            elapsedNanos[elapsedNanos.length - 1] / 1e6,
+                            (double) numOfCandidates / NUM_OF_NO_GUESS_GAMES,
+                            numOfBoardsNotFound, NUM_OF_NO_GUESS_GAMES));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The given percentile (nearest rank) of the sorted values.
+     */
+    private static long percentile(long[] sortedValues, double fraction) {
+        final int rank = (int) Math.ceil(fraction * sortedValues.length);
+        return sortedValues[Math.max(0, Math.min(sortedValues.length - 1, rank - 1))];
+    }
+
+    private static void benchmark(String engineName, MinesweeperGame game) {
+        final Random random = new Random(SEED);
+        final int[] cellOrder = new int[GRID_HEIGHT * GRID_WIDTH];
+        final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+
+        for (int i = 0; i < NUM_OF_WARM_UP_GAMES; i++) {
+            playGame(game, random, cellOrder, status);
+        }
+
+        long numOfChecks = 0;
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < NUM_OF_MEASURED_GAMES; i++) {
+            numOfChecks += playGame(game, random, cellOrder, status);
+        }
+        final long elapsedNanos = System.nanoTime() - startTime;
+
+        assertTrue(numOfChecks > 0);
+        Log.i(TAG, String.format("%s: %d games, %d checks in %.1f ms (%.2f us per check)",
+                                 engineName, NUM_OF_MEASURED_GAMES, numOfChecks,
+                                 elapsedNanos / 1e6, elapsedNanos / 1e3 / numOfChecks));
+    }
+
+    private static void benchmarkLargeGrid(String engineName, MinesweeperGame game) {
+        final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+        long numOfRevealedCells = 0;
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < NUM_OF_LARGE_GRID_GAMES; i++) {
+            game.newGame(LARGE_GRID_SIZE, LARGE_GRID_SIZE, LARGE_GRID_NUM_OF_MINES);
+            game.checkInputCoordinates(LARGE_GRID_SIZE / 2, LARGE_GRID_SIZE / 2);
+            game.getStatus(status);
+            numOfRevealedCells += status[MinesweeperGame.STATUS_NUM_OF_REVEALED_CELLS];
+        }
+        final long elapsedNanos = System.nanoTime() - startTime;
+
+        assertTrue(numOfRevealedCells > 0);
+        Log.i(TAG, String.format("%s: %d large games, %d revealed cells in %.1f ms "
+                                 + "(%.1f ms per game)", engineName, NUM_OF_LARGE_GRID_GAMES, numOfRevealedCells,
+                                 elapsedNanos / 1e6, elapsedNanos / 1e6 / NUM_OF_LARGE_GRID_GAMES));
+    }
+
+    private static void benchmarkHugeGrid(String engineName, MinesweeperGame game) {
+        long numOfOpenedCells = 0;
+        long boardMemoryUsage = 0;
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < NUM_OF_HUGE_GRID_GAMES; i++) {
+            game.newGame(HUGE_GRID_SIZE, HUGE_GRID_SIZE, HUGE_GRID_PROPORTION_OF_MINES);
+            game.checkInputCoordinates(HUGE_GRID_SIZE / 2, HUGE_GRID_SIZE / 2);
+            numOfOpenedCells += game.getNumOfCellsOpenedByLastAction();
+            boardMemoryUsage += game.getBoardMemoryUsage();
+        }
+        final long elapsedNanos = System.nanoTime() - startTime;
+
+        assertTrue(numOfOpenedCells > 0);
+        Log.i(TAG, String.format("%s: %d huge games, %.1f ms per game, %d cells opened and "
+                                 + "%d KiB used per game", engineName, NUM_OF_HUGE_GRID_GAMES,
+                                 elapsedNanos / 1e6 / NUM_OF_HUGE_GRID_GAMES,
+                                 numOfOpenedCells / NUM_OF_HUGE_GRID_GAMES,
+                                 boardMemoryUsage / 1024 / NUM_OF_HUGE_GRID_GAMES));
+    }
+
+    private static void benchmarkEmptyGrid(String engineName, MinesweeperGame game) {
+        long numOfOpenedCells = 0;
+        long revealNanos = 0;
+        for (int i = 0; i < NUM_OF_EMPTY_GRID_GAMES; i++) {
+            game.newGame(LARGE_GRID_SIZE, LARGE_GRID_SIZE, 0);
+            final long startTime = System.nanoTime();
+            game.checkInputCoordinates(LARGE_GRID_SIZE / 2, LARGE_GRID_SIZE / 2);
+            revealNanos += System.nanoTime() - startTime;
+            numOfOpenedCells += game.getNumOfCellsOpenedByLastAction();
+        }
+
+        assertTrue(numOfOpenedCells > 0);
+        Log.i(TAG, String.format("%s: %d empty grids, %d opened cells in %.1f ms "
+                                 + "(%.1f ns per cell)", engineName, NUM_OF_EMPTY_GRID_GAMES,
+                                 numOfOpenedCells, revealNanos / 1e6,
+                                 (double) revealNanos / numOfOpenedCells));
+    }
+
+    private static void benchmarkDensities(String engineName, MinesweeperGame game) {
+        final int numOfCells = DENSITY_GRID_SIZE * DENSITY_GRID_SIZE;
+        for (double density : DENSITIES) {
+            final int numOfMines = Math.min((int) (density * numOfCells),
+                                            game.getMaxNumOfMines(DENSITY_GRID_SIZE,
+                                                                  DENSITY_GRID_SIZE));
+            long numOfOpenedCells = 0;
+            final long startTime = System.nanoTime();
+            for (int i = 0; i < NUM_OF_GAMES_PER_DENSITY; i++) {
+                game.newGame(DENSITY_GRID_SIZE, DENSITY_GRID_SIZE, numOfMines);
+                game.checkInputCoordinates(DENSITY_GRID_SIZE / 2, DENSITY_GRID_SIZE / 2);
+                numOfOpenedCells += game.getNumOfCellsOpenedByLastAction();
+            }
+            final long elapsedNanos = System.nanoTime() - startTime;
+
+            assertTrue(numOfOpenedCells > 0);
+            Log.i(TAG, String.format("%s: %.0f%% mines, %.1f ms per game (%d cells opened)",
+                                     engineName, 100 * density,
+                                     elapsedNanos / 1e6 / NUM_OF_GAMES_PER_DENSITY,
+                                     numOfOpenedCells / NUM_OF_GAMES_PER_DENSITY));
+        }
+    }
+
+    private static void benchmarkSolver(MinesweeperGame game) {
+        final Random random = new Random(SEED);
+        final DeductionSolver solver = new DeductionSolver();
+        final int[] states = new int[GRID_HEIGHT * GRID_WIDTH];
+
+        for (int i = 0; i < NUM_OF_WARM_UP_GAMES; i++) {
+            playGameWithSolver(game, solver, random, states);
+        }
+
+        final long[] elapsedNanos = new long[2];
+        long numOfMoves = 0;
+        for (int i = 0; i < NUM_OF_MEASURED_GAMES; i++) {
+            numOfMoves += playGameWithSolver(game, solver, random, states, elapsedNanos);
+        }
+
+        assertTrue(numOfMoves > 0);
+        Log.i(TAG, String.format("solver: %d games, %d moves, %.2f us per update "
+                                 + "(%.2f us at most)", NUM_OF_MEASURED_GAMES, numOfMoves,
+                                 elapsedNanos[0] / 1e3 / numOfMoves, elapsedNanos[1] / 1e3));
+    }
+
+    private static void playGameWithSolver(MinesweeperGame game, DeductionSolver solver,
+                                           Random random, int[] states) {
+        playGameWithSolver(game, solver, random, states, new long[2]);
+    }
+
+    /**
+     * @param elapsedNanos Total and maximum time of the updates of the solver, to add to.
+     * @return Number of moves made.
+     */
+    private static int playGameWithSolver(MinesweeperGame game, DeductionSolver solver,
+                                          Random random, int[] states, long[] elapsedNanos) {
+        game.newGame(GRID_HEIGHT, GRID_WIDTH, NUM_OF_MINES);
+        game.visualiseInto(states);
+        solver.reset(GRID_HEIGHT, GRID_WIDTH, states);
+        int revision = game.visualiseChangesSince(-1)[0];
+
+        int numOfMoves = 0;
+        while (!game.playerHasLost() && !game.playerHasWon()) {
+            final int[] knownSafeCells = solver.getKnownSafeCells();
+            final int cellIndex = (knownSafeCells.length > 0)
+                                  ? knownSafeCells[random.nextInt(knownSafeCells.length)]
+                                  : random.nextInt(states.length);
+            final int x = cellIndex % GRID_WIDTH;
+            final int y = cellIndex / GRID_WIDTH;
+            if (game.isCellVisible(x, y)) {
+                continue;
+            }
+            game.checkInputCoordinates(x, y);
+            final int[] changes = game.visualiseChangesSince(revision);
+            revision = changes[0];
+            final int[] changedCellIndices = new int[changes[1]];
+            final int[] newStates = new int[changes[1]];
+            for (int k = 0; k < changedCellIndices.length; k++) {
+                changedCellIndices[k] = changes[2 + 2 * k];
+                newStates[k] = changes[3 + 2 * k];
+            }
+
+            final long startTime = System.nanoTime();
+            solver.update(changedCellIndices, newStates);
+            final long updateNanos = System.nanoTime() - startTime;
+            elapsedNanos[0] += updateNanos;
+            elapsedNanos[1] = Math.max(elapsedNanos[1], updateNanos);
+            numOfMoves++;
+        }
+        return numOfMoves;
+    }
+
+    /**
+     * @return Number of checks made.
+     */
+    private static int playGame(MinesweeperGame game, Random random, int[] cellOrder,
+                                int[] status) {
+        game.newGame(GRID_HEIGHT, GRID_WIDTH, NUM_OF_MINES);
+        for (int i = 0; i < cellOrder.length; i++) {
+            final int j = random.nextInt(i + 1);
+            cellOrder[i] = cellOrder[j];
+            cellOrder[j] = i;
+        }
+
+        int numOfChecks = 0;
+        for (int cellIndex : cellOrder) {
+            final int x = cellIndex % GRID_WIDTH;
+            final int y = cellIndex / GRID_WIDTH;
+            if (game.isCellVisible(x, y)) {
+                continue;
+            }
+            game.getStatus(status);
+            game.checkInputCoordinates(x, y);
+            game.visualiseChangesSince(status[MinesweeperGame.STATUS_STATE_REVISION]);
+            numOfChecks++;
+            if (game.playerHasLost() || game.playerHasWon()) {
+                break;
+            }
+        }
+        return numOfChecks;
+    }
+}
@@ -0,0 +1,65 @@
+package com.timimakkonen.minesweeper.engine;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.timimakkonen.minesweeper.jni.MinesweeperGameSession;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the engine conformance suite against native game sessions on a device, and drives many
+ * sessions in parallel.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MinesweeperGameSessionConformanceTest extends MinesweeperGameConformanceTest {
+
+    private static final int NUM_OF_PARALLEL_GAMES = 2000;
+
+    static {
+        System.loadLibrary("libandroidminesweeper");
+    }
+
+    @Override
+    protected MinesweeperGame createGame() {
+        return new MinesweeperGameSession();
+    }
+
+    @Test
+    public void parallelSessions_areIndependentAndDestroyed() throws Exception {
+        final int numOfSessionsBefore = MinesweeperGameSession.getNumOfSessions();
+
+        final List<Integer> numsOfRevealedCells;
+        try (ParallelGameRunner runner = new ParallelGameRunner(
+                gameIndex -> new MinesweeperGameSession())) {
+            numsOfRevealedCells = runner.runGames(NUM_OF_PARALLEL_GAMES, (game, gameIndex) -> {
+                // grid size depends on the index, so mixed up sessions would show
+                final int gridSize = 10 + gameIndex % 7;
+                game.newGame(gridSize, gridSize, 0);
+                game.checkInputCoordinates(0, 0);
+                final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+                game.getStatus(status);
+                assertTrue(game.playerHasWon());
+                return status[MinesweeperGame.STATUS_NUM_OF_REVEALED_CELLS];
+            });
+        }
+
+        for (int i = 0; i < NUM_OF_PARALLEL_GAMES; i++) {
+            final int gridSize = 10 + i % 7;
+            assertEquals(gridSize * gridSize, (int) numsOfRevealedCells.get(i));
+        }
+        assertEquals(numOfSessionsBefore, MinesweeperGameSession.getNumOfSessions());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedSession_throws() {
+        final MinesweeperGameSession session = new MinesweeperGameSession(9, 9, 10);
+        session.close();
+        session.getGridHeight();
+    }
+}
@@ -1,6 +1,11 @@
 
+#include <algorithm> // std::copy, std::count_if, std::equal, std::max, std::min, std::upper_bound
+#include <cstddef>   // std::size_t
+#include <istream>   // std::istream
+#include <ostream>   // std::ostream
 #include <sstream>   // std::ostringstream
 #include <stdexcept> // std::invalid_argument
+#include <streambuf> // std::streambuf
 #include <string>    // std::string
 #include <vector>    // std::vector
 
@@ -10,39 +15,175 @@
 // TODO(Timi): Handle throws?
 namespace android_minesweeper {
 
+namespace {
+// 'numOfChanges' used by 'visualiseChangesSince' when the changes are not available
+const int CHANGES_UNAVAILABLE = -1;
+
+// action types used by 'applyActions'
+const int CHECK_ACTION = 0;
+const int MARK_ACTION = 1;
+const int COMPLETE_AROUND_ACTION = 2;
+const int ACTION_SIZE = 3;
+
+// visual states of cells (same as the ones returned by 'visualise')
+const int UNCHECKED_STATE = -1;
+const int MIN_REVEALED_STATE = 0;
+const int MAX_REVEALED_STATE = 9;
+const int MINE_STATE = 9;
+const int MARKED_STATE = 10;
+
+// indices of the status record filled by 'getStatus'
+const int STATUS_GRID_HEIGHT = 0;
+const int STATUS_GRID_WIDTH = 1;
+const int STATUS_NUM_OF_MINES = 2;
+const int STATUS_PLAYER_HAS_WON = 3;
+const int STATUS_PLAYER_HAS_LOST = 4;
+const int STATUS_NUM_OF_REVEALED_CELLS = 5;
+const int STATUS_NUM_OF_MARKED_CELLS = 6;
+const int STATUS_STATE_REVISION = 7;
+const int STATUS_NUM_OF_TRIPPED_MINES = 8;
+
+int isRevealedState(int state) { return (state >= MIN_REVEALED_STATE && state <= MAX_REVEALED_STATE) ? 1 : 0; }
+
+int isMarkedState(int state) { return state == MARKED_STATE ? 1 : 0; }
+
+// (only checked mines are visible)
+int isTrippedMineState(int state) { return state == MINE_STATE ? 1 : 0; }
+
+// estimated bytes per cell held by 'minesweeper::Game' (a separately allocated cell and the pointer to it),
+// used by 'memoryUsage', since the library does not report its own storage
+const std::size_t LIBRARY_BYTES_PER_CELL_ESTIMATE = 40;
+
+// header of 'serialiseToBuffer' (magic, followed by a version byte)
+const char SERIALISATION_MAGIC[] = {'A', 'M', 'S', 'G'};
+const std::size_t SERIALISATION_MAGIC_SIZE = sizeof(SERIALISATION_MAGIC);
+const char SERIALISATION_VERSION = 1;
+
+// output stream buffer appending straight to a vector (instead of an 'std::ostringstream' and a copy of its string)
+class VectorAppendStreamBuf : public std::streambuf {
+  private:
+    std::vector<char>& _buffer;
+
+  protected:
+    int_type overflow(int_type ch) override {
+        if (!traits_type::eq_int_type(ch, traits_type::eof())) {
+            this->_buffer.push_back(traits_type::to_char_type(ch));
+        }
+        return traits_type::not_eof(ch);
+    }
+
+    std::streamsize xsputn(const char* s, std::streamsize n) override {
+        this->_buffer.insert(this->_buffer.end(), s, s + n);
+        return n;
+    }
+
+  public:
+    explicit VectorAppendStreamBuf(std::vector<char>& buffer) : _buffer(buffer) {}
+};
+
+// input stream buffer reading straight from memory (instead of an 'std::istringstream' over a copy)
+class MemoryStreamBuf : public std::streambuf {
+  public:
+    MemoryStreamBuf(const char* data, std::size_t size) {
+        // the get area is only read from, so casting away const is safe
+        char* begin = const_cast<char*>(data);
+        this->setg(begin, begin, begin + size);
+    }
+};
+} // namespace
+
 AndroidMinesweeperGame::AndroidMinesweeperGame()
-    : _minesweeperGame{minesweeper::Game(0, 0, &(this->_minesweeperRandom))} {}
+    : _minesweeperGame{minesweeper::Game(0, 0, &(this->_minesweeperRandom))} {
+    this->updateVisualState_();
+}
 
 AndroidMinesweeperGame::AndroidMinesweeperGame(int gridHeight, int gridWidth, int numOfMines)
-    : _minesweeperGame{minesweeper::Game(gridHeight, gridWidth, numOfMines, &(this->_minesweeperRandom))} {}
+    : _minesweeperGame{minesweeper::Game(gridHeight, gridWidth, numOfMines, &(this->_minesweeperRandom))} {
+    this->updateVisualState_();
+}
 
-void AndroidMinesweeperGame::reset(bool keepCreatedMines) { this->_minesweeperGame.reset(keepCreatedMines); }
+void AndroidMinesweeperGame::reset(bool keepCreatedMines) {
+    this->_minesweeperGame.reset(keepCreatedMines);
+    this->updateVisualState_();
+}
 
 void AndroidMinesweeperGame::newGame(int gridHeight, int gridWidth, int numOfMines) {
     this->_minesweeperGame.newGame(gridHeight, gridWidth, numOfMines);
+    this->updateVisualState_();
 }
 
 void AndroidMinesweeperGame::newGame(int gridHeight, int gridWidth, double proportionOfMines) {
     this->_minesweeperGame.newGame(gridHeight, gridWidth, proportionOfMines);
+    this->updateVisualState_();
 }
 
-void AndroidMinesweeperGame::checkInputCoordinates(int x, int y) { this->_minesweeperGame.checkInputCoordinates(x, y); }
+void AndroidMinesweeperGame::checkInputCoordinates(int x, int y) {
+    this->beginUpdate_();
+    this->checkInputCoordinates_(x, y);
+    this->endUpdate_();
+}
 
 void AndroidMinesweeperGame::markInputCoordinates(int x, int y) {
-    try {
-        this->_minesweeperGame.markInputCoordinates(x, y);
-    } catch (std::invalid_argument& ex) {
-        // ignore mark input if the grid has not been initialised
-    }
+    this->beginUpdate_();
+    this->markInputCoordinates_(x, y);
+    this->endUpdate_();
 }
 
 void AndroidMinesweeperGame::completeAroundInputCoordinates(int x, int y) {
-    this->_minesweeperGame.completeAroundInputCoordinates(x, y);
+    this->beginUpdate_();
+    this->completeAroundInputCoordinates_(x, y);
+    this->endUpdate_();
 }
 
-bool AndroidMinesweeperGame::playerHasWon() const { return this->_minesweeperGame.playerHasWon(); }
+void AndroidMinesweeperGame::applyActions(const int* actions, int numOfActionInts) {
+    const int gridHeight = this->getGridHeight();
+    const int gridWidth = this->getGridWidth();
+    this->beginUpdate_();
+    for (int i = 0; i + ACTION_SIZE <= numOfActionInts; i += ACTION_SIZE) {
+        const int actionType = actions[i];
+        const int x = actions[i + 1];
+        const int y = actions[i + 2];
+        if (x < 0 || y < 0 || x >= gridWidth || y >= gridHeight) {
+            continue;
+        }
+        switch (actionType) {
+        case CHECK_ACTION:
+            this->checkInputCoordinates_(x, y);
+            break;
+        case MARK_ACTION:
+            this->markInputCoordinates_(x, y);
+            break;
+        case COMPLETE_AROUND_ACTION:
+            // (earlier actions of the batch decide whether the cell is visible by now)
+            this->completeAroundInputCoordinates_(x, y);
+            break;
+        default:
+            break;
+        }
+    }
+    this->endUpdate_();
+}
 
-bool AndroidMinesweeperGame::playerHasLost() const { return this->_minesweeperGame.playerHasLost(); }
+bool AndroidMinesweeperGame::playerHasWon() const {
+    // (no cell is revealed before the first check, which leaves no grid without safe cells)
+    return this->_numOfTrippedMines == 0 && this->_numOfRevealedCells > 0 && this->getNumOfRemainingSafeCells() == 0;
+}
+
+bool AndroidMinesweeperGame::playerHasLost() const { return this->_numOfTrippedMines > 0; }
+
+int AndroidMinesweeperGame::getNumOfRevealedSafeCells() const {
+    return this->_numOfRevealedCells - this->_numOfTrippedMines;
+}
+
+int AndroidMinesweeperGame::getNumOfMarkedCells() const { return this->_numOfMarkedCells; }
+
+int AndroidMinesweeperGame::getNumOfRemainingSafeCells() const {
+    return this->getGridHeight() * this->getGridWidth() - this->getNumOfMines() - this->getNumOfRevealedSafeCells();
+}
+
+int AndroidMinesweeperGame::getNumOfTrippedMines() const { return this->_numOfTrippedMines; }
+
+int AndroidMinesweeperGame::getNumOfCellsOpenedByLastAction() const { return this->_numOfCellsOpenedByLastAction; }
 
 bool AndroidMinesweeperGame::isCellVisible(int x, int y) const { return this->_minesweeperGame.isCellVisible(x, y); }
 
@@ -60,6 +201,55 @@ std::vector<int> AndroidMinesweeperGame::visualiseSolution() const {
     return this->_minesweeperGame.visualiseSolution<std::vector<int>>();
 }
 
+void AndroidMinesweeperGame::visualiseSolutionInto(std::vector<int>& result) const {
+    const std::vector<int> solution = this->_minesweeperGame.visualiseSolution<std::vector<int>>();
+    result.assign(solution.begin(), solution.end());
+}
+
+signed char* AndroidMinesweeperGame::visualStateData() { return this->_visualState.data(); }
+
+int AndroidMinesweeperGame::visualStateSize() const { return static_cast<int>(this->_visualState.size()); }
+
+std::vector<int> AndroidMinesweeperGame::visualiseChangesSince(int revision) const {
+    std::vector<int> changes{this->_visualStateRevision, CHANGES_UNAVAILABLE};
+    if (revision < this->_changeLogStartRevision || revision > this->_visualStateRevision) {
+        return changes;
+    }
+
+    const auto firstChange =
+        std::upper_bound(this->_changeLog.begin(), this->_changeLog.end(), revision,
+                         [](int rev, const ChangeLogEntry& entry) { return rev < entry.revision; });
+    const auto numOfChanges = static_cast<int>(this->_changeLog.end() - firstChange);
+    changes[1] = numOfChanges;
+    changes.reserve(changes.size() + 2 * numOfChanges);
+    for (auto it = firstChange; it != this->_changeLog.end(); ++it) {
+        changes.push_back(it->cellIndex);
+        changes.push_back(this->_visualState[it->cellIndex]);
+    }
+    return changes;
+}
+
+void AndroidMinesweeperGame::getStatus(int* status) const {
+    status[STATUS_GRID_HEIGHT] = this->_minesweeperGame.getGridHeight();
+    status[STATUS_GRID_WIDTH] = this->_minesweeperGame.getGridWidth();
+    status[STATUS_NUM_OF_MINES] = this->_minesweeperGame.getNumOfMines();
+    status[STATUS_PLAYER_HAS_WON] = this->playerHasWon() ? 1 : 0;
+    status[STATUS_PLAYER_HAS_LOST] = this->playerHasLost() ? 1 : 0;
+    status[STATUS_NUM_OF_REVEALED_CELLS] = this->_numOfRevealedCells;
+    status[STATUS_NUM_OF_MARKED_CELLS] = this->_numOfMarkedCells;
+    status[STATUS_STATE_REVISION] = this->_visualStateRevision;
+    status[STATUS_NUM_OF_TRIPPED_MINES] = this->_numOfTrippedMines;
+}
+
+std::size_t AndroidMinesweeperGame::memoryUsage() const {
+    const std::size_t numOfCells = static_cast<std::size_t>(this->_minesweeperGame.getGridHeight()) *
+                                   static_cast<std::size_t>(this->_minesweeperGame.getGridWidth());
+    return sizeof(*this) + numOfCells * LIBRARY_BYTES_PER_CELL_ESTIMATE +
+           this->_visualState.capacity() * sizeof(signed char) +
+           this->_changeLog.capacity() * sizeof(ChangeLogEntry) + this->_serialisationBuffer.capacity() +
+           this->_solution.capacity() * sizeof(signed char) + this->_revealStack.capacity() * sizeof(int);
+}
+
 std::string AndroidMinesweeperGame::serialise() const {
     std::ostringstream oss;
     this->_minesweeperGame.serialise(oss);
@@ -72,13 +262,240 @@ bool AndroidMinesweeperGame::deserialise(const std::string& inStr) {
     try {
         this->_minesweeperGame.deserialise(iss);
     } catch (std::invalid_argument& ex) {
+        // grid might have been partially overwritten, so keep visual state in sync
+        this->updateVisualState_();
+        // return false if unsuccessful
+        return false;
+    }
+    this->updateVisualState_();
+    // return true if successful
+    return true;
+}
+
+const std::vector<char>& AndroidMinesweeperGame::serialiseToBuffer() {
+    // 'clear' keeps the capacity, so saving the same grid again does not reallocate
+    this->_serialisationBuffer.clear();
+    this->_serialisationBuffer.insert(this->_serialisationBuffer.end(), SERIALISATION_MAGIC,
+                                      SERIALISATION_MAGIC + SERIALISATION_MAGIC_SIZE);
+    this->_serialisationBuffer.push_back(SERIALISATION_VERSION);
+
+    VectorAppendStreamBuf streamBuf(this->_serialisationBuffer);
+    std::ostream os(&streamBuf);
+    this->_minesweeperGame.serialise(os);
+    return this->_serialisationBuffer;
+}
+
+bool AndroidMinesweeperGame::deserialiseFromBuffer(const char* data, std::size_t size) {
+
+    if (size < static_cast<std::size_t>(SERIALISATION_HEADER_SIZE) ||
+        !std::equal(SERIALISATION_MAGIC, SERIALISATION_MAGIC + SERIALISATION_MAGIC_SIZE, data) ||
+        data[SERIALISATION_MAGIC_SIZE] != SERIALISATION_VERSION) {
+        // not written by 'serialiseToBuffer', game left untouched
+        return false;
+    }
+
+    MemoryStreamBuf streamBuf(data + SERIALISATION_HEADER_SIZE, size - SERIALISATION_HEADER_SIZE);
+    std::istream is(&streamBuf);
+    try {
+        this->_minesweeperGame.deserialise(is);
+    } catch (std::invalid_argument& ex) {
+        // grid might have been partially overwritten, so keep visual state in sync
+        this->updateVisualState_();
         // return false if unsuccessful
         return false;
     }
+    this->updateVisualState_();
     // return true if successful
     return true;
 }
 
+void AndroidMinesweeperGame::updateVisualState_() {
+    const std::vector<int> visualisation = this->_minesweeperGame.visualise<std::vector<int>>();
+    const int newRevision = this->_visualStateRevision + 1;
+    this->_numOfCellsOpenedByLastAction = 0;
+    // (the mines may have changed)
+    this->_solutionIsCurrent = false;
+
+    if (visualisation.size() != this->_visualState.size()) {
+        // 'resize' keeps the old storage when the grid does not grow,
+        // so existing direct buffers stay valid for same sized grids
+        this->_visualState.resize(visualisation.size());
+        std::copy(visualisation.begin(), visualisation.end(), this->_visualState.begin());
+        this->_numOfRevealedCells = static_cast<int>(
+            std::count_if(visualisation.begin(), visualisation.end(), [](int state) { return isRevealedState(state); }));
+        this->_numOfMarkedCells = static_cast<int>(
+            std::count_if(visualisation.begin(), visualisation.end(), [](int state) { return isMarkedState(state); }));
+        this->_numOfTrippedMines = static_cast<int>(std::count_if(
+            visualisation.begin(), visualisation.end(), [](int state) { return isTrippedMineState(state); }));
+        // cell indices of the old grid are meaningless now
+        this->_changeLog.clear();
+        this->_visualStateRevision = newRevision;
+        this->_changeLogStartRevision = newRevision;
+        return;
+    }
+
+    bool visualStateChanged = false;
+    for (std::size_t i = 0; i < visualisation.size(); ++i) {
+        const auto newState = static_cast<signed char>(visualisation[i]);
+        if (this->_visualState[i] != newState) {
+            this->_numOfRevealedCells += isRevealedState(newState) - isRevealedState(this->_visualState[i]);
+            this->_numOfMarkedCells += isMarkedState(newState) - isMarkedState(this->_visualState[i]);
+            this->_numOfTrippedMines += isTrippedMineState(newState) - isTrippedMineState(this->_visualState[i]);
+            this->_visualState[i] = newState;
+            this->_changeLog.push_back(ChangeLogEntry{newRevision, static_cast<int>(i)});
+            visualStateChanged = true;
+        }
+    }
+
+    if (visualStateChanged) {
+        this->_visualStateRevision = newRevision;
+    }
+
+    // once the log outgrows the grid, re-reading the whole visual state is cheaper
+    if (this->_changeLog.size() > this->_visualState.size()) {
+        this->_changeLog.clear();
+        this->_changeLogStartRevision = this->_visualStateRevision;
+    }
+}
+
+void AndroidMinesweeperGame::beginUpdate_() {
+    this->_numOfRevealedCellsBeforeUpdate = this->_numOfRevealedCells;
+    this->_visualStateChangedDuringUpdate = false;
+}
+
+void AndroidMinesweeperGame::endUpdate_() {
+    if (this->_visualStateChangedDuringUpdate) {
+        ++this->_visualStateRevision;
+    }
+    this->_visualStateChangedDuringUpdate = false;
+    // actions never hide revealed cells, so the difference is the number of opened cells
+    this->_numOfCellsOpenedByLastAction = this->_numOfRevealedCells - this->_numOfRevealedCellsBeforeUpdate;
+
+    // once the log outgrows the grid, re-reading the whole visual state is cheaper
+    if (this->_changeLog.size() > this->_visualState.size()) {
+        this->_changeLog.clear();
+        this->_changeLogStartRevision = this->_visualStateRevision;
+    }
+}
+
+void AndroidMinesweeperGame::setCellState_(int cellIndex, int newState) {
+    const int oldState = this->_visualState[cellIndex];
+    if (oldState == newState) {
+        return;
+    }
+    this->_numOfRevealedCells += isRevealedState(newState) - isRevealedState(oldState);
+    this->_numOfMarkedCells += isMarkedState(newState) - isMarkedState(oldState);
+    this->_numOfTrippedMines += isTrippedMineState(newState) - isTrippedMineState(oldState);
+    this->_visualState[cellIndex] = static_cast<signed char>(newState);
+    // (logged with the revision 'endUpdate_' moves to)
+    this->_changeLog.push_back(ChangeLogEntry{this->_visualStateRevision + 1, cellIndex});
+    this->_visualStateChangedDuringUpdate = true;
+}
+
+void AndroidMinesweeperGame::ensureSolution_() {
+    if (this->_solutionIsCurrent) {
+        return;
+    }
+    const std::vector<int> solution = this->_minesweeperGame.visualiseSolution<std::vector<int>>();
+    this->_solution.assign(solution.begin(), solution.end());
+    this->_solutionIsCurrent = true;
+}
+
+void AndroidMinesweeperGame::updateCellsRevealedFrom_(int x, int y) {
+    const int gridHeight = this->getGridHeight();
+    const int gridWidth = this->getGridWidth();
+    this->_revealStack.clear();
+    this->_revealStack.push_back(y * gridWidth + x);
+    while (!this->_revealStack.empty()) {
+        const int cellIndex = this->_revealStack.back();
+        this->_revealStack.pop_back();
+        const int cellX = cellIndex % gridWidth;
+        const int cellY = cellIndex / gridWidth;
+        if (isRevealedState(this->_visualState[cellIndex]) || !this->_minesweeperGame.isCellVisible(cellX, cellY)) {
+            continue;
+        }
+        this->ensureSolution_();
+        // (the solution shows mines as marked)
+        const int solutionState = this->_solution[cellIndex];
+        this->setCellState_(cellIndex, solutionState == MARKED_STATE ? MINE_STATE : solutionState);
+        if (solutionState != 0) {
+            continue;
+        }
+        // the library opens the neighbours of cells without neighbouring mines
+        for (int ny = std::max(0, cellY - 1); ny <= std::min(gridHeight - 1, cellY + 1); ++ny) {
+            for (int nx = std::max(0, cellX - 1); nx <= std::min(gridWidth - 1, cellX + 1); ++nx) {
+                const int neighbourIndex = ny * gridWidth + nx;
+                if (!isRevealedState(this->_visualState[neighbourIndex])) {
+                    this->_revealStack.push_back(neighbourIndex);
+                }
+            }
+        }
+    }
+}
+
+bool AndroidMinesweeperGame::completeAroundMarksHiddenNeighbours_(int x, int y) const {
+    const int gridHeight = this->getGridHeight();
+    const int gridWidth = this->getGridWidth();
+    const int state = this->_visualState[y * gridWidth + x];
+    if (!isRevealedState(state) || state == MINE_STATE) {
+        return false;
+    }
+    int numOfMarkedNeighbours = 0;
+    int numOfHiddenNeighbours = 0;
+    for (int ny = std::max(0, y - 1); ny <= std::min(gridHeight - 1, y + 1); ++ny) {
+        for (int nx = std::max(0, x - 1); nx <= std::min(gridWidth - 1, x + 1); ++nx) {
+            const int neighbourState = this->_visualState[ny * gridWidth + nx];
+            numOfMarkedNeighbours += isMarkedState(neighbourState);
+            numOfHiddenNeighbours += (neighbourState == UNCHECKED_STATE) ? 1 : 0;
+        }
+    }
+    // (with all the mines marked, the hidden neighbours are checked instead)
+    return numOfHiddenNeighbours > 0 && numOfMarkedNeighbours + numOfHiddenNeighbours == state;
+}
+
+void AndroidMinesweeperGame::checkInputCoordinates_(int x, int y) {
+    this->_minesweeperGame.checkInputCoordinates(x, y);
+    this->updateCellsRevealedFrom_(x, y);
+}
+
+void AndroidMinesweeperGame::markInputCoordinates_(int x, int y) {
+    try {
+        this->_minesweeperGame.markInputCoordinates(x, y);
+    } catch (std::invalid_argument& ex) {
+        // ignore mark input if the grid has not been initialised
+        return;
+    }
+    // (visible cells cannot be marked)
+    const int cellIndex = y * this->getGridWidth() + x;
+    const int state = this->_visualState[cellIndex];
+    if (!isRevealedState(state)) {
+        this->setCellState_(cellIndex, isMarkedState(state) ? UNCHECKED_STATE : MARKED_STATE);
+    }
+}
+
+void AndroidMinesweeperGame::completeAroundInputCoordinates_(int x, int y) {
+    // complete arounds on hidden cells (and so before the first check) are ignored, without
+    // reaching the library
+    if (!isRevealedState(this->_visualState[y * this->getGridWidth() + x])) {
+        return;
+    }
+    const bool marksHiddenNeighbours = this->completeAroundMarksHiddenNeighbours_(x, y);
+    this->_minesweeperGame.completeAroundInputCoordinates(x, y);
+
+    const int gridHeight = this->getGridHeight();
+    const int gridWidth = this->getGridWidth();
+    for (int ny = std::max(0, y - 1); ny <= std::min(gridHeight - 1, y + 1); ++ny) {
+        for (int nx = std::max(0, x - 1); nx <= std::min(gridWidth - 1, x + 1); ++nx) {
+            const int neighbourIndex = ny * gridWidth + nx;
+            if (!marksHiddenNeighbours) {
+                this->updateCellsRevealedFrom_(nx, ny);
+            } else if (this->_visualState[neighbourIndex] == UNCHECKED_STATE) {
+                this->setCellState_(neighbourIndex, MARKED_STATE);
+            }
+        }
+    }
+}
+
 // static
 int AndroidMinesweeperGame::maxNumOfMines(int gridHeight, int gridWidth) {
     return minesweeper::Game::maxNumOfMines(gridHeight, gridWidth);
@@ -1,8 +1,9 @@
 #ifndef ANDROID_MINESWEEPER_GAME_H
 #define ANDROID_MINESWEEPER_GAME_H
 
-#include <string> // std::string
-#include <vector> // std::vector
+#include <cstddef> // std::size_t
+#include <string>  // std::string
+#include <vector>  // std::vector
 
 #include <minesweeper/game.h>
 #include <minesweeper/random.h>
@@ -18,6 +19,82 @@ class AndroidMinesweeperGame {
     minesweeper::Game _minesweeperGame;
     minesweeper::Random _minesweeperRandom;
 
+    // visual information of each cell (one byte per cell, row by row),
+    // kept up to date after each action:
+    std::vector<signed char> _visualState;
+
+    // revision of '_visualState', incremented whenever any cell changes:
+    int _visualStateRevision = 0;
+
+    // log of changed cells, in increasing revision order:
+    struct ChangeLogEntry {
+        int revision;
+        int cellIndex;
+    };
+    std::vector<ChangeLogEntry> _changeLog;
+
+    // '_changeLog' covers all changes made after this revision:
+    int _changeLogStartRevision = 0;
+
+    // cell counts of '_visualState', kept up to date with it:
+    // (so that progress and won/lost information never needs a scan of the grid)
+    int _numOfRevealedCells = 0;
+    int _numOfMarkedCells = 0;
+    int _numOfTrippedMines = 0;
+
+    // number of cells revealed by the last action (or batch of actions):
+    int _numOfCellsOpenedByLastAction = 0;
+
+    // bookkeeping of the action (or batch of actions) being applied:
+    int _numOfRevealedCellsBeforeUpdate = 0;
+    bool _visualStateChangedDuringUpdate = false;
+
+    // solution of each cell (as by 'visualiseSolution'), read once the mines exist,
+    // so that cells revealed by an action get their number without visualising the whole grid:
+    std::vector<signed char> _solution;
+    bool _solutionIsCurrent = false;
+
+    // reused stack of cells to visit when following an opened area:
+    std::vector<int> _revealStack;
+
+    // binary save, reused between 'serialiseToBuffer' calls:
+    std::vector<char> _serialisationBuffer;
+
+    // +------------------+
+    // | private methods: |
+    // +------------------+
+
+    // re-reads the whole '_visualState' in place (reallocates only if the grid grows)
+    // and logs changed cells:
+    // (only after reset, new game and load, since actions update the cells they change)
+    void updateVisualState_();
+
+    // start and end of an action (or batch of actions):
+    // (the end moves to a new revision if any cell changed, and counts the cells opened)
+    void beginUpdate_();
+    void endUpdate_();
+
+    // sets the visual state of a cell, keeping the counters and the change log up to date:
+    void setCellState_(int cellIndex, int newState);
+
+    // reads '_solution' if it is not current:
+    // (only called after the mines have been created)
+    void ensureSolution_();
+
+    // sets the visual state of the cells made visible from the given cell:
+    // (follows the area opened from it through cells without neighbouring mines)
+    void updateCellsRevealedFrom_(int x, int y);
+
+    // whether completing around the given cell marks its hidden neighbours:
+    // (the library does it when they all have to be mines, which its visibility does not show,
+    //  so it is worked out from '_visualState' before the action, as in 'JavaMinesweeperGame')
+    bool completeAroundMarksHiddenNeighbours_(int x, int y) const;
+
+    // actions updating the cells they change (between 'beginUpdate_' and 'endUpdate_'):
+    void checkInputCoordinates_(int x, int y);
+    void markInputCoordinates_(int x, int y);
+    void completeAroundInputCoordinates_(int x, int y);
+
   public:
     // +-----------------+
     // | public methods: |
@@ -41,10 +118,28 @@ class AndroidMinesweeperGame {
     // checks trivial cells around already visible cell coordinates
     void completeAroundInputCoordinates(int x, int y);
 
+    // applies a batch of actions, moving to a new revision only once at the end:
+    // (packed as: [actionType0, x0, y0, actionType1, x1, y1, ...])
+    // (action types: 0 = check, 1 = mark, 2 = complete around)
+    // (actions outside the grid and complete arounds on invisible cells are ignored)
+    void applyActions(const int* actions, int numOfActionInts);
+
     // game progress information:
+    // (answered from the cell counts, without asking 'minesweeper::Game' to scan the grid)
     bool playerHasWon() const;
     bool playerHasLost() const;
 
+    // cell counters, kept up to date on every action, reset, new game and load:
+    // (revealed safe cells, placed marks, safe cells still hidden and checked mines)
+    int getNumOfRevealedSafeCells() const;
+    int getNumOfMarkedCells() const;
+    int getNumOfRemainingSafeCells() const;
+    int getNumOfTrippedMines() const;
+
+    // number of cells revealed by the last check, complete around or batch of actions:
+    // (including whole areas opened by a single check; 0 after reset, new game and load)
+    int getNumOfCellsOpenedByLastAction() const;
+
     // cell information:
     bool isCellVisible(int x, int y) const;
 
@@ -60,6 +155,35 @@ class AndroidMinesweeperGame {
     // (every cell marked as: empty, number or marked)
     std::vector<int> visualiseSolution() const;
 
+    // same as 'visualiseSolution', but into an existing vector:
+    // (keeps the capacity of 'result', so pooled vectors can be reused)
+    void visualiseSolutionInto(std::vector<int>& result) const;
+
+    // direct access to the up-to-date visual information of each cell:
+    // (one byte per cell, row by row, same values as 'visualise')
+    // (the pointer stays valid until the grid is resized by 'newGame' or 'deserialise')
+    signed char* visualStateData();
+    int visualStateSize() const;
+
+    // get visual information of the cells that have changed after given revision:
+    // (packed as: [newRevision, numOfChanges, cellIndex0, newState0, cellIndex1, newState1, ...])
+    // (if the changes are not available anymore, 'numOfChanges' is -1 and the whole visual state
+    //  has to be re-read)
+    std::vector<int> visualiseChangesSince(int revision) const;
+
+    // status record, filled in one go:
+    // (packed as: [gridHeight, gridWidth, numOfMines, playerHasWon, playerHasLost, numOfRevealedCells,
+    //  numOfMarkedCells, stateRevision, numOfTrippedMines])
+    // ('status' must have room for 'STATUS_SIZE' ints)
+    // ('stateRevision' is the same as the revision of 'visualiseChangesSince', and never decreases)
+    static const int STATUS_SIZE = 9;
+    void getStatus(int* status) const;
+
+    // approximate number of bytes held for the current board:
+    // (own buffers are counted exactly, the storage of 'minesweeper::Game' is estimated per cell,
+    //  since the library does not expose it)
+    std::size_t memoryUsage() const;
+
     // save game:
     std::string serialise() const;
 
@@ -67,6 +191,16 @@ class AndroidMinesweeperGame {
     // returns true if successful, false if unsuccessful/throw
     bool deserialise(const std::string& inStr);
 
+    // save game into a reused binary buffer, without intermediate string copies:
+    // (a header of 'SERIALISATION_HEADER_SIZE' bytes (magic and version) followed by the serialised game)
+    // (the returned buffer stays valid until the next 'serialiseToBuffer' call)
+    static const int SERIALISATION_HEADER_SIZE = 5;
+    const std::vector<char>& serialiseToBuffer();
+
+    // load game from memory written by 'serialiseToBuffer', without copying it:
+    // returns true if successful, false if unsuccessful/throw
+    bool deserialiseFromBuffer(const char* data, std::size_t size);
+
     // +------------------------+
     // | public static methods: |
     // +------------------------+
@@ -0,0 +1,648 @@
+#include <jni.h>
+
+#include <cstddef>   // std::size_t
+#include <cstdint>   // std::intptr_t
+#include <exception> // std::exception, std::exception_ptr
+#include <new>       // std::bad_alloc
+#include <stdexcept> // std::invalid_argument, std::out_of_range, std::length_error
+#include <string>    // std::string
+#include <vector>    // std::vector
+
+#include <android-minesweeper/game.h>
+#include <android-minesweeper/game_session_table.h>
+
+// Hand-written JNI bridge for 'com.timimakkonen.minesweeper.jni.MinesweeperGameJni'.
+// All native methods are registered in 'JNI_OnLoad' with 'RegisterNatives', so nothing is looked up by name
+// at the first call.
+//
+// Every function reading or changing a game or a vector receives the owning Java proxy as well, so that the
+// proxy (and its native memory) stays reachable until the call returns, even for trivial getters. Only the
+// constructors, the deleters (called by the cleaner once the proxy is gone) and the functions without a
+// pointer take primitives alone.
+
+namespace {
+
+using android_minesweeper::AndroidMinesweeperGame;
+using android_minesweeper::GameSessionTable;
+
+const char* const NATIVES_CLASS_NAME = "com/timimakkonen/minesweeper/jni/MinesweeperGameJni";
+
+const char* const ILLEGAL_ARGUMENT_EXCEPTION = "java/lang/IllegalArgumentException";
+const char* const INDEX_OUT_OF_BOUNDS_EXCEPTION = "java/lang/IndexOutOfBoundsException";
+const char* const NULL_POINTER_EXCEPTION = "java/lang/NullPointerException";
+const char* const OUT_OF_MEMORY_ERROR = "java/lang/OutOfMemoryError";
+const char* const RUNTIME_EXCEPTION = "java/lang/RuntimeException";
+
+// +----------+
+// | helpers: |
+// +----------+
+
+template <class T> T* fromHandle(jlong handle) { return reinterpret_cast<T*>(static_cast<std::intptr_t>(handle)); }
+
+template <class T> jlong toHandle(T* ptr) { return static_cast<jlong>(reinterpret_cast<std::intptr_t>(ptr)); }
+
+void throwJavaException(JNIEnv* env, const char* className, const char* message) {
+    jclass exceptionClass = env->FindClass(className);
+    if (exceptionClass != nullptr) {
+        env->ThrowNew(exceptionClass, message);
+        env->DeleteLocalRef(exceptionClass);
+    }
+}
+
+// translates the currently handled C++ exception into a pending Java exception:
+// (must only be called from a catch block)
+void rethrowAsJavaException(JNIEnv* env) {
+    try {
+        throw;
+    } catch (const std::invalid_argument& e) {
+        throwJavaException(env, ILLEGAL_ARGUMENT_EXCEPTION, e.what());
+    } catch (const std::out_of_range& e) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, e.what());
+    } catch (const std::bad_alloc& e) {
+        throwJavaException(env, OUT_OF_MEMORY_ERROR, e.what());
+    } catch (const std::exception& e) {
+        throwJavaException(env, RUNTIME_EXCEPTION, e.what());
+    } catch (...) {
+        throwJavaException(env, RUNTIME_EXCEPTION, "Unknown native exception.");
+    }
+}
+
+// checks that [offset, offset + length) lies within [0, capacity), throwing a Java exception if not
+bool checkRange(JNIEnv* env, jlong capacity, jint offset, jint length) {
+    if (offset < 0 || length < 0 || static_cast<jlong>(offset) + length > capacity) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, "range is outside the buffer");
+        return false;
+    }
+    return true;
+}
+
+bool isValidVectorIndex(const std::vector<int>& vector, jint index) {
+    return index >= 0 && static_cast<std::size_t>(index) < vector.size();
+}
+
+// +---------------------+
+// | 'std::vector<int>': |
+// +---------------------+
+
+jlong newVector(JNIEnv* /*env*/, jclass /*clazz*/) { return toHandle(new std::vector<int>()); }
+
+jlong newVectorCopy(JNIEnv* /*env*/, jclass /*clazz*/, jlong otherHandle, jobject /*other*/) {
+    return toHandle(new std::vector<int>(*fromHandle<std::vector<int>>(otherHandle)));
+}
+
+jlong newVectorFilled(JNIEnv* env, jclass /*clazz*/, jint count, jint value) {
+    if (count < 0) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, "vector count must be positive");
+        return 0;
+    }
+    return toHandle(new std::vector<int>(static_cast<std::size_t>(count), value));
+}
+
+void deleteVector(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle) { delete fromHandle<std::vector<int>>(handle); }
+
+jint vectorSize(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return static_cast<jint>(fromHandle<std::vector<int>>(handle)->size());
+}
+
+jlong vectorCapacity(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return static_cast<jlong>(fromHandle<std::vector<int>>(handle)->capacity());
+}
+
+void vectorReserve(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jlong n) {
+    try {
+        fromHandle<std::vector<int>>(handle)->reserve(static_cast<std::size_t>(n));
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+void vectorClear(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    fromHandle<std::vector<int>>(handle)->clear();
+}
+
+jint vectorGet(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint index) {
+    const std::vector<int>& vector = *fromHandle<std::vector<int>>(handle);
+    if (!isValidVectorIndex(vector, index)) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, "vector index out of range");
+        return 0;
+    }
+    return vector[static_cast<std::size_t>(index)];
+}
+
+jint vectorSet(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint index, jint value) {
+    std::vector<int>& vector = *fromHandle<std::vector<int>>(handle);
+    if (!isValidVectorIndex(vector, index)) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, "vector index out of range");
+        return 0;
+    }
+    const int oldValue = vector[static_cast<std::size_t>(index)];
+    vector[static_cast<std::size_t>(index)] = value;
+    return oldValue;
+}
+
+void vectorAdd(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint value) {
+    try {
+        fromHandle<std::vector<int>>(handle)->push_back(value);
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+void vectorInsert(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint index, jint value) {
+    std::vector<int>& vector = *fromHandle<std::vector<int>>(handle);
+    if (index < 0 || static_cast<std::size_t>(index) > vector.size()) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, "vector index out of range");
+        return;
+    }
+    try {
+        vector.insert(vector.begin() + index, value);
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+jint vectorRemove(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint index) {
+    std::vector<int>& vector = *fromHandle<std::vector<int>>(handle);
+    if (!isValidVectorIndex(vector, index)) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, "vector index out of range");
+        return 0;
+    }
+    const int oldValue = vector[static_cast<std::size_t>(index)];
+    vector.erase(vector.begin() + index);
+    return oldValue;
+}
+
+void vectorRemoveRange(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint fromIndex,
+                       jint toIndex) {
+    std::vector<int>& vector = *fromHandle<std::vector<int>>(handle);
+    if (fromIndex < 0 || fromIndex > toIndex || static_cast<std::size_t>(toIndex) > vector.size()) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, "vector index out of range");
+        return;
+    }
+    vector.erase(vector.begin() + fromIndex, vector.begin() + toIndex);
+}
+
+void vectorCopyTo(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jintArray target) {
+    const std::vector<int>& vector = *fromHandle<std::vector<int>>(handle);
+    const jsize size = static_cast<jsize>(vector.size());
+    if (target == nullptr) {
+        throwJavaException(env, NULL_POINTER_EXCEPTION, "target array is null");
+        return;
+    }
+    if (env->GetArrayLength(target) < size) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, "target array is too small");
+        return;
+    }
+    env->SetIntArrayRegion(target, 0, size, vector.data());
+}
+
+// +---------------------------+
+// | 'AndroidMinesweeperGame': |
+// +---------------------------+
+
+jlong newGame(JNIEnv* env, jclass /*clazz*/) {
+    try {
+        return toHandle(new AndroidMinesweeperGame());
+    } catch (...) {
+        rethrowAsJavaException(env);
+        return 0;
+    }
+}
+
+jlong newGameWithMines(JNIEnv* env, jclass /*clazz*/, jint gridHeight, jint gridWidth, jint numOfMines) {
+    try {
+        return toHandle(new AndroidMinesweeperGame(gridHeight, gridWidth, numOfMines));
+    } catch (...) {
+        rethrowAsJavaException(env);
+        return 0;
+    }
+}
+
+void deleteGame(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle) { delete fromHandle<AndroidMinesweeperGame>(handle); }
+
+void reset(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jboolean keepCreatedMines) {
+    try {
+        fromHandle<AndroidMinesweeperGame>(handle)->reset(keepCreatedMines == JNI_TRUE);
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+void newGameWithNumOfMines(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint gridHeight,
+                           jint gridWidth, jint numOfMines) {
+    try {
+        fromHandle<AndroidMinesweeperGame>(handle)->newGame(gridHeight, gridWidth, numOfMines);
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+void newGameWithProportionOfMines(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint gridHeight,
+                                  jint gridWidth, jdouble proportionOfMines) {
+    try {
+        fromHandle<AndroidMinesweeperGame>(handle)->newGame(gridHeight, gridWidth, proportionOfMines);
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+void checkInputCoordinates(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint x, jint y) {
+    try {
+        fromHandle<AndroidMinesweeperGame>(handle)->checkInputCoordinates(x, y);
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+void markInputCoordinates(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint x, jint y) {
+    try {
+        fromHandle<AndroidMinesweeperGame>(handle)->markInputCoordinates(x, y);
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+void completeAroundInputCoordinates(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint x, jint y) {
+    try {
+        fromHandle<AndroidMinesweeperGame>(handle)->completeAroundInputCoordinates(x, y);
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+void applyActions(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jintArray actions) {
+    if (actions == nullptr) {
+        throwJavaException(env, NULL_POINTER_EXCEPTION, "actions array is null");
+        return;
+    }
+    try {
+        const jsize numOfActionInts = env->GetArrayLength(actions);
+        std::vector<jint> actionInts(static_cast<std::size_t>(numOfActionInts));
+        env->GetIntArrayRegion(actions, 0, numOfActionInts, actionInts.data());
+        fromHandle<AndroidMinesweeperGame>(handle)->applyActions(actionInts.data(), numOfActionInts);
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+jboolean playerHasWon(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->playerHasWon() ? JNI_TRUE : JNI_FALSE;
+}
+
+jboolean playerHasLost(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->playerHasLost() ? JNI_TRUE : JNI_FALSE;
+}
+
+jboolean isCellVisible(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint x, jint y) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->isCellVisible(x, y) ? JNI_TRUE : JNI_FALSE;
+}
+
+jint getGridHeight(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->getGridHeight();
+}
+
+jint getGridWidth(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->getGridWidth();
+}
+
+jint getNumOfMines(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->getNumOfMines();
+}
+
+jint getNumOfCellsOpenedByLastAction(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->getNumOfCellsOpenedByLastAction();
+}
+
+jint getNumOfRevealedSafeCells(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->getNumOfRevealedSafeCells();
+}
+
+jint getNumOfMarkedCells(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->getNumOfMarkedCells();
+}
+
+jint getNumOfRemainingSafeCells(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->getNumOfRemainingSafeCells();
+}
+
+jint getNumOfTrippedMines(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return fromHandle<AndroidMinesweeperGame>(handle)->getNumOfTrippedMines();
+}
+
+jlong getMemoryUsage(JNIEnv* /*env*/, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    return static_cast<jlong>(fromHandle<AndroidMinesweeperGame>(handle)->memoryUsage());
+}
+
+jlong visualise(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    try {
+        return toHandle(new std::vector<int>(fromHandle<AndroidMinesweeperGame>(handle)->visualise()));
+    } catch (...) {
+        rethrowAsJavaException(env);
+        return 0;
+    }
+}
+
+jlong visualiseSolution(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    try {
+        return toHandle(new std::vector<int>(fromHandle<AndroidMinesweeperGame>(handle)->visualiseSolution()));
+    } catch (...) {
+        rethrowAsJavaException(env);
+        return 0;
+    }
+}
+
+void visualiseSolutionInto(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jlong resultHandle,
+                           jobject /*result*/) {
+    try {
+        fromHandle<AndroidMinesweeperGame>(handle)->visualiseSolutionInto(*fromHandle<std::vector<int>>(resultHandle));
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+}
+
+jintArray visualiseChangesSince(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jint revision) {
+    try {
+        const std::vector<int> changes = fromHandle<AndroidMinesweeperGame>(handle)->visualiseChangesSince(revision);
+        const jsize size = static_cast<jsize>(changes.size());
+        jintArray result = env->NewIntArray(size);
+        if (result != nullptr) {
+            env->SetIntArrayRegion(result, 0, size, changes.data());
+        }
+        return result;
+    } catch (...) {
+        rethrowAsJavaException(env);
+        return nullptr;
+    }
+}
+
+void getStatus(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jintArray status) {
+    if (status == nullptr) {
+        throwJavaException(env, NULL_POINTER_EXCEPTION, "status array is null");
+        return;
+    }
+    if (env->GetArrayLength(status) < AndroidMinesweeperGame::STATUS_SIZE) {
+        throwJavaException(env, INDEX_OUT_OF_BOUNDS_EXCEPTION, "status array is too small");
+        return;
+    }
+    int statusRecord[AndroidMinesweeperGame::STATUS_SIZE];
+    fromHandle<AndroidMinesweeperGame>(handle)->getStatus(statusRecord);
+    env->SetIntArrayRegion(status, 0, AndroidMinesweeperGame::STATUS_SIZE, statusRecord);
+}
+
+// (allocates a new buffer object, so the Java proxy keeps the one it gets until the grid is reallocated)
+jobject getVisualStateBuffer(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    AndroidMinesweeperGame* game = fromHandle<AndroidMinesweeperGame>(handle);
+    return env->NewDirectByteBuffer(game->visualStateData(), game->visualStateSize());
+}
+
+jstring serialise(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    try {
+        const std::string serialisation = fromHandle<AndroidMinesweeperGame>(handle)->serialise();
+        return env->NewStringUTF(serialisation.c_str());
+    } catch (...) {
+        rethrowAsJavaException(env);
+        return nullptr;
+    }
+}
+
+jboolean deserialise(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jstring inStr) {
+    if (inStr == nullptr) {
+        throwJavaException(env, NULL_POINTER_EXCEPTION, "input string is null");
+        return JNI_FALSE;
+    }
+    const char* inChars = env->GetStringUTFChars(inStr, nullptr);
+    if (inChars == nullptr) {
+        return JNI_FALSE;
+    }
+    bool success = false;
+    try {
+        success = fromHandle<AndroidMinesweeperGame>(handle)->deserialise(std::string(inChars));
+    } catch (...) {
+        rethrowAsJavaException(env);
+    }
+    env->ReleaseStringUTFChars(inStr, inChars);
+    return success ? JNI_TRUE : JNI_FALSE;
+}
+
+jobject serialiseToBuffer(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/) {
+    try {
+        const std::vector<char>& serialisation = fromHandle<AndroidMinesweeperGame>(handle)->serialiseToBuffer();
+        // the buffer is only read from on the Java side
+        return env->NewDirectByteBuffer(const_cast<char*>(serialisation.data()),
+                                        static_cast<jlong>(serialisation.size()));
+    } catch (...) {
+        rethrowAsJavaException(env);
+        return nullptr;
+    }
+}
+
+jboolean deserialiseFromDirectBuffer(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jobject buffer,
+                                     jint offset, jint length) {
+    if (buffer == nullptr) {
+        throwJavaException(env, NULL_POINTER_EXCEPTION, "input buffer is null");
+        return JNI_FALSE;
+    }
+    const char* data = static_cast<const char*>(env->GetDirectBufferAddress(buffer));
+    if (data == nullptr) {
+        throwJavaException(env, ILLEGAL_ARGUMENT_EXCEPTION, "input buffer is not direct");
+        return JNI_FALSE;
+    }
+    if (!checkRange(env, env->GetDirectBufferCapacity(buffer), offset, length)) {
+        return JNI_FALSE;
+    }
+    try {
+        return fromHandle<AndroidMinesweeperGame>(handle)->deserialiseFromBuffer(data + offset,
+                                                                                 static_cast<std::size_t>(length))
+                   ? JNI_TRUE
+                   : JNI_FALSE;
+    } catch (...) {
+        rethrowAsJavaException(env);
+        return JNI_FALSE;
+    }
+}
+
+jboolean deserialiseFromArray(JNIEnv* env, jclass /*clazz*/, jlong handle, jobject /*owner*/, jbyteArray array,
+                              jint offset, jint length) {
+    if (array == nullptr) {
+        throwJavaException(env, NULL_POINTER_EXCEPTION, "input array is null");
+        return JNI_FALSE;
+    }
+    if (!checkRange(env, env->GetArrayLength(array), offset, length)) {
+        return JNI_FALSE;
+    }
+    // the array is read in place, so no JNI calls are allowed until it is released
+    void* elements = env->GetPrimitiveArrayCritical(array, nullptr);
+    if (elements == nullptr) {
+        return JNI_FALSE;
+    }
+    bool success = false;
+    std::exception_ptr error;
+    try {
+        success = fromHandle<AndroidMinesweeperGame>(handle)->deserialiseFromBuffer(
+            static_cast<const char*>(elements) + offset, static_cast<std::size_t>(length));
+    } catch (...) {
+        error = std::current_exception();
+    }
+    env->ReleasePrimitiveArrayCritical(array, elements, JNI_ABORT);
+    if (error) {
+        try {
+            std::rethrow_exception(error);
+        } catch (...) {
+            rethrowAsJavaException(env);
+        }
+    }
+    return success ? JNI_TRUE : JNI_FALSE;
+}
+
+jint maxNumOfMines(JNIEnv* /*env*/, jclass /*clazz*/, jint gridHeight, jint gridWidth) {
+    return AndroidMinesweeperGame::maxNumOfMines(gridHeight, gridWidth);
+}
+
+jdouble maxProportionOfMines(JNIEnv* /*env*/, jclass /*clazz*/, jint gridHeight, jint gridWidth) {
+    return AndroidMinesweeperGame::maxProportionOfMines(gridHeight, gridWidth);
+}
+
+jint minNumOfMines(JNIEnv* /*env*/, jclass /*clazz*/) { return AndroidMinesweeperGame::minNumOfMines(); }
+
+jdouble minProportionOfMines(JNIEnv* /*env*/, jclass /*clazz*/) {
+    return AndroidMinesweeperGame::minProportionOfMines();
+}
+
+// +---------------------+
+// | 'GameSessionTable': |
+// +---------------------+
+
+jint newSession(JNIEnv* env, jclass /*clazz*/, jint gridHeight, jint gridWidth, jint numOfMines) {
+    try {
+        return GameSessionTable::instance().create(gridHeight, gridWidth, numOfMines);
+    } catch (...) {
+        rethrowAsJavaException(env);
+        return GameSessionTable::INVALID_HANDLE;
+    }
+}
+
+jboolean deleteSession(JNIEnv* /*env*/, jclass /*clazz*/, jint sessionHandle) {
+    return GameSessionTable::instance().destroy(sessionHandle) ? JNI_TRUE : JNI_FALSE;
+}
+
+jlong lockSession(JNIEnv* /*env*/, jclass /*clazz*/, jint sessionHandle) {
+    return toHandle(GameSessionTable::instance().lock(sessionHandle));
+}
+
+void unlockSession(JNIEnv* /*env*/, jclass /*clazz*/, jlong sessionPtr) {
+    GameSessionTable::unlock(fromHandle<GameSessionTable::Session>(sessionPtr));
+}
+
+jlong getSessionGame(JNIEnv* /*env*/, jclass /*clazz*/, jlong sessionPtr) {
+    return toHandle(&fromHandle<GameSessionTable::Session>(sessionPtr)->game());
+}
+
+jint getNumOfSessions(JNIEnv* /*env*/, jclass /*clazz*/) { return GameSessionTable::instance().numOfSessions(); }
+
+// +-----------------------+
+// | registration helpers: |
+// +-----------------------+
+
+// 'JNINativeMethod' takes non-const 'char*' in older JNI headers:
+JNINativeMethod nativeMethod(const char* name, const char* signature, void* fnPtr) {
+    return JNINativeMethod{const_cast<char*>(name), const_cast<char*>(signature), fnPtr};
+}
+
+} // namespace
+
+extern "C" JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM* vm, void* /*reserved*/) {
+    JNIEnv* env = nullptr;
+    if (vm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    }
+
+    jclass nativesClass = env->FindClass(NATIVES_CLASS_NAME);
+    if (nativesClass == nullptr) {
+        return JNI_ERR;
+    }
+
+    const JNINativeMethod nativeMethods[] = {
+        // 'std::vector<int>':
+        nativeMethod("newVector", "()J", reinterpret_cast<void*>(newVector)),
+        nativeMethod("newVectorCopy", "(JLjava/lang/Object;)J", reinterpret_cast<void*>(newVectorCopy)),
+        nativeMethod("newVectorFilled", "(II)J", reinterpret_cast<void*>(newVectorFilled)),
+        nativeMethod("deleteVector", "(J)V", reinterpret_cast<void*>(deleteVector)),
+        nativeMethod("vectorSize", "(JLjava/lang/Object;)I", reinterpret_cast<void*>(vectorSize)),
+        nativeMethod("vectorCapacity", "(JLjava/lang/Object;)J", reinterpret_cast<void*>(vectorCapacity)),
+        nativeMethod("vectorReserve", "(JLjava/lang/Object;J)V", reinterpret_cast<void*>(vectorReserve)),
+        nativeMethod("vectorClear", "(JLjava/lang/Object;)V", reinterpret_cast<void*>(vectorClear)),
+        nativeMethod("vectorGet", "(JLjava/lang/Object;I)I", reinterpret_cast<void*>(vectorGet)),
+        nativeMethod("vectorSet", "(JLjava/lang/Object;II)I", reinterpret_cast<void*>(vectorSet)),
+        nativeMethod("vectorAdd", "(JLjava/lang/Object;I)V", reinterpret_cast<void*>(vectorAdd)),
+        nativeMethod("vectorInsert", "(JLjava/lang/Object;II)V", reinterpret_cast<void*>(vectorInsert)),
+        nativeMethod("vectorRemove", "(JLjava/lang/Object;I)I", reinterpret_cast<void*>(vectorRemove)),
+        nativeMethod("vectorRemoveRange", "(JLjava/lang/Object;II)V", reinterpret_cast<void*>(vectorRemoveRange)),
+        nativeMethod("vectorCopyTo", "(JLjava/lang/Object;[I)V", reinterpret_cast<void*>(vectorCopyTo)),
+
+        // 'AndroidMinesweeperGame':
+        nativeMethod("newGame", "()J", reinterpret_cast<void*>(newGame)),
+        nativeMethod("newGameWithMines", "(III)J", reinterpret_cast<void*>(newGameWithMines)),
+        nativeMethod("deleteGame", "(J)V", reinterpret_cast<void*>(deleteGame)),
+        nativeMethod("reset", "(JLjava/lang/Object;Z)V", reinterpret_cast<void*>(reset)),
+        nativeMethod("newGame", "(JLjava/lang/Object;III)V", reinterpret_cast<void*>(newGameWithNumOfMines)),
+        nativeMethod("newGame", "(JLjava/lang/Object;IID)V", reinterpret_cast<void*>(newGameWithProportionOfMines)),
+        nativeMethod("checkInputCoordinates", "(JLjava/lang/Object;II)V",
+                     reinterpret_cast<void*>(checkInputCoordinates)),
+        nativeMethod("markInputCoordinates", "(JLjava/lang/Object;II)V", reinterpret_cast<void*>(markInputCoordinates)),
+        nativeMethod("completeAroundInputCoordinates", "(JLjava/lang/Object;II)V",
+                     reinterpret_cast<void*>(completeAroundInputCoordinates)),
+        nativeMethod("applyActions", "(JLjava/lang/Object;[I)V", reinterpret_cast<void*>(applyActions)),
+        nativeMethod("playerHasWon", "(JLjava/lang/Object;)Z", reinterpret_cast<void*>(playerHasWon)),
+        nativeMethod("playerHasLost", "(JLjava/lang/Object;)Z", reinterpret_cast<void*>(playerHasLost)),
+        nativeMethod("isCellVisible", "(JLjava/lang/Object;II)Z", reinterpret_cast<void*>(isCellVisible)),
+        nativeMethod("getGridHeight", "(JLjava/lang/Object;)I", reinterpret_cast<void*>(getGridHeight)),
+        nativeMethod("getGridWidth", "(JLjava/lang/Object;)I", reinterpret_cast<void*>(getGridWidth)),
+        nativeMethod("getNumOfMines", "(JLjava/lang/Object;)I", reinterpret_cast<void*>(getNumOfMines)),
+        nativeMethod("getNumOfCellsOpenedByLastAction", "(JLjava/lang/Object;)I",
+                     reinterpret_cast<void*>(getNumOfCellsOpenedByLastAction)),
+        nativeMethod("getNumOfRevealedSafeCells", "(JLjava/lang/Object;)I",
+                     reinterpret_cast<void*>(getNumOfRevealedSafeCells)),
+        nativeMethod("getNumOfMarkedCells", "(JLjava/lang/Object;)I", reinterpret_cast<void*>(getNumOfMarkedCells)),
+        nativeMethod("getNumOfRemainingSafeCells", "(JLjava/lang/Object;)I",
+                     reinterpret_cast<void*>(getNumOfRemainingSafeCells)),
+        nativeMethod("getNumOfTrippedMines", "(JLjava/lang/Object;)I", reinterpret_cast<void*>(getNumOfTrippedMines)),
+        nativeMethod("getMemoryUsage", "(JLjava/lang/Object;)J", reinterpret_cast<void*>(getMemoryUsage)),
+        nativeMethod("visualise", "(JLjava/lang/Object;)J", reinterpret_cast<void*>(visualise)),
+        nativeMethod("visualiseSolution", "(JLjava/lang/Object;)J", reinterpret_cast<void*>(visualiseSolution)),
+        nativeMethod("visualiseSolutionInto", "(JLjava/lang/Object;JLjava/lang/Object;)V",
+                     reinterpret_cast<void*>(visualiseSolutionInto)),
+        nativeMethod("visualiseChangesSince", "(JLjava/lang/Object;I)[I",
+                     reinterpret_cast<void*>(visualiseChangesSince)),
+        nativeMethod("getStatus", "(JLjava/lang/Object;[I)V", reinterpret_cast<void*>(getStatus)),
+        nativeMethod("getVisualStateBuffer", "(JLjava/lang/Object;)Ljava/nio/ByteBuffer;",
+                     reinterpret_cast<void*>(getVisualStateBuffer)),
+        nativeMethod("serialise", "(JLjava/lang/Object;)Ljava/lang/String;", reinterpret_cast<void*>(serialise)),
+        nativeMethod("deserialise", "(JLjava/lang/Object;Ljava/lang/String;)Z", reinterpret_cast<void*>(deserialise)),
+        nativeMethod("serialiseToBuffer", "(JLjava/lang/Object;)Ljava/nio/ByteBuffer;",
+                     reinterpret_cast<void*>(serialiseToBuffer)),
+        nativeMethod("deserialiseFromDirectBuffer", "(JLjava/lang/Object;Ljava/nio/ByteBuffer;II)Z",
+                     reinterpret_cast<void*>(deserialiseFromDirectBuffer)),
+        nativeMethod("deserialiseFromArray", "(JLjava/lang/Object;[BII)Z",
+                     reinterpret_cast<void*>(deserialiseFromArray)),
+        nativeMethod("maxNumOfMines", "(II)I", reinterpret_cast<void*>(maxNumOfMines)),
+        nativeMethod("maxProportionOfMines", "(II)D", reinterpret_cast<void*>(maxProportionOfMines)),
+        nativeMethod("minNumOfMines", "()I", reinterpret_cast<void*>(minNumOfMines)),
+        nativeMethod("minProportionOfMines", "()D", reinterpret_cast<void*>(minProportionOfMines)),
+        // 'GameSessionTable':
+        nativeMethod("newSession", "(III)I", reinterpret_cast<void*>(newSession)),
+        nativeMethod("deleteSession", "(I)Z", reinterpret_cast<void*>(deleteSession)),
+        nativeMethod("lockSession", "(I)J", reinterpret_cast<void*>(lockSession)),
+        nativeMethod("unlockSession", "(J)V", reinterpret_cast<void*>(unlockSession)),
+        nativeMethod("getSessionGame", "(J)J", reinterpret_cast<void*>(getSessionGame)),
+        nativeMethod("getNumOfSessions", "()I", reinterpret_cast<void*>(getNumOfSessions)),
+    };
+
+    const jint numOfNativeMethods = static_cast<jint>(sizeof(nativeMethods) / sizeof(nativeMethods[0]));
+    const jint result = env->RegisterNatives(nativesClass, nativeMethods, numOfNativeMethods);
+    env->DeleteLocalRef(nativesClass);
+    if (result != JNI_OK) {
+        return JNI_ERR;
+    }
+
+    return JNI_VERSION_1_6;
+}
@@ -0,0 +1,101 @@
+#include <android-minesweeper/game_session_table.h>
+
+#include <utility> // std::move
+
+namespace android_minesweeper {
+
+GameSessionTable::Session::Session(int gridHeight, int gridWidth, int numOfMines)
+    : _game{gridHeight, gridWidth, numOfMines} {}
+
+AndroidMinesweeperGame& GameSessionTable::Session::game() { return this->_game; }
+
+int GameSessionTable::create(int gridHeight, int gridWidth, int numOfMines) {
+    // the game is created outside the lock, since it may be large
+    std::shared_ptr<Session> session = std::make_shared<Session>(gridHeight, gridWidth, numOfMines);
+
+    std::lock_guard<std::mutex> guard(this->_mutex);
+    int slot;
+    if (!this->_freeSlots.empty()) {
+        slot = this->_freeSlots.back();
+        this->_freeSlots.pop_back();
+    } else if (this->_sessions.size() < static_cast<std::size_t>(MAX_NUM_OF_SESSIONS)) {
+        slot = static_cast<int>(this->_sessions.size());
+        this->_sessions.emplace_back();
+        this->_generations.push_back(0);
+    } else {
+        return INVALID_HANDLE;
+    }
+    this->_sessions[slot] = std::move(session);
+    ++this->_numOfSessions;
+    return (this->_generations[slot] << NUM_OF_SLOT_BITS) | slot;
+}
+
+bool GameSessionTable::destroy(int handle) {
+    std::shared_ptr<Session> session;
+    {
+        std::lock_guard<std::mutex> guard(this->_mutex);
+        session = this->find_(handle);
+        if (!session) {
+            return false;
+        }
+        const int slot = handle & SLOT_MASK;
+        this->_sessions[slot].reset();
+        this->_generations[slot] = (this->_generations[slot] + 1) & GENERATION_MASK;
+        this->_freeSlots.push_back(slot);
+        --this->_numOfSessions;
+    }
+    // the game is freed here (outside the lock), unless it is still locked by another thread
+    return true;
+}
+
+GameSessionTable::Session* GameSessionTable::lock(int handle) {
+    std::shared_ptr<Session> session;
+    {
+        std::lock_guard<std::mutex> guard(this->_mutex);
+        session = this->find_(handle);
+    }
+    if (!session) {
+        return nullptr;
+    }
+    session->_mutex.lock();
+    {
+        // the session may have been destroyed while waiting for its lock
+        std::lock_guard<std::mutex> guard(this->_mutex);
+        if (this->find_(handle) != session) {
+            session->_mutex.unlock();
+            return nullptr;
+        }
+    }
+    Session* lockedSession = session.get();
+    lockedSession->_lease = std::move(session);
+    return lockedSession;
+}
+
+void GameSessionTable::unlock(Session* session) {
+    // the lease is released after unlocking, since it may be the last reference to the session
+    std::shared_ptr<Session> lease = std::move(session->_lease);
+    session->_mutex.unlock();
+}
+
+int GameSessionTable::numOfSessions() {
+    std::lock_guard<std::mutex> guard(this->_mutex);
+    return this->_numOfSessions;
+}
+
+GameSessionTable& GameSessionTable::instance() {
+    static GameSessionTable table;
+    return table;
+}
+
+std::shared_ptr<GameSessionTable::Session> GameSessionTable::find_(int handle) const {
+    if (handle < 0) {
+        return std::shared_ptr<Session>();
+    }
+    const int slot = handle & SLOT_MASK;
+    const int generation = handle >> NUM_OF_SLOT_BITS;
+    if (static_cast<std::size_t>(slot) >= this->_sessions.size() || this->_generations[slot] != generation) {
+        return std::shared_ptr<Session>();
+    }
+    return this->_sessions[slot];
+}
+} // namespace android_minesweeper
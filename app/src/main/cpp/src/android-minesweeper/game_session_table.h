@@ -0,0 +1,111 @@
+#ifndef ANDROID_MINESWEEPER_GAME_SESSION_TABLE_H
+#define ANDROID_MINESWEEPER_GAME_SESSION_TABLE_H
+
+#include <memory> // std::shared_ptr
+#include <mutex>  // std::mutex
+#include <vector> // std::vector
+
+#include <android-minesweeper/game.h>
+
+namespace android_minesweeper {
+
+// Table of independent games addressed by integer handles, for running many headless games in parallel
+// (bots, tests and benchmarks) next to the game shown by the UI.
+//
+// The table is thread-safe. Each session is locked while it is being used, so one session is used by one thread
+// at a time, while different sessions run in parallel. Each session has its own game and therefore its own
+// 'minesweeper::Random'.
+//
+// A handle combines a slot index with a generation count of the slot, so stale handles of destroyed sessions
+// are not mistaken for newer sessions reusing the slot.
+class GameSessionTable {
+  public:
+    class Session {
+      private:
+        // +---------+
+        // | fields: |
+        // +---------+
+
+        std::mutex _mutex;
+        AndroidMinesweeperGame _game;
+
+        // keeps a locked session alive, even if it is destroyed from the table in the meantime:
+        std::shared_ptr<Session> _lease;
+
+        friend class GameSessionTable;
+
+      public:
+        // +-----------------+
+        // | public methods: |
+        // +-----------------+
+
+        Session(int gridHeight, int gridWidth, int numOfMines);
+
+        // game of this session: (only to be used while the session is locked)
+        AndroidMinesweeperGame& game();
+    };
+
+    // +-------------------+
+    // | public constants: |
+    // +-------------------+
+
+    static const int NUM_OF_SLOT_BITS = 20;
+    static const int MAX_NUM_OF_SESSIONS = 1 << NUM_OF_SLOT_BITS;
+    static const int INVALID_HANDLE = -1;
+
+  private:
+    // +---------+
+    // | fields: |
+    // +---------+
+
+    // (generations use the remaining bits of a non-negative 'int')
+    static const int GENERATION_MASK = (1 << (31 - NUM_OF_SLOT_BITS)) - 1;
+    static const int SLOT_MASK = MAX_NUM_OF_SESSIONS - 1;
+
+    std::mutex _mutex;
+    std::vector<std::shared_ptr<Session>> _sessions;
+    std::vector<int> _generations;
+    std::vector<int> _freeSlots;
+    int _numOfSessions = 0;
+
+    // +------------------+
+    // | private methods: |
+    // +------------------+
+
+    // session of the handle, or an empty pointer for unknown handles: ('_mutex' must be held)
+    std::shared_ptr<Session> find_(int handle) const;
+
+  public:
+    // +-----------------+
+    // | public methods: |
+    // +-----------------+
+
+    // creates a session with a new game and returns its handle:
+    // (returns 'INVALID_HANDLE' if the table is full, and throws like 'AndroidMinesweeperGame' on invalid
+    //  arguments)
+    int create(int gridHeight, int gridWidth, int numOfMines);
+
+    // removes the session of the handle from the table:
+    // (returns false for unknown handles; a session locked by another thread is freed once it is unlocked)
+    bool destroy(int handle);
+
+    // locks the session of the handle for the calling thread, and returns it:
+    // (returns nullptr for unknown handles, including sessions destroyed while waiting; blocks while another
+    //  thread has the session locked)
+    Session* lock(int handle);
+
+    // unlocks a session returned by 'lock', on the same thread:
+    static void unlock(Session* session);
+
+    int numOfSessions();
+
+    // +------------------------+
+    // | public static methods: |
+    // +------------------------+
+
+    // table shared by the whole process:
+    static GameSessionTable& instance();
+};
+} // namespace android_minesweeper
+
+#endif // ANDROID_MINESWEEPER_GAME_SESSION_TABLE_H
@@ -13,6 +13,7 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ProgressBar;
+import android.widget.TextView;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
@@ -38,6 +39,7 @@ import javax.inject.Inject;
  * <ul>
  *     <li>forwards needed data to {@link MinesweeperGridView} and passes its touch events to {@link GameViewModel}
  *         </li>
+ *     <li>shows the number of mines left to mark</li>
  *     <li>starts 'save-game'-feature when paused</li>
  *     <li>deals with minesweeper game related menu items, such as 'New Game' and 'Show solution'
  *     </li>
@@ -57,6 +59,7 @@ public class GameFragment extends Fragment {
     private ConstraintLayout gameFragmentView;
     private MaterialButton primSecoSwitchButton;
     private ProgressBar progressBar;
+    private TextView mineCounterTextView;
 
     private boolean hasOriginalColorDrawableBackground = false;
     @ColorInt
@@ -82,12 +85,20 @@ public class GameFragment extends Fragment {
         hasOriginalColorDrawableBackground = initBackgroundColorField();
 
         progressBar = view.findViewById(R.id.gameFragment_progressBar);
-
-        viewModel.getVisualMinesweeperCells()
-                 .observe(getViewLifecycleOwner(), visualMinesweeperCells -> minesweeperView
-                         .setVisualMinesweeperCellsAndResize(visualMinesweeperCells)
+        mineCounterTextView = view.findViewById(R.id.mineCounterTextView);
+
+        viewModel.getVisualMinesweeperData()
+                 .observe(getViewLifecycleOwner(), visualMinesweeperData -> minesweeperView
+                         .updateVisualMinesweeperCells(
+                                 visualMinesweeperData.getCurrentVisualMinesweeperCells(),
+                                 visualMinesweeperData.getChangedCellIndices(),
+                                 visualMinesweeperData.getUpdateNumber())
                  );
 
+        // the counters come with the status record, so the board is never scanned for them
+        viewModel.getGameStatus().observe(getViewLifecycleOwner(), gameStatus -> mineCounterTextView
+                .setText(getString(R.string.mine_counter, gameStatus.getNumOfRemainingMines())));
+
         viewModel.hasPlayerWon().observe(getViewLifecycleOwner(), playerHasWon -> {
             if (playerHasWon) {
                 onGameWin();
@@ -121,6 +132,10 @@ public class GameFragment extends Fragment {
                     }
                 });
 
+        // the window of an endless game follows the grid when it is panned beyond its edges
+        minesweeperView.setUnboundedPanning(viewModel.isEndlessGame());
+        minesweeperView.addMinesweeperPanListener(viewModel::moveEndlessWindow);
+
         primSecoSwitchButton.setOnClickListener(v -> viewModel.switchMinesweeperPrimSecoActions());
 
         viewModel.isPrimaryActionCheck().observe(getViewLifecycleOwner(), primaryActionIsCheck -> {
@@ -147,6 +162,12 @@ public class GameFragment extends Fragment {
                 showCorruptedGameSaveDialog();
             }
         });
+
+        // undo and redo items are enabled in 'onPrepareOptionsMenu'
+        viewModel.canUndo().observe(getViewLifecycleOwner(),
+                                    canUndo -> requireActivity().invalidateOptionsMenu());
+        viewModel.canRedo().observe(getViewLifecycleOwner(),
+                                    canRedo -> requireActivity().invalidateOptionsMenu());
     }
 
     private boolean initBackgroundColorField() {
@@ -175,6 +196,15 @@ public class GameFragment extends Fragment {
         super.onCreateOptionsMenu(menu, inflater);
     }
 
+    @Override
+    public void onPrepareOptionsMenu(@NonNull Menu menu) {
+        super.onPrepareOptionsMenu(menu);
+        final Boolean canUndo = viewModel.canUndo().getValue();
+        final Boolean canRedo = viewModel.canRedo().getValue();
+        menu.findItem(R.id.action_undo).setEnabled(canUndo != null && canUndo);
+        menu.findItem(R.id.action_redo).setEnabled(canRedo != null && canRedo);
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -242,6 +272,12 @@ public class GameFragment extends Fragment {
         } else if (id == R.id.action_save_game) {
             viewModel.save();
             itemFound = true;
+        } else if (id == R.id.action_undo) {
+            viewModel.undo();
+            itemFound = true;
+        } else if (id == R.id.action_redo) {
+            viewModel.redo();
+            itemFound = true;
         } else if (id == R.id.action_new_game_easy) {
             viewModel.startNewEasyGame();
             itemFound = true;
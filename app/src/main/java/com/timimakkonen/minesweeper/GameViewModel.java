@@ -7,7 +7,9 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 
-import java.util.Objects;
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
@@ -24,14 +26,18 @@ import io.reactivex.rxjava3.observers.DisposableObserver;
  * the update requests made to it from the android/ui/view level.
  * </p>
  * <p>
- * This class has 'visualMinesweeperCells' (VisualMinesweeperCell[][]), 'playerHasWon' (Boolean),
- * 'playerHasLost' (Boolean), 'primaryActionIsCheck' (Boolean), 'loadingInProgress' (Boolean) and
- * 'saveFileIsCorrupted' (Boolean) 'LiveData's which can be observed.
+ * This class has 'visualMinesweeperData' (MinesweeperDataForView), 'gameStatus'
+ * (MinesweeperGameStatus), 'hints' (MinesweeperHints), 'playerHasWon' (Boolean),
+ * 'playerHasLost' (Boolean), 'primaryActionIsCheck' (Boolean), 'loadingInProgress' (Boolean),
+ * 'saveFileIsCorrupted' (Boolean), 'canUndo' (Boolean) and 'canRedo' (Boolean) 'LiveData's which
+ * can be observed.
  * </p>
  * <p>
- * This class itself observes 'getCurrentVisualMinesweeperInformation' (MinesweeperDataForView) and
- * 'isSaveFileCorrupted' (Boolean) RxJava 'Observable's  of {@link com.timimakkonen.minesweeper.MinesweeperRepository}
- * and reacts to their changes by updating corresponding 'LiveData's.
+ * This class itself observes 'getCurrentVisualMinesweeperInformation' (MinesweeperDataForView),
+ * 'isSaveFileCorrupted' (Boolean), 'canUndo' (Boolean) and 'canRedo' (Boolean) RxJava
+ * 'Observable's of {@link com.timimakkonen.minesweeper.MinesweeperRepository}
+ * and 'getCurrentHints' (MinesweeperHints) of {@link MinesweeperSolver}, and reacts to their
+ * changes by updating corresponding 'LiveData's.
  * </p>
  */
 public class GameViewModel extends ViewModel {
@@ -52,37 +58,65 @@ public class GameViewModel extends ViewModel {
     private static final int HARD_GAME_NUM_OF_MINES = 99;
 
     private static final boolean DEFAULT_PRIMARY_ACTION_IS_CHECK = true;
+    private static final boolean DEFAULT_NO_GUESSING = false;
+
+    private static final int INITIAL_PENDING_ACTIONS_CAPACITY = 16;
+    // pending action moving the window of an endless game by (x, y) columns and rows
+    private static final int MOVE_WINDOW_ACTION = -1;
+    // pending taps queued behind a window move, which complete around (x, y) if it is visible on
+    // the moved window, and otherwise check or mark it
+    private static final int TAP_CHECK_ACTION = -2;
+    private static final int TAP_MARK_ACTION = -3;
 
 
     //private final SavedStateHandle savedStateHandle;
     private final MinesweeperRepository minesweeperRepository;
+    private final MinesweeperSolver minesweeperSolver;
     private final LocalStorage localStorage;
     private final BackgroundTaskRunner backgroundTaskRunner;
     private final CounterWithCallbackOnZero loadingProcessCounter;
 
     private final CompositeDisposable disposables;
 
-    private final MutableLiveData<VisualMinesweeperCell[][]> visualMinesweeperCells;
+    private final MutableLiveData<MinesweeperDataForView> visualMinesweeperData;
+    private final MutableLiveData<MinesweeperGameStatus> gameStatus;
+    private final MutableLiveData<MinesweeperHints> hints;
     private final MutableLiveData<Boolean> playerHasWon;
     private final MutableLiveData<Boolean> playerHasLost;
     private final MutableLiveData<Boolean> primaryActionIsCheck;
     private final MutableLiveData<Boolean> loadingInProgress;
     private final MutableLiveData<Boolean> saveFileIsCorrupted;
+    private final MutableLiveData<Boolean> canUndo;
+    private final MutableLiveData<Boolean> canRedo;
 
     private final AtomicBoolean initialGameHasLoaded;
 
+    // Cell actions are not run one by one. Instead they are collected here and applied as a batch
+    // by a single background task, so rapid tapping does not queue up a visual update per tap.
+    // Other tasks close the batch (see 'executeLoadingProcess'), so later actions go into a new
+    // batch that runs after them.
+    private final Object pendingActionsLock = new Object();
+    // batch that new actions join, or null if a new batch has to be scheduled
+    private PendingActionBatch openActionBatch = null;
+    // window moves queued but not yet applied, while which the visibility snapshot is of the
+    // window before the move
+    private int numOfQueuedWindowMoves = 0;
+
 
     @Inject
     public GameViewModel(/*SavedStateHandle savedStateHandle,*/
-            MinesweeperRepository minesweeperRepository, LocalStorage localStorage,
-            BackgroundTaskRunner backgroundTaskRunner) {
+            MinesweeperRepository minesweeperRepository, MinesweeperSolver minesweeperSolver,
+            LocalStorage localStorage, BackgroundTaskRunner backgroundTaskRunner) {
         //this.savedStateHandle = savedStateHandle;
         this.minesweeperRepository = minesweeperRepository;
+        this.minesweeperSolver = minesweeperSolver;
         this.localStorage = localStorage;
         this.backgroundTaskRunner = backgroundTaskRunner;
 
         this.disposables = new CompositeDisposable();
-        this.visualMinesweeperCells = new MutableLiveData<>();
+        this.visualMinesweeperData = new MutableLiveData<>();
+        this.gameStatus = new MutableLiveData<>();
+        this.hints = new MutableLiveData<>(MinesweeperHints.EMPTY);
         this.playerHasWon = new MutableLiveData<>(false);
         this.playerHasLost = new MutableLiveData<>(false);
 
@@ -93,6 +127,9 @@ public class GameViewModel extends ViewModel {
 
         this.saveFileIsCorrupted = new MutableLiveData<>(false);
 
+        this.canUndo = new MutableLiveData<>(false);
+        this.canRedo = new MutableLiveData<>(false);
+
         this.loadingProcessCounter = new CounterWithCallbackOnZero(
                 () -> loadingInProgress.postValue(false),
                 () -> loadingInProgress.postValue(true));
@@ -118,28 +155,31 @@ public class GameViewModel extends ViewModel {
                                          @NonNull MinesweeperDataForView minesweeperDataForView) {
                                      Log.d(TAG, String.format("onNext: Current thread is: %s",
                                                               Thread.currentThread()));
-                                     visualMinesweeperCells.postValue(minesweeperDataForView
-                                                                              .getCurrentVisualMinesweeperCells());
+                                     // (with the changed cells, so only those are redrawn)
+                                     visualMinesweeperData.postValue(minesweeperDataForView);
+
+                                     // won/lost information comes from the same status record
+                                     final MinesweeperGameStatus status =
+                                             minesweeperDataForView.getStatus();
+                                     gameStatus.postValue(status);
 
                                      Boolean playerHasWonBool =
                                              GameViewModel.this.playerHasWon.getValue();
                                      if (playerHasWonBool == null
-                                         || (playerHasWonBool !=
-                                             minesweeperDataForView.hasPlayerWon())) {
+                                         || (playerHasWonBool != status.hasPlayerWon())) {
                                          if (initialGameHasLoaded.get()) {
                                              GameViewModel.this.playerHasWon.postValue(
-                                                     minesweeperDataForView.hasPlayerWon());
+                                                     status.hasPlayerWon());
                                          }
                                      }
 
                                      Boolean playerHasLostBool =
                                              GameViewModel.this.playerHasLost.getValue();
                                      if (playerHasLostBool == null
-                                         || (playerHasLostBool !=
-                                             minesweeperDataForView.hasPlayerLost())) {
+                                         || (playerHasLostBool != status.hasPlayerLost())) {
                                          if (initialGameHasLoaded.get()) {
                                              GameViewModel.this.playerHasLost.postValue(
-                                                     minesweeperDataForView.hasPlayerLost());
+                                                     status.hasPlayerLost());
                                          }
                                      }
                                  }
@@ -153,6 +193,25 @@ public class GameViewModel extends ViewModel {
                                  }
                              }));
 
+        // hints are deduced on the solver thread, after the grid they belong to has been published
+        disposables
+                .add(minesweeperSolver
+                             .getCurrentHints()
+                             .subscribeWith(new DisposableObserver<MinesweeperHints>() {
+                                 @Override
+                                 public void onNext(@NonNull MinesweeperHints minesweeperHints) {
+                                     hints.postValue(minesweeperHints);
+                                 }
+
+                                 @Override
+                                 public void onError(@NonNull Throwable e) {
+                                 }
+
+                                 @Override
+                                 public void onComplete() {
+                                 }
+                             }));
+
         disposables
                 .add(minesweeperRepository
                              .isSaveFileCorrupted()
@@ -169,6 +228,44 @@ public class GameViewModel extends ViewModel {
                                  public void onError(@NonNull Throwable e) {
                                  }
 
+                                 @Override
+                                 public void onComplete() {
+                                 }
+                             }));
+
+        disposables
+                .add(minesweeperRepository
+                             .canUndo()
+                             .subscribeWith(new DisposableObserver<Boolean>() {
+
+                                 @Override
+                                 public void onNext(@NonNull Boolean canUndo) {
+                                     GameViewModel.this.canUndo.postValue(canUndo);
+                                 }
+
+                                 @Override
+                                 public void onError(@NonNull Throwable e) {
+                                 }
+
+                                 @Override
+                                 public void onComplete() {
+                                 }
+                             }));
+
+        disposables
+                .add(minesweeperRepository
+                             .canRedo()
+                             .subscribeWith(new DisposableObserver<Boolean>() {
+
+                                 @Override
+                                 public void onNext(@NonNull Boolean canRedo) {
+                                     GameViewModel.this.canRedo.postValue(canRedo);
+                                 }
+
+                                 @Override
+                                 public void onError(@NonNull Throwable e) {
+                                 }
+
                                  @Override
                                  public void onComplete() {
                                  }
@@ -195,8 +292,24 @@ public class GameViewModel extends ViewModel {
         disposables.clear();
     }
 
-    public LiveData<VisualMinesweeperCell[][]> getVisualMinesweeperCells() {
-        return visualMinesweeperCells;
+    /**
+     * @return Grids to draw, with the cells changed since the previous one. Grids may be skipped
+     * when several are posted in a row (see {@link MinesweeperDataForView#getUpdateNumber()}).
+     */
+    public LiveData<MinesweeperDataForView> getVisualMinesweeperData() {
+        return visualMinesweeperData;
+    }
+
+    public LiveData<MinesweeperGameStatus> getGameStatus() {
+        return gameStatus;
+    }
+
+    /**
+     * @return Hidden cells known to be safe or mines, for hint features. They may lag behind
+     * 'visualMinesweeperData' by a move, so cells should be checked to still be hidden.
+     */
+    public LiveData<MinesweeperHints> getHints() {
+        return hints;
     }
 
     public LiveData<Boolean> hasPlayerWon() {
@@ -208,15 +321,25 @@ public class GameViewModel extends ViewModel {
     }
 
     public void primaryMinesweeperCoordinatesAction(int x, int y) throws IllegalArgumentException {
-        if (x < 0 || y < 0 || x >= getCurrentGridWidth() ||
-            y >= getCurrentGridHeight()) {
+        final boolean hiddenCellActionIsCheck =
+                primaryActionIsCheck.getValue() != null && primaryActionIsCheck.getValue();
+        // checked before taking the snapshot, so without queued moves it is of the current window
+        final boolean windowMoveIsQueued = isWindowMoveQueued();
+        // one snapshot per action, so bounds and visibility are checked against the same grid
+        final MinesweeperGridVisibility gridVisibility =
+                minesweeperRepository.getCurrentGridVisibility();
+        if (!gridVisibility.isInsideGrid(x, y)) {
             throw new IllegalArgumentException(
                     "Trying perform primary action on a cell outside the grid.");
         }
-        if (isCellVisible(x, y)) {
-            completeAroundMinesweeperCoordinates(x, y);
+        if (windowMoveIsQueued) {
+            queueTapBehindWindowMove(x, y, hiddenCellActionIsCheck);
+            return;
+        }
+        if (gridVisibility.isCellVisible(x, y)) {
+            completeAroundMinesweeperCoordinates(gridVisibility, x, y);
         } else {
-            if (primaryActionIsCheck.getValue() != null && primaryActionIsCheck.getValue()) {
+            if (hiddenCellActionIsCheck) {
                 checkMinesweeperCoordinates(x, y);
             } else {
                 markMinesweeperCoordinates(x, y);
@@ -226,43 +349,176 @@ public class GameViewModel extends ViewModel {
 
     public void secondaryMinesweeperCoordinatesAction(int x, int y)
             throws IllegalArgumentException {
-        if (x < 0 || y < 0 || x >= getCurrentGridWidth() ||
-            y >= getCurrentGridHeight()) {
+        final boolean hiddenCellActionIsCheck =
+                primaryActionIsCheck.getValue() == null || !primaryActionIsCheck.getValue();
+        final boolean windowMoveIsQueued = isWindowMoveQueued();
+        final MinesweeperGridVisibility gridVisibility =
+                minesweeperRepository.getCurrentGridVisibility();
+        if (!gridVisibility.isInsideGrid(x, y)) {
             throw new IllegalArgumentException(
                     "Trying perform secondary action on a cell outside the grid.");
         }
-        if (isCellVisible(x, y)) {
-            completeAroundMinesweeperCoordinates(x, y);
+        if (windowMoveIsQueued) {
+            queueTapBehindWindowMove(x, y, hiddenCellActionIsCheck);
+            return;
+        }
+        if (gridVisibility.isCellVisible(x, y)) {
+            completeAroundMinesweeperCoordinates(gridVisibility, x, y);
         } else {
-            if (primaryActionIsCheck.getValue() != null && primaryActionIsCheck.getValue()) {
-                markMinesweeperCoordinates(x, y);
-            } else {
+            if (hiddenCellActionIsCheck) {
                 checkMinesweeperCoordinates(x, y);
+            } else {
+                markMinesweeperCoordinates(x, y);
             }
         }
     }
 
+    // Moves are only queued from the UI thread, and are counted as queued until the moved grid
+    // has been published, so a snapshot taken after this returns false is of the current window.
+    private boolean isWindowMoveQueued() {
+        synchronized (pendingActionsLock) {
+            return numOfQueuedWindowMoves > 0;
+        }
+    }
+
+    /**
+     * Queues a tap to be resolved once the queued window moves have been applied, as the
+     * visibility snapshot is of the window before them (see 'applyPendingActions'). Moves keep the
+     * size of the window, so the bounds checked against the snapshot still hold.
+     */
+    private void queueTapBehindWindowMove(int x, int y, boolean hiddenCellActionIsCheck) {
+        Log.d(TAG, "queueTapBehindWindowMove: "
+                   + String.format("Tapping cell (%d, %d) after window move", x, y));
+        queueAction(hiddenCellActionIsCheck ? TAP_CHECK_ACTION : TAP_MARK_ACTION, x, y);
+    }
+
     private void checkMinesweeperCoordinates(int x, int y) {
         Log.d(TAG, "checkMinesweeperCoordinates: "
                    + String.format("Checking cell (%d, %d)", x, y));
-        executeLoadingProcess(() -> minesweeperRepository.checkCoordinates(x, y));
+        queueAction(MinesweeperGame.CHECK_ACTION, x, y);
     }
 
     private void markMinesweeperCoordinates(int x, int y) {
         Log.d(TAG, "markMinesweeperCoordinates: "
                    + String.format("Marking cell (%d, %d)", x, y));
-        executeLoadingProcess(() -> minesweeperRepository.markCoordinates(x, y));
+        queueAction(MinesweeperGame.MARK_ACTION, x, y);
     }
 
-    private void completeAroundMinesweeperCoordinates(int x, int y)
+    private void completeAroundMinesweeperCoordinates(MinesweeperGridVisibility gridVisibility,
+                                                      int x, int y)
             throws IllegalArgumentException {
-        if (!isCellVisible(x, y)) {
+        if (!gridVisibility.isCellVisible(x, y)) {
             throw new IllegalArgumentException(
                     "Trying to complete around a cell that is not visible.");
         }
         Log.d(TAG, "completeAroundMinesweeperCoordinates: "
                    + String.format("Completing around cell (%d, %d)", x, y));
-        executeLoadingProcess(() -> minesweeperRepository.completeAroundCoordinates(x, y));
+        queueAction(MinesweeperGame.COMPLETE_AROUND_ACTION, x, y);
+    }
+
+    // adds an action to the open batch, and schedules a new batch if none is open
+    private void queueAction(int actionType, int x, int y) {
+        synchronized (pendingActionsLock) {
+            if (openActionBatch == null) {
+                final PendingActionBatch batch = new PendingActionBatch();
+                openActionBatch = batch;
+                loadingProcessCounter.increment();
+                executeTaskOnBackground(new CallbackTask(() -> applyPendingActions(batch),
+                                                         loadingProcessCounter::decrement));
+            }
+            openActionBatch.add(actionType, x, y);
+            if (actionType == MOVE_WINDOW_ACTION) {
+                numOfQueuedWindowMoves++;
+            }
+        }
+    }
+
+    // runs on background and applies every action queued into the batch by the time it starts
+    // running (or by the time the batch was closed)
+    private void applyPendingActions(PendingActionBatch batch) {
+        final int[] actions;
+        synchronized (pendingActionsLock) {
+            if (openActionBatch == batch) {
+                openActionBatch = null;
+            }
+            actions = Arrays.copyOf(batch.actions, batch.numOfActionInts);
+        }
+        // the batch is split at window moves, as the actions after a move are on the moved window
+        int batchStart = 0;
+        for (int i = 0; i < actions.length; i += MinesweeperGame.ACTION_SIZE) {
+            if (actions[i] != MOVE_WINDOW_ACTION) {
+                continue;
+            }
+            if (i > batchStart) {
+                applyActionsOnCurrentWindow(Arrays.copyOfRange(actions, batchStart, i));
+            }
+            minesweeperRepository.moveEndlessWindow(actions[i + 1], actions[i + 2]);
+            // (only after the moved grid has been published, see 'isWindowMoveQueued')
+            synchronized (pendingActionsLock) {
+                numOfQueuedWindowMoves--;
+            }
+            batchStart = i + MinesweeperGame.ACTION_SIZE;
+        }
+        if (batchStart < actions.length) {
+            applyActionsOnCurrentWindow(Arrays.copyOfRange(actions, batchStart, actions.length));
+        }
+    }
+
+    // resolves the taps queued behind a window move against the moved window, like the other taps
+    // were resolved against the window they were made on, and applies the actions
+    private void applyActionsOnCurrentWindow(int[] actions) {
+        final MinesweeperGridVisibility gridVisibility =
+                minesweeperRepository.getCurrentGridVisibility();
+        for (int i = 0; i < actions.length; i += MinesweeperGame.ACTION_SIZE) {
+            final int actionType = actions[i];
+            if (actionType != TAP_CHECK_ACTION && actionType != TAP_MARK_ACTION) {
+                continue;
+            }
+            final int x = actions[i + 1];
+            final int y = actions[i + 2];
+            if (gridVisibility.isInsideGrid(x, y) && gridVisibility.isCellVisible(x, y)) {
+                actions[i] = MinesweeperGame.COMPLETE_AROUND_ACTION;
+            } else if (actionType == TAP_CHECK_ACTION) {
+                actions[i] = MinesweeperGame.CHECK_ACTION;
+            } else {
+                actions[i] = MinesweeperGame.MARK_ACTION;
+            }
+        }
+        minesweeperRepository.applyActions(actions);
+    }
+
+    /**
+     * @return Whether the current game is endless, so the grid view should let it be panned
+     * beyond its edges (see {@link #moveEndlessWindow(int, int)}).
+     */
+    public boolean isEndlessGame() {
+        return minesweeperRepository.isCurrentGameEndless();
+    }
+
+    /**
+     * Moves the window of an endless game by the given number of columns and rows, after the
+     * actions queued before it have been applied (and before the ones queued after it).
+     */
+    public void moveEndlessWindow(int columns, int rows) {
+        Log.d(TAG, "moveEndlessWindow: "
+                   + String.format("Moving window by (%d, %d)", columns, rows));
+        queueAction(MOVE_WINDOW_ACTION, columns, rows);
+    }
+
+    /**
+     * Undoes the last action, after the actions queued before it have been applied (and before
+     * the ones queued after it).
+     */
+    public void undo() {
+        executeLoadingProcess(minesweeperRepository::undo);
+    }
+
+    /**
+     * Redoes the last undone action, after the actions queued before it have been applied (and
+     * before the ones queued after it).
+     */
+    public void redo() {
+        executeLoadingProcess(minesweeperRepository::redo);
     }
 
     public void restartWithMines() {
@@ -288,32 +544,38 @@ public class GameViewModel extends ViewModel {
                     "Trying to initialise a new grid with too many mines");
         }
         executeLoadingProcess(
-                () -> minesweeperRepository.startNewGame(gridHeight, gridWidth, numOfMines));
+                () -> minesweeperRepository.startNewGame(gridHeight, gridWidth, numOfMines,
+                                                         noGuessing()));
     }
 
     public void startNewEasyGame() {
         executeLoadingProcess(() -> minesweeperRepository
                 .startNewGame(EASY_GAME_GRID_HEIGHT, EASY_GAME_GRID_WIDTH,
-                              EASY_GAME_NUM_OF_MINES));
+                              EASY_GAME_NUM_OF_MINES, noGuessing()));
     }
 
     public void startNewMediumGame() {
         executeLoadingProcess(() -> minesweeperRepository
                 .startNewGame(MEDIUM_GAME_GRID_HEIGHT, MEDIUM_GAME_GRID_WIDTH,
-                              MEDIUM_GAME_NUM_OF_MINES));
+                              MEDIUM_GAME_NUM_OF_MINES, noGuessing()));
     }
 
 
     public void startNewHardGame() {
         executeLoadingProcess(() -> minesweeperRepository
                 .startNewGame(HARD_GAME_GRID_HEIGHT, HARD_GAME_GRID_WIDTH,
-                              HARD_GAME_NUM_OF_MINES));
+                              HARD_GAME_NUM_OF_MINES, noGuessing()));
     }
 
     public void startNewDefaultGame() {
         executeLoadingProcess(() -> minesweeperRepository
                 .startNewGame(DEFAULT_GAME_GRID_HEIGHT, DEFAULT_GAME_GRID_WIDTH,
-                              DEFAULT_GAME_NUM_OF_MINES));
+                              DEFAULT_GAME_NUM_OF_MINES, noGuessing()));
+    }
+
+    // whether new games are created without guessing, read when they are started
+    private boolean noGuessing() {
+        return localStorage.getNoGuessing(DEFAULT_NO_GUESSING);
     }
 
     public int maxNumOfMines(int gridHeight, int gridWidth) throws IllegalArgumentException {
@@ -328,26 +590,6 @@ public class GameViewModel extends ViewModel {
         return minesweeperRepository.minNumOfMines();
     }
 
-    private int getCurrentGridHeight() {
-        return Objects.requireNonNull(visualMinesweeperCells.getValue()).length;
-    }
-
-    private int getCurrentGridWidth() {
-        if (Objects.requireNonNull(visualMinesweeperCells.getValue()).length < 1) {
-            return 0;
-        } else {
-            return visualMinesweeperCells.getValue()[0].length;
-        }
-    }
-
-    private boolean isCellVisible(int x, int y) {
-        if (BuildConfig.DEBUG && (x < 0 || y < 0 || x >= getCurrentGridWidth() ||
-                                  y >= getCurrentGridHeight())) {
-            throw new AssertionError("Trying to check visibility of a cell outside the grid.");
-        }
-        return minesweeperRepository.isCellVisible(x, y);
-    }
-
     public void save() {
         Log.d(TAG, "save: Saving current minesweeper game");
         executeLoadingProcess(minesweeperRepository::save);
@@ -385,14 +627,45 @@ public class GameViewModel extends ViewModel {
         return this.saveFileIsCorrupted;
     }
 
+    public LiveData<Boolean> canUndo() {
+        return this.canUndo;
+    }
+
+    public LiveData<Boolean> canRedo() {
+        return this.canRedo;
+    }
+
     // executes task/process which causes UI to be notified that a task is running,
-    // and also notifies UI when the task has finished running
+    // and also notifies UI when the task has finished running. The open batch of actions is
+    // closed first, so the actions queued after this call are applied after the task.
     private void executeLoadingProcess(Runnable task) {
-        loadingProcessCounter.increment();
-        executeTaskOnBackground(new CallbackTask(task, loadingProcessCounter::decrement));
+        synchronized (pendingActionsLock) {
+            openActionBatch = null;
+            loadingProcessCounter.increment();
+            executeTaskOnBackground(new CallbackTask(task, loadingProcessCounter::decrement));
+        }
     }
 
     private void executeTaskOnBackground(Runnable task) {
         backgroundTaskRunner.execute(task);
     }
+
+    /**
+     * Actions queued for one background task, packed as [actionType, x, y] triples. Guarded by
+     * 'pendingActionsLock'.
+     */
+    private static final class PendingActionBatch {
+
+        int[] actions = new int[INITIAL_PENDING_ACTIONS_CAPACITY];
+        int numOfActionInts = 0;
+
+        void add(int actionType, int x, int y) {
+            if (numOfActionInts + MinesweeperGame.ACTION_SIZE > actions.length) {
+                actions = Arrays.copyOf(actions, 2 * actions.length);
+            }
+            actions[numOfActionInts++] = actionType;
+            actions[numOfActionInts++] = x;
+            actions[numOfActionInts++] = y;
+        }
+    }
 }
@@ -12,9 +12,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 
 import javax.inject.Inject;
@@ -29,6 +32,10 @@ import javax.inject.Inject;
  * 'SharedPreference'. Moreover, 'currentMinesweeperGame' has its own save, load and delete methods,
  * while all other keys have explicit getters and setters.
  * </p>
+ * <p>
+ * 'currentMinesweeperGame' is saved as binary, and loaded by mapping the file into memory. Games
+ * saved as text by older versions can still be loaded, until the game is saved again.
+ * </p>
  */
 @ApplicationScope
 public class LocalStorage {
@@ -37,6 +44,13 @@ public class LocalStorage {
 
     // save file names:
     private static final String CURRENT_GAME_SAVE_FILE_NAME = "current_minesweeper_game.save";
+    private static final String CURRENT_GAME_BINARY_SAVE_FILE_NAME =
+            "current_minesweeper_game.bin";
+    private static final String CURRENT_GAME_HISTORY_SAVE_FILE_NAME =
+            "current_minesweeper_game_history.bin";
+    private static final String CURRENT_GAME_REPLAY_LOG_FILE_NAME =
+            "current_minesweeper_game_replay.bin";
+    private static final String ENDLESS_CHUNK_STORE_FILE_NAME = "endless_chunk_store.bin";
 
     // preference keys:
     private static final String SAVE_AND_RESUME_KEY = "save_and_resume";
@@ -49,6 +63,8 @@ public class LocalStorage {
     private static final String OVERRIDE_SYSTEM_DARK_THEME_KEY = "override_system_dark_theme";
     private static final String HAS_SAVED_GAME_KEY = "has_saved_game";
     private static final String PRIM_ACTION_IS_CHECK_KEY = "prim_action_is_check";
+    private static final String GAME_ENGINE_KEY = "game_engine";
+    private static final String NO_GUESSING_KEY = "no_guessing";
 
     private final File savePath;
     private final SharedPreferences sharedPrefs;
@@ -70,32 +86,97 @@ public class LocalStorage {
     // | explicit file methods: |
     // +------------------------+
 
-    public void saveCurrentMinesweeperGame(String strCurrentMinesweeperGame) {
-        saveToFile(CURRENT_GAME_SAVE_FILE_NAME, strCurrentMinesweeperGame);
+    public void saveCurrentMinesweeperGame(ByteBuffer serialisedCurrentMinesweeperGame) {
+        saveToBinaryFile(CURRENT_GAME_BINARY_SAVE_FILE_NAME, serialisedCurrentMinesweeperGame);
+        // text save of an older version is outdated now
+        deleteSaveFile(CURRENT_GAME_SAVE_FILE_NAME);
+    }
+
+    /**
+     * @return Binary save of the current game mapped into memory, or null if there is none (for
+     * example, if the game was saved as text by an older version).
+     */
+    public ByteBuffer loadCurrentMinesweeperGameBuffer() {
+        return loadFromBinaryFile(CURRENT_GAME_BINARY_SAVE_FILE_NAME);
     }
 
+    /**
+     * @return Text save of the current game, written by an older version.
+     */
     public String loadCurrentMinesweeperGame() {
         return loadFromFile(CURRENT_GAME_SAVE_FILE_NAME);
     }
 
     public void deleteCurrentMinesweeperGame() {
+        deleteSaveFile(CURRENT_GAME_BINARY_SAVE_FILE_NAME);
         deleteSaveFile(CURRENT_GAME_SAVE_FILE_NAME);
+        deleteSaveFile(CURRENT_GAME_HISTORY_SAVE_FILE_NAME);
+    }
+
+    public void saveCurrentGameHistory(ByteBuffer serialisedCurrentGameHistory) {
+        saveToBinaryFile(CURRENT_GAME_HISTORY_SAVE_FILE_NAME, serialisedCurrentGameHistory);
+    }
+
+    /**
+     * @return Binary save of the undo history of the current game mapped into memory, or null if
+     * there is none.
+     */
+    public ByteBuffer loadCurrentGameHistoryBuffer() {
+        return loadFromBinaryFile(CURRENT_GAME_HISTORY_SAVE_FILE_NAME);
+    }
+
+    /**
+     * @return Channel writing a new replay log of the current game (replacing the old one), or
+     * null if the file could not be opened. The caller is responsible for closing it.
+     */
+    public FileChannel openCurrentGameReplayLog() {
+        File file = new File(savePath, CURRENT_GAME_REPLAY_LOG_FILE_NAME);
+        try {
+            return new FileOutputStream(file).getChannel();
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return Replay log of the current game mapped into memory (up to its last flush), or null
+     * if there is none.
+     */
+    public ByteBuffer loadCurrentGameReplayLogBuffer() {
+        return loadFromBinaryFile(CURRENT_GAME_REPLAY_LOG_FILE_NAME);
+    }
+
+    /**
+     * @return Channel reading and writing the chunk store of the endless game (see
+     * 'ChunkStore'), which is kept between sessions, or null if the file could not be opened.
+     * The caller is responsible for closing it.
+     */
+    public FileChannel openEndlessChunkStore() {
+        File file = new File(savePath, ENDLESS_CHUNK_STORE_FILE_NAME);
+        try {
+            return new RandomAccessFile(file, "rw").getChannel();
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 
     // +---------------+
     // | file methods: |
     // +---------------+
 
-    private void saveToFile(@SuppressWarnings("SameParameterValue") String saveFileName,
-                            String strToSave) {
+    private void saveToBinaryFile(String saveFileName, ByteBuffer bytesToSave) {
 
-        try {
-            File file = new File(savePath, saveFileName);
-            Log.d(TAG, String.format("save: Saving file '%s' to '%s'.", saveFileName,
-                                     file.getAbsolutePath()));
-            FileWriter writer = new FileWriter(file);
-            writer.write(strToSave);
-            writer.close();
+        File file = new File(savePath, saveFileName);
+        Log.d(TAG, String.format("save: Saving file '%s' to '%s'.", saveFileName,
+                                 file.getAbsolutePath()));
+        try (FileChannel channel = new FileOutputStream(file).getChannel()) {
+            // written from a duplicate, so the position of the given buffer is not moved
+            final ByteBuffer remainingBytes = bytesToSave.duplicate();
+            while (remainingBytes.hasRemaining()) {
+                channel.write(remainingBytes);
+            }
             Log.d(TAG, String.format("save: File '%s' has been saved to '%s'.", saveFileName,
                                      file.getAbsolutePath()));
         } catch (IOException e) {
@@ -103,6 +184,20 @@ public class LocalStorage {
         }
     }
 
+    private ByteBuffer loadFromBinaryFile(String saveFileName) {
+        File file = new File(savePath, saveFileName);
+        if (!file.exists()) {
+            return null;
+        }
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     private String loadFromFile(@SuppressWarnings("SameParameterValue") String saveFileName) {
         String output = "";
         StringBuilder stringBuilder = new StringBuilder();
@@ -198,6 +293,10 @@ public class LocalStorage {
         return getBoolean(USE_NIGHT_MODE_KEY, defValue);
     }
 
+    public boolean getNoGuessing(boolean defValue) {
+        return getBoolean(NO_GUESSING_KEY, defValue);
+    }
+
     // ints:
 
     public int getPrimSecoSwitchCustomHorizBias(int defValue) {
@@ -211,4 +310,8 @@ public class LocalStorage {
         return getString(PRIM_SECO_SWITCH_HORIZ_BIAS_KEY, defValue);
     }
 
+    public String getGameEngine(String defValue) {
+        return getString(GAME_ENGINE_KEY, defValue);
+    }
+
 }
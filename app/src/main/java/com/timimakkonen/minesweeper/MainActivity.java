@@ -13,6 +13,11 @@ import androidx.navigation.ui.NavigationUI;
 import android.view.Menu;
 import android.view.MenuItem;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+import javax.inject.Inject;
+
 /**
  * <p>
  * This 'MainActivity' class is the first visual/ui point of contact for this app. It is responsible
@@ -24,6 +29,9 @@ public class MainActivity extends AppCompatActivity {
 
     AppBarConfiguration appBarConfiguration;
 
+    @Inject
+    MinesweeperRepository minesweeperRepository;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -61,6 +69,8 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_app_main, menu);
+        // memory usage debug screen is only available in debug builds
+        menu.findItem(R.id.action_memory_usage).setVisible(BuildConfig.DEBUG);
         return super.onCreateOptionsMenu(menu);
     }
 
@@ -75,6 +85,10 @@ public class MainActivity extends AppCompatActivity {
             showAbout();
             return true;
         }
+        if (id == R.id.action_memory_usage) {
+            showMemoryUsage();
+            return true;
+        }
 
         return super.onOptionsItemSelected(item);
     }
@@ -83,4 +97,21 @@ public class MainActivity extends AppCompatActivity {
         Navigation.findNavController(this, R.id.nav_host_fragment).navigate(
                 R.id.action_global_aboutFragment);
     }
+
+    private void showMemoryUsage() {
+        Navigation.findNavController(this, R.id.nav_host_fragment).navigate(
+                R.id.action_global_memoryUsageFragment);
+    }
+
+    /**
+     * Also dumps the memory usage of the current minesweeper game, so that it can be read with
+     * 'adb shell dumpsys activity com.timimakkonen.minesweeper'.
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        if (minesweeperRepository != null) {
+            minesweeperRepository.dumpMemoryUsage(writer, prefix);
+        }
+    }
 }
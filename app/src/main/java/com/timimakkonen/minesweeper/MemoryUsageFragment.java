@@ -0,0 +1,97 @@
+package com.timimakkonen.minesweeper;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Debug;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+
+import javax.inject.Inject;
+
+/**
+ * <p>
+ * This fragment is responsible for displaying the debug screen of memory usage: the memory used by
+ * each component of the current minesweeper game, the memory of the whole process, and the largest
+ * grid that would fit into the remaining Java heap at the measured bytes per cell.
+ * </p>
+ */
+public class MemoryUsageFragment extends Fragment {
+
+    @Inject
+    MemoryUsageViewModel viewModel;
+
+    private TextView memoryUsageTextView;
+
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
+                             @Nullable Bundle savedInstanceState) {
+        // Inflate the layout for this fragment
+        return inflater.inflate(R.layout.fragment_memory_usage, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        memoryUsageTextView = view.findViewById(R.id.memoryUsage_textView);
+
+        view.findViewById(R.id.memoryUsage_refreshButton).setOnClickListener(
+                v -> viewModel.updateMemoryUsage());
+
+        viewModel.getMemoryUsage().observe(getViewLifecycleOwner(),
+                                           memoryUsage -> memoryUsageTextView.setText(
+                                                   memoryUsageReport(memoryUsage)));
+    }
+
+    @Override
+    public void onAttach(@NonNull Context context) {
+        super.onAttach(context);
+
+        ((MinesweeperApplication) requireActivity().getApplicationContext())
+                .appComponent
+                .inject(this);
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+
+        viewModel.updateMemoryUsage();
+    }
+
+    private static String memoryUsageReport(MinesweeperMemoryUsage memoryUsage) {
+        final Runtime runtime = Runtime.getRuntime();
+        final long usedJavaHeap = runtime.totalMemory() - runtime.freeMemory();
+        final long remainingJavaHeap = runtime.maxMemory() - usedJavaHeap;
+
+        final StringWriter report = new StringWriter();
+        final PrintWriter writer = new PrintWriter(report);
+        memoryUsage.dump(writer, "");
+        writer.println();
+        writer.println("Process:");
+        writer.printf(Locale.ENGLISH, "  %-24s%,12d B%n", "native heap allocated",
+                      Debug.getNativeHeapAllocatedSize());
+        writer.printf(Locale.ENGLISH, "  %-24s%,12d B%n", "Java heap used", usedJavaHeap);
+        writer.printf(Locale.ENGLISH, "  %-24s%,12d B%n", "Java heap max", runtime.maxMemory());
+        writer.println();
+        final int maxGridWidth = memoryUsage.maxSquareGridWidthFor(remainingJavaHeap);
+        if (maxGridWidth >= 0) {
+            writer.printf(Locale.ENGLISH,
+                          "Largest square grid fitting into remaining Java heap: %d x %d%n",
+                          maxGridWidth, maxGridWidth);
+        }
+        writer.flush();
+        return report.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.timimakkonen.minesweeper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import javax.inject.Inject;
+
+/**
+ * <p>
+ * This 'ViewModel' class is responsible for holding the memory usage of the current minesweeper
+ * game (see {@link MinesweeperMemoryUsage}) for the debug screen, and for measuring it again on
+ * request.
+ * </p>
+ * <p>
+ * This class has 'memoryUsage' (MinesweeperMemoryUsage) 'LiveData' which can be observed.
+ * </p>
+ */
+public class MemoryUsageViewModel extends ViewModel {
+
+    private final MinesweeperRepository minesweeperRepository;
+    private final BackgroundTaskRunner backgroundTaskRunner;
+
+    private final MutableLiveData<MinesweeperMemoryUsage> memoryUsage;
+
+    @Inject
+    public MemoryUsageViewModel(MinesweeperRepository minesweeperRepository,
+                                BackgroundTaskRunner backgroundTaskRunner) {
+        this.minesweeperRepository = minesweeperRepository;
+        this.backgroundTaskRunner = backgroundTaskRunner;
+
+        this.memoryUsage = new MutableLiveData<>();
+    }
+
+    public LiveData<MinesweeperMemoryUsage> getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public void updateMemoryUsage() {
+        // measured behind any queued game actions, since the repository lock is held by those
+        backgroundTaskRunner.execute(
+                () -> memoryUsage.postValue(minesweeperRepository.getMemoryUsage()));
+    }
+}
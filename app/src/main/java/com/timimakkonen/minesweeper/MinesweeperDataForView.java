@@ -5,18 +5,40 @@ package com.timimakkonen.minesweeper;
  * This class is responsible for encapsulating the minesweeper data that is needed by game
  * views/ui.
  * </p>
+ * <p>
+ * Besides the whole grid, this class also carries the indices (row by row) of the cells that have
+ * changed since the previously published data. If these are not known, {@link
+ * #getChangedCellIndices()} returns null and any cell might have changed. Published data is
+ * numbered one by one (see {@link #getUpdateNumber()}), so a reader that missed some data can
+ * tell that the changed cells are not relative to the grid it has.
+ * </p>
+ * <p>
+ * The status of the game (won/lost, cell counts, etc.) is carried as a {@link
+ * MinesweeperGameStatus}, read from the game in one go.
+ * </p>
+ * <p>
+ * The grid must be treated as immutable, since consecutive grids share unchanged rows.
+ * </p>
  */
 public class MinesweeperDataForView {
 
     private final VisualMinesweeperCell[][] currentVisualMinesweeperCells;
-    private final boolean playerHasWon;
-    private final boolean playerHasLost;
+    private final int[] changedCellIndices;
+    private final int updateNumber;
+    private final MinesweeperGameStatus status;
 
     public MinesweeperDataForView(VisualMinesweeperCell[][] currentVisualMinesweeperCells,
-                                  boolean playerHasWon, boolean playerHasLost) {
+                                  MinesweeperGameStatus status) {
+        this(currentVisualMinesweeperCells, null, 0, status);
+    }
+
+    public MinesweeperDataForView(VisualMinesweeperCell[][] currentVisualMinesweeperCells,
+                                  int[] changedCellIndices, int updateNumber,
+                                  MinesweeperGameStatus status) {
         this.currentVisualMinesweeperCells = currentVisualMinesweeperCells;
-        this.playerHasWon = playerHasWon;
-        this.playerHasLost = playerHasLost;
+        this.changedCellIndices = changedCellIndices;
+        this.updateNumber = updateNumber;
+        this.status = status;
     }
 
     // getters:
@@ -25,12 +47,28 @@ public class MinesweeperDataForView {
         return currentVisualMinesweeperCells;
     }
 
+    public int[] getChangedCellIndices() {
+        return changedCellIndices;
+    }
+
+    /**
+     * @return Number of this data, one more than the number of the data the changed cells are
+     * relative to.
+     */
+    public int getUpdateNumber() {
+        return updateNumber;
+    }
+
+    public MinesweeperGameStatus getStatus() {
+        return status;
+    }
+
     public boolean hasPlayerWon() {
-        return playerHasWon;
+        return status.hasPlayerWon();
     }
 
     public boolean hasPlayerLost() {
-        return playerHasLost;
+        return status.hasPlayerLost();
     }
 
 }
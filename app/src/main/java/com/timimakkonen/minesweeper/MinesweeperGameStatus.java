@@ -0,0 +1,96 @@
+package com.timimakkonen.minesweeper;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+/**
+ * <p>
+ * This class is an immutable snapshot of the status of a minesweeper game, read from the
+ * game status record (see {@link MinesweeperGame#getStatus(int[])}).
+ * </p>
+ * <p>
+ * 'stateRevision' never decreases and changes whenever any cell changes, so two snapshots with the
+ * same revision describe the same visual state.
+ * </p>
+ */
+public class MinesweeperGameStatus {
+
+    private final int gridHeight;
+    private final int gridWidth;
+    private final int numOfMines;
+    private final boolean playerHasWon;
+    private final boolean playerHasLost;
+    private final int numOfRevealedCells;
+    private final int numOfMarkedCells;
+    private final int stateRevision;
+    private final int numOfTrippedMines;
+
+    public MinesweeperGameStatus(int[] statusRecord) {
+        this.gridHeight = statusRecord[MinesweeperGame.STATUS_GRID_HEIGHT];
+        this.gridWidth = statusRecord[MinesweeperGame.STATUS_GRID_WIDTH];
+        this.numOfMines = statusRecord[MinesweeperGame.STATUS_NUM_OF_MINES];
+        this.playerHasWon = statusRecord[MinesweeperGame.STATUS_PLAYER_HAS_WON] != 0;
+        this.playerHasLost = statusRecord[MinesweeperGame.STATUS_PLAYER_HAS_LOST] != 0;
+        this.numOfRevealedCells = statusRecord[MinesweeperGame.STATUS_NUM_OF_REVEALED_CELLS];
+        this.numOfMarkedCells = statusRecord[MinesweeperGame.STATUS_NUM_OF_MARKED_CELLS];
+        this.stateRevision = statusRecord[MinesweeperGame.STATUS_STATE_REVISION];
+        this.numOfTrippedMines = statusRecord[MinesweeperGame.STATUS_NUM_OF_TRIPPED_MINES];
+    }
+
+    public boolean isInsideGrid(int x, int y) {
+        return x >= 0 && y >= 0 && x < gridWidth && y < gridHeight;
+    }
+
+    /**
+     * @return Number of mines minus the number of marked cells (the mine counter shown to the
+     * player), which goes negative if more cells are marked than there are mines.
+     */
+    public int getNumOfRemainingMines() {
+        return numOfMines - numOfMarkedCells;
+    }
+
+    public int getNumOfRevealedSafeCells() {
+        return numOfRevealedCells - numOfTrippedMines;
+    }
+
+    public int getNumOfRemainingSafeCells() {
+        return gridHeight * gridWidth - numOfMines - getNumOfRevealedSafeCells();
+    }
+
+    // getters:
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public int getNumOfMines() {
+        return numOfMines;
+    }
+
+    public boolean hasPlayerWon() {
+        return playerHasWon;
+    }
+
+    public boolean hasPlayerLost() {
+        return playerHasLost;
+    }
+
+    public int getNumOfRevealedCells() {
+        return numOfRevealedCells;
+    }
+
+    public int getNumOfMarkedCells() {
+        return numOfMarkedCells;
+    }
+
+    public int getStateRevision() {
+        return stateRevision;
+    }
+
+    public int getNumOfTrippedMines() {
+        return numOfTrippedMines;
+    }
+}
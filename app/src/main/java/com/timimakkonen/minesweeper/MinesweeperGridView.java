@@ -57,7 +57,13 @@ import java.util.List;
  * 'VisualMinesweeperCell[][]' must be provided via {@link #setVisualMinesweeperCellsAndResize(VisualMinesweeperCell[][])}.
  * Alternatively you can also use {@link #setVisualMinesweeperCells(VisualMinesweeperCell[][])}, but
  * in this case you must also manually modify number of rows and columns displayed using {@link
- * #setNumberOfRows(int)} and {@link #setNumberOfColumns(int)}, respectively.
+ * #setNumberOfRows(int)} and {@link #setNumberOfColumns(int)}, respectively. Grids following each
+ * other can be set with {@link #updateVisualMinesweeperCells(VisualMinesweeperCell[][], int[],
+ * int)}, which only redraws the cells that have changed.
+ * </p>
+ * <p>
+ * Mine probabilities (for example from a probability engine) can be drawn over the cells, as a
+ * tint whose opacity grows with the probability, via {@link #setMineProbabilities(float[])}.
  * </p>
  * <p>
  * This minesweeper view can handle standard short(primary) and long(secondary) press touch events.
@@ -67,6 +73,14 @@ import java.util.List;
  * <p>
  * This view has zooming and panning/scrolling functionality, which should behave as expected.
  * </p>
+ * <p>
+ * With {@link #setUnboundedPanning(boolean)}, the grid can be panned beyond its edges: the cells
+ * are shifted by whole cells as the view reaches an edge, the cells shifted in are drawn
+ * unchecked, and the number of columns and rows shifted is passed to the {@link
+ * OnMinesweeperGridViewPanListener}s (set via {@link
+ * #addMinesweeperPanListener(OnMinesweeperGridViewPanListener)}), which should provide the cells
+ * of the moved grid.
+ * </p>
  */
 @SuppressWarnings({"unused"})
 public class MinesweeperGridView extends View {
@@ -78,9 +92,17 @@ public class MinesweeperGridView extends View {
     private static final int DEFAULT_NUM_OF_ROWS = 13;
     private static final float DEFAULT_GRID_LINE_STROKE_WIDTH = 3;
     private static final float NULL_GRID_LINE_STROKE_WIDTH = -1;
+    // opacity of the tint of a certain mine
+    private static final int MAX_MINE_PROBABILITY_ALPHA = 160;
+    // update number of cells not set by 'updateVisualMinesweeperCells'
+    private static final int NO_UPDATE_NUMBER = Integer.MIN_VALUE;
     // minesweeper grid event listeners:
     private final List<MinesweeperGridView.OnMinesweeperGridViewEventListener>
             mMinesweeperGridViewEventListeners = new ArrayList<>();
+    private final List<MinesweeperGridView.OnMinesweeperGridViewPanListener>
+            mMinesweeperGridViewPanListeners = new ArrayList<>();
+    // whether panning beyond the edges of the grid shifts its cells (see 'shiftBeyondEdges')
+    private boolean mUnboundedPanning = false;
     // grid size fields:
     private int mNumOfColumns = DEFAULT_NUM_OF_COLUMNS;
     private int mNumOfRows = DEFAULT_NUM_OF_ROWS;
@@ -91,6 +113,8 @@ public class MinesweeperGridView extends View {
     private int mCheckedCellBgColor = Color.GRAY;
     @ColorInt
     private int mGridLinesColor = Color.BLACK;
+    @ColorInt
+    private int mMineProbabilityColor = Color.RED;
     // drawable symbols:
     private Drawable mUncheckedDrawable;
     private Drawable mEmptyDrawable;
@@ -107,10 +131,15 @@ public class MinesweeperGridView extends View {
     private Drawable mMarkedDrawable;
     // Minesweeper cells:
     private VisualMinesweeperCell[][] mVisualMinesweeperCells;
+    // update number of 'mVisualMinesweeperCells' (see 'updateVisualMinesweeperCells')
+    private int mUpdateNumber = NO_UPDATE_NUMBER;
+    // probability of each cell (row by row) being a mine, or null to draw none
+    private float[] mMineProbabilities;
     // grid paints:
     private Paint mCellBgPaint;
     private Paint mCheckedCellBgPaint;
     private Paint mGridLinesPaint;
+    private Paint mMineProbabilityPaint;
     // sizes:
     private int mCellSize;
     private float mGridLineStrokeWidth = DEFAULT_GRID_LINE_STROKE_WIDTH;
@@ -121,6 +150,10 @@ public class MinesweeperGridView extends View {
     private final Rect mGridRect = new Rect();
     private final RectF mCurrentViewportRect = new RectF();
     private Matrix mCurrentViewMatrix = new Matrix();
+    // reused by 'invalidateCells' and 'onDraw':
+    private final RectF mDirtyRectF = new RectF();
+    private final Rect mDirtyRect = new Rect();
+    private final Rect mClipBounds = new Rect();
     // gesture detector:
     private GestureDetector mGestureDetector;
     // scale gesture detector:
@@ -151,6 +184,8 @@ public class MinesweeperGridView extends View {
         mCheckedCellBgPaint = new Paint();
         mCheckedCellBgPaint.setStyle(Paint.Style.FILL);
         mGridLinesPaint = new Paint();
+        mMineProbabilityPaint = new Paint();
+        mMineProbabilityPaint.setStyle(Paint.Style.FILL);
         mGridLinesPaint.setStrokeWidth(mGridLineStrokeWidth);
 
         invalidatePaintColors();
@@ -303,6 +338,9 @@ public class MinesweeperGridView extends View {
     }
 
     private void validateAndCorrectViewPort() {
+        if (mUnboundedPanning) {
+            shiftBeyondEdges();
+        }
         if (!mContentRect.contains(mCurrentViewportRect)) {
             // if viewport rectangle is wider than content rectangle, reset viewport to content
             if (mCurrentViewportRect.width() > mContentRect.width()) {
@@ -346,6 +384,64 @@ public class MinesweeperGridView extends View {
         }
     }
 
+    /**
+     * Moves the viewport back by whole cells where it is past the content, shifts the cells by the
+     * same amount, and passes the shift to the pan listeners. The rest is corrected as usual.
+     */
+    private void shiftBeyondEdges() {
+        if (mCellSize <= 0 || mVisualMinesweeperCells == null ||
+            mCurrentViewportRect.width() > mContentRect.width() ||
+            mCurrentViewportRect.height() > mContentRect.height()) {
+            return;
+        }
+        final int columns = numOfCellsBeyond(mContentRect.left - mCurrentViewportRect.left,
+                                             mCurrentViewportRect.right - mContentRect.right);
+        final int rows = numOfCellsBeyond(mContentRect.top - mCurrentViewportRect.top,
+                                          mCurrentViewportRect.bottom - mContentRect.bottom);
+        if (columns == 0 && rows == 0) {
+            return;
+        }
+        mCurrentViewportRect.offset(-columns * mCellSize, -rows * mCellSize);
+        calculateCurrentViewMatrixFromViewportRect();
+
+        // shown until the cells of the moved grid are set
+        final VisualMinesweeperCell[][] shiftedCells =
+                new VisualMinesweeperCell[mNumOfRows][mNumOfColumns];
+        for (int y = 0; y < mNumOfRows; y++) {
+            for (int x = 0; x < mNumOfColumns; x++) {
+                final int oldX = x + columns;
+                final int oldY = y + rows;
+                shiftedCells[y][x] =
+                        (oldX >= 0 && oldY >= 0 && oldX < mNumOfColumns && oldY < mNumOfRows)
+                        ? mVisualMinesweeperCells[oldY][oldX]
+                        : VisualMinesweeperCell.UNCHECKED;
+            }
+        }
+        mVisualMinesweeperCells = shiftedCells;
+        // (the next update is relative to the cells before the shift)
+        mUpdateNumber = NO_UPDATE_NUMBER;
+        mMineProbabilities = null;
+        Log.d(TAG, String.format("shiftBeyondEdges: Shifting by (%d, %d)", columns, rows));
+        dispatchMinesweeperPanEvent(columns, rows);
+    }
+
+    // number of whole cells (rounded up) the viewport is past the content on one axis, negative
+    // before the start and positive after the end
+    private int numOfCellsBeyond(float distanceBeforeStart, float distanceAfterEnd) {
+        if (distanceBeforeStart > 0) {
+            return -(int) Math.ceil(distanceBeforeStart / mCellSize);
+        } else if (distanceAfterEnd > 0) {
+            return (int) Math.ceil(distanceAfterEnd / mCellSize);
+        }
+        return 0;
+    }
+
+    private void dispatchMinesweeperPanEvent(int columns, int rows) {
+        for (OnMinesweeperGridViewPanListener listener : mMinesweeperGridViewPanListeners) {
+            listener.onPannedBeyondGrid(columns, rows);
+        }
+    }
+
     private void loadAttributes(AttributeSet attrs, int defStyle) {
 
         // Load attributes
@@ -511,6 +607,7 @@ public class MinesweeperGridView extends View {
         mCellBgPaint.setColor(mCellBgColor);
         mCheckedCellBgPaint.setColor(mCheckedCellBgColor);
         mGridLinesPaint.setColor(mGridLinesColor);
+        mMineProbabilityPaint.setColor(mMineProbabilityColor);
     }
 
     @Override
@@ -586,7 +683,18 @@ public class MinesweeperGridView extends View {
                 (int) ((mCurrentViewportRect.right - mGridRect.left) / mCellSize) + 1,
                 mNumOfColumns);
 
-        drawGridCells(canvas, minRow, minColumn, maxRow, maxColumn);
+        // only the cells inside the clip (such as the ones of 'invalidateCells', when drawing in
+        // software) are drawn again
+        if (mCellSize > 0 && canvas.getClipBounds(mClipBounds)) {
+            drawGridCells(canvas,
+                          Math.max(minRow, (mClipBounds.top - mGridRect.top) / mCellSize - 1),
+                          Math.max(minColumn, (mClipBounds.left - mGridRect.left) / mCellSize - 1),
+                          Math.min(maxRow, (mClipBounds.bottom - mGridRect.top) / mCellSize + 1),
+                          Math.min(maxColumn,
+                                   (mClipBounds.right - mGridRect.left) / mCellSize + 1));
+        } else {
+            drawGridCells(canvas, minRow, minColumn, maxRow, maxColumn);
+        }
 
         drawGridLines(canvas, minRow, minColumn, maxRow, maxColumn);
         canvas.restore();
@@ -661,6 +769,21 @@ public class MinesweeperGridView extends View {
         } else {
             canvas.drawRect(cellBounds, mCellBgPaint);
         }
+        drawMineProbability(canvas, x, y, cellBounds);
+    }
+
+    private void drawMineProbability(Canvas canvas, int x, int y, Rect cellBounds) {
+        if (mMineProbabilities == null ||
+            mMineProbabilities.length != mNumOfRows * mNumOfColumns) {
+            return;
+        }
+        final float mineProbability = mMineProbabilities[y * mNumOfColumns + x];
+        // (NaN for cells without a probability)
+        if (mineProbability > 0) {
+            mMineProbabilityPaint.setAlpha(
+                    (int) (Math.min(1f, mineProbability) * MAX_MINE_PROBABILITY_ALPHA));
+            canvas.drawRect(cellBounds, mMineProbabilityPaint);
+        }
     }
 
     private void drawDrawableToCell(Canvas canvas, Drawable drawable, Rect cellBounds) {
@@ -791,6 +914,15 @@ public class MinesweeperGridView extends View {
         invalidatePaintColors();
     }
 
+    public int getMineProbabilityColor() {
+        return mMineProbabilityColor;
+    }
+
+    public void setMineProbabilityColor(@ColorInt int mMineProbabilityColor) {
+        this.mMineProbabilityColor = mMineProbabilityColor;
+        invalidatePaintColors();
+    }
+
     public Drawable getEmptyDrawable() {
         return mEmptyDrawable;
     }
@@ -933,6 +1065,7 @@ public class MinesweeperGridView extends View {
 
         Log.d(TAG, "setVisualMinesweeperCellsAndResize: Setting visual minesweeper cells");
         this.mVisualMinesweeperCells = visualMinesweeperCells;
+        this.mUpdateNumber = NO_UPDATE_NUMBER;
         int newNumOfRows = visualMinesweeperCells.length;
         int newNumOfColumns = 0;
         if (newNumOfRows > 0) {
@@ -959,6 +1092,84 @@ public class MinesweeperGridView extends View {
         invalidate();
     }
 
+    /**
+     * Sets the mVisualMinesweeperCells like
+     * {@link #setVisualMinesweeperCellsAndResize(VisualMinesweeperCell[][])}, but only redraws the
+     * changed cells if the given cells follow the ones set last. Otherwise (such as after skipped
+     * updates or a resize) the whole grid is redrawn.
+     *
+     * @param visualMinesweeperCells VisualMinesweeperCells to draw/visualise.
+     * @param changedCellIndices     Indices (row by row) of the cells changed since the cells of
+     *                               update 'updateNumber - 1', or null if any cell might have
+     *                               changed.
+     * @param updateNumber           Number of the update, one more than the one of the previous
+     *                               update.
+     */
+    public void updateVisualMinesweeperCells(VisualMinesweeperCell[][] visualMinesweeperCells,
+                                             int[] changedCellIndices, int updateNumber) {
+        final boolean followsCurrentCells =
+                changedCellIndices != null && mVisualMinesweeperCells != null &&
+                mUpdateNumber != NO_UPDATE_NUMBER && updateNumber == mUpdateNumber + 1 &&
+                visualMinesweeperCells.length == mNumOfRows &&
+                (mNumOfRows == 0 || visualMinesweeperCells[0].length == mNumOfColumns);
+        if (!followsCurrentCells) {
+            setVisualMinesweeperCellsAndResize(visualMinesweeperCells);
+        } else {
+            this.mVisualMinesweeperCells = visualMinesweeperCells;
+            invalidateCells(changedCellIndices);
+        }
+        this.mUpdateNumber = updateNumber;
+    }
+
+    /**
+     * Invalidates the smallest rectangle of the view holding the given cells, or nothing if none
+     * of them is in view.
+     */
+    @SuppressWarnings("deprecation")
+    private void invalidateCells(int[] cellIndices) {
+        if (cellIndices.length == 0 || mNumOfColumns == 0) {
+            return;
+        }
+        int minX = mNumOfColumns;
+        int minY = mNumOfRows;
+        int maxX = -1;
+        int maxY = -1;
+        for (int cellIndex : cellIndices) {
+            final int x = cellIndex % mNumOfColumns;
+            final int y = cellIndex / mNumOfColumns;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        mDirtyRectF.set(mGridRect.left + minX * mCellSize, mGridRect.top + minY * mCellSize,
+                        mGridRect.left + (maxX + 1) * mCellSize,
+                        mGridRect.top + (maxY + 1) * mCellSize);
+        // (the grid lines are drawn over the edges of the cells)
+        mDirtyRectF.inset(-mGridLineStrokeWidth, -mGridLineStrokeWidth);
+        if (mCurrentViewMatrix != null) {
+            mCurrentViewMatrix.mapRect(mDirtyRectF);
+        }
+        if (!mDirtyRectF.intersect(mContentRect)) {
+            return;
+        }
+        mDirtyRectF.roundOut(mDirtyRect);
+        // (with hardware acceleration, the whole view is drawn again anyway)
+        invalidate(mDirtyRect);
+    }
+
+    /**
+     * Sets the mine probabilities to draw over the cells. They are only drawn while their number
+     * matches the number of cells.
+     *
+     * @param mineProbabilities Probability of each cell (row by row) being a mine (NaN for none),
+     *                          or null to draw no probabilities.
+     */
+    public void setMineProbabilities(float[] mineProbabilities) {
+        this.mMineProbabilities = mineProbabilities;
+        invalidate();
+    }
+
     public void addMinesweeperEventListener(
             MinesweeperGridView.OnMinesweeperGridViewEventListener listener) {
         this.mMinesweeperGridViewEventListeners.add(listener);
@@ -973,10 +1184,40 @@ public class MinesweeperGridView extends View {
         this.mMinesweeperGridViewEventListeners.clear();
     }
 
+    public boolean hasUnboundedPanning() {
+        return this.mUnboundedPanning;
+    }
+
+    /**
+     * @param unboundedPanning True to let the grid be panned beyond its edges (see {@link
+     *                         OnMinesweeperGridViewPanListener}).
+     */
+    public void setUnboundedPanning(boolean unboundedPanning) {
+        this.mUnboundedPanning = unboundedPanning;
+    }
+
+    public void addMinesweeperPanListener(
+            MinesweeperGridView.OnMinesweeperGridViewPanListener listener) {
+        this.mMinesweeperGridViewPanListeners.add(listener);
+    }
+
+    public void removeMinesweeperPanListener(
+            MinesweeperGridView.OnMinesweeperGridViewPanListener listener) {
+        this.mMinesweeperGridViewPanListeners.remove(listener);
+    }
+
     public interface OnMinesweeperGridViewEventListener {
         void onCellPrimaryAction(int x, int y);
 
         void onCellSecondaryAction(int x, int y);
     }
 
+    public interface OnMinesweeperGridViewPanListener {
+        /**
+         * Called when the grid has been panned beyond its edges by the given number of columns
+         * and rows (negative ones to the left and up), with unbounded panning on.
+         */
+        void onPannedBeyondGrid(int columns, int rows);
+    }
+
 }
@@ -0,0 +1,112 @@
+package com.timimakkonen.minesweeper;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * This class is an immutable snapshot of the dimensions of a minesweeper grid and of which of its
+ * cells are visible (one bit per cell, row by row).
+ * </p>
+ * <p>
+ * {@link MinesweeperRepository} publishes a new snapshot with each visual update, so that input
+ * can be validated on any thread without waiting for the repository or calling into the game.
+ * </p>
+ */
+public final class MinesweeperGridVisibility {
+
+    private static final int MIN_VISIBLE_STATE = 0;
+    private static final int MAX_VISIBLE_STATE = 9;
+
+    static final MinesweeperGridVisibility EMPTY = new MinesweeperGridVisibility(0, 0, new long[0]);
+
+    private final int gridHeight;
+    private final int gridWidth;
+    private final long[] visibleCells;
+
+    private MinesweeperGridVisibility(int gridHeight, int gridWidth, long[] visibleCells) {
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        this.visibleCells = visibleCells;
+    }
+
+    private static boolean isVisibleState(int state) {
+        return state >= MIN_VISIBLE_STATE && state <= MAX_VISIBLE_STATE;
+    }
+
+    private static int numOfWords(int numOfCells) {
+        return (numOfCells + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * @param visualState Visual value of each cell (one byte per cell, row by row), as returned by
+     *                    {@link MinesweeperGame#getVisualStateBuffer()}.
+     */
+    static MinesweeperGridVisibility fromVisualState(int gridHeight, int gridWidth,
+                                                     ByteBuffer visualState) {
+        final int numOfCells = gridHeight * gridWidth;
+        final long[] visibleCells = new long[numOfWords(numOfCells)];
+        for (int i = 0; i < numOfCells; i++) {
+            if (isVisibleState(visualState.get(i))) {
+                // shifts of longs only use the lowest 6 bits of the distance
+                visibleCells[i / Long.SIZE] |= 1L << i;
+            }
+        }
+        return new MinesweeperGridVisibility(gridHeight, gridWidth, visibleCells);
+    }
+
+    /**
+     * @param visualStateChanges Changes in the format returned by {@link
+     *                           MinesweeperGame#visualiseChangesSince(int)}.
+     * @return Snapshot with the given changes applied, or this snapshot if no cell changed its
+     * visibility.
+     */
+    MinesweeperGridVisibility withChanges(int[] visualStateChanges) {
+        final int numOfChanges = visualStateChanges[1];
+        long[] newVisibleCells = null;
+        for (int j = 2; j < 2 + 2 * numOfChanges; j += 2) {
+            final int cellIndex = visualStateChanges[j];
+            final boolean isVisible = isVisibleState(visualStateChanges[j + 1]);
+            if (isVisible == isCellVisible(cellIndex)) {
+                continue;
+            }
+            if (newVisibleCells == null) {
+                newVisibleCells = visibleCells.clone();
+            }
+            newVisibleCells[cellIndex / Long.SIZE] ^= 1L << cellIndex;
+        }
+        return (newVisibleCells == null)
+               ? this : new MinesweeperGridVisibility(gridHeight, gridWidth, newVisibleCells);
+    }
+
+    public boolean isInsideGrid(int x, int y) {
+        return x >= 0 && y >= 0 && x < gridWidth && y < gridHeight;
+    }
+
+    public boolean isCellVisible(int x, int y) throws IllegalArgumentException {
+        if (!isInsideGrid(x, y)) {
+            throw new IllegalArgumentException(
+                    "Trying to check visibility of a cell outside the grid.");
+        }
+        return isCellVisible(y * gridWidth + x);
+    }
+
+    private boolean isCellVisible(int cellIndex) {
+        return (visibleCells[cellIndex / Long.SIZE] & (1L << cellIndex)) != 0;
+    }
+
+    long getMemoryUsage() {
+        return MinesweeperMemoryUsage.sizeOfArray(visibleCells);
+    }
+
+    // getters:
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+}
@@ -0,0 +1,77 @@
+package com.timimakkonen.minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * This class is an immutable snapshot of the hidden cells of a minesweeper grid that are known to
+ * be safe or known to be mines, as deduced from the visible cells by {@link MinesweeperSolver}.
+ * </p>
+ * <p>
+ * Cells are given by their indices (row by row, 'y * gridWidth + x'), in increasing order. Hints
+ * come from the grid of the given dimensions, which may have been replaced since.
+ * </p>
+ */
+public final class MinesweeperHints {
+
+    static final MinesweeperHints EMPTY = new MinesweeperHints(0, 0, new int[0], new int[0]);
+
+    private final int gridHeight;
+    private final int gridWidth;
+    private final int[] knownSafeCellIndices;
+    private final int[] knownMineCellIndices;
+
+    MinesweeperHints(int gridHeight, int gridWidth, int[] knownSafeCellIndices,
+                     int[] knownMineCellIndices) {
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        this.knownSafeCellIndices = knownSafeCellIndices;
+        this.knownMineCellIndices = knownMineCellIndices;
+    }
+
+    // getters:
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public int getNumOfKnownSafeCells() {
+        return knownSafeCellIndices.length;
+    }
+
+    public int getNumOfKnownMines() {
+        return knownMineCellIndices.length;
+    }
+
+    /**
+     * @return Copy of the indices of the cells known to be safe.
+     */
+    public int[] getKnownSafeCellIndices() {
+        return knownSafeCellIndices.clone();
+    }
+
+    /**
+     * @return Copy of the indices of the cells known to be mines.
+     */
+    public int[] getKnownMineCellIndices() {
+        return knownMineCellIndices.clone();
+    }
+
+    public boolean isKnownSafe(int x, int y) {
+        return isInsideGrid(x, y) &&
+               Arrays.binarySearch(knownSafeCellIndices, y * gridWidth + x) >= 0;
+    }
+
+    public boolean isKnownMine(int x, int y) {
+        return isInsideGrid(x, y) &&
+               Arrays.binarySearch(knownMineCellIndices, y * gridWidth + x) >= 0;
+    }
+
+    private boolean isInsideGrid(int x, int y) {
+        return x >= 0 && x < gridWidth && y >= 0 && y < gridHeight;
+    }
+}
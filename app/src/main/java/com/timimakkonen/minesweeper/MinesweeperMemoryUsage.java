@@ -0,0 +1,151 @@
+package com.timimakkonen.minesweeper;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * <p>
+ * This class is an immutable record of the approximate memory used by the current minesweeper
+ * game, broken down by component. (See {@link MinesweeperRepository#getMemoryUsage()}.)
+ * </p>
+ * <p>
+ * The components are the board of the game engine (native memory for the native engine), native
+ * result vectors not freed yet, the visual grids published to {@link GameViewModel}, the cached
+ * solution visualisation published to {@link SolutionViewModel} and the undo history. The view
+ * models hold the very same arrays as {@link MinesweeperRepository}, so these are counted only
+ * once. (The undo history grows with the cells changed by the actions made, rather than with the
+ * size of the grid.)
+ * </p>
+ * <p>
+ * Sizes of Java arrays are estimated from their lengths, using the layout of ART (12 byte array
+ * headers and 4 byte references).
+ * </p>
+ */
+public final class MinesweeperMemoryUsage {
+
+    private static final int ARRAY_HEADER_BYTES = 12;
+    private static final int REFERENCE_BYTES = 4;
+
+    private final int gridHeight;
+    private final int gridWidth;
+    private final long boardBytes;
+    private final long pendingNativeResultBytes;
+    private final long javaGridBytes;
+    private final long cachedSolutionBytes;
+    private final long historyBytes;
+
+    MinesweeperMemoryUsage(int gridHeight, int gridWidth, long boardBytes,
+                           long pendingNativeResultBytes, long javaGridBytes,
+                           long cachedSolutionBytes, long historyBytes) {
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        this.boardBytes = boardBytes;
+        this.pendingNativeResultBytes = pendingNativeResultBytes;
+        this.javaGridBytes = javaGridBytes;
+        this.cachedSolutionBytes = cachedSolutionBytes;
+        this.historyBytes = historyBytes;
+    }
+
+    static long sizeOfGrid(VisualMinesweeperCell[][] cells) {
+        if (cells == null) {
+            return 0;
+        }
+        long bytes = ARRAY_HEADER_BYTES + (long) cells.length * REFERENCE_BYTES;
+        for (VisualMinesweeperCell[] row : cells) {
+            bytes += ARRAY_HEADER_BYTES + (long) row.length * REFERENCE_BYTES;
+        }
+        return bytes;
+    }
+
+    static long sizeOfArray(int[] array) {
+        return (array == null) ? 0 : ARRAY_HEADER_BYTES + (long) array.length * Integer.BYTES;
+    }
+
+    static long sizeOfArray(long[] array) {
+        return (array == null) ? 0 : ARRAY_HEADER_BYTES + (long) array.length * Long.BYTES;
+    }
+
+    public long getTotalBytes() {
+        return boardBytes + pendingNativeResultBytes + javaGridBytes + cachedSolutionBytes +
+               historyBytes;
+    }
+
+    /**
+     * @return Total bytes divided by the number of cells, or 0 for an empty grid.
+     */
+    public double getBytesPerCell() {
+        final long numOfCells = (long) gridHeight * gridWidth;
+        return (numOfCells == 0) ? 0.0 : (double) getTotalBytes() / numOfCells;
+    }
+
+    /**
+     * Estimates the largest square grid whose memory usage fits into the given number of bytes,
+     * assuming the memory usage grows linearly with the number of cells as measured here.
+     *
+     * @param availableBytes Number of bytes available for a game.
+     * @return Width (and height) of the largest square grid, or -1 if the current grid is empty
+     * and gives nothing to measure.
+     */
+    public int maxSquareGridWidthFor(long availableBytes) {
+        final double bytesPerCell = getBytesPerCell();
+        if (bytesPerCell <= 0.0) {
+            return -1;
+        }
+        return (int) Math.min(Integer.MAX_VALUE,
+                              Math.floor(Math.sqrt(Math.max(0, availableBytes) / bytesPerCell)));
+    }
+
+    /**
+     * Prints the memory usage of each component, one per line.
+     *
+     * @param writer Writer to print into.
+     * @param prefix Prefix of each printed line (usually indentation).
+     */
+    public void dump(PrintWriter writer, String prefix) {
+        writer.printf(Locale.ENGLISH, "%sMemory usage of %d x %d grid:%n", prefix, gridHeight,
+                      gridWidth);
+        dumpLine(writer, prefix, "board", boardBytes);
+        dumpLine(writer, prefix, "pending native results", pendingNativeResultBytes);
+        dumpLine(writer, prefix, "Java grids", javaGridBytes);
+        dumpLine(writer, prefix, "cached solution", cachedSolutionBytes);
+        dumpLine(writer, prefix, "undo history", historyBytes);
+        dumpLine(writer, prefix, "total", getTotalBytes());
+        writer.printf(Locale.ENGLISH, "%s  %-24s%,14.1f B%n", prefix, "per cell",
+                      getBytesPerCell());
+    }
+
+    private static void dumpLine(PrintWriter writer, String prefix, String component,
+                                 long bytes) {
+        writer.printf(Locale.ENGLISH, "%s  %-24s%,12d B%n", prefix, component, bytes);
+    }
+
+    // getters:
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public long getBoardBytes() {
+        return boardBytes;
+    }
+
+    public long getPendingNativeResultBytes() {
+        return pendingNativeResultBytes;
+    }
+
+    public long getJavaGridBytes() {
+        return javaGridBytes;
+    }
+
+    public long getCachedSolutionBytes() {
+        return cachedSolutionBytes;
+    }
+
+    public long getHistoryBytes() {
+        return historyBytes;
+    }
+}
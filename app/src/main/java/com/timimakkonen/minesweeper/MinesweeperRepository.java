@@ -2,9 +2,16 @@ package com.timimakkonen.minesweeper;
 
 import android.util.Log;
 
-import com.timimakkonen.minesweeper.jni.AndroidMinesweeperGame;
 import com.timimakkonen.minesweeper.di.ApplicationScope;
-import com.timimakkonen.minesweeper.jni.vector_int;
+import com.timimakkonen.minesweeper.engine.EndlessMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGameHistory;
+import com.timimakkonen.minesweeper.replay.ReplayLogWriter;
+import com.timimakkonen.minesweeper.solver.NoGuessGameGenerator;
+
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import javax.inject.Inject;
 
@@ -13,20 +20,41 @@ import io.reactivex.rxjava3.subjects.BehaviorSubject;
 
 /**
  * <p>
- * This class is the main holder of the {@link AndroidMinesweeperGame}.
+ * This class is the main holder of the {@link MinesweeperGame}.
  * </p>
  * <p>
- * This class holds an instance of {@link AndroidMinesweeperGame} and handles calling its methods,
+ * This class holds an instance of {@link MinesweeperGame} and handles calling its methods,
  * updates visual information when needed (into its observables) and saves the game progress on
  * request.
  * </p>
  * <p>
+ * New games can be started without guessing. Their mines are only created on the first check (as
+ * usual), by a {@link NoGuessGameGenerator} searching for a board that can be solved from that
+ * check without guessing, which is then loaded into the game. If no such board is found among
+ * 'MAX_NUM_OF_NO_GUESS_CANDIDATES' candidates, the first check creates an ordinary board.
+ * </p>
+ * <p>
+ * Every check, mark and complete around that changes the grid is recorded in a {@link
+ * MinesweeperGameHistory}, so it can be undone and redone. The history is started again by new
+ * games, resets and loads, and is saved and loaded together with the game.
+ * </p>
+ * <p>
+ * Each game is also recorded into a binary replay log (see {@link ReplayLogWriter}), which is
+ * started again by new games and loads, and flushed on save.
+ * </p>
+ * <p>
+ * An {@link EndlessMinesweeperGame} only shows a window of its board, which is moved with {@link
+ * #moveEndlessWindow(int, int)}. As the cells of the window change with it, endless games are
+ * neither recorded (so they can not be undone or replayed) nor made without guessing.
+ * </p>
+ * <p>
  * This class has 'minesweeperDataForViewObservable' (MinesweeperDataForView),
- * 'minesweeperSolutionVisualisationObservable' (VisualMinesweeperCell[][]) and
- * 'saveFileIsCorruptedObservable' (Boolean) 'BehaviorSubject's, which can be observed.
+ * 'minesweeperSolutionVisualisationObservable' (VisualMinesweeperCell[][]),
+ * 'saveFileIsCorruptedObservable' (Boolean), 'canUndoObservable' (Boolean) and
+ * 'canRedoObservable' (Boolean) 'BehaviorSubject's, which can be observed.
  * </p>
  * <p>
- * This class is thread-safe as long as {@link LocalStorage} and {@link AndroidMinesweeperGame}
+ * This class is thread-safe as long as {@link LocalStorage} and {@link MinesweeperGame}
  * provided to it are.
  * </p>
  */
@@ -35,26 +63,71 @@ class MinesweeperRepository {
 
     private static final String TAG = "MinesweeperRepository";
 
+    static final int MAX_NUM_OF_NO_GUESS_CANDIDATES = 10000;
+
     private final LocalStorage localStorage;
-    private final AndroidMinesweeperGame currentMinesweeperGame;
+    private final MinesweeperGame currentMinesweeperGame;
+    private final NoGuessGameGenerator noGuessGameGenerator;
+    private final MinesweeperGameHistory currentGameHistory;
+    private final ReplayLogWriter replayLogWriter;
+    // the current game, if it is endless, else null
+    private final EndlessMinesweeperGame endlessGame;
 
     private final BehaviorSubject<MinesweeperDataForView> minesweeperDataForViewObservable;
     private final BehaviorSubject<VisualMinesweeperCell[][]>
             minesweeperSolutionVisualisationObservable;
     private final BehaviorSubject<Boolean> saveFileIsCorruptedObservable;
+    private final BehaviorSubject<Boolean> canUndoObservable;
+    private final BehaviorSubject<Boolean> canRedoObservable;
 
     private boolean solutionVisualisationIsOutdated;
 
+    // the current game was started without guessing, and its mines are not created yet
+    private boolean currentGameIsNoGuess = false;
+    private boolean noGuessBoardIsPending = false;
+    // no check has been made since the mines were dropped, so the next one may create them
+    private boolean minesMayBeUncreated = false;
+    // reused for every single action recorded (the history copies the actions it records)
+    private final int[] recordedAction = new int[MinesweeperGame.ACTION_SIZE];
+
+    // last published visual grid and the visual state revision it corresponds to
+    private VisualMinesweeperCell[][] currentVisualMinesweeperCells;
+    private int currentVisualStateRevision = -1;
+    // number of grids published (see 'MinesweeperDataForView.getUpdateNumber')
+    private int numOfPublishedUpdates = 0;
+
+    // visibility and dimensions of the last published grid, readable without the lock
+    private volatile MinesweeperGridVisibility currentGridVisibility =
+            MinesweeperGridVisibility.EMPTY;
+
+    // status record of the current game, refreshed with one call after each change
+    private final int[] currentStatusRecord;
+    private MinesweeperGameStatus currentStatus;
+
+    // buffer reused between solution visualisations
+    private int[] solutionVisualisationBuffer;
+
     @Inject
     public MinesweeperRepository(LocalStorage localStorage,
-                                 AndroidMinesweeperGame androidMinesweeperGame) {
+                                 MinesweeperGame minesweeperGame,
+                                 NoGuessGameGenerator noGuessGameGenerator) {
 
         this.localStorage = localStorage;
-        this.currentMinesweeperGame = androidMinesweeperGame;
+        this.currentMinesweeperGame = minesweeperGame;
+        this.noGuessGameGenerator = noGuessGameGenerator;
+        this.currentGameHistory = new MinesweeperGameHistory(minesweeperGame);
+        this.replayLogWriter = new ReplayLogWriter();
+        this.endlessGame = (minesweeperGame instanceof EndlessMinesweeperGame)
+                           ? (EndlessMinesweeperGame) minesweeperGame : null;
 
         this.minesweeperDataForViewObservable = BehaviorSubject.create();
         this.minesweeperSolutionVisualisationObservable = BehaviorSubject.create();
         this.saveFileIsCorruptedObservable = BehaviorSubject.create();
+        this.canUndoObservable = BehaviorSubject.create();
+        this.canRedoObservable = BehaviorSubject.create();
+
+        this.currentStatusRecord = new int[MinesweeperGame.STATUS_SIZE];
+        this.solutionVisualisationBuffer = new int[0];
 
         updateCurrentGridInformation();
         solutionVisualisationIsOutdated = true;
@@ -67,25 +140,25 @@ class MinesweeperRepository {
         }
     }
 
-    private static void verifyNumOfMines(int gridHeight, int gridWidth,
-                                         int numOfMines) throws IllegalArgumentException {
-        if (numOfMines < AndroidMinesweeperGame.minNumOfMines()) {
+    private void verifyNumOfMines(int gridHeight, int gridWidth,
+                                  int numOfMines) throws IllegalArgumentException {
+        if (numOfMines < currentMinesweeperGame.getMinNumOfMines()) {
             throw new IllegalArgumentException(
                     "Trying to initialise a new grid with too few mines.");
-        } else if (numOfMines > AndroidMinesweeperGame.maxNumOfMines(gridHeight, gridWidth)) {
+        } else if (numOfMines > currentMinesweeperGame.getMaxNumOfMines(gridHeight, gridWidth)) {
             throw new IllegalArgumentException(
                     "Trying to initialise a new grid with too many mines.");
         }
     }
 
-    private static void verifyProportionOfMines(int gridHeight, int gridWidth,
-                                                double proportionOfMines)
+    private void verifyProportionOfMines(int gridHeight, int gridWidth,
+                                         double proportionOfMines)
             throws IllegalArgumentException {
-        if (proportionOfMines < AndroidMinesweeperGame.minProportionOfMines()) {
+        if (proportionOfMines < currentMinesweeperGame.getMinProportionOfMines()) {
             throw new IllegalArgumentException(
                     "Trying to initialise a new grid with too few mines.");
-        } else if (proportionOfMines > AndroidMinesweeperGame.maxProportionOfMines(gridHeight,
-                                                                                   gridWidth)) {
+        } else if (proportionOfMines >
+                   currentMinesweeperGame.getMaxProportionOfMines(gridHeight, gridWidth)) {
             throw new IllegalArgumentException(
                     "Trying to initialise a new grid with too many mines.");
         }
@@ -103,29 +176,40 @@ class MinesweeperRepository {
         return this.saveFileIsCorruptedObservable;
     }
 
+    public synchronized Observable<Boolean> canUndo() {
+        return this.canUndoObservable;
+    }
+
+    public synchronized Observable<Boolean> canRedo() {
+        return this.canRedoObservable;
+    }
+
     public synchronized void checkCoordinates(int x, int y) throws IllegalArgumentException {
-        if (x < 0 || y < 0 || x >= currentMinesweeperGame.getGridWidth() ||
-            y >= currentMinesweeperGame.getGridHeight()) {
+        if (!currentStatus.isInsideGrid(x, y)) {
             throw new IllegalArgumentException("Trying to check cell outside the grid.");
         }
         Log.d(TAG, "checkCoordinates: " + String.format("Checking cell (%d, %d)", x, y));
-        this.currentMinesweeperGame.checkInputCoordinates(x, y);
+        if (noGuessBoardIsPending) {
+            createNoGuessBoard(x, y);
+        } else {
+            this.currentMinesweeperGame.checkInputCoordinates(x, y);
+        }
+        recordAction(MinesweeperGame.CHECK_ACTION, x, y);
         updateCurrentGridInformation();
     }
 
     public synchronized void markCoordinates(int x, int y) throws IllegalArgumentException {
-        if (x < 0 || y < 0 || x >= currentMinesweeperGame.getGridWidth() ||
-            y >= currentMinesweeperGame.getGridHeight()) {
+        if (!currentStatus.isInsideGrid(x, y)) {
             throw new IllegalArgumentException("Trying to mark cell outside the grid.");
         }
         this.currentMinesweeperGame.markInputCoordinates(x, y);
+        recordAction(MinesweeperGame.MARK_ACTION, x, y);
         updateCurrentGridInformation();
     }
 
     public synchronized void completeAroundCoordinates(int x, int y)
             throws IllegalArgumentException {
-        if (x < 0 || y < 0 || x >= currentMinesweeperGame.getGridWidth() ||
-            y >= currentMinesweeperGame.getGridHeight()) {
+        if (!currentStatus.isInsideGrid(x, y)) {
             throw new IllegalArgumentException(
                     "Trying to complete around a cell outside the grid.");
         }
@@ -134,29 +218,130 @@ class MinesweeperRepository {
                     "Trying to complete around a cell that is not visible.");
         }
         this.currentMinesweeperGame.completeAroundInputCoordinates(x, y);
+        recordAction(MinesweeperGame.COMPLETE_AROUND_ACTION, x, y);
         updateCurrentGridInformation();
     }
 
-    public synchronized boolean isCellVisible(int x, int y) {
-        if (x < 0 || y < 0 || x >= currentMinesweeperGame.getGridWidth() ||
-            y >= currentMinesweeperGame.getGridHeight()) {
-            throw new IllegalArgumentException(
-                    "Trying to check visibility of a cell outside the grid.");
+    /**
+     * Applies a batch of actions and publishes only one visual update for the whole batch.
+     * <p>
+     * The actions are applied with one call to the game, and are recorded (and undone) as one
+     * step. Only a batch checking a cell while the mines may not have been created yet is split
+     * at the first check, since the actions before it are applied without mines. Actions outside
+     * the grid are ignored, since they might have been queued for a grid that has been replaced
+     * since.
+     * </p>
+     * <p>
+     * Unlike {@link #completeAroundCoordinates(int, int)}, complete arounds are passed on without
+     * checking that their cell is visible, as they may have been resolved against an older grid.
+     * Every engine ignores them on hidden cells (see {@link MinesweeperGame#applyActions(int[])}),
+     * which the engine conformance suite checks.
+     * </p>
+     *
+     * @param actions Actions packed as [actionType, x, y] triples, using the action types of
+     *                {@link MinesweeperGame} ('CHECK_ACTION', 'MARK_ACTION' and
+     *                'COMPLETE_AROUND_ACTION').
+     * @throws IllegalArgumentException if the batch is not made of whole triples.
+     */
+    public synchronized void applyActions(int[] actions) throws IllegalArgumentException {
+        if (actions.length % MinesweeperGame.ACTION_SIZE != 0) {
+            throw new IllegalArgumentException("Trying to apply a malformed batch of actions.");
+        }
+        Log.d(TAG, String.format("applyActions: Applying %d actions",
+                                 actions.length / MinesweeperGame.ACTION_SIZE));
+        final int firstCheck = (noGuessBoardIsPending || minesMayBeUncreated) ?
+                               indexOfFirstCheck(actions) : -1;
+        if (firstCheck >= 0 && noGuessBoardIsPending) {
+            // (the actions before the first check do nothing, as there are no mines yet, so they
+            // are not recorded either)
+            createNoGuessBoard(actions[firstCheck + 1], actions[firstCheck + 2]);
+            this.currentMinesweeperGame.applyActions(
+                    Arrays.copyOfRange(actions, firstCheck + MinesweeperGame.ACTION_SIZE,
+                                       actions.length));
+            recordActions(Arrays.copyOfRange(actions, firstCheck, actions.length));
+        } else if (firstCheck > 0) {
+            // (the check may create the mines, so it starts a step of its own: the actions before
+            // it are applied without mines, and are undone, redone and replayed that way too)
+            final int[] actionsBeforeCheck = Arrays.copyOfRange(actions, 0, firstCheck);
+            this.currentMinesweeperGame.applyActions(actionsBeforeCheck);
+            recordActions(actionsBeforeCheck);
+            final int[] actionsFromCheck = Arrays.copyOfRange(actions, firstCheck, actions.length);
+            this.currentMinesweeperGame.applyActions(actionsFromCheck);
+            recordActions(actionsFromCheck);
+        } else {
+            this.currentMinesweeperGame.applyActions(actions);
+            recordActions(actions);
+        }
+        updateCurrentGridInformation();
+    }
+
+    /**
+     * Answered from the last published grid, without taking the lock or calling into the game.
+     */
+    public boolean isCellVisible(int x, int y) throws IllegalArgumentException {
+        return this.currentGridVisibility.isCellVisible(x, y);
+    }
+
+    /**
+     * @return Visibility and dimensions of the last published grid. Does not take the lock, so it
+     * can be called from the UI thread while an action is being applied.
+     */
+    public MinesweeperGridVisibility getCurrentGridVisibility() {
+        return this.currentGridVisibility;
+    }
+
+    /**
+     * @return Whether the current game is endless, so its window can be moved (see {@link
+     * #moveEndlessWindow(int, int)}).
+     */
+    public boolean isCurrentGameEndless() {
+        return endlessGame != null;
+    }
+
+    /**
+     * Moves the window of an endless game by the given number of columns and rows (see {@link
+     * EndlessMinesweeperGame#moveWindow(int, int)}), and publishes the whole grid again. Does
+     * nothing if the current game is not endless.
+     */
+    public synchronized void moveEndlessWindow(int columns, int rows) {
+        if (endlessGame == null) {
+            return;
         }
-        return this.currentMinesweeperGame.isCellVisible(x, y);
+        Log.d(TAG, String.format("moveEndlessWindow: Moving window by (%d, %d)", columns, rows));
+        endlessGame.moveWindow(columns, rows);
+        updateCurrentGridInformation();
     }
 
     public synchronized void resetCurrentGame(boolean keepCreatedMines) {
+        if (!keepCreatedMines) {
+            noGuessBoardIsPending = currentGameIsNoGuess;
+            minesMayBeUncreated = true;
+        }
         this.currentMinesweeperGame.reset(keepCreatedMines);
+        currentGameHistory.clear();
+        replayLogWriter.writeReset(keepCreatedMines, replayTimeMillis());
         updateCurrentGridInformation();
     }
 
     public synchronized void startNewGame(int gridHeight, int gridWidth,
                                           int numOfMines) throws IllegalArgumentException {
+        startNewGame(gridHeight, gridWidth, numOfMines, false);
+    }
+
+    /**
+     * @param noGuessing True to create a board that can be solved without guessing from the
+     *                   first check.
+     */
+    public synchronized void startNewGame(int gridHeight, int gridWidth, int numOfMines,
+                                          boolean noGuessing) throws IllegalArgumentException {
         verifyGridDimension(gridHeight);
         verifyGridDimension(gridWidth);
         verifyNumOfMines(gridHeight, gridWidth, numOfMines);
         this.currentMinesweeperGame.newGame(gridHeight, gridWidth, numOfMines);
+        currentGameIsNoGuess = noGuessing && endlessGame == null;
+        noGuessBoardIsPending = currentGameIsNoGuess;
+        currentGameHistory.clear();
+        startNewReplayLog();
         updateCurrentGridInformation();
     }
 
@@ -169,11 +354,38 @@ class MinesweeperRepository {
         verifyGridDimension(gridWidth);
         verifyProportionOfMines(gridHeight, gridWidth, proportionOfMines);
         this.currentMinesweeperGame.newGame(gridHeight, gridWidth, proportionOfMines);
+        currentGameIsNoGuess = false;
+        noGuessBoardIsPending = false;
+        currentGameHistory.clear();
+        startNewReplayLog();
         updateCurrentGridInformation();
     }
 
+    /**
+     * Undoes the last check, mark or complete around that changed the grid (see {@link
+     * MinesweeperGameHistory}). Does nothing if there is nothing to undo, since the request might
+     * have been made for a game that has been replaced since.
+     */
+    public synchronized void undo() {
+        if (currentGameHistory.canUndo()) {
+            replayLogWriter.writeUndo(replayTimeMillis());
+            updateCurrentGridInformation(currentGameHistory.undo());
+        }
+    }
+
+    /**
+     * Redoes the last undone action (see {@link #undo()}). Does nothing if there is nothing to
+     * redo.
+     */
+    public synchronized void redo() {
+        if (currentGameHistory.canRedo()) {
+            replayLogWriter.writeRedo(replayTimeMillis());
+            updateCurrentGridInformation(currentGameHistory.redo());
+        }
+    }
+
     public synchronized int minNumOfMines() {
-        return AndroidMinesweeperGame.minNumOfMines();
+        return currentMinesweeperGame.getMinNumOfMines();
     }
 
     public synchronized int maxNumOfMines(int gridHeight, int gridWidth)
@@ -182,7 +394,34 @@ class MinesweeperRepository {
             throw new IllegalArgumentException(
                     "Trying to check the maximum number of mines for a negative grid.");
         }
-        return AndroidMinesweeperGame.maxNumOfMines(gridHeight, gridWidth);
+        return currentMinesweeperGame.getMaxNumOfMines(gridHeight, gridWidth);
+    }
+
+    /**
+     * @return Approximate memory used by the current game, per component. (See {@link
+     * MinesweeperMemoryUsage}.)
+     */
+    public synchronized MinesweeperMemoryUsage getMemoryUsage() {
+        return new MinesweeperMemoryUsage(
+                currentStatus.getGridHeight(), currentStatus.getGridWidth(),
+                currentMinesweeperGame.getBoardMemoryUsage(),
+                currentMinesweeperGame.getPendingResultMemoryUsage(),
+                MinesweeperMemoryUsage.sizeOfGrid(currentVisualMinesweeperCells) +
+                currentGridVisibility.getMemoryUsage(),
+                MinesweeperMemoryUsage.sizeOfGrid(
+                        minesweeperSolutionVisualisationObservable.getValue()) +
+                MinesweeperMemoryUsage.sizeOfArray(solutionVisualisationBuffer),
+                currentGameHistory.getMemoryUsage());
+    }
+
+    /**
+     * Prints the memory usage of the current game (see {@link #getMemoryUsage()}) and logs it.
+     */
+    public void dumpMemoryUsage(PrintWriter writer, String prefix) {
+        final MinesweeperMemoryUsage memoryUsage = getMemoryUsage();
+        Log.d(TAG, String.format("dumpMemoryUsage: %d bytes in total",
+                                 memoryUsage.getTotalBytes()));
+        memoryUsage.dump(writer, prefix);
     }
 
     public synchronized void save() {
@@ -199,20 +438,46 @@ class MinesweeperRepository {
     public synchronized boolean load() {
         Log.d(TAG, String.format("load: Current thread is: %s", Thread.currentThread()));
         boolean loadWasSuccessful = loadCurrentMinesweeperGame();
+        currentGameIsNoGuess = false;
+        noGuessBoardIsPending = false;
+        final ByteBuffer savedGameHistory =
+                loadWasSuccessful ? localStorage.loadCurrentGameHistoryBuffer() : null;
+        if (savedGameHistory == null ||
+            !currentGameHistory.deserialiseFromBuffer(savedGameHistory)) {
+            currentGameHistory.clear();
+        }
+        if (loadWasSuccessful && endlessGame == null) {
+            minesMayBeUncreated = currentMinesweeperGame.getNumOfRevealedSafeCells() == 0 &&
+                                  currentMinesweeperGame.getNumOfTrippedMines() == 0;
+            replayLogWriter.startFromSnapshot(localStorage.openCurrentGameReplayLog(),
+                                              currentMinesweeperGame.serialiseToBuffer(),
+                                              currentGameHistory.serialiseToBuffer(),
+                                              replayTimeMillis());
+        }
         updateCurrentGridInformation();
         return loadWasSuccessful;
     }
 
     private void saveCurrentMinesweeperGame() {
-        localStorage.saveCurrentMinesweeperGame(this.currentMinesweeperGame.serialise());
+        localStorage.saveCurrentMinesweeperGame(this.currentMinesweeperGame.serialiseToBuffer());
+        localStorage.saveCurrentGameHistory(currentGameHistory.serialiseToBuffer());
         localStorage.setHasSavedGame(true);
+        replayLogWriter.flush();
+        if (replayLogWriter.checkError() != null) {
+            Log.d(TAG, "saveCurrentMinesweeperGame: Replay log has failed",
+                  replayLogWriter.checkError());
+        }
     }
 
     private boolean loadCurrentMinesweeperGame() {
 
         if (localStorage.getHasSavedGame(false)) {
+            final ByteBuffer savedGame = localStorage.loadCurrentMinesweeperGameBuffer();
+            // games saved by older versions are text
             final boolean deserialisationWasSuccessful =
-                    currentMinesweeperGame.deserialise(localStorage.loadCurrentMinesweeperGame());
+                    (savedGame != null)
+                    ? currentMinesweeperGame.deserialiseFromBuffer(savedGame)
+                    : currentMinesweeperGame.deserialise(localStorage.loadCurrentMinesweeperGame());
             if (deserialisationWasSuccessful) {
                 return true;
             } else {
@@ -231,54 +496,227 @@ class MinesweeperRepository {
         return false;
     }
 
+    /**
+     * @return Index of the first check inside the grid in the batch, or -1 if there is none.
+     */
+    private int indexOfFirstCheck(int[] actions) {
+        for (int i = 0; i < actions.length; i += MinesweeperGame.ACTION_SIZE) {
+            if (actions[i] == MinesweeperGame.CHECK_ACTION &&
+                currentStatus.isInsideGrid(actions[i + 1], actions[i + 2])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes the first check of the current game on a board that can be solved without guessing
+     * from it, or on an ordinary board if none is found.
+     */
+    private void createNoGuessBoard(int x, int y) {
+        noGuessBoardIsPending = false;
+        final int gridHeight = currentStatus.getGridHeight();
+        final int gridWidth = currentStatus.getGridWidth();
+        final int numOfMines = currentStatus.getNumOfMines();
+        final long startTime = System.nanoTime();
+        MinesweeperGame noGuessGame = null;
+        try {
+            noGuessGame = noGuessGameGenerator.generate(gridHeight, gridWidth, numOfMines, x, y,
+                                                        MAX_NUM_OF_NO_GUESS_CANDIDATES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.d(TAG, String.format("createNoGuessBoard: %s after %d candidates in %d ms",
+                                 (noGuessGame != null) ? "Found" : "Not found",
+                                 noGuessGameGenerator.getNumOfCandidatesOfLastGeneration(),
+                                 (System.nanoTime() - startTime) / 1000000));
+
+        if (noGuessGame != null) {
+            final boolean loadWasSuccessful;
+            try {
+                loadWasSuccessful = currentMinesweeperGame.deserialiseFromBuffer(
+                        noGuessGame.serialiseToBuffer());
+            } finally {
+                noGuessGame.close();
+            }
+            if (loadWasSuccessful) {
+                return;
+            }
+            // (a failed load may leave the game corrupted)
+            currentMinesweeperGame.newGame(gridHeight, gridWidth, numOfMines);
+        }
+        currentMinesweeperGame.checkInputCoordinates(x, y);
+    }
+
     private void startDefaultNewGame() {
         this.currentMinesweeperGame.newGame(10, 10, 20);
+        currentGameHistory.clear();
+        startNewReplayLog();
         updateCurrentGridInformation();
     }
 
+    /**
+     * Records actions just applied to the game with one call as one step of the undo history and
+     * one batch of the replay log. The batch with the check creating the mines is preceded by
+     * their layout in the log. Endless games are not recorded.
+     */
+    private void recordActions(int[] actions) {
+        if (endlessGame != null || actions.length == 0) {
+            return;
+        }
+        final long timeMillis = replayTimeMillis();
+        if (minesMayBeUncreated && containsCheck(actions) &&
+            (currentMinesweeperGame.getNumOfRevealedSafeCells() > 0 ||
+             currentMinesweeperGame.getNumOfTrippedMines() > 0)) {
+            replayLogWriter.writeLayout(currentMinesweeperGame.serialiseToBuffer(), timeMillis);
+            minesMayBeUncreated = false;
+        }
+        replayLogWriter.writeActions(actions, timeMillis);
+        currentGameHistory.record(actions);
+    }
+
+    private void recordAction(int actionType, int x, int y) {
+        recordedAction[0] = actionType;
+        recordedAction[1] = x;
+        recordedAction[2] = y;
+        recordActions(recordedAction);
+    }
+
+    private static boolean containsCheck(int[] actions) {
+        for (int i = 0; i < actions.length; i += MinesweeperGame.ACTION_SIZE) {
+            if (actions[i] == MinesweeperGame.CHECK_ACTION) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startNewReplayLog() {
+        if (endlessGame != null) {
+            return;
+        }
+        minesMayBeUncreated = true;
+        replayLogWriter.startNewGame(localStorage.openCurrentGameReplayLog(),
+                                     currentMinesweeperGame.getGridHeight(),
+                                     currentMinesweeperGame.getGridWidth(),
+                                     currentMinesweeperGame.getNumOfMines(), replayTimeMillis());
+    }
+
+    // monotonic time of the records of the replay log
+    private static long replayTimeMillis() {
+        return System.nanoTime() / 1000000;
+    }
+
     private void updateCurrentGridInformation() {
+        updateCurrentGridInformation(
+                currentMinesweeperGame.visualiseChangesSince(currentVisualStateRevision));
+    }
+
+    /**
+     * @param visualStateChanges Changes made since the last published grid, in the format
+     *                           returned by {@link MinesweeperGame#visualiseChangesSince(int)},
+     *                           or null to publish the whole grid again.
+     */
+    private void updateCurrentGridInformation(int[] visualStateChanges) {
         Log.d(TAG, String.format("updateCurrentGridInformation: Current thread is: %s",
                                  Thread.currentThread()));
-        final VisualMinesweeperCell[][] currentVisualMinesweeperCells =
-                getCurrentVisualMinesweeperCells();
-        final boolean playerHasWon = updatePlayerHasWonInformation();
-        final boolean playerHasLost = updatePlayerHasLostInformation();
+        updateCurrentStatus();
+        if (visualStateChanges == null) {
+            visualStateChanges = new int[]{currentStatus.getStateRevision(),
+                                           MinesweeperGame.CHANGES_UNAVAILABLE};
+        }
+        final int newVisualStateRevision = visualStateChanges[0];
+        final int numOfChanges = visualStateChanges[1];
+
+        final int[] changedCellIndices;
+        if (numOfChanges < 0 || currentVisualMinesweeperCells == null) {
+            currentVisualMinesweeperCells = getCurrentVisualMinesweeperCells();
+            changedCellIndices = null;
+            currentGridVisibility = MinesweeperGridVisibility.fromVisualState(
+                    currentStatus.getGridHeight(), currentStatus.getGridWidth(),
+                    currentMinesweeperGame.getVisualStateBuffer());
+        } else {
+            changedCellIndices = new int[numOfChanges];
+            currentVisualMinesweeperCells =
+                    applyVisualStateChanges(currentVisualMinesweeperCells, visualStateChanges,
+                                            changedCellIndices);
+            currentGridVisibility = currentGridVisibility.withChanges(visualStateChanges);
+        }
+        currentVisualStateRevision = newVisualStateRevision;
 
         this.minesweeperDataForViewObservable.onNext(
-                new MinesweeperDataForView(currentVisualMinesweeperCells, playerHasWon,
-                                           playerHasLost));
+                new MinesweeperDataForView(currentVisualMinesweeperCells, changedCellIndices,
+                                           ++numOfPublishedUpdates, currentStatus));
 
         solutionVisualisationIsOutdated = true;
+        canUndoObservable.onNext(currentGameHistory.canUndo());
+        canRedoObservable.onNext(currentGameHistory.canRedo());
+    }
+
+    /**
+     * Creates a new grid with the given changes applied to it. Rows without changes are shared
+     * with the old grid, and the old grid itself is not modified, so it stays safe to read from
+     * other threads.
+     *
+     * @param oldCells           Previously published grid.
+     * @param visualStateChanges Changes in the format returned by {@link
+     *                           MinesweeperGame#visualiseChangesSince(int)}.
+     * @param changedCellIndices Array to fill with the indices of the changed cells.
+     * @return Grid with the changes applied.
+     */
+    private static VisualMinesweeperCell[][] applyVisualStateChanges(
+            VisualMinesweeperCell[][] oldCells, int[] visualStateChanges,
+            int[] changedCellIndices) {
+
+        if (changedCellIndices.length == 0) {
+            return oldCells;
+        }
+
+        final int gridWidth = oldCells[0].length;
+        final VisualMinesweeperCell[][] newCells = oldCells.clone();
+        for (int i = 0, j = 2; i < changedCellIndices.length; i++, j += 2) {
+            final int cellIndex = visualStateChanges[j];
+            final int y = cellIndex / gridWidth;
+            final int x = cellIndex % gridWidth;
+            if (newCells[y] == oldCells[y]) {
+                newCells[y] = oldCells[y].clone();
+            }
+            newCells[y][x] = VisualMinesweeperCell.newVisualMinesweeperCell(
+                    visualStateChanges[j + 1]);
+            changedCellIndices[i] = cellIndex;
+        }
+        return newCells;
     }
 
     private VisualMinesweeperCell[][] getCurrentVisualMinesweeperCells() {
 
         Log.d(TAG, "getCurrentVisualMinesweeperCells: Updating visual minesweeper cells");
-        final int gridHeight = currentMinesweeperGame.getGridHeight();
-        final int gridWidth = currentMinesweeperGame.getGridWidth();
+        final int gridHeight = currentStatus.getGridHeight();
+        final int gridWidth = currentStatus.getGridWidth();
 
         VisualMinesweeperCell[][] newVisualMinesweeperCells =
                 new VisualMinesweeperCell[gridHeight][gridWidth];
-        vector_int currentGameJniVisualisation = currentMinesweeperGame.visualise();
+        // Direct buffer over the native visual state (kept up to date by the game itself),
+        // so reading cells does not cross JNI. The buffer is asked for again on every update,
+        // since the native storage is reallocated when the grid grows. (The game keeps handing
+        // out the same buffer until then.)
+        final ByteBuffer currentGameVisualState = currentMinesweeperGame.getVisualStateBuffer();
 
         int i = 0;
         for (int y = 0; y < gridHeight; y++) {
             for (int x = 0; x < gridWidth; i++, x++) {
                 newVisualMinesweeperCells[y][x] =
                         VisualMinesweeperCell.newVisualMinesweeperCell(
-                                currentGameJniVisualisation.get(i));
+                                currentGameVisualState.get(i));
             }
         }
 
         return newVisualMinesweeperCells;
     }
 
-    private boolean updatePlayerHasWonInformation() {
-        return this.currentMinesweeperGame.playerHasWon();
-    }
-
-    private boolean updatePlayerHasLostInformation() {
-        return this.currentMinesweeperGame.playerHasLost();
+    private void updateCurrentStatus() {
+        this.currentMinesweeperGame.getStatus(currentStatusRecord);
+        this.currentStatus = new MinesweeperGameStatus(currentStatusRecord);
     }
 
     public synchronized void updateCurrentGridSolutionVisualisation() {
@@ -294,19 +732,24 @@ class MinesweeperRepository {
 
         Log.d(TAG,
               "getCurrentSolutionVisualisation: Updating minesweeper solution visualisation cells");
-        final int gridHeight = currentMinesweeperGame.getGridHeight();
-        final int gridWidth = currentMinesweeperGame.getGridWidth();
+        final int gridHeight = currentStatus.getGridHeight();
+        final int gridWidth = currentStatus.getGridWidth();
+
+        final int gridSize = gridHeight * gridWidth;
+        if (solutionVisualisationBuffer.length < gridSize) {
+            solutionVisualisationBuffer = new int[gridSize];
+        }
+        currentMinesweeperGame.visualiseSolutionInto(solutionVisualisationBuffer);
 
         VisualMinesweeperCell[][] newVisualSolutionMinesweeperCells =
                 new VisualMinesweeperCell[gridHeight][gridWidth];
-        vector_int currentGameJniSolutionVisualisation = currentMinesweeperGame.visualiseSolution();
 
         int i = 0;
         for (int y = 0; y < gridHeight; y++) {
             for (int x = 0; x < gridWidth; i++, x++) {
                 newVisualSolutionMinesweeperCells[y][x] =
                         VisualMinesweeperCell.newVisualMinesweeperCell(
-                                currentGameJniSolutionVisualisation.get(i));
+                                solutionVisualisationBuffer[i]);
             }
         }
 
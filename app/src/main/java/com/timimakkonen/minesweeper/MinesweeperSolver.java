@@ -0,0 +1,235 @@
+package com.timimakkonen.minesweeper;
+
+import android.util.Log;
+
+import com.timimakkonen.minesweeper.di.ApplicationScope;
+import com.timimakkonen.minesweeper.solver.DeductionSolver;
+import com.timimakkonen.minesweeper.solver.MineProbabilities;
+import com.timimakkonen.minesweeper.solver.MineProbabilityEngine;
+import com.timimakkonen.minesweeper.solver.MineProbabilitySampler;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import io.reactivex.rxjava3.annotations.NonNull;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.observers.DisposableObserver;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subjects.BehaviorSubject;
+
+/**
+ * <p>
+ * This class keeps a {@link DeductionSolver} up to date with the grids published by {@link
+ * MinesweeperRepository}, and publishes what it deduces as {@link MinesweeperHints}. After each
+ * deduction, the exact mine probabilities of the hidden cells are computed by a {@link
+ * MineProbabilityEngine}, which enumerates the parts of the frontier on a fork-join pool over all
+ * cores.
+ * </p>
+ * <p>
+ * If some parts of the frontier are too large to enumerate, they are estimated by a {@link
+ * MineProbabilitySampler} on a sampler thread, within 'SAMPLING_TIME_BUDGET_NS'. The refined
+ * probabilities are published every 'SAMPLING_PUBLISH_INTERVAL_NS', and sampling stops early as
+ * soon as a newer grid is published by the repository, whose probabilities replace the estimates.
+ * </p>
+ * <p>
+ * Solving runs on a thread of its own, so it never delays the game actions run by {@link
+ * BackgroundTaskRunner}. Every published grid is solved in order, since only the cells that
+ * changed since the previous grid are passed to the solver. Grids with more than
+ * 'MAX_NUM_OF_SOLVED_CELLS' cells get no hints, since the solver keeps some state per cell.
+ * Endless games get no hints either, since their window does not show the neighbours of its
+ * border cells, nor the number of mines left.
+ * </p>
+ * <p>
+ * This class has 'hintsObservable' (MinesweeperHints) and 'mineProbabilitiesObservable'
+ * (MineProbabilities) 'BehaviorSubject's, which can be observed.
+ * </p>
+ */
+@ApplicationScope
+class MinesweeperSolver {
+
+    private static final String TAG = "MinesweeperSolver";
+
+    static final int MAX_NUM_OF_SOLVED_CELLS = 1 << 20;
+    static final long SAMPLING_TIME_BUDGET_NS = 50_000_000L;
+    static final long SAMPLING_PUBLISH_INTERVAL_NS = 10_000_000L;
+
+    private final BehaviorSubject<MinesweeperHints> hintsObservable;
+    private final BehaviorSubject<MineProbabilities> mineProbabilitiesObservable;
+    // held while publishing mine probabilities, so that estimates of an old grid are never
+    // published after the probabilities of a newer one
+    private final Object mineProbabilitiesLock = new Object();
+    // number of grids published by the repository so far
+    private final AtomicInteger numOfReceivedGrids = new AtomicInteger();
+    private final ExecutorService samplerExecutorService;
+    private final Random random = new Random();
+    private final boolean gameIsEndless;
+
+    // only used on the solver thread:
+    private final DeductionSolver deductionSolver;
+    private final MineProbabilityEngine mineProbabilityEngine;
+    // last solved grid, or null if the solver has no grid
+    private VisualMinesweeperCell[][] solvedVisualMinesweeperCells;
+    private int numOfSolvedGrids = 0;
+
+    @Inject
+    public MinesweeperSolver(MinesweeperRepository minesweeperRepository) {
+        this.gameIsEndless = minesweeperRepository.isCurrentGameEndless();
+        this.hintsObservable = BehaviorSubject.createDefault(MinesweeperHints.EMPTY);
+        this.mineProbabilitiesObservable = BehaviorSubject.createDefault(MineProbabilities.EMPTY);
+        this.deductionSolver = new DeductionSolver();
+        // (the workers of a fork-join pool are daemon threads)
+        this.mineProbabilityEngine = new MineProbabilityEngine(
+                new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+
+        final ExecutorService solverExecutorService =
+                Executors.newSingleThreadExecutor(daemonThreadFactory(TAG));
+        this.samplerExecutorService =
+                Executors.newSingleThreadExecutor(daemonThreadFactory(TAG + "Sampler"));
+        // The solver lives as long as the application, so the subscriptions are never disposed.
+        // Grids are counted as soon as they are published (before the solver gets to them), so
+        // that sampling stops as soon as possible.
+        minesweeperRepository
+                .getCurrentVisualMinesweeperInformation()
+                .subscribeWith(new DisposableObserver<MinesweeperDataForView>() {
+                    @Override
+                    public void onNext(@NonNull MinesweeperDataForView minesweeperDataForView) {
+                        numOfReceivedGrids.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(@NonNull Throwable e) {
+                    }
+
+                    @Override
+                    public void onComplete() {
+                    }
+                });
+        minesweeperRepository
+                .getCurrentVisualMinesweeperInformation()
+                .observeOn(Schedulers.from(solverExecutorService))
+                .subscribeWith(new DisposableObserver<MinesweeperDataForView>() {
+                    @Override
+                    public void onNext(@NonNull MinesweeperDataForView minesweeperDataForView) {
+                        solve(minesweeperDataForView);
+                    }
+
+                    @Override
+                    public void onError(@NonNull Throwable e) {
+                    }
+
+                    @Override
+                    public void onComplete() {
+                    }
+                });
+    }
+
+    public Observable<MinesweeperHints> getCurrentHints() {
+        return this.hintsObservable;
+    }
+
+    public Observable<MineProbabilities> getCurrentMineProbabilities() {
+        return this.mineProbabilitiesObservable;
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        return task -> {
+            final Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void solve(MinesweeperDataForView minesweeperDataForView) {
+        final long startTime = System.nanoTime();
+        final int gridNumber = ++numOfSolvedGrids;
+        final VisualMinesweeperCell[][] cells =
+                minesweeperDataForView.getCurrentVisualMinesweeperCells();
+        final int gridHeight = minesweeperDataForView.getStatus().getGridHeight();
+        final int gridWidth = minesweeperDataForView.getStatus().getGridWidth();
+        if (gameIsEndless || (long) gridHeight * gridWidth > MAX_NUM_OF_SOLVED_CELLS) {
+            solvedVisualMinesweeperCells = null;
+            hintsObservable.onNext(
+                    new MinesweeperHints(gridHeight, gridWidth, new int[0], new int[0]));
+            publishMineProbabilities(MineProbabilities.EMPTY);
+            return;
+        }
+
+        final int[] changedCellIndices = minesweeperDataForView.getChangedCellIndices();
+        if (changedCellIndices == null || solvedVisualMinesweeperCells == null ||
+            deductionSolver.getGridHeight() != gridHeight ||
+            deductionSolver.getGridWidth() != gridWidth) {
+            final int[] states = new int[gridHeight * gridWidth];
+            for (int y = 0, i = 0; y < gridHeight; y++) {
+                for (int x = 0; x < gridWidth; x++, i++) {
+                    states[i] = cells[y][x].value;
+                }
+            }
+            deductionSolver.reset(gridHeight, gridWidth, states);
+        } else {
+            final int[] newStates = new int[changedCellIndices.length];
+            for (int k = 0; k < changedCellIndices.length; k++) {
+                final int cellIndex = changedCellIndices[k];
+                newStates[k] = cells[cellIndex / gridWidth][cellIndex % gridWidth].value;
+            }
+            deductionSolver.update(changedCellIndices, newStates);
+        }
+        solvedVisualMinesweeperCells = cells;
+
+        hintsObservable.onNext(new MinesweeperHints(gridHeight, gridWidth,
+                                                    deductionSolver.getKnownSafeCells(),
+                                                    deductionSolver.getKnownMines()));
+        Log.d(TAG, String.format("solve: %d safe cells and %d mines known after %d us",
+                                 deductionSolver.getNumOfKnownSafeCells(),
+                                 deductionSolver.getNumOfKnownMines(),
+                                 (System.nanoTime() - startTime) / 1000));
+
+        final long probabilitiesStartTime = System.nanoTime();
+        final MineProbabilities mineProbabilities = mineProbabilityEngine.computeProbabilities(
+                deductionSolver, minesweeperDataForView.getStatus().getNumOfMines());
+        publishMineProbabilities(mineProbabilities);
+        Log.d(TAG, String.format("solve: Mine probabilities (exact: %b) computed in %d us",
+                                 mineProbabilities.isExact(),
+                                 (System.nanoTime() - probabilitiesStartTime) / 1000));
+
+        final MineProbabilitySampler sampler = mineProbabilityEngine.newSampler(random);
+        if (sampler != null) {
+            samplerExecutorService.execute(() -> sample(sampler, gridNumber));
+        }
+    }
+
+    private void publishMineProbabilities(MineProbabilities mineProbabilities) {
+        synchronized (mineProbabilitiesLock) {
+            mineProbabilitiesObservable.onNext(mineProbabilities);
+        }
+    }
+
+    /**
+     * Refines the estimates of the sampler, publishing them at intervals, until the time budget
+     * runs out or a newer grid is published.
+     *
+     * @param gridNumber Number of the grid sampled, counting the grids published.
+     */
+    private void sample(MineProbabilitySampler sampler, int gridNumber) {
+        final long startTime = System.nanoTime();
+        long timeLeft;
+        while (numOfReceivedGrids.get() == gridNumber &&
+               (timeLeft = SAMPLING_TIME_BUDGET_NS - (System.nanoTime() - startTime)) > 0) {
+            sampler.sampleFor(Math.min(SAMPLING_PUBLISH_INTERVAL_NS, timeLeft));
+            final MineProbabilities mineProbabilities = sampler.getProbabilities();
+            synchronized (mineProbabilitiesLock) {
+                if (numOfReceivedGrids.get() != gridNumber) {
+                    break;
+                }
+                mineProbabilitiesObservable.onNext(mineProbabilities);
+            }
+        }
+        Log.d(TAG, String.format("sample: %d samples drawn in %d us", sampler.getNumOfSamples(),
+                                 (System.nanoTime() - startTime) / 1000));
+    }
+}
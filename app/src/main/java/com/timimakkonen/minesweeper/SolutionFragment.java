@@ -19,6 +19,10 @@ import javax.inject.Inject;
  * This fragment is responsible for displaying solution visualisation of minesweeper grid and
  * handling the android lifecycle, and other android specific details related to this.
  * </p>
+ * <p>
+ * The mine probabilities of the cells still hidden in the game are drawn over the solution, so
+ * the player can compare what could be known with what was there.
+ * </p>
  */
 public class SolutionFragment extends Fragment {
 
@@ -48,6 +52,10 @@ public class SolutionFragment extends Fragment {
                           minesweeperSolutionView::setVisualMinesweeperCellsAndResize
                  );
 
+        viewModel.getMineProbabilities()
+                 .observe(getViewLifecycleOwner(), mineProbabilities -> minesweeperSolutionView
+                         .setMineProbabilities(mineProbabilities.getProbabilities()));
+
         viewModel.isLoadingInProgress().observe(getViewLifecycleOwner(), loadingInProgress -> {
             if (loadingInProgress) {
                 progressBar.setVisibility(View.VISIBLE);
@@ -4,6 +4,8 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.timimakkonen.minesweeper.solver.MineProbabilities;
+
 import org.jetbrains.annotations.NotNull;
 
 import javax.inject.Inject;
@@ -19,32 +21,38 @@ import io.reactivex.rxjava3.observers.DisposableObserver;
  * all the update requests made to it from the android/ui/view level.
  * </p>
  * <p>
- * This class has 'visualMinesweeperCells' (VisualMinesweeperCell[][]) and 'loadingInProgress'
- * (Boolean) 'LiveData's which can be observed.
+ * This class has 'visualMinesweeperCells' (VisualMinesweeperCell[][]), 'mineProbabilities'
+ * (MineProbabilities) and 'loadingInProgress' (Boolean) 'LiveData's which can be observed.
  * </p>
  * <p>
- * This class itself observes 'RxJava MinesweeperDataForView Observable' and reacts to its changes
- * by updating its corresponding 'LiveData'.
+ * This class itself observes 'RxJava MinesweeperDataForView Observable' and the mine
+ * probabilities of {@link MinesweeperSolver}, and reacts to their changes by updating the
+ * corresponding 'LiveData's.
  * </p>
  */
 public class SolutionViewModel extends ViewModel {
 
     private final MinesweeperRepository minesweeperRepository;
+    private final MinesweeperSolver minesweeperSolver;
     private final BackgroundTaskRunner backgroundTaskRunner;
 
     private final CompositeDisposable disposables;
 
     private final MutableLiveData<VisualMinesweeperCell[][]> visualMinesweeperCells;
+    private final MutableLiveData<MineProbabilities> mineProbabilities;
     private final MutableLiveData<Boolean> loadingInProgress;
 
     @Inject
     public SolutionViewModel(MinesweeperRepository minesweeperRepository,
+                             MinesweeperSolver minesweeperSolver,
                              BackgroundTaskRunner backgroundTaskRunner) {
         this.minesweeperRepository = minesweeperRepository;
+        this.minesweeperSolver = minesweeperSolver;
         this.backgroundTaskRunner = backgroundTaskRunner;
 
         this.disposables = new CompositeDisposable();
         visualMinesweeperCells = new MutableLiveData<>();
+        mineProbabilities = new MutableLiveData<>(MineProbabilities.EMPTY);
 
         this.loadingInProgress = new MutableLiveData<>(false);
 
@@ -73,6 +81,26 @@ public class SolutionViewModel extends ViewModel {
                                  }
                              }));
 
+        disposables
+                .add(minesweeperSolver
+                             .getCurrentMineProbabilities()
+                             .subscribeWith(new DisposableObserver<MineProbabilities>() {
+                                 @Override
+                                 public void onNext(
+                                         @NonNull MineProbabilities newMineProbabilities) {
+                                     mineProbabilities.postValue(newMineProbabilities);
+                                 }
+
+                                 @Override
+                                 public void onError(@NonNull Throwable e) {
+
+                                 }
+
+                                 @Override
+                                 public void onComplete() {
+
+                                 }
+                             }));
     }
 
     @Override
@@ -84,6 +112,14 @@ public class SolutionViewModel extends ViewModel {
         return visualMinesweeperCells;
     }
 
+    /**
+     * @return Probability of each hidden cell of the current game being a mine, given what the
+     * player can see.
+     */
+    public LiveData<MineProbabilities> getMineProbabilities() {
+        return mineProbabilities;
+    }
+
     public LiveData<Boolean> isLoadingInProgress() {
         return this.loadingInProgress;
     }
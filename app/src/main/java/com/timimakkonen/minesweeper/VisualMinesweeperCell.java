@@ -9,7 +9,8 @@ import java.util.Map;
  * </p>
  * <p>
  * An instance of 'VisualMinesweeperCell' can be obtained using static {@link
- * #newVisualMinesweeperCell(Integer)} method, if needed.
+ * #newVisualMinesweeperCell(Integer)} or {@link #newVisualMinesweeperCell(int)} methods, if
+ * needed.
  * </p>
  */
 public enum VisualMinesweeperCell {
@@ -29,9 +30,14 @@ public enum VisualMinesweeperCell {
     private static final Map<Integer, VisualMinesweeperCell> integerToVisualMinesweeperCellMap =
             new HashMap<>();
 
+    // values range from -1 (UNCHECKED) to 10 (MARKED), so 'value + 1' is used as an index
+    private static final VisualMinesweeperCell[] valueToVisualMinesweeperCellArray =
+            new VisualMinesweeperCell[12];
+
     static {
         for (VisualMinesweeperCell cellEnum : VisualMinesweeperCell.values()) {
             integerToVisualMinesweeperCellMap.put(cellEnum.value, cellEnum);
+            valueToVisualMinesweeperCellArray[cellEnum.value + 1] = cellEnum;
         }
     }
 
@@ -44,4 +50,18 @@ public enum VisualMinesweeperCell {
     public static VisualMinesweeperCell newVisualMinesweeperCell(Integer i) {
         return integerToVisualMinesweeperCellMap.get(i);
     }
+
+    /**
+     * Same as {@link #newVisualMinesweeperCell(Integer)}, but without boxing or map lookup. Meant
+     * for tight loops over whole grids.
+     *
+     * @param i Integer value of the visual cell.
+     * @return Corresponding 'VisualMinesweeperCell', or null if there is no such cell.
+     */
+    public static VisualMinesweeperCell newVisualMinesweeperCell(int i) {
+        if (i < -1 || i >= valueToVisualMinesweeperCellArray.length - 1) {
+            return null;
+        }
+        return valueToVisualMinesweeperCellArray[i + 1];
+    }
 }
@@ -2,6 +2,7 @@ package com.timimakkonen.minesweeper.di;
 
 import com.timimakkonen.minesweeper.GameFragment;
 import com.timimakkonen.minesweeper.MainActivity;
+import com.timimakkonen.minesweeper.MemoryUsageFragment;
 import com.timimakkonen.minesweeper.MinesweeperApplication;
 import com.timimakkonen.minesweeper.SettingsFragment;
 import com.timimakkonen.minesweeper.SolutionFragment;
@@ -23,6 +24,8 @@ public interface ApplicationComponent {
 
     void inject(SettingsFragment settingsFragment);
 
+    void inject(MemoryUsageFragment memoryUsageFragment);
+
     @Component.Factory
     interface Factory {
         ApplicationComponent create(@BindsInstance MinesweeperApplication minesweeperApplication);
@@ -1,26 +1,111 @@
 package com.timimakkonen.minesweeper.di;
 
+import android.util.Log;
+
+import com.timimakkonen.minesweeper.LocalStorage;
+import com.timimakkonen.minesweeper.engine.BitboardMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.ChunkStore;
+import com.timimakkonen.minesweeper.engine.ChunkedMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.EndlessMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.JavaMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+import com.timimakkonen.minesweeper.engine.ParallelGameRunner;
+import com.timimakkonen.minesweeper.engine.RowBandExecutor;
 import com.timimakkonen.minesweeper.jni.AndroidMinesweeperGame;
+import com.timimakkonen.minesweeper.jni.MinesweeperGameSession;
+import com.timimakkonen.minesweeper.solver.NoGuessGameGenerator;
+
+import java.util.Random;
 
 import dagger.Module;
 import dagger.Provides;
 
 /**
  * <p>
- * Dagger module responsible for providing an instance of 'AndroidMinesweeperGame'.
+ * Dagger module responsible for providing an instance of 'MinesweeperGame', and the
+ * 'NoGuessGameGenerator' making boards for it.
+ * </p>
+ * <p>
+ * The engine is chosen by the 'game_engine' preference: the native 'AndroidMinesweeperGame'
+ * (default), the pure-Java 'JavaMinesweeperGame', the pure-Java 'BitboardMinesweeperGame' (for
+ * very large grids), the pure-Java 'ChunkedMinesweeperGame' (for huge grids, of which only the
+ * explored area is kept in memory) or the pure-Java 'EndlessMinesweeperGame' (for a board without
+ * end, whose far chunks are evicted into a chunk store file of 'LocalStorage'). The native
+ * library is only loaded when the native engine is used. The engines do not share a save format,
+ * so a game saved by one engine can not be loaded by another.
+ * </p>
+ * <p>
+ * The dense pure-Java engines generate their boards on all cores (see 'RowBandExecutor'), while
+ * the chunked and endless ones only draw the mines of the tiles and chunks that the game
+ * reaches. Boards without guessing are searched on all cores as well, with candidates of the
+ * same engine (native game sessions for the native engine), so that the winner can be loaded
+ * into the game. Endless games are never made without guessing.
  * </p>
  */
 @Module
 public class MinesweeperModelModule {
 
-    // Used to load the 'libandroidminesweeper' library when this module is initialised for the first time.
-    static {
-        System.loadLibrary("libandroidminesweeper");
+    private static final String TAG = "MinesweeperModelModule";
+
+    public static final String NATIVE_GAME_ENGINE = "native";
+    public static final String JAVA_GAME_ENGINE = "java";
+    public static final String BITBOARD_GAME_ENGINE = "bitboard";
+    public static final String CHUNKED_GAME_ENGINE = "chunked";
+    public static final String ENDLESS_GAME_ENGINE = "endless";
+
+    private static boolean nativeLibraryIsLoaded = false;
+
+    // Used to load the 'libandroidminesweeper' library when the native engine is used for the first time.
+    private static synchronized void loadNativeLibrary() {
+        if (!nativeLibraryIsLoaded) {
+            System.loadLibrary("libandroidminesweeper");
+            nativeLibraryIsLoaded = true;
+        }
+    }
+
+    // The game lives as long as the application, so the (daemon) threads are never stopped.
+    private static RowBandExecutor newRowBandExecutor() {
+        return new RowBandExecutor(Runtime.getRuntime().availableProcessors());
     }
 
     @ApplicationScope
     @Provides
-    public AndroidMinesweeperGame provideAndroidMinesweeperGame() {
+    public MinesweeperGame provideMinesweeperGame(LocalStorage localStorage) {
+        final String gameEngine = localStorage.getGameEngine(NATIVE_GAME_ENGINE);
+        Log.d(TAG, String.format("provideMinesweeperGame: Using game engine '%s'.", gameEngine));
+        if (JAVA_GAME_ENGINE.equals(gameEngine)) {
+            return new JavaMinesweeperGame(new Random(), newRowBandExecutor());
+        } else if (BITBOARD_GAME_ENGINE.equals(gameEngine)) {
+            return new BitboardMinesweeperGame(new Random(), newRowBandExecutor());
+        } else if (CHUNKED_GAME_ENGINE.equals(gameEngine)) {
+            return new ChunkedMinesweeperGame(new Random());
+        } else if (ENDLESS_GAME_ENGINE.equals(gameEngine)) {
+            return new EndlessMinesweeperGame(
+                    new Random(), new ChunkStore(localStorage.openEndlessChunkStore()));
+        }
+        loadNativeLibrary();
         return new AndroidMinesweeperGame();
     }
+
+    // The generator lives as long as the application, so its (daemon) threads are never stopped.
+    @ApplicationScope
+    @Provides
+    public NoGuessGameGenerator provideNoGuessGameGenerator(LocalStorage localStorage) {
+        final String gameEngine = localStorage.getGameEngine(NATIVE_GAME_ENGINE);
+        final ParallelGameRunner.GameFactory candidateFactory;
+        if (JAVA_GAME_ENGINE.equals(gameEngine)) {
+            candidateFactory = gameIndex -> new JavaMinesweeperGame(new Random());
+        } else if (BITBOARD_GAME_ENGINE.equals(gameEngine)) {
+            candidateFactory = gameIndex -> new BitboardMinesweeperGame(new Random());
+        } else if (CHUNKED_GAME_ENGINE.equals(gameEngine)) {
+            candidateFactory = gameIndex -> new ChunkedMinesweeperGame(new Random());
+        } else if (ENDLESS_GAME_ENGINE.equals(gameEngine)) {
+            // (endless games are never made without guessing, see 'MinesweeperRepository')
+            candidateFactory = gameIndex -> new JavaMinesweeperGame(new Random());
+        } else {
+            loadNativeLibrary();
+            candidateFactory = gameIndex -> new MinesweeperGameSession();
+        }
+        return new NoGuessGameGenerator(candidateFactory);
+    }
 }
@@ -0,0 +1,934 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>
+ * Pure-Java minesweeper engine for very large grids, storing the game as packed bitboards.
+ * </p>
+ * <p>
+ * Each row is stored in 'wordsPerRow' longs, cell (x, y) being bit 'x % 64' of word 'y *
+ * wordsPerRow + x / 64'. The game is kept in mine, visible and marked planes, and the number of
+ * neighbouring mines of each cell in four count planes (bit k of the count in plane k), so the
+ * game itself takes 7 bits per cell, plus one scratch bit for revealing areas. (The visual state
+ * shared with the UI still takes a byte per cell.) Bits past the grid width are always zero.
+ * </p>
+ * <p>
+ * Neighbour counts are computed 64 cells at a time, by adding the eight shifted neighbour words
+ * with bitwise ripple-carry adders. Revealing an empty area is done by dilating the area row by
+ * row within the plane of hidden empty cells, until it stops growing, and then revealing its
+ * border in one go.
+ * </p>
+ * <p>
+ * Mines are placed and counted band by band on the given {@link RowBandExecutor}, so large
+ * boards can be generated in parallel. Rows never share words, so bands never write the same
+ * word. The board only depends on the random number generator, so this engine plays the same
+ * games as an equally seeded {@link JavaMinesweeperGame}.
+ * </p>
+ */
+public class BitboardMinesweeperGame implements MinesweeperGame {
+
+    private static final String SERIALISATION_HEADER = "BitboardMinesweeperGame";
+    private static final int SERIALISATION_VERSION = 1;
+
+    // binary serialisation: magic ('BMSG'), version, gridHeight, gridWidth, numOfMines, flags
+    private static final int BINARY_SERIALISATION_MAGIC = 0x424D5347;
+    private static final byte BINARY_SERIALISATION_VERSION = 1;
+    private static final int BINARY_HEADER_SIZE = 4 + 1 + 3 * 4 + 1;
+    private static final int MINES_ARE_CREATED_FLAG = 1;
+    private static final int PLAYER_HAS_LOST_FLAG = 1 << 1;
+    private static final int NUM_OF_SERIALISED_PLANES = 3;
+
+    private static final int MINE_BIT = 1;
+    private static final int VISIBLE_BIT = 1 << 1;
+    private static final int MARKED_BIT = 1 << 2;
+
+    private static final int MINE_STATE = 9;
+    private static final int MARKED_STATE = 10;
+    private static final int UNCHECKED_STATE = -1;
+
+    private static final int NUM_OF_COUNT_PLANES = 4;
+    private static final int MAX_NUM_OF_NEIGHBOURS = 8;
+
+    private final Random random;
+    private final RowBandExecutor bandExecutor;
+    private final VisualStateTracker visualStateTracker;
+
+    private int gridHeight;
+    private int gridWidth;
+    private int numOfMines;
+    private int wordsPerRow;
+    // valid bits of the last word of each row
+    private long lastWordMask;
+
+    private long[] minePlane;
+    private long[] visiblePlane;
+    private long[] markedPlane;
+    private long[][] countPlanes;
+
+    private boolean minesAreCreated;
+    private boolean playerHasLost;
+    private int numOfVisibleSafeCells;
+
+    // reused area plane for revealing areas (all zero between reveals)
+    private long[] areaPlane;
+
+    public BitboardMinesweeperGame() {
+        this(new Random());
+    }
+
+    public BitboardMinesweeperGame(Random random) {
+        this(random, RowBandExecutor.SEQUENTIAL);
+    }
+
+    public BitboardMinesweeperGame(Random random, RowBandExecutor bandExecutor) {
+        this.random = random;
+        this.bandExecutor = bandExecutor;
+        this.visualStateTracker = new VisualStateTracker();
+        initGrid(0, 0, 0);
+    }
+
+    // +---------------------+
+    // | reset and new game: |
+    // +---------------------+
+
+    @Override
+    public void reset(boolean keepCreatedMines) {
+        visualStateTracker.beginUpdate();
+        for (int w = 0; w < visiblePlane.length; w++) {
+            long changedBits = visiblePlane[w] | markedPlane[w];
+            while (changedBits != 0) {
+                visualStateTracker.setCellState(cellIndexOf(w, Long.numberOfTrailingZeros(
+                        changedBits)), UNCHECKED_STATE);
+                changedBits &= changedBits - 1;
+            }
+        }
+        Arrays.fill(visiblePlane, 0L);
+        Arrays.fill(markedPlane, 0L);
+        playerHasLost = false;
+        numOfVisibleSafeCells = 0;
+        if (!keepCreatedMines) {
+            Arrays.fill(minePlane, 0L);
+            for (long[] countPlane : countPlanes) {
+                Arrays.fill(countPlane, 0L);
+            }
+            minesAreCreated = false;
+        }
+        visualStateTracker.endUpdate();
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, int numOfMines) {
+        MinesweeperGameRules.verifyNewGame(gridHeight, gridWidth, numOfMines);
+        initGrid(gridHeight, gridWidth, numOfMines);
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, double proportionOfMines) {
+        newGame(gridHeight, gridWidth,
+                MinesweeperGameRules.numOfMinesFromProportion(gridHeight, gridWidth,
+                                                              proportionOfMines));
+    }
+
+    // +----------+
+    // | actions: |
+    // +----------+
+
+    @Override
+    public void checkInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        visualStateTracker.beginUpdate();
+        check(x, y);
+        visualStateTracker.endUpdate();
+    }
+
+    @Override
+    public void markInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        visualStateTracker.beginUpdate();
+        mark(x, y);
+        visualStateTracker.endUpdate();
+    }
+
+    @Override
+    public void completeAroundInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        visualStateTracker.beginUpdate();
+        completeAround(x, y);
+        visualStateTracker.endUpdate();
+    }
+
+    @Override
+    public void applyActions(int[] actions) {
+        visualStateTracker.beginUpdate();
+        for (int i = 0; i + ACTION_SIZE <= actions.length; i += ACTION_SIZE) {
+            final int x = actions[i + 1];
+            final int y = actions[i + 2];
+            if (x < 0 || y < 0 || x >= gridWidth || y >= gridHeight) {
+                continue;
+            }
+            switch (actions[i]) {
+                case CHECK_ACTION:
+                    check(x, y);
+                    break;
+                case MARK_ACTION:
+                    mark(x, y);
+                    break;
+                case COMPLETE_AROUND_ACTION:
+                    completeAround(x, y);
+                    break;
+                default:
+                    break;
+            }
+        }
+        visualStateTracker.endUpdate();
+    }
+
+    // +----------------------------+
+    // | game progress information: |
+    // +----------------------------+
+
+    @Override
+    public boolean playerHasWon() {
+        return minesAreCreated && !playerHasLost && getNumOfRemainingSafeCells() == 0;
+    }
+
+    @Override
+    public boolean playerHasLost() {
+        return playerHasLost;
+    }
+
+    @Override
+    public int getNumOfRevealedSafeCells() {
+        return numOfVisibleSafeCells;
+    }
+
+    @Override
+    public int getNumOfMarkedCells() {
+        return visualStateTracker.getNumOfMarkedCells();
+    }
+
+    @Override
+    public int getNumOfRemainingSafeCells() {
+        return gridHeight * gridWidth - numOfMines - numOfVisibleSafeCells;
+    }
+
+    @Override
+    public int getNumOfTrippedMines() {
+        return visualStateTracker.getNumOfTrippedMines();
+    }
+
+    @Override
+    public int getNumOfCellsOpenedByLastAction() {
+        return visualStateTracker.getNumOfCellsOpenedByLastUpdate();
+    }
+
+    @Override
+    public boolean isCellVisible(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        return isSet(visiblePlane, x, y);
+    }
+
+    // +----------+
+    // | getters: |
+    // +----------+
+
+    @Override
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    @Override
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    @Override
+    public int getNumOfMines() {
+        return numOfMines;
+    }
+
+    // +----------------+
+    // | visualisation: |
+    // +----------------+
+
+    @Override
+    public void visualiseInto(int[] result) {
+        MinesweeperGameRules.verifyBufferSize(result, gridHeight * gridWidth);
+        visualStateTracker.visualiseInto(result);
+    }
+
+    @Override
+    public void visualiseSolutionInto(int[] result) {
+        MinesweeperGameRules.verifyBufferSize(result, gridHeight * gridWidth);
+        for (int y = 0; y < gridHeight; y++) {
+            for (int x = 0; x < gridWidth; x++) {
+                result[y * gridWidth + x] =
+                        isSet(minePlane, x, y) ? MARKED_STATE : numOfNeighbourMines(x, y);
+            }
+        }
+    }
+
+    @Override
+    public int[] visualiseChangesSince(int revision) {
+        return visualStateTracker.visualiseChangesSince(revision);
+    }
+
+    @Override
+    public ByteBuffer getVisualStateBuffer() {
+        return visualStateTracker.getBuffer();
+    }
+
+    @Override
+    public void getStatus(int[] status) {
+        MinesweeperGameRules.verifyBufferSize(status, STATUS_SIZE);
+        status[STATUS_GRID_HEIGHT] = gridHeight;
+        status[STATUS_GRID_WIDTH] = gridWidth;
+        status[STATUS_NUM_OF_MINES] = numOfMines;
+        status[STATUS_PLAYER_HAS_WON] = playerHasWon() ? 1 : 0;
+        status[STATUS_PLAYER_HAS_LOST] = playerHasLost ? 1 : 0;
+        status[STATUS_NUM_OF_REVEALED_CELLS] = visualStateTracker.getNumOfRevealedCells();
+        status[STATUS_NUM_OF_MARKED_CELLS] = visualStateTracker.getNumOfMarkedCells();
+        status[STATUS_STATE_REVISION] = visualStateTracker.getRevision();
+        status[STATUS_NUM_OF_TRIPPED_MINES] = visualStateTracker.getNumOfTrippedMines();
+    }
+
+    // +----------------+
+    // | save and load: |
+    // +----------------+
+
+    /**
+     * Serialises this game in the same layout as {@link JavaMinesweeperGame#serialise()}, under
+     * its own header.
+     */
+    @Override
+    public String serialise() {
+        final StringBuilder sb = new StringBuilder(64 + gridHeight * (gridWidth + 1));
+        sb.append(SERIALISATION_HEADER).append(' ').append(SERIALISATION_VERSION).append('\n');
+        sb.append(gridHeight).append(' ').append(gridWidth).append(' ').append(numOfMines)
+          .append(' ').append(minesAreCreated ? 1 : 0).append(' ').append(playerHasLost ? 1 : 0)
+          .append('\n');
+        for (int y = 0; y < gridHeight; y++) {
+            for (int x = 0; x < gridWidth; x++) {
+                final int cellBits = (isSet(minePlane, x, y) ? MINE_BIT : 0) |
+                                     (isSet(visiblePlane, x, y) ? VISIBLE_BIT : 0) |
+                                     (isSet(markedPlane, x, y) ? MARKED_BIT : 0);
+                sb.append((char) ('0' + cellBits));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Loads a game serialised by {@link #serialise()}. If the input is invalid, this game is left
+     * unchanged.
+     */
+    @Override
+    public boolean deserialise(String inStr) {
+        if (inStr == null) {
+            return false;
+        }
+        final String[] lines = inStr.split("\n", -1);
+        // ignore the empty string after the last line break
+        final int numOfLines = (lines.length > 0 && lines[lines.length - 1].isEmpty())
+                               ? lines.length - 1 : lines.length;
+        try {
+            if (numOfLines < 2 ||
+                !lines[0].equals(SERIALISATION_HEADER + " " + SERIALISATION_VERSION)) {
+                return false;
+            }
+            final String[] values = lines[1].trim().split(" ");
+            if (values.length != 5) {
+                return false;
+            }
+            final int newGridHeight = Integer.parseInt(values[0]);
+            final int newGridWidth = Integer.parseInt(values[1]);
+            final int newNumOfMines = Integer.parseInt(values[2]);
+            final boolean newMinesAreCreated = parseFlag(values[3]);
+            final boolean newPlayerHasLost = parseFlag(values[4]);
+            MinesweeperGameRules.verifyNewGame(newGridHeight, newGridWidth, newNumOfMines);
+            if (numOfLines != 2 + newGridHeight) {
+                return false;
+            }
+
+            final int newWordsPerRow = wordsPerRowOf(newGridWidth);
+            final long[] newMinePlane = new long[newGridHeight * newWordsPerRow];
+            final long[] newVisiblePlane = new long[newMinePlane.length];
+            final long[] newMarkedPlane = new long[newMinePlane.length];
+            int numOfCreatedMines = 0;
+            for (int y = 0; y < newGridHeight; y++) {
+                final String row = lines[2 + y];
+                if (row.length() != newGridWidth) {
+                    return false;
+                }
+                for (int x = 0; x < newGridWidth; x++) {
+                    final int cellBits = row.charAt(x) - '0';
+                    if (cellBits < 0 || cellBits > (MINE_BIT | VISIBLE_BIT | MARKED_BIT)) {
+                        return false;
+                    }
+                    final int w = y * newWordsPerRow + (x >>> 6);
+                    if ((cellBits & MINE_BIT) != 0) {
+                        newMinePlane[w] |= 1L << x;
+                        numOfCreatedMines++;
+                    }
+                    if ((cellBits & VISIBLE_BIT) != 0) {
+                        newVisiblePlane[w] |= 1L << x;
+                    }
+                    if ((cellBits & MARKED_BIT) != 0) {
+                        newMarkedPlane[w] |= 1L << x;
+                    }
+                }
+            }
+            if (numOfCreatedMines != (newMinesAreCreated ? newNumOfMines : 0)) {
+                return false;
+            }
+
+            loadGame(newGridHeight, newGridWidth, newNumOfMines, newMinesAreCreated,
+                     newPlayerHasLost, newMinePlane, newVisiblePlane, newMarkedPlane);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // includes 'NumberFormatException'
+            return false;
+        }
+    }
+
+    /**
+     * Serialises this game as a header of 'BINARY_HEADER_SIZE' bytes, followed by the mine,
+     * visible and marked planes as they are stored (row by row, 'wordsPerRow' longs per row), so
+     * saving and loading are bulk copies.
+     */
+    @Override
+    public ByteBuffer serialiseToBuffer() {
+        final ByteBuffer buffer = ByteBuffer.allocate(
+                BINARY_HEADER_SIZE + NUM_OF_SERIALISED_PLANES * minePlane.length * Long.BYTES);
+        buffer.putInt(BINARY_SERIALISATION_MAGIC).put(BINARY_SERIALISATION_VERSION);
+        buffer.putInt(gridHeight).putInt(gridWidth).putInt(numOfMines);
+        buffer.put((byte) ((minesAreCreated ? MINES_ARE_CREATED_FLAG : 0) |
+                           (playerHasLost ? PLAYER_HAS_LOST_FLAG : 0)));
+        buffer.asLongBuffer().put(minePlane).put(visiblePlane).put(markedPlane);
+        buffer.position(buffer.capacity());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Loads a game serialised by {@link #serialiseToBuffer()}. If the input is invalid, this game
+     * is left unchanged.
+     */
+    @Override
+    public boolean deserialiseFromBuffer(ByteBuffer buffer) {
+        final ByteBuffer input = buffer.duplicate();
+        if (input.remaining() < BINARY_HEADER_SIZE ||
+            input.getInt() != BINARY_SERIALISATION_MAGIC ||
+            input.get() != BINARY_SERIALISATION_VERSION) {
+            return false;
+        }
+        final int newGridHeight = input.getInt();
+        final int newGridWidth = input.getInt();
+        final int newNumOfMines = input.getInt();
+        final int flags = input.get();
+        try {
+            MinesweeperGameRules.verifyNewGame(newGridHeight, newGridWidth, newNumOfMines);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        final int newWordsPerRow = wordsPerRowOf(newGridWidth);
+        final long numOfWords = (long) newGridHeight * newWordsPerRow;
+        if ((flags & ~(MINES_ARE_CREATED_FLAG | PLAYER_HAS_LOST_FLAG)) != 0 ||
+            input.remaining() != NUM_OF_SERIALISED_PLANES * numOfWords * Long.BYTES) {
+            return false;
+        }
+
+        final long[] newMinePlane = new long[(int) numOfWords];
+        final long[] newVisiblePlane = new long[(int) numOfWords];
+        final long[] newMarkedPlane = new long[(int) numOfWords];
+        final LongBuffer planes = input.asLongBuffer();
+        planes.get(newMinePlane).get(newVisiblePlane).get(newMarkedPlane);
+
+        // bits past the grid width must be zero
+        final long outsideGridMask =
+                (newGridWidth % Long.SIZE == 0) ? 0L : -1L << newGridWidth;
+        int numOfCreatedMines = 0;
+        for (int w = 0; w < numOfWords; w++) {
+            final long outsideGridBits = (w % newWordsPerRow == newWordsPerRow - 1)
+                                         ? outsideGridMask : 0L;
+            if (((newMinePlane[w] | newVisiblePlane[w] | newMarkedPlane[w]) &
+                 outsideGridBits) != 0) {
+                return false;
+            }
+            numOfCreatedMines += Long.bitCount(newMinePlane[w]);
+        }
+        final boolean newMinesAreCreated = (flags & MINES_ARE_CREATED_FLAG) != 0;
+        if (numOfCreatedMines != (newMinesAreCreated ? newNumOfMines : 0)) {
+            return false;
+        }
+
+        loadGame(newGridHeight, newGridWidth, newNumOfMines, newMinesAreCreated,
+                 (flags & PLAYER_HAS_LOST_FLAG) != 0, newMinePlane, newVisiblePlane,
+                 newMarkedPlane);
+        return true;
+    }
+
+    // +--------------------+
+    // | memory accounting: |
+    // +--------------------+
+
+    @Override
+    public long getBoardMemoryUsage() {
+        long numOfWords = minePlane.length + visiblePlane.length + markedPlane.length +
+                          areaPlane.length;
+        for (long[] countPlane : countPlanes) {
+            numOfWords += countPlane.length;
+        }
+        return numOfWords * Long.BYTES + visualStateTracker.getMemoryUsage();
+    }
+
+    @Override
+    public long getPendingResultMemoryUsage() {
+        // results are written straight into Java arrays
+        return 0;
+    }
+
+    // +----------------------------+
+    // | limits of number of mines: |
+    // +----------------------------+
+
+    @Override
+    public int getMaxNumOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameRules.maxNumOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public double getMaxProportionOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameRules.maxProportionOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public int getMinNumOfMines() {
+        return MinesweeperGameRules.MIN_NUM_OF_MINES;
+    }
+
+    @Override
+    public double getMinProportionOfMines() {
+        return MinesweeperGameRules.MIN_PROPORTION_OF_MINES;
+    }
+
+    @Override
+    public void close() {
+        // nothing to free, memory is managed by the garbage collector
+    }
+
+    // +------------------+
+    // | private methods: |
+    // +------------------+
+
+    private static boolean parseFlag(String value) {
+        switch (value) {
+            case "0":
+                return false;
+            case "1":
+                return true;
+            default:
+                throw new IllegalArgumentException("Trying to parse an invalid flag.");
+        }
+    }
+
+    private static int wordsPerRowOf(int gridWidth) {
+        return (gridWidth + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Replaces this game with the given (already validated) one.
+     */
+    private void loadGame(int newGridHeight, int newGridWidth, int newNumOfMines,
+                          boolean newMinesAreCreated, boolean newPlayerHasLost,
+                          long[] newMinePlane, long[] newVisiblePlane, long[] newMarkedPlane) {
+        initGrid(newGridHeight, newGridWidth, newNumOfMines);
+        minePlane = newMinePlane;
+        visiblePlane = newVisiblePlane;
+        markedPlane = newMarkedPlane;
+        minesAreCreated = newMinesAreCreated;
+        playerHasLost = newPlayerHasLost;
+        updateNumOfNeighbourMines();
+
+        visualStateTracker.beginUpdate();
+        for (int w = 0; w < visiblePlane.length; w++) {
+            numOfVisibleSafeCells += Long.bitCount(visiblePlane[w] & ~minePlane[w]);
+            long changedBits = visiblePlane[w] | markedPlane[w];
+            while (changedBits != 0) {
+                updateCellState(w, Long.numberOfTrailingZeros(changedBits));
+                changedBits &= changedBits - 1;
+            }
+        }
+        visualStateTracker.endUpdate();
+        visualStateTracker.clearNumOfCellsOpened();
+    }
+
+    private void initGrid(int gridHeight, int gridWidth, int numOfMines) {
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        this.numOfMines = numOfMines;
+        this.wordsPerRow = wordsPerRowOf(gridWidth);
+        this.lastWordMask = (gridWidth % Long.SIZE == 0) ? -1L : (1L << gridWidth) - 1;
+        final int numOfWords = gridHeight * wordsPerRow;
+        this.minePlane = new long[numOfWords];
+        this.visiblePlane = new long[numOfWords];
+        this.markedPlane = new long[numOfWords];
+        this.countPlanes = new long[NUM_OF_COUNT_PLANES][numOfWords];
+        this.areaPlane = new long[numOfWords];
+        this.minesAreCreated = false;
+        this.playerHasLost = false;
+        this.numOfVisibleSafeCells = 0;
+        visualStateTracker.resetAllCells(gridHeight * gridWidth);
+    }
+
+    // bit access:
+
+    private boolean isSet(long[] plane, int x, int y) {
+        // shifts of longs only use the lowest 6 bits of the distance, so '1L << x' is bit x % 64
+        return (plane[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    private long rowMask(int j) {
+        return (j == wordsPerRow - 1) ? lastWordMask : -1L;
+    }
+
+    private int cellIndexOf(int w, int bitIndex) {
+        final int y = w / wordsPerRow;
+        final int x = ((w - y * wordsPerRow) << 6) + bitIndex;
+        return y * gridWidth + x;
+    }
+
+    private int numOfNeighbourMines(int x, int y) {
+        final int w = y * wordsPerRow + (x >>> 6);
+        int count = 0;
+        for (int k = 0; k < NUM_OF_COUNT_PLANES; k++) {
+            count |= (int) ((countPlanes[k][w] >>> x) & 1L) << k;
+        }
+        return count;
+    }
+
+    // Bits of the cells west (x - 1) and east (x + 1) of each cell of word j of the row starting
+    // at word 'rowStart', moved to the bit of that cell.
+
+    private long westNeighbours(long[] plane, int rowStart, int j) {
+        final long word = plane[rowStart + j] << 1;
+        return (j > 0) ? word | (plane[rowStart + j - 1] >>> 63) : word;
+    }
+
+    private long eastNeighbours(long[] plane, int rowStart, int j) {
+        final long word = plane[rowStart + j] >>> 1;
+        return (j + 1 < wordsPerRow) ? word | (plane[rowStart + j + 1] << 63) : word;
+    }
+
+    /**
+     * @return Word j of the given row of the plane dilated horizontally (each cell together with
+     * its west and east neighbour), or 0 if the row is outside the grid.
+     */
+    private long dilatedRowWord(long[] plane, int y, int j) {
+        if (y < 0 || y >= gridHeight) {
+            return 0L;
+        }
+        final int rowStart = y * wordsPerRow;
+        return (plane[rowStart + j] | westNeighbours(plane, rowStart, j) |
+                eastNeighbours(plane, rowStart, j)) & rowMask(j);
+    }
+
+    /**
+     * Computes the count planes from the mine plane, 64 cells at a time.
+     */
+    private void updateNumOfNeighbourMines() {
+        bandExecutor.forEachBand(gridHeight, (band, fromY, toY) -> updateNumOfNeighbourMines(
+                fromY, toY));
+    }
+
+    /**
+     * Counts the neighbouring mines of the cells of the given rows, reading the mines of the rows
+     * around them as well.
+     */
+    private void updateNumOfNeighbourMines(int fromY, int toY) {
+        // input of the neighbour count adders (per band, as bands may run in parallel)
+        final long[] neighbourWords = new long[MAX_NUM_OF_NEIGHBOURS];
+        for (int y = fromY; y < toY; y++) {
+            for (int j = 0; j < wordsPerRow; j++) {
+                int numOfNeighbourWords = 0;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                    final int rowStart = ny * wordsPerRow;
+                    if (ny != y) {
+                        neighbourWords[numOfNeighbourWords++] = minePlane[rowStart + j];
+                    }
+                    neighbourWords[numOfNeighbourWords++] = westNeighbours(minePlane, rowStart, j);
+                    neighbourWords[numOfNeighbourWords++] = eastNeighbours(minePlane, rowStart, j);
+                }
+
+                // add the neighbour words into a 4-bit count per cell (ripple-carry adders)
+                long count0 = 0L;
+                long count1 = 0L;
+                long count2 = 0L;
+                long count3 = 0L;
+                for (int k = 0; k < numOfNeighbourWords; k++) {
+                    long carry = neighbourWords[k];
+                    long nextCarry = count0 & carry;
+                    count0 ^= carry;
+                    carry = nextCarry;
+                    nextCarry = count1 & carry;
+                    count1 ^= carry;
+                    carry = nextCarry;
+                    nextCarry = count2 & carry;
+                    count2 ^= carry;
+                    count3 |= nextCarry;
+                }
+
+                final long mask = rowMask(j);
+                final int w = y * wordsPerRow + j;
+                countPlanes[0][w] = count0 & mask;
+                countPlanes[1][w] = count1 & mask;
+                countPlanes[2][w] = count2 & mask;
+                countPlanes[3][w] = count3 & mask;
+            }
+        }
+    }
+
+    private int cellStateOf(int w, int bitIndex) {
+        final long bit = 1L << bitIndex;
+        if ((markedPlane[w] & bit) != 0) {
+            return MARKED_STATE;
+        } else if ((visiblePlane[w] & bit) == 0) {
+            return UNCHECKED_STATE;
+        } else if ((minePlane[w] & bit) != 0) {
+            return MINE_STATE;
+        } else {
+            int count = 0;
+            for (int k = 0; k < NUM_OF_COUNT_PLANES; k++) {
+                count |= (int) ((countPlanes[k][w] >>> bitIndex) & 1L) << k;
+            }
+            return count;
+        }
+    }
+
+    private void updateCellState(int w, int bitIndex) {
+        visualStateTracker.setCellState(cellIndexOf(w, bitIndex), cellStateOf(w, bitIndex));
+    }
+
+    private void check(int x, int y) {
+        if (!minesAreCreated) {
+            createMinesAround(x, y);
+        }
+        reveal(x, y);
+    }
+
+    private void mark(int x, int y) {
+        // marks before the first check are ignored (as by the native library wrapper)
+        if (!minesAreCreated || isSet(visiblePlane, x, y)) {
+            return;
+        }
+        final int w = y * wordsPerRow + (x >>> 6);
+        markedPlane[w] ^= 1L << x;
+        updateCellState(w, x & 63);
+    }
+
+    private void completeAround(int x, int y) {
+        if (!isSet(visiblePlane, x, y) || isSet(minePlane, x, y)) {
+            return;
+        }
+
+        int numOfMarkedNeighbours = 0;
+        int numOfHiddenNeighbours = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                if (isSet(markedPlane, nx, ny)) {
+                    numOfMarkedNeighbours++;
+                } else if (!isSet(visiblePlane, nx, ny)) {
+                    numOfHiddenNeighbours++;
+                }
+            }
+        }
+
+        if (numOfHiddenNeighbours == 0) {
+            return;
+        }
+        final int numOfNeighbourMinesAround = numOfNeighbourMines(x, y);
+        if (numOfMarkedNeighbours == numOfNeighbourMinesAround) {
+            // all mines are marked, so the rest are safe
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                    reveal(nx, ny);
+                }
+            }
+        } else if (numOfMarkedNeighbours + numOfHiddenNeighbours == numOfNeighbourMinesAround) {
+            // all hidden cells are mines
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                    if (!isSet(markedPlane, nx, ny) && !isSet(visiblePlane, nx, ny)) {
+                        final int w = ny * wordsPerRow + (nx >>> 6);
+                        markedPlane[w] |= 1L << nx;
+                        updateCellState(w, nx & 63);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the given cell visible. If it has no neighbouring mines, the whole empty area around
+     * it is revealed (see {@link #revealEmptyArea(int, int)}).
+     */
+    private void reveal(int x, int y) {
+        final int w = y * wordsPerRow + (x >>> 6);
+        final long bit = 1L << x;
+        if (((visiblePlane[w] | markedPlane[w]) & bit) != 0) {
+            return;
+        }
+        if ((minePlane[w] & bit) != 0) {
+            playerHasLost = true;
+        } else if (numOfNeighbourMines(x, y) == 0) {
+            revealEmptyArea(x, y);
+            return;
+        } else {
+            numOfVisibleSafeCells++;
+        }
+        visiblePlane[w] |= bit;
+        updateCellState(w, x & 63);
+    }
+
+    /**
+     * @return Word w (column word j) of the plane of cells an empty area may grow into: hidden,
+     * unmarked cells without neighbouring mines.
+     */
+    private long hiddenEmptyCells(int w, int j) {
+        return ~(countPlanes[0][w] | countPlanes[1][w] | countPlanes[2][w] | countPlanes[3][w] |
+                 minePlane[w] | visiblePlane[w] | markedPlane[w]) & rowMask(j);
+    }
+
+    /**
+     * Reveals the empty area containing the given (hidden, empty) cell, together with its border.
+     * The area is grown in 'areaPlane' with alternating downward and upward sweeps over the rows,
+     * until a pair of sweeps does not change it.
+     */
+    private void revealEmptyArea(int x, int y) {
+        areaPlane[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+        int firstAreaRow = y;
+        int lastAreaRow = y;
+
+        // each sweep follows the area as far as it grows in the sweep direction
+        boolean areaGrew = true;
+        while (areaGrew) {
+            areaGrew = false;
+            for (int row = Math.max(0, firstAreaRow - 1);
+                 row <= Math.min(gridHeight - 1, lastAreaRow + 1); row++) {
+                if (growAreaRow(row)) {
+                    areaGrew = true;
+                    firstAreaRow = Math.min(firstAreaRow, row);
+                    lastAreaRow = Math.max(lastAreaRow, row);
+                }
+            }
+            for (int row = Math.min(gridHeight - 1, lastAreaRow + 1);
+                 row >= Math.max(0, firstAreaRow - 1); row--) {
+                if (growAreaRow(row)) {
+                    areaGrew = true;
+                    firstAreaRow = Math.min(firstAreaRow, row);
+                    lastAreaRow = Math.max(lastAreaRow, row);
+                }
+            }
+        }
+
+        // reveal the area and its border (the dilated area), which are all safe cells
+        final int firstRow = Math.max(0, firstAreaRow - 1);
+        final int lastRow = Math.min(gridHeight - 1, lastAreaRow + 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            final int rowStart = row * wordsPerRow;
+            for (int j = 0; j < wordsPerRow; j++) {
+                final int w = rowStart + j;
+                long revealedBits = (dilatedRowWord(areaPlane, row - 1, j) |
+                                     dilatedRowWord(areaPlane, row, j) |
+                                     dilatedRowWord(areaPlane, row + 1, j)) &
+                                    ~(visiblePlane[w] | markedPlane[w]);
+                visiblePlane[w] |= revealedBits;
+                numOfVisibleSafeCells += Long.bitCount(revealedBits);
+                while (revealedBits != 0) {
+                    updateCellState(w, Long.numberOfTrailingZeros(revealedBits));
+                    revealedBits &= revealedBits - 1;
+                }
+            }
+        }
+        for (int row = firstAreaRow; row <= lastAreaRow; row++) {
+            Arrays.fill(areaPlane, row * wordsPerRow, (row + 1) * wordsPerRow, 0L);
+        }
+    }
+
+    /**
+     * Grows the area in the given row: seeds it from the dilated rows above and below, and then
+     * fills each horizontal run of hidden empty cells that contains a seed.
+     *
+     * @return True if the area grew.
+     */
+    private boolean growAreaRow(int y) {
+        final int rowStart = y * wordsPerRow;
+        boolean areaGrew = false;
+
+        // seeds, filled upwards within each word (and carried across words), using the fact that
+        // adding a seed to a run of ones clears the run from the seed up
+        long carriedSeed = 0L;
+        for (int j = 0; j < wordsPerRow; j++) {
+            final int w = rowStart + j;
+            final long allowed = hiddenEmptyCells(w, j);
+            final long seeds = (areaPlane[w] | carriedSeed |
+                                dilatedRowWord(areaPlane, y - 1, j) |
+                                dilatedRowWord(areaPlane, y + 1, j)) & allowed;
+            final long filled = (((allowed + seeds) ^ allowed) & allowed) | seeds;
+            carriedSeed = filled >>> 63;
+            if (filled != areaPlane[w]) {
+                areaPlane[w] = filled;
+                areaGrew = true;
+            }
+        }
+
+        // the same downwards, with the bits reversed
+        carriedSeed = 0L;
+        for (int j = wordsPerRow - 1; j >= 0; j--) {
+            final int w = rowStart + j;
+            final long allowed = Long.reverse(hiddenEmptyCells(w, j));
+            final long seeds = (Long.reverse(areaPlane[w]) | carriedSeed) & allowed;
+            final long filled = Long.reverse((((allowed + seeds) ^ allowed) & allowed) | seeds);
+            // bit 0 of this word continues as bit 63 (reversed: bit 0) of the word before
+            carriedSeed = filled & 1L;
+            if (filled != areaPlane[w]) {
+                areaPlane[w] = filled;
+                areaGrew = true;
+            }
+        }
+        return areaGrew;
+    }
+
+    /**
+     * Creates mines at random cells, leaving the given cell and its neighbours free of mines.
+     * (See {@link MinePlacement}.)
+     */
+    private void createMinesAround(int x, int y) {
+        final MinePlacement.MineGrid mineGrid = new MinePlacement.MineGrid() {
+            @Override
+            public boolean isMine(int cellIndex) {
+                return isSet(minePlane, cellIndex % gridWidth, cellIndex / gridWidth);
+            }
+
+            @Override
+            public void setMine(int cellIndex, boolean mine) {
+                final int mx = cellIndex % gridWidth;
+                final int w = (cellIndex / gridWidth) * wordsPerRow + (mx >>> 6);
+                if (mine) {
+                    minePlane[w] |= 1L << mx;
+                } else {
+                    minePlane[w] &= ~(1L << mx);
+                }
+            }
+        };
+        MinePlacement.placeMinesAround(random, gridHeight, gridWidth, numOfMines, x, y,
+                                       bandExecutor, mineGrid);
+        minesAreCreated = true;
+        updateNumOfNeighbourMines();
+    }
+}
@@ -0,0 +1,94 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.util.Arrays;
+
+/**
+ * Log of the cells changed by the updates of a Java engine, from which {@link
+ * MinesweeperGame#visualiseChangesSince(int)} is answered. Each change is logged with the
+ * revision it was made in, so the log is in increasing revision order.
+ */
+final class CellChangeLog {
+
+    /**
+     * Current visual values of the cells, by cell index.
+     */
+    interface CellStates {
+
+        int getCellState(int cellIndex);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] revisions = new int[INITIAL_CAPACITY];
+    private int[] cellIndices = new int[INITIAL_CAPACITY];
+    private int size = 0;
+    // the log covers all changes made after this revision
+    private int startRevision = 0;
+
+    /**
+     * Drops the logged changes, so that the log covers the changes made after the given revision.
+     * The storage of a grown log is freed, as a log is usually dropped after a huge update.
+     */
+    void clear(int revision) {
+        if (revisions.length > INITIAL_CAPACITY) {
+            revisions = new int[INITIAL_CAPACITY];
+            cellIndices = new int[INITIAL_CAPACITY];
+        }
+        size = 0;
+        startRevision = revision;
+    }
+
+    void append(int changeRevision, int cellIndex) {
+        if (size == revisions.length) {
+            revisions = Arrays.copyOf(revisions, 2 * size);
+            cellIndices = Arrays.copyOf(cellIndices, 2 * size);
+        }
+        revisions[size] = changeRevision;
+        cellIndices[size] = cellIndex;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of bytes used by the log (array contents only).
+     */
+    long getMemoryUsage() {
+        return (long) (revisions.length + cellIndices.length) * Integer.BYTES;
+    }
+
+    /**
+     * @return Changes made after the given revision, packed as described by {@link
+     * MinesweeperGame#visualiseChangesSince(int)}, with the current values of the changed cells.
+     */
+    int[] changesSince(int sinceRevision, int revision, CellStates cellStates) {
+        if (sinceRevision < startRevision || sinceRevision > revision) {
+            return new int[]{revision, MinesweeperGame.CHANGES_UNAVAILABLE};
+        }
+
+        // first logged change made after 'sinceRevision' (binary search)
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (revisions[mid] <= sinceRevision) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        final int numOfChanges = size - low;
+        final int[] changes = new int[2 + 2 * numOfChanges];
+        changes[0] = revision;
+        changes[1] = numOfChanges;
+        for (int i = low, j = 2; i < size; i++, j += 2) {
+            final int cellIndex = cellIndices[i];
+            changes[j] = cellIndex;
+            changes[j + 1] = cellStates.getCellState(cellIndex);
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,459 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * On-disk store of the chunks evicted by an {@link EndlessMinesweeperGame}, holding the visible
+ * and marked planes of each chunk (64 words each). The mines are not stored, as they are drawn
+ * again from the board seed.
+ * </p>
+ * <p>
+ * The file is a header (magic 'ECST', version and generation) followed by a record per stored
+ * chunk: its coordinates, a flags byte and both planes, each as a mask of its nonzero rows
+ * followed by those rows. A plane may be stored as its difference to the plane expected of a
+ * resolved chunk (all safe cells visible, all mines marked), which leaves nothing but the masks of
+ * a resolved chunk. Records are only appended, so a chunk stored again supersedes its older
+ * record, and the file is compacted on request. The index of the records is rebuilt by reading
+ * the file once, when the store is opened.
+ * </p>
+ * <p>
+ * Games save the generation and the length of the store, so that evictions made after a save are
+ * cut off by {@link #restore(long, long)} when the save is loaded. Clearing and compacting start
+ * a new generation, as they invalidate the lengths saved before.
+ * </p>
+ * <p>
+ * A store without a file (or whose file fails) stores nothing, so the game keeps its chunks in
+ * memory.
+ * </p>
+ */
+public final class ChunkStore implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = 64;
+
+    private static final int MAGIC = 0x45435354;
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+    // coordinates and flags, followed by two planes of at most a mask and 64 rows
+    private static final int RECORD_PREFIX_SIZE = 2 * 4 + 1;
+    private static final int MAX_RECORD_SIZE =
+            RECORD_PREFIX_SIZE + 2 * (1 + CHUNK_SIZE) * Long.BYTES;
+    private static final int VISIBLE_IS_DIFFERENCE_FLAG = 1;
+    private static final int MARKED_IS_DIFFERENCE_FLAG = 1 << 1;
+    // (record positions are packed above the record size in the index)
+    private static final int RECORD_SIZE_BITS = 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(MAX_RECORD_SIZE);
+    // position and size of the last record of each chunk, by chunk key (see 'keyOf')
+    private Map<Long, Long> index = new HashMap<>();
+    private long generation = 0;
+    private long length = 0;
+    private long liveLength = 0;
+    private boolean hasFailed = false;
+
+    /**
+     * Opens a store over the given file, reading the records already in it. A file without a
+     * valid header is cleared, and a record cut short (by a crash while writing it) is dropped.
+     *
+     * @param channel Readable and writable channel of the file of the store, closed with the
+     *                store, or null for a store that stores nothing.
+     */
+    public ChunkStore(FileChannel channel) {
+        this.channel = channel;
+        if (channel == null) {
+            return;
+        }
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.size() >= HEADER_SIZE && readFully(header, 0) &&
+                header.getInt(0) == MAGIC && header.get(4) == VERSION) {
+                generation = header.getLong(5);
+                length = channel.size();
+                final long indexedLength = indexRecords(length, index);
+                liveLength = sumOfRecordSizes(index);
+                if (indexedLength < length) {
+                    channel.truncate(indexedLength);
+                    length = indexedLength;
+                }
+            } else {
+                clear(0L);
+            }
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    static long keyOf(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    // +----------+
+    // | getters: |
+    // +----------+
+
+    /**
+     * @return Whether chunks can be stored (there is a file, and it has not failed).
+     */
+    boolean isAvailable() {
+        return channel != null && !hasFailed;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return Length of the file of the store, or zero if it has none.
+     */
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * @return Number of bytes of the file taken by records superseded by newer ones.
+     */
+    long getGarbageLength() {
+        return Math.max(0, length - HEADER_SIZE - liveLength);
+    }
+
+    int getNumOfChunks() {
+        return index.size();
+    }
+
+    boolean contains(int chunkX, int chunkY) {
+        return index.containsKey(keyOf(chunkX, chunkY));
+    }
+
+    /**
+     * @return Approximate number of bytes held in memory by the index of the records.
+     */
+    long getMemoryUsage() {
+        // (a key, a value and an entry of about 32 bytes per record)
+        return (long) index.size() * (2 * 16 + 32) + MAX_RECORD_SIZE;
+    }
+
+    // +----------------------+
+    // | storing and reading: |
+    // +----------------------+
+
+    /**
+     * Stores the given planes of a chunk, superseding any stored before.
+     *
+     * @param mines Mines of the chunk, used to store resolved planes compactly.
+     * @return True if successful, false if the chunk could not be stored.
+     */
+    boolean save(int chunkX, int chunkY, long[] mines, long[] visible, long[] marked) {
+        if (!isAvailable()) {
+            return false;
+        }
+        recordBuffer.clear();
+        recordBuffer.putInt(chunkX).putInt(chunkY);
+        final int flagsPosition = recordBuffer.position();
+        recordBuffer.put((byte) 0);
+        int flags = 0;
+        if (putPlane(visible, mines, true)) {
+            flags |= VISIBLE_IS_DIFFERENCE_FLAG;
+        }
+        if (putPlane(marked, mines, false)) {
+            flags |= MARKED_IS_DIFFERENCE_FLAG;
+        }
+        recordBuffer.put(flagsPosition, (byte) flags);
+        recordBuffer.flip();
+        final int recordSize = recordBuffer.remaining();
+        try {
+            writeFully(recordBuffer, length);
+        } catch (IOException e) {
+            fail();
+            return false;
+        }
+        final Long oldRecord = index.put(keyOf(chunkX, chunkY),
+                                         (length << RECORD_SIZE_BITS) | recordSize);
+        if (oldRecord != null) {
+            liveLength -= sizeOf(oldRecord);
+        }
+        liveLength += recordSize;
+        length += recordSize;
+        return true;
+    }
+
+    /**
+     * Reads the stored planes of a chunk into the given arrays.
+     *
+     * @param mines Mines of the chunk, as when it was stored.
+     * @return True if successful, false if the chunk is not stored or could not be read.
+     */
+    boolean load(int chunkX, int chunkY, long[] mines, long[] visible, long[] marked) {
+        final Long record = index.get(keyOf(chunkX, chunkY));
+        if (record == null || channel == null) {
+            return false;
+        }
+        recordBuffer.clear();
+        recordBuffer.limit(sizeOf(record));
+        try {
+            if (!readFully(recordBuffer, positionOf(record))) {
+                fail();
+                return false;
+            }
+        } catch (IOException e) {
+            fail();
+            return false;
+        }
+        recordBuffer.flip();
+        recordBuffer.position(2 * 4);
+        final int flags = recordBuffer.get();
+        getPlane(visible, mines, true, (flags & VISIBLE_IS_DIFFERENCE_FLAG) != 0);
+        getPlane(marked, mines, false, (flags & MARKED_IS_DIFFERENCE_FLAG) != 0);
+        return true;
+    }
+
+    // +-------------------------------------+
+    // | clearing, compacting and restoring: |
+    // +-------------------------------------+
+
+    /**
+     * Drops every stored chunk, and starts the given generation.
+     */
+    void clear(long newGeneration) {
+        index.clear();
+        generation = newGeneration;
+        liveLength = 0;
+        length = 0;
+        if (!isAvailable()) {
+            return;
+        }
+        try {
+            channel.truncate(0);
+            writeHeader();
+            length = HEADER_SIZE;
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    /**
+     * Moves the latest record of each chunk to the front of the file, dropping the superseded
+     * ones, and starts the given generation. (The new generation is written first, so that a
+     * compaction cut short by a crash does not match any save.)
+     */
+    void compact(long newGeneration) {
+        if (!isAvailable()) {
+            return;
+        }
+        final List<Long> records = new ArrayList<>(index.values());
+        // records are moved in file order, so each is read before anything is written over it
+        Collections.sort(records);
+        final Map<Long, Long> newIndex = new HashMap<>();
+        try {
+            generation = newGeneration;
+            writeHeader();
+            long newLength = HEADER_SIZE;
+            for (long record : records) {
+                final int recordSize = sizeOf(record);
+                recordBuffer.clear();
+                recordBuffer.limit(recordSize);
+                if (!readFully(recordBuffer, positionOf(record))) {
+                    fail();
+                    return;
+                }
+                recordBuffer.flip();
+                newIndex.put(keyOf(recordBuffer.getInt(0), recordBuffer.getInt(4)),
+                             (newLength << RECORD_SIZE_BITS) | recordSize);
+                writeFully(recordBuffer, newLength);
+                newLength += recordSize;
+            }
+            channel.truncate(newLength);
+            index = newIndex;
+            length = newLength;
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    /**
+     * Cuts the store back to the given length, dropping the chunks stored after the store had it.
+     * Nothing is changed if the store is not in the given generation anymore, or has never had the
+     * given length in it.
+     *
+     * @return True if successful, false if the store could not be cut back to the given length.
+     */
+    boolean restore(long savedGeneration, long savedLength) {
+        if (!isAvailable()) {
+            // (nothing was stored)
+            return savedLength == 0 || (savedGeneration == generation && savedLength == length);
+        }
+        if (savedGeneration != generation || savedLength < HEADER_SIZE ||
+            savedLength > length) {
+            return false;
+        }
+        if (savedLength == length) {
+            return true;
+        }
+        final Map<Long, Long> newIndex = new HashMap<>();
+        try {
+            // (the saved length must end a record)
+            if (indexRecords(savedLength, newIndex) != savedLength) {
+                return false;
+            }
+            channel.truncate(savedLength);
+        } catch (IOException e) {
+            fail();
+            return false;
+        }
+        index = newIndex;
+        length = savedLength;
+        liveLength = sumOfRecordSizes(index);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing more to do with the file
+        }
+    }
+
+    // +------------------+
+    // | private methods: |
+    // +------------------+
+
+    private static long positionOf(long record) {
+        return record >>> RECORD_SIZE_BITS;
+    }
+
+    private static int sizeOf(long record) {
+        return (int) (record & ((1 << RECORD_SIZE_BITS) - 1));
+    }
+
+    private static long sumOfRecordSizes(Map<Long, Long> index) {
+        long sum = 0;
+        for (long record : index.values()) {
+            sum += sizeOf(record);
+        }
+        return sum;
+    }
+
+    /**
+     * @return Plane expected of a resolved chunk: every safe cell visible, or every mine marked.
+     */
+    private static long resolvedRow(long[] mines, int row, boolean isVisiblePlane) {
+        return isVisiblePlane ? ~mines[row] : mines[row];
+    }
+
+    /**
+     * Puts the given plane into the record buffer, or its difference to the plane of a resolved
+     * chunk if that has fewer nonzero rows.
+     *
+     * @return Whether the difference was put.
+     */
+    private boolean putPlane(long[] plane, long[] mines, boolean isVisiblePlane) {
+        long planeRows = 0;
+        long differenceRows = 0;
+        for (int row = 0; row < CHUNK_SIZE; row++) {
+            if (plane[row] != 0) {
+                planeRows |= 1L << row;
+            }
+            if (plane[row] != resolvedRow(mines, row, isVisiblePlane)) {
+                differenceRows |= 1L << row;
+            }
+        }
+        final boolean putDifference = Long.bitCount(differenceRows) < Long.bitCount(planeRows);
+        final long rows = putDifference ? differenceRows : planeRows;
+        recordBuffer.putLong(rows);
+        for (long remainingRows = rows; remainingRows != 0; remainingRows &= remainingRows - 1) {
+            final int row = Long.numberOfTrailingZeros(remainingRows);
+            recordBuffer.putLong(putDifference
+                                 ? plane[row] ^ resolvedRow(mines, row, isVisiblePlane)
+                                 : plane[row]);
+        }
+        return putDifference;
+    }
+
+    private void getPlane(long[] plane, long[] mines, boolean isVisiblePlane,
+                          boolean isDifference) {
+        final long rows = recordBuffer.getLong();
+        for (int row = 0; row < CHUNK_SIZE; row++) {
+            final long word = ((rows >>> row) & 1L) != 0 ? recordBuffer.getLong() : 0L;
+            plane[row] = isDifference ? word ^ resolvedRow(mines, row, isVisiblePlane) : word;
+        }
+    }
+
+    /**
+     * Reads the records between the header and the given length into the given index.
+     *
+     * @return End of the last whole record.
+     */
+    private long indexRecords(long endPosition, Map<Long, Long> recordIndex) throws IOException {
+        final ByteBuffer prefix = ByteBuffer.allocate(RECORD_PREFIX_SIZE + Long.BYTES);
+        final ByteBuffer rowMask = ByteBuffer.allocate(Long.BYTES);
+        long position = HEADER_SIZE;
+        while (true) {
+            prefix.clear();
+            if (position + prefix.capacity() > endPosition || !readFully(prefix, position)) {
+                return position;
+            }
+            final long visibleRows = prefix.getLong(RECORD_PREFIX_SIZE);
+            final long markedRowsPosition =
+                    position + prefix.capacity() + (long) Long.bitCount(visibleRows) * Long.BYTES;
+            rowMask.clear();
+            if (markedRowsPosition + Long.BYTES > endPosition ||
+                !readFully(rowMask, markedRowsPosition)) {
+                return position;
+            }
+            final long recordEnd = markedRowsPosition + Long.BYTES +
+                                   (long) Long.bitCount(rowMask.getLong(0)) * Long.BYTES;
+            if (recordEnd > endPosition) {
+                return position;
+            }
+            recordIndex.put(keyOf(prefix.getInt(0), prefix.getInt(4)),
+                            (position << RECORD_SIZE_BITS) | (recordEnd - position));
+            position = recordEnd;
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).put(VERSION).putLong(generation);
+        header.flip();
+        writeFully(header, 0);
+    }
+
+    /**
+     * @return False if the file ends before the buffer is full.
+     */
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int numOfBytesRead = channel.read(buffer, position);
+            if (numOfBytesRead < 0) {
+                return false;
+            }
+            position += numOfBytesRead;
+        }
+        return true;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Stops storing chunks. The chunks stored so far are still read, if the file lets them be.
+     */
+    private void fail() {
+        hasFailed = true;
+    }
+}
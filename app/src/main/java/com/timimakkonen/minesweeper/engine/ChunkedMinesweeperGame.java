@@ -0,0 +1,1203 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>
+ * Pure-Java minesweeper engine for huge grids (such as 10000 x 10000 cells), storing the board in
+ * tiles of 64 x 64 cells that are only allocated once the game reaches them.
+ * </p>
+ * <p>
+ * The first check draws a board seed and splits the mines between the tiles in proportion to
+ * their candidate cells (see {@link MinePlacement}), so an untouched tile is nothing but its
+ * number of mines. The mines of a tile are drawn from the stream of the board seed and the tile
+ * index once the tile or one of its neighbours is opened, and the neighbour counts of a tile once
+ * it is opened itself. A tile keeps each of its rows in one word of its mine, visible and marked
+ * planes, plus a byte of neighbour count per cell, so the memory used follows the explored area,
+ * and so do the saves (the seed, the first check and the planes of the opened tiles).
+ * </p>
+ * <p>
+ * Areas are opened tile by tile: the spans of the scanline fill stop at tile borders, and go on
+ * from a seed in the next tile. The visual state is read from the tiles, and the changes are
+ * logged by cell index like in the other engines. The dense visual state buffer takes a byte per
+ * cell, so it is only allocated once asked for (by a UI drawing the whole grid), and then kept
+ * up to date.
+ * </p>
+ * <p>
+ * The rules are the same as in the other engines, but the mines are placed by tile, so equally
+ * seeded random number generators do not give the same boards.
+ * </p>
+ */
+public class ChunkedMinesweeperGame implements MinesweeperGame {
+
+    static final int TILE_SIZE_BITS = 6;
+    // (a tile row is one long)
+    static final int TILE_SIZE = 1 << TILE_SIZE_BITS;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int NUM_OF_CELLS_PER_TILE = TILE_SIZE * TILE_SIZE;
+
+    private static final String SERIALISATION_HEADER = "ChunkedMinesweeperGame";
+    private static final int SERIALISATION_VERSION = 1;
+
+    // binary serialisation: magic ('CMSG'), version, gridHeight, gridWidth, numOfMines, flags,
+    // boardSeed, safeX, safeY, numOfSavedTiles, and per saved tile: its index and its visible and
+    // marked planes
+    private static final int BINARY_SERIALISATION_MAGIC = 0x434D5347;
+    private static final byte BINARY_SERIALISATION_VERSION = 1;
+    private static final int BINARY_HEADER_SIZE = 4 + 1 + 3 * 4 + 1 + 8 + 3 * 4;
+    private static final int SAVED_TILE_SIZE = 4 + 2 * TILE_SIZE * Long.BYTES;
+    private static final int MINES_ARE_CREATED_FLAG = 1;
+    private static final int PLAYER_HAS_LOST_FLAG = 1 << 1;
+
+    private static final int MINE_STATE = 9;
+    private static final int MARKED_STATE = 10;
+    private static final int UNCHECKED_STATE = -1;
+
+    private static final int MAX_NUM_OF_EXCLUDED_CELLS = 9;
+    private static final int INITIAL_SEED_QUEUE_CAPACITY = 64;
+    // (a revision and a cell index)
+    private static final int BYTES_PER_LOGGED_CHANGE = 2 * Integer.BYTES;
+
+    private final Random random;
+    private final CellChangeLog changeLog = new CellChangeLog();
+
+    private int gridHeight;
+    private int gridWidth;
+    private int numOfMines;
+    private int numOfTileColumns;
+
+    // per tile, row by row: null until the mines of the tile are drawn
+    private Tile[] tiles;
+    private int numOfMinedTiles;
+    private int numOfOpenedTiles;
+
+    // set by the first check: the mines of each tile are drawn from these alone
+    private boolean minesAreCreated;
+    private long boardSeed;
+    private int safeX;
+    private int safeY;
+    private int[] numOfMinesPerTile;
+
+    private boolean playerHasLost;
+    private int numOfVisibleSafeCells;
+    private int numOfRevealedCells;
+    private int numOfMarkedCells;
+    private int numOfTrippedMines;
+
+    // visual state revision and update bookkeeping (as in 'VisualStateTracker')
+    private int revision = 0;
+    private int numOfRevealedCellsBeforeUpdate = 0;
+    private int numOfCellsOpenedByLastUpdate = 0;
+    private boolean cellsChangedDuringUpdate = false;
+    // set once the log outgrew its limit during the update: it then misses changes
+    private boolean changeLogOverflowed = false;
+    // one byte per cell, null until asked for (see 'getVisualStateBuffer')
+    private byte[] visualState;
+
+    // reused FIFO ring buffer of seed cells for revealing areas (see 'reveal')
+    private int[] seedQueue;
+    private int seedQueueHead;
+    private int seedQueueSize;
+
+    public ChunkedMinesweeperGame() {
+        this(new Random());
+    }
+
+    public ChunkedMinesweeperGame(Random random) {
+        this.random = random;
+        this.seedQueue = new int[INITIAL_SEED_QUEUE_CAPACITY];
+        initGrid(0, 0, 0);
+    }
+
+    /**
+     * Mines of a tile, and the rest of its state once it is opened. Cell (x, y) of the tile is bit
+     * x of word y of each plane, and element 'y * TILE_SIZE + x' of 'numOfNeighbourMines'. Bits of
+     * cells outside the grid are always zero.
+     */
+    private static final class Tile {
+
+        final long[] mines = new long[TILE_SIZE];
+        // null until the tile is opened
+        long[] visible;
+        long[] marked;
+        byte[] numOfNeighbourMines;
+
+        boolean isOpened() {
+            return visible != null;
+        }
+    }
+
+    // +---------------------+
+    // | reset and new game: |
+    // +---------------------+
+
+    @Override
+    public void reset(boolean keepCreatedMines) {
+        beginUpdate();
+        for (int tileIndex = 0; tileIndex < tiles.length; tileIndex++) {
+            final Tile tile = tiles[tileIndex];
+            if (tile == null || !tile.isOpened()) {
+                continue;
+            }
+            final int tileX = tileX(tileIndex);
+            final int tileY = tileY(tileIndex);
+            for (int row = 0; row < TILE_SIZE; row++) {
+                for (long shown = tile.visible[row] | tile.marked[row]; shown != 0;
+                     shown &= shown - 1) {
+                    cellChanged((tileY + row) * gridWidth + tileX +
+                                Long.numberOfTrailingZeros(shown), UNCHECKED_STATE);
+                }
+            }
+            Arrays.fill(tile.visible, 0L);
+            Arrays.fill(tile.marked, 0L);
+        }
+        playerHasLost = false;
+        numOfVisibleSafeCells = 0;
+        numOfRevealedCells = 0;
+        numOfMarkedCells = 0;
+        numOfTrippedMines = 0;
+        if (!keepCreatedMines) {
+            // (the new mines are drawn from a new seed, so no tile is of any use anymore)
+            Arrays.fill(tiles, null);
+            numOfMinedTiles = 0;
+            numOfOpenedTiles = 0;
+            numOfMinesPerTile = null;
+            minesAreCreated = false;
+        }
+        endUpdate();
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, int numOfMines) {
+        MinesweeperGameRules.verifyNewGame(gridHeight, gridWidth, numOfMines);
+        if ((long) gridHeight * gridWidth > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Trying to start a new game with too many cells.");
+        }
+        initGrid(gridHeight, gridWidth, numOfMines);
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, double proportionOfMines) {
+        newGame(gridHeight, gridWidth,
+                MinesweeperGameRules.numOfMinesFromProportion(gridHeight, gridWidth,
+                                                              proportionOfMines));
+    }
+
+    // +----------+
+    // | actions: |
+    // +----------+
+
+    @Override
+    public void checkInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        beginUpdate();
+        check(x, y);
+        endUpdate();
+    }
+
+    @Override
+    public void markInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        beginUpdate();
+        mark(x, y);
+        endUpdate();
+    }
+
+    @Override
+    public void completeAroundInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        beginUpdate();
+        completeAround(x, y);
+        endUpdate();
+    }
+
+    @Override
+    public void applyActions(int[] actions) {
+        beginUpdate();
+        for (int i = 0; i + ACTION_SIZE <= actions.length; i += ACTION_SIZE) {
+            final int x = actions[i + 1];
+            final int y = actions[i + 2];
+            if (x < 0 || y < 0 || x >= gridWidth || y >= gridHeight) {
+                continue;
+            }
+            switch (actions[i]) {
+                case CHECK_ACTION:
+                    check(x, y);
+                    break;
+                case MARK_ACTION:
+                    mark(x, y);
+                    break;
+                case COMPLETE_AROUND_ACTION:
+                    completeAround(x, y);
+                    break;
+                default:
+                    break;
+            }
+        }
+        endUpdate();
+    }
+
+    // +----------------------------+
+    // | game progress information: |
+    // +----------------------------+
+
+    @Override
+    public boolean playerHasWon() {
+        return minesAreCreated && !playerHasLost && getNumOfRemainingSafeCells() == 0;
+    }
+
+    @Override
+    public boolean playerHasLost() {
+        return playerHasLost;
+    }
+
+    @Override
+    public int getNumOfRevealedSafeCells() {
+        return numOfVisibleSafeCells;
+    }
+
+    @Override
+    public int getNumOfMarkedCells() {
+        return numOfMarkedCells;
+    }
+
+    @Override
+    public int getNumOfRemainingSafeCells() {
+        return gridHeight * gridWidth - numOfMines - numOfVisibleSafeCells;
+    }
+
+    @Override
+    public int getNumOfTrippedMines() {
+        return numOfTrippedMines;
+    }
+
+    @Override
+    public int getNumOfCellsOpenedByLastAction() {
+        return numOfCellsOpenedByLastUpdate;
+    }
+
+    @Override
+    public boolean isCellVisible(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        final Tile tile = tiles[tileIndexOf(x, y)];
+        return tile != null && tile.isOpened() && ((tile.visible[y & TILE_MASK] >>> x) & 1L) != 0;
+    }
+
+    @Override
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    @Override
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    @Override
+    public int getNumOfMines() {
+        return numOfMines;
+    }
+
+    /**
+     * @return Number of tiles whose mines have been drawn, opened or not.
+     */
+    int getNumOfMinedTiles() {
+        return numOfMinedTiles;
+    }
+
+    /**
+     * @return Number of tiles opened by the game so far.
+     */
+    int getNumOfOpenedTiles() {
+        return numOfOpenedTiles;
+    }
+
+    // +----------------+
+    // | visualisation: |
+    // +----------------+
+
+    @Override
+    public void visualiseInto(int[] result) {
+        MinesweeperGameRules.verifyBufferSize(result, gridHeight * gridWidth);
+        Arrays.fill(result, 0, gridHeight * gridWidth, UNCHECKED_STATE);
+        for (int tileIndex = 0; tileIndex < tiles.length; tileIndex++) {
+            final Tile tile = tiles[tileIndex];
+            if (tile == null || !tile.isOpened()) {
+                continue;
+            }
+            final int tileX = tileX(tileIndex);
+            final int tileY = tileY(tileIndex);
+            for (int row = 0; row < TILE_SIZE; row++) {
+                for (long shown = tile.visible[row] | tile.marked[row]; shown != 0;
+                     shown &= shown - 1) {
+                    final int column = Long.numberOfTrailingZeros(shown);
+                    result[(tileY + row) * gridWidth + tileX + column] =
+                            cellStateOf(tile, row, column);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills in the solution tile by tile. Mines of tiles that have not been drawn yet are drawn
+     * into a scratch plane, and not kept.
+     */
+    @Override
+    public void visualiseSolutionInto(int[] result) {
+        MinesweeperGameRules.verifyBufferSize(result, gridHeight * gridWidth);
+        Arrays.fill(result, 0, gridHeight * gridWidth, 0);
+        if (!minesAreCreated) {
+            return;
+        }
+        final long[] scratchMines = new long[TILE_SIZE];
+        for (int tileIndex = 0; tileIndex < tiles.length; tileIndex++) {
+            final long[] mines;
+            if (tiles[tileIndex] != null) {
+                mines = tiles[tileIndex].mines;
+            } else {
+                Arrays.fill(scratchMines, 0L);
+                drawMines(tileIndex, scratchMines);
+                mines = scratchMines;
+            }
+            final int tileX = tileX(tileIndex);
+            final int tileY = tileY(tileIndex);
+            for (int row = 0; row < TILE_SIZE; row++) {
+                for (long rowMines = mines[row]; rowMines != 0; rowMines &= rowMines - 1) {
+                    result[(tileY + row) * gridWidth + tileX +
+                           Long.numberOfTrailingZeros(rowMines)] = MARKED_STATE;
+                }
+            }
+        }
+        for (int y = 0; y < gridHeight; y++) {
+            for (int x = 0; x < gridWidth; x++) {
+                if (result[y * gridWidth + x] == MARKED_STATE) {
+                    continue;
+                }
+                int count = 0;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                        if (result[ny * gridWidth + nx] == MARKED_STATE) {
+                            count++;
+                        }
+                    }
+                }
+                result[y * gridWidth + x] = count;
+            }
+        }
+    }
+
+    @Override
+    public int[] visualiseChangesSince(int sinceRevision) {
+        return changeLog.changesSince(sinceRevision, revision, this::cellStateAt);
+    }
+
+    /**
+     * Allocates the dense visual state on the first call, after which every change is written
+     * into it as well.
+     */
+    @Override
+    public ByteBuffer getVisualStateBuffer() {
+        final int numOfCells = gridHeight * gridWidth;
+        if (visualState == null) {
+            visualState = new byte[numOfCells];
+            Arrays.fill(visualState, (byte) UNCHECKED_STATE);
+            for (int tileIndex = 0; tileIndex < tiles.length; tileIndex++) {
+                final Tile tile = tiles[tileIndex];
+                if (tile == null || !tile.isOpened()) {
+                    continue;
+                }
+                final int tileX = tileX(tileIndex);
+                final int tileY = tileY(tileIndex);
+                for (int row = 0; row < TILE_SIZE; row++) {
+                    for (long shown = tile.visible[row] | tile.marked[row]; shown != 0;
+                         shown &= shown - 1) {
+                        final int column = Long.numberOfTrailingZeros(shown);
+                        visualState[(tileY + row) * gridWidth + tileX + column] =
+                                (byte) cellStateOf(tile, row, column);
+                    }
+                }
+            }
+        }
+        return ByteBuffer.wrap(visualState);
+    }
+
+    @Override
+    public void getStatus(int[] status) {
+        MinesweeperGameRules.verifyBufferSize(status, STATUS_SIZE);
+        status[STATUS_GRID_HEIGHT] = gridHeight;
+        status[STATUS_GRID_WIDTH] = gridWidth;
+        status[STATUS_NUM_OF_MINES] = numOfMines;
+        status[STATUS_PLAYER_HAS_WON] = playerHasWon() ? 1 : 0;
+        status[STATUS_PLAYER_HAS_LOST] = playerHasLost ? 1 : 0;
+        status[STATUS_NUM_OF_REVEALED_CELLS] = numOfRevealedCells;
+        status[STATUS_NUM_OF_MARKED_CELLS] = numOfMarkedCells;
+        status[STATUS_STATE_REVISION] = revision;
+        status[STATUS_NUM_OF_TRIPPED_MINES] = numOfTrippedMines;
+    }
+
+    // +----------------+
+    // | save and load: |
+    // +----------------+
+
+    /**
+     * Serialises this game as a header line and the binary save (see {@link
+     * #serialiseToBuffer()}) in hexadecimal, as a text grid would be as large as the grid.
+     */
+    @Override
+    public String serialise() {
+        final ByteBuffer buffer = serialiseToBuffer();
+        final StringBuilder sb = new StringBuilder(64 + 2 * buffer.remaining());
+        sb.append(SERIALISATION_HEADER).append(' ').append(SERIALISATION_VERSION).append('\n');
+        while (buffer.hasRemaining()) {
+            final int b = buffer.get() & 0xFF;
+            sb.append(Character.forDigit(b >>> 4, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        sb.append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Loads a game serialised by {@link #serialise()}. If the input is invalid, this game is left
+     * unchanged.
+     */
+    @Override
+    public boolean deserialise(String inStr) {
+        if (inStr == null) {
+            return false;
+        }
+        final String[] lines = inStr.split("\n", -1);
+        // ignore the empty string after the last line break
+        final int numOfLines = (lines.length > 0 && lines[lines.length - 1].isEmpty())
+                               ? lines.length - 1 : lines.length;
+        if (numOfLines != 2 ||
+            !lines[0].equals(SERIALISATION_HEADER + " " + SERIALISATION_VERSION) ||
+            lines[1].length() % 2 != 0) {
+            return false;
+        }
+        final byte[] bytes = new byte[lines[1].length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            final int high = Character.digit(lines[1].charAt(2 * i), 16);
+            final int low = Character.digit(lines[1].charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return false;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return deserialiseFromBuffer(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Serialises this game as a header of 'BINARY_HEADER_SIZE' bytes, followed by the index and
+     * the visible and marked planes of each tile with visible or marked cells. The mines are not
+     * saved, as they are drawn again from the board seed and the first check.
+     */
+    @Override
+    public ByteBuffer serialiseToBuffer() {
+        int numOfSavedTiles = 0;
+        for (Tile tile : tiles) {
+            if (hasShownCells(tile)) {
+                numOfSavedTiles++;
+            }
+        }
+        final ByteBuffer buffer =
+                ByteBuffer.allocate(BINARY_HEADER_SIZE + numOfSavedTiles * SAVED_TILE_SIZE);
+        buffer.putInt(BINARY_SERIALISATION_MAGIC).put(BINARY_SERIALISATION_VERSION);
+        buffer.putInt(gridHeight).putInt(gridWidth).putInt(numOfMines);
+        buffer.put((byte) ((minesAreCreated ? MINES_ARE_CREATED_FLAG : 0) |
+                           (playerHasLost ? PLAYER_HAS_LOST_FLAG : 0)));
+        buffer.putLong(boardSeed).putInt(safeX).putInt(safeY).putInt(numOfSavedTiles);
+        for (int tileIndex = 0; tileIndex < tiles.length; tileIndex++) {
+            final Tile tile = tiles[tileIndex];
+            if (!hasShownCells(tile)) {
+                continue;
+            }
+            buffer.putInt(tileIndex);
+            for (long word : tile.visible) {
+                buffer.putLong(word);
+            }
+            for (long word : tile.marked) {
+                buffer.putLong(word);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Loads a game serialised by {@link #serialiseToBuffer()}. If the input is invalid, this game
+     * is left unchanged.
+     */
+    @Override
+    public boolean deserialiseFromBuffer(ByteBuffer buffer) {
+        final ByteBuffer input = buffer.duplicate();
+        if (input.remaining() < BINARY_HEADER_SIZE ||
+            input.getInt() != BINARY_SERIALISATION_MAGIC ||
+            input.get() != BINARY_SERIALISATION_VERSION) {
+            return false;
+        }
+        final int newGridHeight = input.getInt();
+        final int newGridWidth = input.getInt();
+        final int newNumOfMines = input.getInt();
+        final int flags = input.get();
+        final long newBoardSeed = input.getLong();
+        final int newSafeX = input.getInt();
+        final int newSafeY = input.getInt();
+        final int numOfSavedTiles = input.getInt();
+        try {
+            MinesweeperGameRules.verifyNewGame(newGridHeight, newGridWidth, newNumOfMines);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        final boolean newMinesAreCreated = (flags & MINES_ARE_CREATED_FLAG) != 0;
+        if ((long) newGridHeight * newGridWidth > Integer.MAX_VALUE ||
+            (flags & ~(MINES_ARE_CREATED_FLAG | PLAYER_HAS_LOST_FLAG)) != 0 ||
+            numOfSavedTiles < 0 || (!newMinesAreCreated && numOfSavedTiles > 0) ||
+            (newMinesAreCreated && (newSafeX < 0 || newSafeY < 0 || newSafeX >= newGridWidth ||
+                                    newSafeY >= newGridHeight)) ||
+            input.remaining() != (long) numOfSavedTiles * SAVED_TILE_SIZE) {
+            return false;
+        }
+
+        final int newNumOfTileColumns = numOfTiles(newGridWidth);
+        final int newNumOfTiles = numOfTiles(newGridHeight) * newNumOfTileColumns;
+        final int[] savedTileIndices = new int[numOfSavedTiles];
+        final long[][] savedPlanes = new long[2 * numOfSavedTiles][TILE_SIZE];
+        for (int i = 0; i < numOfSavedTiles; i++) {
+            final int tileIndex = input.getInt();
+            if (tileIndex < 0 || tileIndex >= newNumOfTiles ||
+                (i > 0 && tileIndex <= savedTileIndices[i - 1])) {
+                return false;
+            }
+            savedTileIndices[i] = tileIndex;
+            final int tileWidth = Math.min(
+                    TILE_SIZE, newGridWidth - (tileIndex % newNumOfTileColumns) * TILE_SIZE);
+            final int tileHeight = Math.min(
+                    TILE_SIZE, newGridHeight - (tileIndex / newNumOfTileColumns) * TILE_SIZE);
+            final long[] visible = savedPlanes[2 * i];
+            final long[] marked = savedPlanes[2 * i + 1];
+            for (long[] plane : new long[][]{visible, marked}) {
+                for (int row = 0; row < TILE_SIZE; row++) {
+                    plane[row] = input.getLong();
+                    if (plane[row] != 0 && (row >= tileHeight ||
+                                            (tileWidth < TILE_SIZE &&
+                                             (plane[row] >>> tileWidth) != 0))) {
+                        return false;
+                    }
+                }
+            }
+            for (int row = 0; row < TILE_SIZE; row++) {
+                if ((visible[row] & marked[row]) != 0) {
+                    return false;
+                }
+            }
+        }
+
+        initGrid(newGridHeight, newGridWidth, newNumOfMines);
+        if (newMinesAreCreated) {
+            createMines(newBoardSeed, newSafeX, newSafeY);
+        }
+        playerHasLost = (flags & PLAYER_HAS_LOST_FLAG) != 0;
+        beginUpdate();
+        for (int i = 0; i < numOfSavedTiles; i++) {
+            final int tileIndex = savedTileIndices[i];
+            final Tile tile = openTile(tileIndex);
+            System.arraycopy(savedPlanes[2 * i], 0, tile.visible, 0, TILE_SIZE);
+            System.arraycopy(savedPlanes[2 * i + 1], 0, tile.marked, 0, TILE_SIZE);
+            final int tileX = tileX(tileIndex);
+            final int tileY = tileY(tileIndex);
+            for (int row = 0; row < TILE_SIZE; row++) {
+                numOfMarkedCells += Long.bitCount(tile.marked[row]);
+                numOfRevealedCells += Long.bitCount(tile.visible[row]);
+                numOfTrippedMines += Long.bitCount(tile.visible[row] & tile.mines[row]);
+                numOfVisibleSafeCells += Long.bitCount(tile.visible[row] & ~tile.mines[row]);
+                for (long shown = tile.visible[row] | tile.marked[row]; shown != 0;
+                     shown &= shown - 1) {
+                    final int column = Long.numberOfTrailingZeros(shown);
+                    cellChanged((tileY + row) * gridWidth + tileX + column,
+                                cellStateOf(tile, row, column));
+                }
+            }
+        }
+        endUpdate();
+        numOfCellsOpenedByLastUpdate = 0;
+        return true;
+    }
+
+    // +--------------------+
+    // | memory accounting: |
+    // +--------------------+
+
+    @Override
+    public long getBoardMemoryUsage() {
+        // (references counted as 4 bytes)
+        final long tileIndexMemoryUsage =
+                (long) tiles.length * Integer.BYTES +
+                (numOfMinesPerTile != null ? (long) numOfMinesPerTile.length * Integer.BYTES : 0);
+        final long minesMemoryUsage = (long) numOfMinedTiles * TILE_SIZE * Long.BYTES;
+        final long openedTileMemoryUsage =
+                (long) numOfOpenedTiles * (2 * TILE_SIZE * Long.BYTES + NUM_OF_CELLS_PER_TILE);
+        return tileIndexMemoryUsage + minesMemoryUsage + openedTileMemoryUsage +
+               (long) seedQueue.length * Integer.BYTES + changeLog.getMemoryUsage() +
+               (visualState != null ? visualState.length : 0);
+    }
+
+    @Override
+    public long getPendingResultMemoryUsage() {
+        // results are written straight into Java arrays
+        return 0;
+    }
+
+    // +----------------------------+
+    // | limits of number of mines: |
+    // +----------------------------+
+
+    @Override
+    public int getMaxNumOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameRules.maxNumOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public double getMaxProportionOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameRules.maxProportionOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public int getMinNumOfMines() {
+        return MinesweeperGameRules.MIN_NUM_OF_MINES;
+    }
+
+    @Override
+    public double getMinProportionOfMines() {
+        return MinesweeperGameRules.MIN_PROPORTION_OF_MINES;
+    }
+
+    @Override
+    public void close() {
+        // nothing to free, memory is managed by the garbage collector
+    }
+
+    // +------------------+
+    // | private methods: |
+    // +------------------+
+
+    private static int numOfTiles(int numOfCells) {
+        return (numOfCells + TILE_MASK) >> TILE_SIZE_BITS;
+    }
+
+    private static boolean hasShownCells(Tile tile) {
+        if (tile == null || !tile.isOpened()) {
+            return false;
+        }
+        for (int row = 0; row < TILE_SIZE; row++) {
+            if ((tile.visible[row] | tile.marked[row]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void initGrid(int gridHeight, int gridWidth, int numOfMines) {
+        final int numOfCells = gridHeight * gridWidth;
+        if (visualState != null && visualState.length == numOfCells) {
+            Arrays.fill(visualState, (byte) UNCHECKED_STATE);
+        } else {
+            visualState = null;
+        }
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        this.numOfMines = numOfMines;
+        this.numOfTileColumns = numOfTiles(gridWidth);
+        this.tiles = new Tile[numOfTiles(gridHeight) * numOfTileColumns];
+        this.numOfMinedTiles = 0;
+        this.numOfOpenedTiles = 0;
+        this.minesAreCreated = false;
+        this.numOfMinesPerTile = null;
+        this.playerHasLost = false;
+        this.numOfVisibleSafeCells = 0;
+        this.numOfRevealedCells = 0;
+        this.numOfMarkedCells = 0;
+        this.numOfTrippedMines = 0;
+        this.numOfCellsOpenedByLastUpdate = 0;
+        revision++;
+        changeLog.clear(revision);
+    }
+
+    private int tileIndexOf(int x, int y) {
+        return (y >> TILE_SIZE_BITS) * numOfTileColumns + (x >> TILE_SIZE_BITS);
+    }
+
+    private int tileX(int tileIndex) {
+        return (tileIndex % numOfTileColumns) << TILE_SIZE_BITS;
+    }
+
+    private int tileY(int tileIndex) {
+        return (tileIndex / numOfTileColumns) << TILE_SIZE_BITS;
+    }
+
+    // +-------------------------+
+    // | mines and tile opening: |
+    // +-------------------------+
+
+    /**
+     * Creates the mines of the whole grid, leaving the given cell and its neighbours free of
+     * mines, by only splitting them between the tiles. (See {@link #drawMines(int, long[])}.)
+     */
+    private void createMines(long newBoardSeed, int newSafeX, int newSafeY) {
+        boardSeed = newBoardSeed;
+        safeX = newSafeX;
+        safeY = newSafeY;
+        final int[] numOfCandidatesPerTile = new int[tiles.length];
+        final int[] excludedCells = new int[MAX_NUM_OF_EXCLUDED_CELLS];
+        int numOfCandidates = 0;
+        for (int tileIndex = 0; tileIndex < tiles.length; tileIndex++) {
+            final int tileWidth = Math.min(TILE_SIZE, gridWidth - tileX(tileIndex));
+            final int tileHeight = Math.min(TILE_SIZE, gridHeight - tileY(tileIndex));
+            numOfCandidatesPerTile[tileIndex] =
+                    tileWidth * tileHeight - excludedCellsOf(tileIndex, excludedCells);
+            numOfCandidates += numOfCandidatesPerTile[tileIndex];
+        }
+        numOfMinesPerTile = MinePlacement.splitMines(new Random(boardSeed), numOfMines,
+                                                     numOfCandidates, numOfCandidatesPerTile);
+        minesAreCreated = true;
+    }
+
+    /**
+     * Places the mines of the given tile into the given empty plane, uniformly at random among
+     * its cells outside the area of the first check, from the stream of the tile.
+     */
+    private void drawMines(int tileIndex, final long[] mines) {
+        final int tileWidth = Math.min(TILE_SIZE, gridWidth - tileX(tileIndex));
+        final int tileHeight = Math.min(TILE_SIZE, gridHeight - tileY(tileIndex));
+        final int[] excludedCells = new int[MAX_NUM_OF_EXCLUDED_CELLS];
+        final int numOfExcludedCells = excludedCellsOf(tileIndex, excludedCells);
+        // cell k of the tile is cell 'k % tileWidth' of row 'k / tileWidth'
+        final MinePlacement.MineGrid mineGrid = new MinePlacement.MineGrid() {
+            @Override
+            public boolean isMine(int cellIndex) {
+                return ((mines[cellIndex / tileWidth] >>> (cellIndex % tileWidth)) & 1L) != 0;
+            }
+
+            @Override
+            public void setMine(int cellIndex, boolean mine) {
+                final long bit = 1L << (cellIndex % tileWidth);
+                if (mine) {
+                    mines[cellIndex / tileWidth] |= bit;
+                } else {
+                    mines[cellIndex / tileWidth] &= ~bit;
+                }
+            }
+        };
+        MinePlacement.placeMinesInCells(
+                new Random(MinePlacement.streamSeed(boardSeed, tileIndex)), 0,
+                tileWidth * tileHeight, numOfMinesPerTile[tileIndex], excludedCells,
+                numOfExcludedCells, mineGrid);
+    }
+
+    /**
+     * Lists the cells of the given tile around the first check, in increasing order, numbered as
+     * in {@link #drawMines(int, long[])}.
+     *
+     * @return Number of cells listed.
+     */
+    private int excludedCellsOf(int tileIndex, int[] excludedCells) {
+        final int tileX = tileX(tileIndex);
+        final int tileY = tileY(tileIndex);
+        final int tileWidth = Math.min(TILE_SIZE, gridWidth - tileX);
+        final int tileHeight = Math.min(TILE_SIZE, gridHeight - tileY);
+        int numOfExcludedCells = 0;
+        for (int y = Math.max(tileY, safeY - 1);
+             y <= Math.min(tileY + tileHeight - 1, safeY + 1); y++) {
+            for (int x = Math.max(tileX, safeX - 1);
+                 x <= Math.min(tileX + tileWidth - 1, safeX + 1); x++) {
+                excludedCells[numOfExcludedCells++] = (y - tileY) * tileWidth + (x - tileX);
+            }
+        }
+        return numOfExcludedCells;
+    }
+
+    /**
+     * @return The given tile, with its mines drawn.
+     */
+    private Tile minedTile(int tileIndex) {
+        Tile tile = tiles[tileIndex];
+        if (tile == null) {
+            tile = new Tile();
+            drawMines(tileIndex, tile.mines);
+            tiles[tileIndex] = tile;
+            numOfMinedTiles++;
+        }
+        return tile;
+    }
+
+    /**
+     * @return The given tile, opened. Opening a tile draws the mines of its neighbours, to count
+     * the neighbouring mines of its border cells.
+     */
+    private Tile openTile(int tileIndex) {
+        final Tile tile = minedTile(tileIndex);
+        if (tile.isOpened()) {
+            return tile;
+        }
+        final int tileColumn = tileIndex % numOfTileColumns;
+        final int tileY = tileY(tileIndex);
+        final int tileHeight = Math.min(TILE_SIZE, gridHeight - tileY);
+        final byte[] counts = new byte[NUM_OF_CELLS_PER_TILE];
+        for (int row = 0; row < tileHeight; row++) {
+            for (int y = Math.max(0, tileY + row - 1);
+                 y <= Math.min(gridHeight - 1, tileY + row + 1); y++) {
+                // the mines of the row, and the same shifted to put the left and the right
+                // neighbour of each cell at its position
+                final long mines = mineRow(tileColumn, y);
+                final long leftMines = (mines << 1) | (mineRow(tileColumn - 1, y) >>> TILE_MASK);
+                final long rightMines =
+                        (mines >>> 1) | (mineRow(tileColumn + 1, y) << TILE_MASK);
+                for (int column = 0; column < TILE_SIZE; column++) {
+                    counts[(row << TILE_SIZE_BITS) | column] += (byte) (
+                            ((leftMines >>> column) & 1L) + ((mines >>> column) & 1L) +
+                            ((rightMines >>> column) & 1L));
+                }
+            }
+        }
+        tile.numOfNeighbourMines = counts;
+        tile.marked = new long[TILE_SIZE];
+        tile.visible = new long[TILE_SIZE];
+        numOfOpenedTiles++;
+        return tile;
+    }
+
+    /**
+     * @return Mines of the given grid row within the given tile column, or none if the column is
+     * outside the grid.
+     */
+    private long mineRow(int tileColumn, int y) {
+        if (tileColumn < 0 || tileColumn >= numOfTileColumns) {
+            return 0L;
+        }
+        return minedTile((y >> TILE_SIZE_BITS) * numOfTileColumns + tileColumn)
+                .mines[y & TILE_MASK];
+    }
+
+    private Tile openedTileAt(int x, int y) {
+        return openTile(tileIndexOf(x, y));
+    }
+
+    // +----------------------------+
+    // | visual state and counters: |
+    // +----------------------------+
+
+    private void beginUpdate() {
+        cellsChangedDuringUpdate = false;
+        changeLogOverflowed = false;
+        numOfRevealedCellsBeforeUpdate = numOfRevealedCells;
+    }
+
+    private void endUpdate() {
+        if (cellsChangedDuringUpdate) {
+            revision++;
+        }
+        cellsChangedDuringUpdate = false;
+        // (resets hide cells, which does not count as opening any)
+        numOfCellsOpenedByLastUpdate =
+                Math.max(0, numOfRevealedCells - numOfRevealedCellsBeforeUpdate);
+
+        // once the log outgrows the opened tiles, re-reading their visual state is cheaper
+        // (the limit grows as tiles are opened, so an overflow is remembered rather than
+        // re-checked: the log stopped taking changes and is incomplete)
+        if (changeLogOverflowed || changeLog.size() > maxChangeLogSize()) {
+            changeLog.clear(revision);
+        }
+        changeLogOverflowed = false;
+    }
+
+    /**
+     * @return Number of changes the log is allowed to hold: as many bytes as the opened tiles have
+     * cells, but no more changes than the grid has cells.
+     */
+    private int maxChangeLogSize() {
+        return (int) Math.min((long) gridHeight * gridWidth,
+                              (long) numOfOpenedTiles * NUM_OF_CELLS_PER_TILE /
+                              BYTES_PER_LOGGED_CHANGE);
+    }
+
+    /**
+     * Logs a changed cell, and writes it into the dense visual state if there is one.
+     */
+    private void cellChanged(int cellIndex, int newState) {
+        if (visualState != null) {
+            visualState[cellIndex] = (byte) newState;
+        }
+        // a log longer than allowed is dropped at the end of the update (see 'endUpdate')
+        if (!changeLogOverflowed) {
+            if (changeLog.size() <= maxChangeLogSize()) {
+                changeLog.append(revision + 1, cellIndex);
+            } else {
+                changeLogOverflowed = true;
+            }
+        }
+        cellsChangedDuringUpdate = true;
+    }
+
+    private static int cellStateOf(Tile tile, int row, int column) {
+        if (((tile.marked[row] >>> column) & 1L) != 0) {
+            return MARKED_STATE;
+        } else if (((tile.visible[row] >>> column) & 1L) == 0) {
+            return UNCHECKED_STATE;
+        } else if (((tile.mines[row] >>> column) & 1L) != 0) {
+            return MINE_STATE;
+        } else {
+            return tile.numOfNeighbourMines[(row << TILE_SIZE_BITS) | column];
+        }
+    }
+
+    private int cellStateAt(int cellIndex) {
+        final int x = cellIndex % gridWidth;
+        final int y = cellIndex / gridWidth;
+        final Tile tile = tiles[tileIndexOf(x, y)];
+        if (tile == null || !tile.isOpened()) {
+            return UNCHECKED_STATE;
+        }
+        return cellStateOf(tile, y & TILE_MASK, x & TILE_MASK);
+    }
+
+    // +-----------------+
+    // | game behaviour: |
+    // +-----------------+
+
+    private void check(int x, int y) {
+        if (!minesAreCreated) {
+            createMines(random.nextLong(), x, y);
+        }
+        reveal(x, y);
+    }
+
+    private void mark(int x, int y) {
+        // marks before the first check are ignored (as by the native library wrapper)
+        if (!minesAreCreated) {
+            return;
+        }
+        final Tile tile = openedTileAt(x, y);
+        final int row = y & TILE_MASK;
+        final long bit = 1L << x;
+        if ((tile.visible[row] & bit) != 0) {
+            return;
+        }
+        tile.marked[row] ^= bit;
+        final boolean isMarked = (tile.marked[row] & bit) != 0;
+        numOfMarkedCells += isMarked ? 1 : -1;
+        cellChanged(y * gridWidth + x, isMarked ? MARKED_STATE : UNCHECKED_STATE);
+    }
+
+    private void completeAround(int x, int y) {
+        // complete-arounds on hidden cells are ignored, so the centre is looked up without opening
+        // its tile (or drawing mines, which may not exist yet)
+        if (!minesAreCreated) {
+            return;
+        }
+        final Tile centreTile = tiles[tileIndexOf(x, y)];
+        final int centreRow = y & TILE_MASK;
+        if (centreTile == null || !centreTile.isOpened() ||
+            ((centreTile.visible[centreRow] >>> x) & 1L) == 0 ||
+            ((centreTile.mines[centreRow] >>> x) & 1L) != 0) {
+            return;
+        }
+
+        int numOfMarkedNeighbours = 0;
+        int numOfHiddenNeighbours = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                final Tile tile = openedTileAt(nx, ny);
+                final int row = ny & TILE_MASK;
+                if (((tile.marked[row] >>> nx) & 1L) != 0) {
+                    numOfMarkedNeighbours++;
+                } else if (((tile.visible[row] >>> nx) & 1L) == 0) {
+                    numOfHiddenNeighbours++;
+                }
+            }
+        }
+
+        if (numOfHiddenNeighbours == 0) {
+            return;
+        }
+        final int numOfNeighbourMinesAround =
+                centreTile.numOfNeighbourMines[(centreRow << TILE_SIZE_BITS) | (x & TILE_MASK)];
+        if (numOfMarkedNeighbours == numOfNeighbourMinesAround) {
+            // all mines are marked, so the rest are safe
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                    reveal(nx, ny);
+                }
+            }
+        } else if (numOfMarkedNeighbours + numOfHiddenNeighbours == numOfNeighbourMinesAround) {
+            // all hidden cells are mines
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                    final Tile tile = openedTileAt(nx, ny);
+                    final int row = ny & TILE_MASK;
+                    final long bit = 1L << nx;
+                    if (((tile.marked[row] | tile.visible[row]) & bit) == 0) {
+                        tile.marked[row] |= bit;
+                        numOfMarkedCells++;
+                        cellChanged(ny * gridWidth + nx, MARKED_STATE);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Makes the given cell visible. If it has no neighbouring mines, the whole area around it is
+     * opened, like in the native game.
+     * </p>
+     * <p>
+     * The area is opened with the scanline fill of 'JavaMinesweeperGame', except that spans stop
+     * at tile borders: a hidden cell without neighbouring mines next to the end of a span is in
+     * the next tile, and is queued as a seed of its own. Each span thus only touches the words of
+     * one tile, and tiles are only opened once the area reaches them.
+     * </p>
+     */
+    private void reveal(int startX, int startY) {
+        final Tile startTile = openedTileAt(startX, startY);
+        final int startRow = startY & TILE_MASK;
+        if ((((startTile.visible[startRow] | startTile.marked[startRow]) >>> startX) & 1L) !=
+            0) {
+            return;
+        }
+        if (!isExpandable(startTile, startX, startRow)) {
+            revealCell(startTile, startX, startY);
+            return;
+        }
+        seedQueueHead = 0;
+        seedQueueSize = 0;
+        enqueueSeed(startY * gridWidth + startX);
+
+        while (seedQueueSize > 0) {
+            final int seed = dequeueSeed();
+            final int y = seed / gridWidth;
+            final int seedX = seed - y * gridWidth;
+            final Tile tile = openedTileAt(seedX, y);
+            final int row = y & TILE_MASK;
+            if (((tile.visible[row] >>> seedX) & 1L) != 0) {
+                // (seeds may be queued more than once from neighbouring spans)
+                continue;
+            }
+            final int tileLeft = seedX & ~TILE_MASK;
+            final int tileRight = Math.min(gridWidth - 1, tileLeft + TILE_MASK);
+            int left = seedX;
+            int right = seedX;
+            while (left > tileLeft && isExpandable(tile, left - 1, row)) {
+                left--;
+            }
+            while (right < tileRight && isExpandable(tile, right + 1, row)) {
+                right++;
+            }
+            for (int x = left; x <= right; x++) {
+                revealCell(tile, x, y);
+            }
+
+            // the border cells of the span have neighbouring mines, are visible or marked, or
+            // are in the next tile
+            if (left > 0) {
+                revealOrQueue(left - 1, y);
+            }
+            if (right < gridWidth - 1) {
+                revealOrQueue(right + 1, y);
+            }
+            final int scanLeft = Math.max(0, left - 1);
+            final int scanRight = Math.min(gridWidth - 1, right + 1);
+            if (y > 0) {
+                scanForSeeds(y - 1, scanLeft, scanRight);
+            }
+            if (y < gridHeight - 1) {
+                scanForSeeds(y + 1, scanLeft, scanRight);
+            }
+        }
+    }
+
+    /**
+     * Reveals the hidden cells with neighbouring mines in the given columns of a row, and queues
+     * one seed for each run of hidden cells without neighbouring mines.
+     */
+    private void scanForSeeds(int y, int fromX, int toX) {
+        final int row = y & TILE_MASK;
+        Tile tile = openedTileAt(fromX, y);
+        boolean inRun = false;
+        for (int x = fromX; x <= toX; x++) {
+            if ((x & TILE_MASK) == 0) {
+                tile = openedTileAt(x, y);
+            }
+            if ((((tile.visible[row] | tile.marked[row]) >>> x) & 1L) != 0) {
+                inRun = false;
+            } else if (tile.numOfNeighbourMines[(row << TILE_SIZE_BITS) | (x & TILE_MASK)] ==
+                       0) {
+                if (!inRun) {
+                    enqueueSeed(y * gridWidth + x);
+                    inRun = true;
+                }
+            } else {
+                revealCell(tile, x, y);
+                inRun = false;
+            }
+        }
+    }
+
+    private void revealOrQueue(int x, int y) {
+        final Tile tile = openedTileAt(x, y);
+        final int row = y & TILE_MASK;
+        if ((((tile.visible[row] | tile.marked[row]) >>> x) & 1L) != 0) {
+            return;
+        }
+        if (isExpandable(tile, x, row)) {
+            enqueueSeed(y * gridWidth + x);
+        } else {
+            revealCell(tile, x, y);
+        }
+    }
+
+    /**
+     * @return Whether the given cell is a hidden, unmarked cell without neighbouring mines (and
+     * so not a mine, as the count includes the cell itself).
+     */
+    private static boolean isExpandable(Tile tile, int x, int row) {
+        return (((tile.visible[row] | tile.marked[row]) >>> x) & 1L) == 0 &&
+               tile.numOfNeighbourMines[(row << TILE_SIZE_BITS) | (x & TILE_MASK)] == 0;
+    }
+
+    private void revealCell(Tile tile, int x, int y) {
+        final int row = y & TILE_MASK;
+        // shifts of longs only use the lowest 6 bits of the distance
+        tile.visible[row] |= 1L << x;
+        numOfRevealedCells++;
+        if (((tile.mines[row] >>> x) & 1L) != 0) {
+            playerHasLost = true;
+            numOfTrippedMines++;
+        } else {
+            numOfVisibleSafeCells++;
+        }
+        cellChanged(y * gridWidth + x, cellStateOf(tile, row, x & TILE_MASK));
+    }
+
+    private void enqueueSeed(int i) {
+        if (seedQueueSize == seedQueue.length) {
+            // unwrap the ring into a buffer twice the size
+            final int[] newSeedQueue = new int[2 * seedQueue.length];
+            final int numOfTailSeeds = seedQueue.length - seedQueueHead;
+            System.arraycopy(seedQueue, seedQueueHead, newSeedQueue, 0, numOfTailSeeds);
+            System.arraycopy(seedQueue, 0, newSeedQueue, numOfTailSeeds, seedQueueHead);
+            seedQueue = newSeedQueue;
+            seedQueueHead = 0;
+        }
+        seedQueue[(seedQueueHead + seedQueueSize) % seedQueue.length] = i;
+        seedQueueSize++;
+    }
+
+    private int dequeueSeed() {
+        final int i = seedQueue[seedQueueHead];
+        seedQueueHead = (seedQueueHead + 1) % seedQueue.length;
+        seedQueueSize--;
+        return i;
+    }
+}
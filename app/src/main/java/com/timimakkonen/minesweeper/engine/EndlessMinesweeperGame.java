@@ -0,0 +1,1330 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <p>
+ * Pure-Java minesweeper engine for an endless board, of which the game shows a window of
+ * 'gridHeight x gridWidth' cells. The window is moved around the board with {@link
+ * #moveWindow(int, int)}, and the cells given to and returned by the methods of {@link
+ * MinesweeperGame} are cells of the window. (The board only ends 'BOARD_LIMIT' cells away from
+ * its origin in each direction, so that cell coordinates never overflow.)
+ * </p>
+ * <p>
+ * The board is made of chunks of 64 x 64 cells, kept like the tiles of {@link
+ * ChunkedMinesweeperGame}. The mines of a chunk only depend on the board seed (drawn by the first
+ * check) and the coordinates of the chunk, which are hashed into the seed of the chunk (see
+ * {@link #drawMines(int, int, long[])}), so any chunk can be dropped and drawn again at any time.
+ * Each cell is a mine with the proportion of mines of the game, except for the cells around the
+ * first check.
+ * </p>
+ * <p>
+ * Memory is bounded by evicting the chunks far from the window once more than
+ * 'maxNumOfLoadedChunks()' are loaded. Chunks without visible or marked cells are simply
+ * dropped, while the others are written into a {@link ChunkStore} (fully resolved ones first),
+ * from which they are read back when the game reaches them again. The counters cover the whole
+ * board, so they are saved with the game, while the saves only hold the loaded chunks and the
+ * length of the chunk store, to which the store is cut back on load.
+ * </p>
+ * <p>
+ * Areas are opened as in the chunked engine, but across the whole board rather than the window.
+ * With few mines, the cells without neighbouring mines would be likely to form areas without
+ * end, so proportions of mines below 'MIN_PROPORTION_OF_MINES' are raised to it. The number of
+ * mines of the game is the one of a window, and the game is never won.
+ * </p>
+ */
+public class EndlessMinesweeperGame implements MinesweeperGame {
+
+    public static final double MIN_PROPORTION_OF_MINES = 0.15;
+    static final int BOARD_LIMIT = 1 << 30;
+
+    private static final int CHUNK_SIZE_BITS = 6;
+    // (a chunk row is one long)
+    private static final int CHUNK_SIZE = 1 << CHUNK_SIZE_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int NUM_OF_CELLS_PER_CHUNK = CHUNK_SIZE * CHUNK_SIZE;
+    // (mines, visible and marked planes, and the neighbour counts)
+    private static final int OPENED_CHUNK_SIZE =
+            3 * CHUNK_SIZE * Long.BYTES + NUM_OF_CELLS_PER_CHUNK;
+
+    // chunks this close to the chunks of the window are never evicted
+    private static final int NEAR_CHUNK_DISTANCE = 1;
+    private static final int MIN_MAX_NUM_OF_LOADED_CHUNKS = 256;
+
+    private static final String SERIALISATION_HEADER = "EndlessMinesweeperGame";
+    private static final int SERIALISATION_VERSION = 1;
+
+    // binary serialisation: magic ('EMSG'), version, gridHeight, gridWidth, numOfMines, flags,
+    // proportionOfMines, boardSeed, safeX, safeY, windowX, windowY, the four counters, the
+    // generation and the length of the chunk store, numOfSavedChunks, and per saved chunk: its
+    // coordinates and its visible and marked planes
+    private static final int BINARY_SERIALISATION_MAGIC = 0x454D5347;
+    private static final byte BINARY_SERIALISATION_VERSION = 1;
+    private static final int BINARY_HEADER_SIZE =
+            4 + 1 + 3 * 4 + 1 + 8 + 8 + 4 * 4 + 4 * 4 + 8 + 8 + 4;
+    private static final int SAVED_CHUNK_SIZE = 2 * 4 + 2 * CHUNK_SIZE * Long.BYTES;
+    private static final int MINES_ARE_CREATED_FLAG = 1;
+    private static final int PLAYER_HAS_LOST_FLAG = 1 << 1;
+
+    private static final int MINE_STATE = 9;
+    private static final int MARKED_STATE = 10;
+    private static final int UNCHECKED_STATE = -1;
+
+    private static final int INITIAL_SEED_QUEUE_CAPACITY = 64;
+
+    private final Random random;
+    private final ChunkStore chunkStore;
+    private final CellChangeLog changeLog = new CellChangeLog();
+
+    private int gridHeight;
+    private int gridWidth;
+    private int numOfMines;
+    private double proportionOfMines;
+    // a cell is a mine if the top 53 bits of its hash are below this
+    private long mineThreshold;
+    // board coordinates of the top left cell of the window
+    private int windowX;
+    private int windowY;
+
+    // loaded chunks, by chunk key (see 'ChunkStore.keyOf')
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+    private int numOfOpenedChunks;
+    // last chunk looked up, as most lookups are for the same chunk as the one before
+    private Chunk lastChunk;
+
+    // set by the first check: the mines of each chunk are drawn from these alone
+    private boolean minesAreCreated;
+    private long boardSeed;
+    private int safeX;
+    private int safeY;
+
+    private boolean playerHasLost;
+    private int numOfVisibleSafeCells;
+    private int numOfRevealedCells;
+    private int numOfMarkedCells;
+    private int numOfTrippedMines;
+
+    // visual state revision and update bookkeeping (as in 'VisualStateTracker')
+    private int revision = 0;
+    private int numOfRevealedCellsBeforeUpdate = 0;
+    private int numOfCellsOpenedByLastUpdate = 0;
+    private boolean cellsChangedDuringUpdate = false;
+    // one byte per cell of the window
+    private byte[] visualState;
+
+    // reused FIFO ring buffer of the (x, y) pairs of seed cells for revealing areas
+    private int[] seedQueue;
+    private int seedQueueHead;
+    private int seedQueueSize;
+
+    /**
+     * @param chunkStore Store of the evicted chunks, which is closed with the game.
+     */
+    public EndlessMinesweeperGame(Random random, ChunkStore chunkStore) {
+        this.random = random;
+        this.chunkStore = chunkStore;
+        this.seedQueue = new int[2 * INITIAL_SEED_QUEUE_CAPACITY];
+        initGame(0, 0, 0, MIN_PROPORTION_OF_MINES, 0, 0);
+    }
+
+    /**
+     * Mines of a chunk, and the rest of its state once it is opened. Cell (x, y) of the chunk is
+     * bit x of word y of each plane, and element 'y * CHUNK_SIZE + x' of 'numOfNeighbourMines'.
+     */
+    private static final class Chunk {
+
+        final int chunkX;
+        final int chunkY;
+        final long[] mines = new long[CHUNK_SIZE];
+        // null until the chunk is opened
+        long[] visible;
+        long[] marked;
+        byte[] numOfNeighbourMines;
+
+        Chunk(int chunkX, int chunkY) {
+            this.chunkX = chunkX;
+            this.chunkY = chunkY;
+        }
+
+        boolean isOpened() {
+            return visible != null;
+        }
+
+        boolean hasShownCells() {
+            if (!isOpened()) {
+                return false;
+            }
+            for (int row = 0; row < CHUNK_SIZE; row++) {
+                if ((visible[row] | marked[row]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return Whether every hidden cell next to a visible cell of the chunk is marked, so
+         * nothing is left to do in it. (Visible cells of other chunks are not considered.)
+         */
+        boolean isResolved() {
+            long previousRow = 0;
+            long currentRow = spread(visible[0]);
+            for (int row = 0; row < CHUNK_SIZE; row++) {
+                final long nextRow = row + 1 < CHUNK_SIZE ? spread(visible[row + 1]) : 0;
+                if (((previousRow | currentRow | nextRow) & ~(visible[row] | marked[row])) != 0) {
+                    return false;
+                }
+                previousRow = currentRow;
+                currentRow = nextRow;
+            }
+            return true;
+        }
+
+        private static long spread(long row) {
+            return row | (row << 1) | (row >>> 1);
+        }
+    }
+
+    // +---------------------+
+    // | reset and new game: |
+    // +---------------------+
+
+    @Override
+    public void reset(boolean keepCreatedMines) {
+        for (Chunk chunk : chunks.values()) {
+            if (chunk.isOpened()) {
+                Arrays.fill(chunk.visible, 0L);
+                Arrays.fill(chunk.marked, 0L);
+            }
+        }
+        chunkStore.clear(random.nextLong());
+        playerHasLost = false;
+        numOfVisibleSafeCells = 0;
+        numOfRevealedCells = 0;
+        numOfMarkedCells = 0;
+        numOfTrippedMines = 0;
+        numOfCellsOpenedByLastUpdate = 0;
+        if (!keepCreatedMines) {
+            // (the new mines are drawn from a new seed, so no chunk is of any use anymore)
+            dropChunks();
+            minesAreCreated = false;
+        }
+        windowChanged();
+    }
+
+    /**
+     * Starts a new game with a window of the given size, in which the given number of mines sets
+     * the proportion of mines of the whole board.
+     */
+    @Override
+    public void newGame(int gridHeight, int gridWidth, int numOfMines) {
+        MinesweeperGameRules.verifyNewGame(gridHeight, gridWidth, numOfMines);
+        final int numOfCells = gridHeight * gridWidth;
+        newGame(gridHeight, gridWidth, numOfMines,
+                numOfCells == 0 ? 0.0 : (double) numOfMines / numOfCells);
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, double proportionOfMines) {
+        newGame(gridHeight, gridWidth,
+                MinesweeperGameRules.numOfMinesFromProportion(gridHeight, gridWidth,
+                                                              proportionOfMines),
+                proportionOfMines);
+    }
+
+    private void newGame(int gridHeight, int gridWidth, int numOfMines,
+                         double proportionOfMines) {
+        if ((long) gridHeight * gridWidth > Integer.MAX_VALUE || gridHeight > BOARD_LIMIT ||
+            gridWidth > BOARD_LIMIT) {
+            throw new IllegalArgumentException(
+                    "Trying to start a new game with too many cells.");
+        }
+        chunkStore.clear(random.nextLong());
+        initGame(gridHeight, gridWidth, numOfMines,
+                 Math.max(MIN_PROPORTION_OF_MINES, proportionOfMines), 0, 0);
+    }
+
+    // +--------------------+
+    // | moving the window: |
+    // +--------------------+
+
+    /**
+     * Moves the window over the board by the given number of columns and rows (negative ones
+     * moving it left and up), as far as the board goes. The whole visual state changes, so the
+     * changes since earlier revisions are not available anymore.
+     */
+    public void moveWindow(int columns, int rows) {
+        final int newWindowX = (int) Math.max(-BOARD_LIMIT, Math.min(
+                (long) BOARD_LIMIT - gridWidth, (long) windowX + columns));
+        final int newWindowY = (int) Math.max(-BOARD_LIMIT, Math.min(
+                (long) BOARD_LIMIT - gridHeight, (long) windowY + rows));
+        if (newWindowX == windowX && newWindowY == windowY) {
+            return;
+        }
+        windowX = newWindowX;
+        windowY = newWindowY;
+        windowChanged();
+        evictFarChunks();
+    }
+
+    /**
+     * @return Board column of the leftmost column of the window.
+     */
+    public int getWindowX() {
+        return windowX;
+    }
+
+    /**
+     * @return Board row of the top row of the window.
+     */
+    public int getWindowY() {
+        return windowY;
+    }
+
+    // +----------+
+    // | actions: |
+    // +----------+
+
+    @Override
+    public void checkInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        beginUpdate();
+        check(windowX + x, windowY + y);
+        endUpdate();
+    }
+
+    @Override
+    public void markInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        beginUpdate();
+        mark(windowX + x, windowY + y);
+        endUpdate();
+    }
+
+    @Override
+    public void completeAroundInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        beginUpdate();
+        completeAround(windowX + x, windowY + y);
+        endUpdate();
+    }
+
+    @Override
+    public void applyActions(int[] actions) {
+        beginUpdate();
+        for (int i = 0; i + ACTION_SIZE <= actions.length; i += ACTION_SIZE) {
+            final int x = actions[i + 1];
+            final int y = actions[i + 2];
+            if (x < 0 || y < 0 || x >= gridWidth || y >= gridHeight) {
+                continue;
+            }
+            switch (actions[i]) {
+                case CHECK_ACTION:
+                    check(windowX + x, windowY + y);
+                    break;
+                case MARK_ACTION:
+                    mark(windowX + x, windowY + y);
+                    break;
+                case COMPLETE_AROUND_ACTION:
+                    completeAround(windowX + x, windowY + y);
+                    break;
+                default:
+                    break;
+            }
+        }
+        endUpdate();
+    }
+
+    // +----------------------------+
+    // | game progress information: |
+    // +----------------------------+
+
+    /**
+     * @return False, as the board has no end.
+     */
+    @Override
+    public boolean playerHasWon() {
+        return false;
+    }
+
+    @Override
+    public boolean playerHasLost() {
+        return playerHasLost;
+    }
+
+    @Override
+    public int getNumOfRevealedSafeCells() {
+        return numOfVisibleSafeCells;
+    }
+
+    @Override
+    public int getNumOfMarkedCells() {
+        return numOfMarkedCells;
+    }
+
+    /**
+     * @return 'Integer.MAX_VALUE', as the board has no end.
+     */
+    @Override
+    public int getNumOfRemainingSafeCells() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int getNumOfTrippedMines() {
+        return numOfTrippedMines;
+    }
+
+    @Override
+    public int getNumOfCellsOpenedByLastAction() {
+        return numOfCellsOpenedByLastUpdate;
+    }
+
+    @Override
+    public boolean isCellVisible(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        final int state = visualState[y * gridWidth + x];
+        return state != UNCHECKED_STATE && state != MARKED_STATE;
+    }
+
+    @Override
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    @Override
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    @Override
+    public int getNumOfMines() {
+        return numOfMines;
+    }
+
+    /**
+     * @return Number of chunks in memory, opened or not.
+     */
+    int getNumOfLoadedChunks() {
+        return chunks.size();
+    }
+
+    /**
+     * @return Number of opened chunks in memory.
+     */
+    int getNumOfOpenedChunks() {
+        return numOfOpenedChunks;
+    }
+
+    // +----------------+
+    // | visualisation: |
+    // +----------------+
+
+    @Override
+    public void visualiseInto(int[] result) {
+        MinesweeperGameRules.verifyBufferSize(result, gridHeight * gridWidth);
+        for (int i = 0; i < visualState.length; i++) {
+            result[i] = visualState[i];
+        }
+    }
+
+    /**
+     * Fills in the solution of the window. The chunks around the window are drawn for it, and
+     * evicted again if there are too many.
+     */
+    @Override
+    public void visualiseSolutionInto(int[] result) {
+        MinesweeperGameRules.verifyBufferSize(result, gridHeight * gridWidth);
+        Arrays.fill(result, 0, gridHeight * gridWidth, 0);
+        if (!minesAreCreated) {
+            return;
+        }
+        for (int y = 0; y < gridHeight; y++) {
+            final int boardY = windowY + y;
+            for (int x = 0; x < gridWidth; x++) {
+                final int boardX = windowX + x;
+                if (isMine(boardX, boardY)) {
+                    result[y * gridWidth + x] = MARKED_STATE;
+                    continue;
+                }
+                int count = 0;
+                for (int ny = boardY - 1; ny <= boardY + 1; ny++) {
+                    for (int nx = boardX - 1; nx <= boardX + 1; nx++) {
+                        if (isMine(nx, ny)) {
+                            count++;
+                        }
+                    }
+                }
+                result[y * gridWidth + x] = count;
+            }
+        }
+        evictFarChunks();
+    }
+
+    @Override
+    public int[] visualiseChangesSince(int sinceRevision) {
+        return changeLog.changesSince(sinceRevision, revision, this::cellStateAt);
+    }
+
+    @Override
+    public ByteBuffer getVisualStateBuffer() {
+        return ByteBuffer.wrap(visualState);
+    }
+
+    @Override
+    public void getStatus(int[] status) {
+        MinesweeperGameRules.verifyBufferSize(status, STATUS_SIZE);
+        status[STATUS_GRID_HEIGHT] = gridHeight;
+        status[STATUS_GRID_WIDTH] = gridWidth;
+        status[STATUS_NUM_OF_MINES] = numOfMines;
+        status[STATUS_PLAYER_HAS_WON] = 0;
+        status[STATUS_PLAYER_HAS_LOST] = playerHasLost ? 1 : 0;
+        status[STATUS_NUM_OF_REVEALED_CELLS] = numOfRevealedCells;
+        status[STATUS_NUM_OF_MARKED_CELLS] = numOfMarkedCells;
+        status[STATUS_STATE_REVISION] = revision;
+        status[STATUS_NUM_OF_TRIPPED_MINES] = numOfTrippedMines;
+    }
+
+    // +----------------+
+    // | save and load: |
+    // +----------------+
+
+    /**
+     * Serialises this game as a header line and the binary save (see {@link
+     * #serialiseToBuffer()}) in hexadecimal, like {@link ChunkedMinesweeperGame#serialise()}.
+     */
+    @Override
+    public String serialise() {
+        final ByteBuffer buffer = serialiseToBuffer();
+        final StringBuilder sb = new StringBuilder(64 + 2 * buffer.remaining());
+        sb.append(SERIALISATION_HEADER).append(' ').append(SERIALISATION_VERSION).append('\n');
+        while (buffer.hasRemaining()) {
+            final int b = buffer.get() & 0xFF;
+            sb.append(Character.forDigit(b >>> 4, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        sb.append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Loads a game serialised by {@link #serialise()}. If the input is invalid, this game is left
+     * unchanged.
+     */
+    @Override
+    public boolean deserialise(String inStr) {
+        if (inStr == null) {
+            return false;
+        }
+        final String[] lines = inStr.split("\n", -1);
+        // ignore the empty string after the last line break
+        final int numOfLines = (lines.length > 0 && lines[lines.length - 1].isEmpty())
+                               ? lines.length - 1 : lines.length;
+        if (numOfLines != 2 ||
+            !lines[0].equals(SERIALISATION_HEADER + " " + SERIALISATION_VERSION) ||
+            lines[1].length() % 2 != 0) {
+            return false;
+        }
+        final byte[] bytes = new byte[lines[1].length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            final int high = Character.digit(lines[1].charAt(2 * i), 16);
+            final int low = Character.digit(lines[1].charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return false;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return deserialiseFromBuffer(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Serialises this game as a header of 'BINARY_HEADER_SIZE' bytes, followed by the
+     * coordinates and the visible and marked planes of the loaded chunks with visible or marked
+     * cells (or an older state in the chunk store). The evicted chunks stay in the chunk store,
+     * which is compacted first if most of it is taken by superseded records.
+     */
+    @Override
+    public ByteBuffer serialiseToBuffer() {
+        if (chunkStore.getGarbageLength() > chunkStore.getLength() / 2) {
+            chunkStore.compact(random.nextLong());
+        }
+        final List<Long> savedChunkKeys = new ArrayList<>();
+        for (Map.Entry<Long, Chunk> entry : chunks.entrySet()) {
+            final Chunk chunk = entry.getValue();
+            if (chunk.hasShownCells() ||
+                (chunk.isOpened() && chunkStore.contains(chunk.chunkX, chunk.chunkY))) {
+                savedChunkKeys.add(entry.getKey());
+            }
+        }
+        // (in increasing order, so duplicates are easy to reject on load)
+        Collections.sort(savedChunkKeys);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(
+                BINARY_HEADER_SIZE + savedChunkKeys.size() * SAVED_CHUNK_SIZE);
+        buffer.putInt(BINARY_SERIALISATION_MAGIC).put(BINARY_SERIALISATION_VERSION);
+        buffer.putInt(gridHeight).putInt(gridWidth).putInt(numOfMines);
+        buffer.put((byte) ((minesAreCreated ? MINES_ARE_CREATED_FLAG : 0) |
+                           (playerHasLost ? PLAYER_HAS_LOST_FLAG : 0)));
+        buffer.putDouble(proportionOfMines).putLong(boardSeed);
+        buffer.putInt(safeX).putInt(safeY).putInt(windowX).putInt(windowY);
+        buffer.putInt(numOfRevealedCells).putInt(numOfVisibleSafeCells).putInt(numOfMarkedCells)
+              .putInt(numOfTrippedMines);
+        buffer.putLong(chunkStore.getGeneration()).putLong(chunkStore.getLength());
+        buffer.putInt(savedChunkKeys.size());
+        for (long key : savedChunkKeys) {
+            final Chunk chunk = chunks.get(key);
+            buffer.putInt(chunk.chunkX).putInt(chunk.chunkY);
+            for (long word : chunk.visible) {
+                buffer.putLong(word);
+            }
+            for (long word : chunk.marked) {
+                buffer.putLong(word);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Loads a game serialised by {@link #serialiseToBuffer()}, cutting the chunk store back to
+     * its length at the time of the save. If the input is invalid, or the chunk store does not
+     * hold the chunks evicted before the save anymore, this game is left unchanged.
+     */
+    @Override
+    public boolean deserialiseFromBuffer(ByteBuffer buffer) {
+        final ByteBuffer input = buffer.duplicate();
+        if (input.remaining() < BINARY_HEADER_SIZE ||
+            input.getInt() != BINARY_SERIALISATION_MAGIC ||
+            input.get() != BINARY_SERIALISATION_VERSION) {
+            return false;
+        }
+        final int newGridHeight = input.getInt();
+        final int newGridWidth = input.getInt();
+        final int newNumOfMines = input.getInt();
+        final int flags = input.get();
+        final double newProportionOfMines = input.getDouble();
+        final long newBoardSeed = input.getLong();
+        final int newSafeX = input.getInt();
+        final int newSafeY = input.getInt();
+        final int newWindowX = input.getInt();
+        final int newWindowY = input.getInt();
+        final int newNumOfRevealedCells = input.getInt();
+        final int newNumOfVisibleSafeCells = input.getInt();
+        final int newNumOfMarkedCells = input.getInt();
+        final int newNumOfTrippedMines = input.getInt();
+        final long chunkStoreGeneration = input.getLong();
+        final long chunkStoreLength = input.getLong();
+        final int numOfSavedChunks = input.getInt();
+        try {
+            MinesweeperGameRules.verifyNewGame(newGridHeight, newGridWidth, newNumOfMines);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        final boolean newMinesAreCreated = (flags & MINES_ARE_CREATED_FLAG) != 0;
+        if ((long) newGridHeight * newGridWidth > Integer.MAX_VALUE ||
+            (flags & ~(MINES_ARE_CREATED_FLAG | PLAYER_HAS_LOST_FLAG)) != 0 ||
+            !(newProportionOfMines >= MIN_PROPORTION_OF_MINES && newProportionOfMines <= 1.0) ||
+            !isInsideBoard(newWindowX, newWindowY) ||
+            !isInsideBoard(newWindowX + (long) newGridWidth - 1,
+                           newWindowY + (long) newGridHeight - 1) ||
+            (newMinesAreCreated && !isInsideBoard(newSafeX, newSafeY)) ||
+            newNumOfVisibleSafeCells < 0 || newNumOfTrippedMines < 0 ||
+            newNumOfMarkedCells < 0 ||
+            newNumOfRevealedCells != newNumOfVisibleSafeCells + newNumOfTrippedMines ||
+            numOfSavedChunks < 0 ||
+            (!newMinesAreCreated && (numOfSavedChunks > 0 || newNumOfRevealedCells > 0 ||
+                                     newNumOfMarkedCells > 0)) ||
+            input.remaining() != (long) numOfSavedChunks * SAVED_CHUNK_SIZE) {
+            return false;
+        }
+
+        final int[] savedChunkCoordinates = new int[2 * numOfSavedChunks];
+        final long[][] savedPlanes = new long[2 * numOfSavedChunks][CHUNK_SIZE];
+        long previousKey = Long.MIN_VALUE;
+        for (int i = 0; i < numOfSavedChunks; i++) {
+            final int chunkX = input.getInt();
+            final int chunkY = input.getInt();
+            final long key = ChunkStore.keyOf(chunkX, chunkY);
+            if (!isInsideBoard((long) chunkX << CHUNK_SIZE_BITS,
+                               (long) chunkY << CHUNK_SIZE_BITS) ||
+                (i > 0 && key <= previousKey)) {
+                return false;
+            }
+            previousKey = key;
+            savedChunkCoordinates[2 * i] = chunkX;
+            savedChunkCoordinates[2 * i + 1] = chunkY;
+            final long[] visible = savedPlanes[2 * i];
+            final long[] marked = savedPlanes[2 * i + 1];
+            for (long[] plane : new long[][]{visible, marked}) {
+                for (int row = 0; row < CHUNK_SIZE; row++) {
+                    plane[row] = input.getLong();
+                }
+            }
+            for (int row = 0; row < CHUNK_SIZE; row++) {
+                if ((visible[row] & marked[row]) != 0) {
+                    return false;
+                }
+            }
+        }
+        // (last, as it cuts the chunk store back)
+        if (!chunkStore.restore(chunkStoreGeneration, chunkStoreLength)) {
+            return false;
+        }
+
+        initGame(newGridHeight, newGridWidth, newNumOfMines, newProportionOfMines, newWindowX,
+                 newWindowY);
+        if (newMinesAreCreated) {
+            minesAreCreated = true;
+            boardSeed = newBoardSeed;
+            safeX = newSafeX;
+            safeY = newSafeY;
+        }
+        playerHasLost = (flags & PLAYER_HAS_LOST_FLAG) != 0;
+        numOfRevealedCells = newNumOfRevealedCells;
+        numOfVisibleSafeCells = newNumOfVisibleSafeCells;
+        numOfMarkedCells = newNumOfMarkedCells;
+        numOfTrippedMines = newNumOfTrippedMines;
+        for (int i = 0; i < numOfSavedChunks; i++) {
+            final Chunk chunk = openChunk(savedChunkCoordinates[2 * i],
+                                          savedChunkCoordinates[2 * i + 1]);
+            System.arraycopy(savedPlanes[2 * i], 0, chunk.visible, 0, CHUNK_SIZE);
+            System.arraycopy(savedPlanes[2 * i + 1], 0, chunk.marked, 0, CHUNK_SIZE);
+        }
+        windowChanged();
+        evictFarChunks();
+        return true;
+    }
+
+    // +--------------------+
+    // | memory accounting: |
+    // +--------------------+
+
+    @Override
+    public long getBoardMemoryUsage() {
+        // (about 64 bytes of map entry, key and chunk object per loaded chunk)
+        final long chunkMemoryUsage =
+                (long) chunks.size() * (64 + CHUNK_SIZE * Long.BYTES) +
+                (long) numOfOpenedChunks * (OPENED_CHUNK_SIZE - CHUNK_SIZE * Long.BYTES);
+        return chunkMemoryUsage + chunkStore.getMemoryUsage() +
+               (long) seedQueue.length * Integer.BYTES + changeLog.getMemoryUsage() +
+               visualState.length;
+    }
+
+    @Override
+    public long getPendingResultMemoryUsage() {
+        // results are written straight into Java arrays
+        return 0;
+    }
+
+    // +----------------------------+
+    // | limits of number of mines: |
+    // +----------------------------+
+
+    @Override
+    public int getMaxNumOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameRules.maxNumOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public double getMaxProportionOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameRules.maxProportionOfMines(gridHeight, gridWidth);
+    }
+
+    /**
+     * @return The minimum of the other engines, as fewer mines than 'MIN_PROPORTION_OF_MINES' of
+     * the window are raised to it rather than rejected.
+     */
+    @Override
+    public int getMinNumOfMines() {
+        return MinesweeperGameRules.MIN_NUM_OF_MINES;
+    }
+
+    @Override
+    public double getMinProportionOfMines() {
+        return MIN_PROPORTION_OF_MINES;
+    }
+
+    @Override
+    public void close() {
+        chunkStore.close();
+    }
+
+    // +------------------+
+    // | private methods: |
+    // +------------------+
+
+    private static boolean isInsideBoard(long x, long y) {
+        return x >= -BOARD_LIMIT && y >= -BOARD_LIMIT && x < BOARD_LIMIT && y < BOARD_LIMIT;
+    }
+
+    private void initGame(int gridHeight, int gridWidth, int numOfMines,
+                          double proportionOfMines, int windowX, int windowY) {
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        this.numOfMines = numOfMines;
+        this.proportionOfMines = proportionOfMines;
+        this.mineThreshold = (long) (proportionOfMines * (1L << 53));
+        this.windowX = windowX;
+        this.windowY = windowY;
+        dropChunks();
+        this.minesAreCreated = false;
+        this.playerHasLost = false;
+        this.numOfVisibleSafeCells = 0;
+        this.numOfRevealedCells = 0;
+        this.numOfMarkedCells = 0;
+        this.numOfTrippedMines = 0;
+        this.numOfCellsOpenedByLastUpdate = 0;
+        final int numOfCells = gridHeight * gridWidth;
+        if (visualState == null || visualState.length != numOfCells) {
+            visualState = new byte[numOfCells];
+        }
+        Arrays.fill(visualState, (byte) UNCHECKED_STATE);
+        revision++;
+        changeLog.clear(revision);
+    }
+
+    private void dropChunks() {
+        chunks.clear();
+        numOfOpenedChunks = 0;
+        lastChunk = null;
+    }
+
+    /**
+     * Reads the visual state of the whole window again, after it has moved or all of its cells
+     * may have changed.
+     */
+    private void windowChanged() {
+        Arrays.fill(visualState, (byte) UNCHECKED_STATE);
+        if (minesAreCreated && gridHeight > 0 && gridWidth > 0) {
+            final int lastX = windowX + gridWidth - 1;
+            final int lastY = windowY + gridHeight - 1;
+            for (int chunkY = windowY >> CHUNK_SIZE_BITS;
+                 chunkY <= lastY >> CHUNK_SIZE_BITS; chunkY++) {
+                for (int chunkX = windowX >> CHUNK_SIZE_BITS;
+                     chunkX <= lastX >> CHUNK_SIZE_BITS; chunkX++) {
+                    final Chunk chunk = shownChunk(chunkX, chunkY);
+                    if (chunk == null) {
+                        continue;
+                    }
+                    final int fromX = Math.max(windowX, chunkX << CHUNK_SIZE_BITS);
+                    final int toX = Math.min(lastX, (chunkX << CHUNK_SIZE_BITS) + CHUNK_MASK);
+                    final int fromY = Math.max(windowY, chunkY << CHUNK_SIZE_BITS);
+                    final int toY = Math.min(lastY, (chunkY << CHUNK_SIZE_BITS) + CHUNK_MASK);
+                    for (int y = fromY; y <= toY; y++) {
+                        for (int x = fromX; x <= toX; x++) {
+                            visualState[(y - windowY) * gridWidth + (x - windowX)] =
+                                    (byte) cellStateOf(chunk, y & CHUNK_MASK, x & CHUNK_MASK);
+                        }
+                    }
+                }
+            }
+        }
+        revision++;
+        changeLog.clear(revision);
+    }
+
+    // +-----------------------------+
+    // | mines, chunks and eviction: |
+    // +-----------------------------+
+
+    /**
+     * @return Seed of the cells of the given chunk, hashed from the board seed and the
+     * coordinates of the chunk alone.
+     */
+    static long chunkSeed(long boardSeed, int chunkX, int chunkY) {
+        return MinePlacement.streamSeed(MinePlacement.streamSeed(boardSeed, chunkX), chunkY);
+    }
+
+    /**
+     * Draws the mines of the given chunk into the given plane: cell k of the chunk is a mine if
+     * the k:th number of the stream of the chunk seed is below the proportion of mines, unless it
+     * is around the first check.
+     */
+    private void drawMines(int chunkX, int chunkY, long[] mines) {
+        final long seed = chunkSeed(boardSeed, chunkX, chunkY);
+        for (int row = 0, k = 0; row < CHUNK_SIZE; row++) {
+            long rowMines = 0;
+            for (int column = 0; column < CHUNK_SIZE; column++, k++) {
+                if ((MinePlacement.streamSeed(seed, k) >>> 11) < mineThreshold) {
+                    rowMines |= 1L << column;
+                }
+            }
+            mines[row] = rowMines;
+        }
+        for (int y = safeY - 1; y <= safeY + 1; y++) {
+            for (int x = safeX - 1; x <= safeX + 1; x++) {
+                if (x >> CHUNK_SIZE_BITS == chunkX && y >> CHUNK_SIZE_BITS == chunkY) {
+                    mines[y & CHUNK_MASK] &= ~(1L << x);
+                }
+            }
+        }
+    }
+
+    private boolean isMine(int x, int y) {
+        return ((minedChunk(x >> CHUNK_SIZE_BITS, y >> CHUNK_SIZE_BITS).mines[y & CHUNK_MASK] >>>
+                 x) & 1L) != 0;
+    }
+
+    /**
+     * @return The given chunk, with its mines drawn.
+     */
+    private Chunk minedChunk(int chunkX, int chunkY) {
+        if (lastChunk != null && lastChunk.chunkX == chunkX && lastChunk.chunkY == chunkY) {
+            return lastChunk;
+        }
+        final long key = ChunkStore.keyOf(chunkX, chunkY);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new Chunk(chunkX, chunkY);
+            drawMines(chunkX, chunkY, chunk.mines);
+            chunks.put(key, chunk);
+        }
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * @return The given chunk, opened. Opening a chunk draws the mines of its neighbours, to count
+     * the neighbouring mines of its border cells, and reads its cells from the chunk store if it
+     * was evicted.
+     */
+    private Chunk openChunk(int chunkX, int chunkY) {
+        final Chunk chunk = minedChunk(chunkX, chunkY);
+        if (chunk.isOpened()) {
+            return chunk;
+        }
+        final int chunkTop = chunkY << CHUNK_SIZE_BITS;
+        final byte[] counts = new byte[NUM_OF_CELLS_PER_CHUNK];
+        for (int row = 0; row < CHUNK_SIZE; row++) {
+            for (int y = chunkTop + row - 1; y <= chunkTop + row + 1; y++) {
+                // the mines of the row, and the same shifted to put the left and the right
+                // neighbour of each cell at its position
+                final long mines = mineRow(chunkX, y);
+                final long leftMines = (mines << 1) | (mineRow(chunkX - 1, y) >>> CHUNK_MASK);
+                final long rightMines = (mines >>> 1) | (mineRow(chunkX + 1, y) << CHUNK_MASK);
+                for (int column = 0; column < CHUNK_SIZE; column++) {
+                    counts[(row << CHUNK_SIZE_BITS) | column] += (byte) (
+                            ((leftMines >>> column) & 1L) + ((mines >>> column) & 1L) +
+                            ((rightMines >>> column) & 1L));
+                }
+            }
+        }
+        chunk.numOfNeighbourMines = counts;
+        chunk.marked = new long[CHUNK_SIZE];
+        chunk.visible = new long[CHUNK_SIZE];
+        // (a chunk that can not be read back is left hidden)
+        chunkStore.load(chunkX, chunkY, chunk.mines, chunk.visible, chunk.marked);
+        numOfOpenedChunks++;
+        return chunk;
+    }
+
+    private long mineRow(int chunkX, int y) {
+        return minedChunk(chunkX, y >> CHUNK_SIZE_BITS).mines[y & CHUNK_MASK];
+    }
+
+    private Chunk openedChunkAt(int x, int y) {
+        final Chunk chunk = minedChunk(x >> CHUNK_SIZE_BITS, y >> CHUNK_SIZE_BITS);
+        return chunk.isOpened() ? chunk : openChunk(chunk.chunkX, chunk.chunkY);
+    }
+
+    /**
+     * @return The given chunk if it may have visible or marked cells (opening it if it is in the
+     * chunk store), or null if all of its cells are hidden.
+     */
+    private Chunk shownChunk(int chunkX, int chunkY) {
+        final Chunk chunk = chunks.get(ChunkStore.keyOf(chunkX, chunkY));
+        if (chunk != null && chunk.isOpened()) {
+            return chunk;
+        }
+        return chunkStore.contains(chunkX, chunkY) ? openChunk(chunkX, chunkY) : null;
+    }
+
+    /**
+     * @return Number of chunks that may be loaded before far ones are evicted: enough for the
+     * chunks near the window several times over.
+     */
+    private int maxNumOfLoadedChunks() {
+        final long numOfNearChunks =
+                (long) (numOfChunks(gridWidth) + 2 * NEAR_CHUNK_DISTANCE) *
+                (numOfChunks(gridHeight) + 2 * NEAR_CHUNK_DISTANCE);
+        return (int) Math.min(Integer.MAX_VALUE,
+                              Math.max(MIN_MAX_NUM_OF_LOADED_CHUNKS, 4 * numOfNearChunks));
+    }
+
+    private static int numOfChunks(int numOfCells) {
+        return (numOfCells + CHUNK_MASK) >> CHUNK_SIZE_BITS;
+    }
+
+    /**
+     * @return Distance (in chunks, along the farther axis) from the given chunk to the chunks
+     * under the window.
+     */
+    private int distanceFromWindow(Chunk chunk) {
+        final int firstChunkX = windowX >> CHUNK_SIZE_BITS;
+        final int lastChunkX = (windowX + Math.max(0, gridWidth - 1)) >> CHUNK_SIZE_BITS;
+        final int firstChunkY = windowY >> CHUNK_SIZE_BITS;
+        final int lastChunkY = (windowY + Math.max(0, gridHeight - 1)) >> CHUNK_SIZE_BITS;
+        return Math.max(Math.max(0, Math.max(firstChunkX - chunk.chunkX,
+                                             chunk.chunkX - lastChunkX)),
+                        Math.max(0, Math.max(firstChunkY - chunk.chunkY,
+                                             chunk.chunkY - lastChunkY)));
+    }
+
+    /**
+     * <p>
+     * Once more than 'maxNumOfLoadedChunks()' chunks are loaded, evicts chunks far from the
+     * window until only three quarters of that are left (or no far chunks are).
+     * </p>
+     * <p>
+     * Chunks that are the same as drawn again (never opened, or opened without visible or marked
+     * cells) are evicted first, as they are simply dropped. Then come the fully resolved chunks
+     * and then the others, farthest first, which are written into the chunk store. Chunks that
+     * can not be written are kept.
+     * </p>
+     */
+    private void evictFarChunks() {
+        final int maxNumOfLoadedChunks = maxNumOfLoadedChunks();
+        if (chunks.size() <= maxNumOfLoadedChunks) {
+            return;
+        }
+        final List<long[]> farChunks = new ArrayList<>();
+        for (Map.Entry<Long, Chunk> entry : chunks.entrySet()) {
+            final Chunk chunk = entry.getValue();
+            final int distance = distanceFromWindow(chunk);
+            if (distance <= NEAR_CHUNK_DISTANCE) {
+                continue;
+            }
+            final int rank;
+            if (!chunk.isOpened() || (!chunk.hasShownCells() &&
+                                      !chunkStore.contains(chunk.chunkX, chunk.chunkY))) {
+                rank = 0;
+            } else if (chunk.isResolved()) {
+                rank = 1;
+            } else {
+                rank = 2;
+            }
+            // (sorted by rank, and farthest first within a rank)
+            farChunks.add(new long[]{((long) rank << 32) | (Integer.MAX_VALUE - distance),
+                                     entry.getKey()});
+        }
+        Collections.sort(farChunks, (a, b) -> Long.compare(a[0], b[0]));
+
+        final int targetNumOfLoadedChunks = maxNumOfLoadedChunks / 4 * 3;
+        for (long[] farChunk : farChunks) {
+            if (chunks.size() <= targetNumOfLoadedChunks) {
+                break;
+            }
+            final Chunk chunk = chunks.get(farChunk[1]);
+            if (farChunk[0] >>> 32 > 0 &&
+                !chunkStore.save(chunk.chunkX, chunk.chunkY, chunk.mines, chunk.visible,
+                                 chunk.marked)) {
+                continue;
+            }
+            chunks.remove(farChunk[1]);
+            if (chunk.isOpened()) {
+                numOfOpenedChunks--;
+            }
+        }
+        lastChunk = null;
+    }
+
+    // +----------------------------+
+    // | visual state and counters: |
+    // +----------------------------+
+
+    private void beginUpdate() {
+        cellsChangedDuringUpdate = false;
+        numOfRevealedCellsBeforeUpdate = numOfRevealedCells;
+    }
+
+    private void endUpdate() {
+        if (cellsChangedDuringUpdate) {
+            revision++;
+        }
+        cellsChangedDuringUpdate = false;
+        numOfCellsOpenedByLastUpdate = numOfRevealedCells - numOfRevealedCellsBeforeUpdate;
+
+        // once the log outgrows the window, re-reading its visual state is cheaper
+        if (changeLog.size() > gridHeight * gridWidth) {
+            changeLog.clear(revision);
+        }
+        evictFarChunks();
+    }
+
+    /**
+     * Writes a changed cell into the visual state and logs it, if it is inside the window.
+     */
+    private void cellChanged(int x, int y, int newState) {
+        cellsChangedDuringUpdate = true;
+        final int windowColumn = x - windowX;
+        final int windowRow = y - windowY;
+        if (windowColumn < 0 || windowRow < 0 || windowColumn >= gridWidth ||
+            windowRow >= gridHeight) {
+            return;
+        }
+        final int cellIndex = windowRow * gridWidth + windowColumn;
+        visualState[cellIndex] = (byte) newState;
+        // a log longer than the window is dropped at the end of the update (see 'endUpdate')
+        if (changeLog.size() <= gridHeight * gridWidth) {
+            changeLog.append(revision + 1, cellIndex);
+        }
+    }
+
+    private int cellStateAt(int cellIndex) {
+        return visualState[cellIndex];
+    }
+
+    private static int cellStateOf(Chunk chunk, int row, int column) {
+        if (((chunk.marked[row] >>> column) & 1L) != 0) {
+            return MARKED_STATE;
+        } else if (((chunk.visible[row] >>> column) & 1L) == 0) {
+            return UNCHECKED_STATE;
+        } else if (((chunk.mines[row] >>> column) & 1L) != 0) {
+            return MINE_STATE;
+        } else {
+            return chunk.numOfNeighbourMines[(row << CHUNK_SIZE_BITS) | column];
+        }
+    }
+
+    // +-----------------+
+    // | game behaviour: |
+    // +-----------------+
+
+    private void check(int x, int y) {
+        if (!minesAreCreated) {
+            dropChunks();
+            boardSeed = random.nextLong();
+            safeX = x;
+            safeY = y;
+            minesAreCreated = true;
+        }
+        reveal(x, y);
+    }
+
+    private void mark(int x, int y) {
+        // marks before the first check are ignored (as by the native library wrapper)
+        if (!minesAreCreated) {
+            return;
+        }
+        final Chunk chunk = openedChunkAt(x, y);
+        final int row = y & CHUNK_MASK;
+        final long bit = 1L << x;
+        if ((chunk.visible[row] & bit) != 0) {
+            return;
+        }
+        chunk.marked[row] ^= bit;
+        final boolean isMarked = (chunk.marked[row] & bit) != 0;
+        numOfMarkedCells += isMarked ? 1 : -1;
+        cellChanged(x, y, isMarked ? MARKED_STATE : UNCHECKED_STATE);
+    }
+
+    private void completeAround(int x, int y) {
+        final Chunk centreChunk = openedChunkAt(x, y);
+        final int centreRow = y & CHUNK_MASK;
+        if (((centreChunk.visible[centreRow] >>> x) & 1L) == 0 ||
+            ((centreChunk.mines[centreRow] >>> x) & 1L) != 0) {
+            return;
+        }
+
+        int numOfMarkedNeighbours = 0;
+        int numOfHiddenNeighbours = 0;
+        for (int ny = Math.max(-BOARD_LIMIT, y - 1); ny <= Math.min(BOARD_LIMIT - 1, y + 1);
+             ny++) {
+            for (int nx = Math.max(-BOARD_LIMIT, x - 1); nx <= Math.min(BOARD_LIMIT - 1, x + 1);
+                 nx++) {
+                final Chunk chunk = openedChunkAt(nx, ny);
+                final int row = ny & CHUNK_MASK;
+                if (((chunk.marked[row] >>> nx) & 1L) != 0) {
+                    numOfMarkedNeighbours++;
+                } else if (((chunk.visible[row] >>> nx) & 1L) == 0) {
+                    numOfHiddenNeighbours++;
+                }
+            }
+        }
+
+        if (numOfHiddenNeighbours == 0) {
+            return;
+        }
+        final int numOfNeighbourMinesAround = centreChunk.numOfNeighbourMines[
+                (centreRow << CHUNK_SIZE_BITS) | (x & CHUNK_MASK)];
+        if (numOfMarkedNeighbours == numOfNeighbourMinesAround) {
+            // all mines are marked, so the rest are safe
+            for (int ny = Math.max(-BOARD_LIMIT, y - 1); ny <= Math.min(BOARD_LIMIT - 1, y + 1);
+                 ny++) {
+                for (int nx = Math.max(-BOARD_LIMIT, x - 1);
+                     nx <= Math.min(BOARD_LIMIT - 1, x + 1); nx++) {
+                    reveal(nx, ny);
+                }
+            }
+        } else if (numOfMarkedNeighbours + numOfHiddenNeighbours == numOfNeighbourMinesAround) {
+            // all hidden cells are mines
+            for (int ny = Math.max(-BOARD_LIMIT, y - 1); ny <= Math.min(BOARD_LIMIT - 1, y + 1);
+                 ny++) {
+                for (int nx = Math.max(-BOARD_LIMIT, x - 1);
+                     nx <= Math.min(BOARD_LIMIT - 1, x + 1); nx++) {
+                    final Chunk chunk = openedChunkAt(nx, ny);
+                    final int row = ny & CHUNK_MASK;
+                    final long bit = 1L << nx;
+                    if (((chunk.marked[row] | chunk.visible[row]) & bit) == 0) {
+                        chunk.marked[row] |= bit;
+                        numOfMarkedCells++;
+                        cellChanged(nx, ny, MARKED_STATE);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the given cell visible. If it has no neighbouring mines, the whole area around it is
+     * opened, with the scanline fill of {@link ChunkedMinesweeperGame} stopping at chunk borders.
+     * The area may reach beyond the window, up to the end of the board.
+     */
+    private void reveal(int startX, int startY) {
+        final Chunk startChunk = openedChunkAt(startX, startY);
+        final int startRow = startY & CHUNK_MASK;
+        if ((((startChunk.visible[startRow] | startChunk.marked[startRow]) >>> startX) & 1L) !=
+            0) {
+            return;
+        }
+        if (!isExpandable(startChunk, startX, startRow)) {
+            revealCell(startChunk, startX, startY);
+            return;
+        }
+        seedQueueHead = 0;
+        seedQueueSize = 0;
+        enqueueSeed(startX, startY);
+
+        while (seedQueueSize > 0) {
+            final int seedX = seedQueue[seedQueueHead];
+            final int y = seedQueue[seedQueueHead + 1];
+            dequeueSeed();
+            final Chunk chunk = openedChunkAt(seedX, y);
+            final int row = y & CHUNK_MASK;
+            if (((chunk.visible[row] >>> seedX) & 1L) != 0) {
+                // (seeds may be queued more than once from neighbouring spans)
+                continue;
+            }
+            final int chunkLeft = seedX & ~CHUNK_MASK;
+            final int chunkRight = chunkLeft + CHUNK_MASK;
+            int left = seedX;
+            int right = seedX;
+            while (left > chunkLeft && isExpandable(chunk, left - 1, row)) {
+                left--;
+            }
+            while (right < chunkRight && isExpandable(chunk, right + 1, row)) {
+                right++;
+            }
+            for (int x = left; x <= right; x++) {
+                revealCell(chunk, x, y);
+            }
+
+            // the border cells of the span have neighbouring mines, are visible or marked, or
+            // are in the next chunk
+            if (left > -BOARD_LIMIT) {
+                revealOrQueue(left - 1, y);
+            }
+            if (right < BOARD_LIMIT - 1) {
+                revealOrQueue(right + 1, y);
+            }
+            final int scanLeft = Math.max(-BOARD_LIMIT, left - 1);
+            final int scanRight = Math.min(BOARD_LIMIT - 1, right + 1);
+            if (y > -BOARD_LIMIT) {
+                scanForSeeds(y - 1, scanLeft, scanRight);
+            }
+            if (y < BOARD_LIMIT - 1) {
+                scanForSeeds(y + 1, scanLeft, scanRight);
+            }
+        }
+    }
+
+    /**
+     * Reveals the hidden cells with neighbouring mines in the given columns of a row, and queues
+     * one seed for each run of hidden cells without neighbouring mines.
+     */
+    private void scanForSeeds(int y, int fromX, int toX) {
+        final int row = y & CHUNK_MASK;
+        Chunk chunk = openedChunkAt(fromX, y);
+        boolean inRun = false;
+        for (int x = fromX; x <= toX; x++) {
+            if ((x & CHUNK_MASK) == 0) {
+                chunk = openedChunkAt(x, y);
+            }
+            if ((((chunk.visible[row] | chunk.marked[row]) >>> x) & 1L) != 0) {
+                inRun = false;
+            } else if (chunk.numOfNeighbourMines[(row << CHUNK_SIZE_BITS) | (x & CHUNK_MASK)] ==
+                       0) {
+                if (!inRun) {
+                    enqueueSeed(x, y);
+                    inRun = true;
+                }
+            } else {
+                revealCell(chunk, x, y);
+                inRun = false;
+            }
+        }
+    }
+
+    private void revealOrQueue(int x, int y) {
+        final Chunk chunk = openedChunkAt(x, y);
+        final int row = y & CHUNK_MASK;
+        if ((((chunk.visible[row] | chunk.marked[row]) >>> x) & 1L) != 0) {
+            return;
+        }
+        if (isExpandable(chunk, x, row)) {
+            enqueueSeed(x, y);
+        } else {
+            revealCell(chunk, x, y);
+        }
+    }
+
+    /**
+     * @return Whether the given cell is a hidden, unmarked cell without neighbouring mines (and
+     * so not a mine, as the count includes the cell itself).
+     */
+    private static boolean isExpandable(Chunk chunk, int x, int row) {
+        return (((chunk.visible[row] | chunk.marked[row]) >>> x) & 1L) == 0 &&
+               chunk.numOfNeighbourMines[(row << CHUNK_SIZE_BITS) | (x & CHUNK_MASK)] == 0;
+    }
+
+    private void revealCell(Chunk chunk, int x, int y) {
+        final int row = y & CHUNK_MASK;
+        // shifts of longs only use the lowest 6 bits of the distance
+        chunk.visible[row] |= 1L << x;
+        numOfRevealedCells++;
+        if (((chunk.mines[row] >>> x) & 1L) != 0) {
+            playerHasLost = true;
+            numOfTrippedMines++;
+        } else {
+            numOfVisibleSafeCells++;
+        }
+        cellChanged(x, y, cellStateOf(chunk, row, x & CHUNK_MASK));
+    }
+
+    private void enqueueSeed(int x, int y) {
+        if (2 * seedQueueSize == seedQueue.length) {
+            // unwrap the ring into a buffer twice the size
+            final int[] newSeedQueue = new int[2 * seedQueue.length];
+            final int numOfTailInts = seedQueue.length - seedQueueHead;
+            System.arraycopy(seedQueue, seedQueueHead, newSeedQueue, 0, numOfTailInts);
+            System.arraycopy(seedQueue, 0, newSeedQueue, numOfTailInts, seedQueueHead);
+            seedQueue = newSeedQueue;
+            seedQueueHead = 0;
+        }
+        final int tail = (seedQueueHead + 2 * seedQueueSize) % seedQueue.length;
+        seedQueue[tail] = x;
+        seedQueue[tail + 1] = y;
+        seedQueueSize++;
+    }
+
+    private void dequeueSeed() {
+        seedQueueHead = (seedQueueHead + 2) % seedQueue.length;
+        seedQueueSize--;
+    }
+}
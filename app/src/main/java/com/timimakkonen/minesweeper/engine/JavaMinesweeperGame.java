@@ -0,0 +1,826 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>
+ * Pure-Java minesweeper engine, following the same rules as the native minesweeper library.
+ * </p>
+ * <p>
+ * This engine does not need the native library, so it can be used in plain JVM unit tests, and
+ * none of its calls pay the JNI cost.
+ * </p>
+ * <p>
+ * Mines are placed and counted band by band on the given {@link RowBandExecutor}, so large
+ * boards can be generated in parallel. The board only depends on the random number generator.
+ * </p>
+ */
+public class JavaMinesweeperGame implements MinesweeperGame {
+
+    private static final String SERIALISATION_HEADER = "JavaMinesweeperGame";
+    private static final int SERIALISATION_VERSION = 1;
+
+    // binary serialisation: magic ('JMSG'), version, gridHeight, gridWidth, numOfMines, flags
+    private static final int BINARY_SERIALISATION_MAGIC = 0x4A4D5347;
+    private static final byte BINARY_SERIALISATION_VERSION = 1;
+    private static final int BINARY_HEADER_SIZE = 4 + 1 + 3 * 4 + 1;
+    private static final int MINES_ARE_CREATED_FLAG = 1;
+    private static final int PLAYER_HAS_LOST_FLAG = 1 << 1;
+    private static final int NUM_OF_SERIALISED_PLANES = 3;
+
+    private static final int MINE_BIT = 1;
+    private static final int VISIBLE_BIT = 1 << 1;
+    private static final int MARKED_BIT = 1 << 2;
+
+    private static final int MINE_STATE = 9;
+    private static final int MARKED_STATE = 10;
+    private static final int UNCHECKED_STATE = -1;
+
+    private static final int INITIAL_SEED_QUEUE_CAPACITY = 64;
+
+    private final Random random;
+    private final RowBandExecutor bandExecutor;
+    private final VisualStateTracker visualStateTracker;
+
+    private int gridHeight;
+    private int gridWidth;
+    private int numOfMines;
+
+    // per cell, row by row:
+    private boolean[] isMine;
+    private boolean[] isVisible;
+    private boolean[] isMarked;
+    private byte[] numOfNeighbourMines;
+
+    private boolean minesAreCreated;
+    private boolean playerHasLost;
+    private int numOfVisibleSafeCells;
+
+    // reused FIFO ring buffer of seed cells for revealing areas (see 'reveal')
+    private int[] seedQueue;
+    private int seedQueueHead;
+    private int seedQueueSize;
+
+    public JavaMinesweeperGame() {
+        this(new Random());
+    }
+
+    public JavaMinesweeperGame(Random random) {
+        this(random, RowBandExecutor.SEQUENTIAL);
+    }
+
+    public JavaMinesweeperGame(Random random, RowBandExecutor bandExecutor) {
+        this.random = random;
+        this.bandExecutor = bandExecutor;
+        this.visualStateTracker = new VisualStateTracker();
+        this.seedQueue = new int[INITIAL_SEED_QUEUE_CAPACITY];
+        initGrid(0, 0, 0);
+    }
+
+    // +---------------------+
+    // | reset and new game: |
+    // +---------------------+
+
+    @Override
+    public void reset(boolean keepCreatedMines) {
+        visualStateTracker.beginUpdate();
+        Arrays.fill(isVisible, false);
+        Arrays.fill(isMarked, false);
+        playerHasLost = false;
+        numOfVisibleSafeCells = 0;
+        if (!keepCreatedMines) {
+            Arrays.fill(isMine, false);
+            Arrays.fill(numOfNeighbourMines, (byte) 0);
+            minesAreCreated = false;
+        }
+        for (int i = 0; i < isVisible.length; i++) {
+            visualStateTracker.setCellState(i, UNCHECKED_STATE);
+        }
+        visualStateTracker.endUpdate();
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, int numOfMines) {
+        MinesweeperGameRules.verifyNewGame(gridHeight, gridWidth, numOfMines);
+        initGrid(gridHeight, gridWidth, numOfMines);
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, double proportionOfMines) {
+        newGame(gridHeight, gridWidth,
+                MinesweeperGameRules.numOfMinesFromProportion(gridHeight, gridWidth,
+                                                              proportionOfMines));
+    }
+
+    // +----------+
+    // | actions: |
+    // +----------+
+
+    @Override
+    public void checkInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        visualStateTracker.beginUpdate();
+        check(x, y);
+        visualStateTracker.endUpdate();
+    }
+
+    @Override
+    public void markInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        visualStateTracker.beginUpdate();
+        mark(x, y);
+        visualStateTracker.endUpdate();
+    }
+
+    @Override
+    public void completeAroundInputCoordinates(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        visualStateTracker.beginUpdate();
+        completeAround(x, y);
+        visualStateTracker.endUpdate();
+    }
+
+    @Override
+    public void applyActions(int[] actions) {
+        visualStateTracker.beginUpdate();
+        for (int i = 0; i + ACTION_SIZE <= actions.length; i += ACTION_SIZE) {
+            final int x = actions[i + 1];
+            final int y = actions[i + 2];
+            if (x < 0 || y < 0 || x >= gridWidth || y >= gridHeight) {
+                continue;
+            }
+            switch (actions[i]) {
+                case CHECK_ACTION:
+                    check(x, y);
+                    break;
+                case MARK_ACTION:
+                    mark(x, y);
+                    break;
+                case COMPLETE_AROUND_ACTION:
+                    completeAround(x, y);
+                    break;
+                default:
+                    break;
+            }
+        }
+        visualStateTracker.endUpdate();
+    }
+
+    // +----------------------------+
+    // | game progress information: |
+    // +----------------------------+
+
+    @Override
+    public boolean playerHasWon() {
+        return minesAreCreated && !playerHasLost && getNumOfRemainingSafeCells() == 0;
+    }
+
+    @Override
+    public boolean playerHasLost() {
+        return playerHasLost;
+    }
+
+    @Override
+    public int getNumOfRevealedSafeCells() {
+        return numOfVisibleSafeCells;
+    }
+
+    @Override
+    public int getNumOfMarkedCells() {
+        return visualStateTracker.getNumOfMarkedCells();
+    }
+
+    @Override
+    public int getNumOfRemainingSafeCells() {
+        return gridHeight * gridWidth - numOfMines - numOfVisibleSafeCells;
+    }
+
+    @Override
+    public int getNumOfTrippedMines() {
+        return visualStateTracker.getNumOfTrippedMines();
+    }
+
+    @Override
+    public int getNumOfCellsOpenedByLastAction() {
+        return visualStateTracker.getNumOfCellsOpenedByLastUpdate();
+    }
+
+    @Override
+    public boolean isCellVisible(int x, int y) {
+        MinesweeperGameRules.verifyCoordinates(x, y, gridHeight, gridWidth);
+        return isVisible[y * gridWidth + x];
+    }
+
+    @Override
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    @Override
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    @Override
+    public int getNumOfMines() {
+        return numOfMines;
+    }
+
+    // +----------------+
+    // | visualisation: |
+    // +----------------+
+
+    @Override
+    public void visualiseInto(int[] result) {
+        MinesweeperGameRules.verifyBufferSize(result, gridHeight * gridWidth);
+        visualStateTracker.visualiseInto(result);
+    }
+
+    @Override
+    public void visualiseSolutionInto(int[] result) {
+        MinesweeperGameRules.verifyBufferSize(result, gridHeight * gridWidth);
+        for (int i = 0; i < isMine.length; i++) {
+            result[i] = isMine[i] ? MARKED_STATE : numOfNeighbourMines[i];
+        }
+    }
+
+    @Override
+    public int[] visualiseChangesSince(int revision) {
+        return visualStateTracker.visualiseChangesSince(revision);
+    }
+
+    @Override
+    public ByteBuffer getVisualStateBuffer() {
+        return visualStateTracker.getBuffer();
+    }
+
+    @Override
+    public void getStatus(int[] status) {
+        MinesweeperGameRules.verifyBufferSize(status, STATUS_SIZE);
+        status[STATUS_GRID_HEIGHT] = gridHeight;
+        status[STATUS_GRID_WIDTH] = gridWidth;
+        status[STATUS_NUM_OF_MINES] = numOfMines;
+        status[STATUS_PLAYER_HAS_WON] = playerHasWon() ? 1 : 0;
+        status[STATUS_PLAYER_HAS_LOST] = playerHasLost ? 1 : 0;
+        status[STATUS_NUM_OF_REVEALED_CELLS] = visualStateTracker.getNumOfRevealedCells();
+        status[STATUS_NUM_OF_MARKED_CELLS] = visualStateTracker.getNumOfMarkedCells();
+        status[STATUS_STATE_REVISION] = visualStateTracker.getRevision();
+        status[STATUS_NUM_OF_TRIPPED_MINES] = visualStateTracker.getNumOfTrippedMines();
+    }
+
+    // +----------------+
+    // | save and load: |
+    // +----------------+
+
+    /**
+     * Serialises this game as a header line, a line of '[gridHeight] [gridWidth] [numOfMines]
+     * [minesAreCreated] [playerHasLost]' and one line per row, where each cell is a digit made of
+     * its mine (1), visible (2) and marked (4) bits.
+     */
+    @Override
+    public String serialise() {
+        final StringBuilder sb = new StringBuilder(64 + gridHeight * (gridWidth + 1));
+        sb.append(SERIALISATION_HEADER).append(' ').append(SERIALISATION_VERSION).append('\n');
+        sb.append(gridHeight).append(' ').append(gridWidth).append(' ').append(numOfMines)
+          .append(' ').append(minesAreCreated ? 1 : 0).append(' ').append(playerHasLost ? 1 : 0)
+          .append('\n');
+        for (int y = 0; y < gridHeight; y++) {
+            for (int x = 0; x < gridWidth; x++) {
+                final int i = y * gridWidth + x;
+                final int cellBits = (isMine[i] ? MINE_BIT : 0) | (isVisible[i] ? VISIBLE_BIT : 0) |
+                                     (isMarked[i] ? MARKED_BIT : 0);
+                sb.append((char) ('0' + cellBits));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Loads a game serialised by {@link #serialise()}. If the input is invalid, this game is left
+     * unchanged.
+     */
+    @Override
+    public boolean deserialise(String inStr) {
+        if (inStr == null) {
+            return false;
+        }
+        final String[] lines = inStr.split("\n", -1);
+        // ignore the empty string after the last line break
+        final int numOfLines = (lines.length > 0 && lines[lines.length - 1].isEmpty())
+                               ? lines.length - 1 : lines.length;
+        try {
+            if (numOfLines < 2 ||
+                !lines[0].equals(SERIALISATION_HEADER + " " + SERIALISATION_VERSION)) {
+                return false;
+            }
+            final String[] values = lines[1].trim().split(" ");
+            if (values.length != 5) {
+                return false;
+            }
+            final int newGridHeight = Integer.parseInt(values[0]);
+            final int newGridWidth = Integer.parseInt(values[1]);
+            final int newNumOfMines = Integer.parseInt(values[2]);
+            final boolean newMinesAreCreated = parseFlag(values[3]);
+            final boolean newPlayerHasLost = parseFlag(values[4]);
+            MinesweeperGameRules.verifyNewGame(newGridHeight, newGridWidth, newNumOfMines);
+            if (numOfLines != 2 + newGridHeight) {
+                return false;
+            }
+
+            final int numOfCells = newGridHeight * newGridWidth;
+            final boolean[] newIsMine = new boolean[numOfCells];
+            final boolean[] newIsVisible = new boolean[numOfCells];
+            final boolean[] newIsMarked = new boolean[numOfCells];
+            int numOfCreatedMines = 0;
+            for (int y = 0; y < newGridHeight; y++) {
+                final String row = lines[2 + y];
+                if (row.length() != newGridWidth) {
+                    return false;
+                }
+                for (int x = 0; x < newGridWidth; x++) {
+                    final int cellBits = row.charAt(x) - '0';
+                    if (cellBits < 0 || cellBits > (MINE_BIT | VISIBLE_BIT | MARKED_BIT)) {
+                        return false;
+                    }
+                    final int i = y * newGridWidth + x;
+                    newIsMine[i] = (cellBits & MINE_BIT) != 0;
+                    newIsVisible[i] = (cellBits & VISIBLE_BIT) != 0;
+                    newIsMarked[i] = (cellBits & MARKED_BIT) != 0;
+                    if (newIsMine[i]) {
+                        numOfCreatedMines++;
+                    }
+                }
+            }
+            if (numOfCreatedMines != (newMinesAreCreated ? newNumOfMines : 0)) {
+                return false;
+            }
+
+            loadGame(newGridHeight, newGridWidth, newNumOfMines, newMinesAreCreated,
+                     newPlayerHasLost, newIsMine, newIsVisible, newIsMarked);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // includes 'NumberFormatException'
+            return false;
+        }
+    }
+
+    /**
+     * Serialises this game as a header of 'BINARY_HEADER_SIZE' bytes, followed by the mine,
+     * visible and marked planes, each packed into longs with one bit per cell (row by row).
+     */
+    @Override
+    public ByteBuffer serialiseToBuffer() {
+        final int numOfWordsPerPlane = numOfWordsPerPlane(gridHeight * gridWidth);
+        final ByteBuffer buffer = ByteBuffer.allocate(
+                BINARY_HEADER_SIZE + NUM_OF_SERIALISED_PLANES * numOfWordsPerPlane * Long.BYTES);
+        buffer.putInt(BINARY_SERIALISATION_MAGIC).put(BINARY_SERIALISATION_VERSION);
+        buffer.putInt(gridHeight).putInt(gridWidth).putInt(numOfMines);
+        buffer.put((byte) ((minesAreCreated ? MINES_ARE_CREATED_FLAG : 0) |
+                           (playerHasLost ? PLAYER_HAS_LOST_FLAG : 0)));
+        putPlane(buffer, isMine);
+        putPlane(buffer, isVisible);
+        putPlane(buffer, isMarked);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Loads a game serialised by {@link #serialiseToBuffer()}. If the input is invalid, this game
+     * is left unchanged.
+     */
+    @Override
+    public boolean deserialiseFromBuffer(ByteBuffer buffer) {
+        final ByteBuffer input = buffer.duplicate();
+        if (input.remaining() < BINARY_HEADER_SIZE ||
+            input.getInt() != BINARY_SERIALISATION_MAGIC ||
+            input.get() != BINARY_SERIALISATION_VERSION) {
+            return false;
+        }
+        final int newGridHeight = input.getInt();
+        final int newGridWidth = input.getInt();
+        final int newNumOfMines = input.getInt();
+        final int flags = input.get();
+        try {
+            MinesweeperGameRules.verifyNewGame(newGridHeight, newGridWidth, newNumOfMines);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        final long numOfCells = (long) newGridHeight * newGridWidth;
+        if (numOfCells > Integer.MAX_VALUE ||
+            (flags & ~(MINES_ARE_CREATED_FLAG | PLAYER_HAS_LOST_FLAG)) != 0 ||
+            input.remaining() != NUM_OF_SERIALISED_PLANES *
+                                 ((numOfCells + Long.SIZE - 1) / Long.SIZE) * Long.BYTES) {
+            return false;
+        }
+
+        final boolean newMinesAreCreated = (flags & MINES_ARE_CREATED_FLAG) != 0;
+        final boolean[] newIsMine = new boolean[(int) numOfCells];
+        final boolean[] newIsVisible = new boolean[(int) numOfCells];
+        final boolean[] newIsMarked = new boolean[(int) numOfCells];
+        final int numOfCreatedMines = getPlane(input, newIsMine);
+        if (numOfCreatedMines != (newMinesAreCreated ? newNumOfMines : 0) ||
+            getPlane(input, newIsVisible) < 0 || getPlane(input, newIsMarked) < 0) {
+            return false;
+        }
+
+        loadGame(newGridHeight, newGridWidth, newNumOfMines, newMinesAreCreated,
+                 (flags & PLAYER_HAS_LOST_FLAG) != 0, newIsMine, newIsVisible, newIsMarked);
+        return true;
+    }
+
+    // +--------------------+
+    // | memory accounting: |
+    // +--------------------+
+
+    @Override
+    public long getBoardMemoryUsage() {
+        // one byte per boolean/byte element
+        return (long) isMine.length + isVisible.length + isMarked.length +
+               numOfNeighbourMines.length + (long) seedQueue.length * Integer.BYTES +
+               visualStateTracker.getMemoryUsage();
+    }
+
+    @Override
+    public long getPendingResultMemoryUsage() {
+        // results are written straight into Java arrays
+        return 0;
+    }
+
+    // +----------------------------+
+    // | limits of number of mines: |
+    // +----------------------------+
+
+    @Override
+    public int getMaxNumOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameRules.maxNumOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public double getMaxProportionOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameRules.maxProportionOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public int getMinNumOfMines() {
+        return MinesweeperGameRules.MIN_NUM_OF_MINES;
+    }
+
+    @Override
+    public double getMinProportionOfMines() {
+        return MinesweeperGameRules.MIN_PROPORTION_OF_MINES;
+    }
+
+    @Override
+    public void close() {
+        // nothing to free, memory is managed by the garbage collector
+    }
+
+    // +------------------+
+    // | private methods: |
+    // +------------------+
+
+    private static boolean parseFlag(String value) {
+        switch (value) {
+            case "0":
+                return false;
+            case "1":
+                return true;
+            default:
+                throw new IllegalArgumentException("Trying to parse an invalid flag.");
+        }
+    }
+
+    private static int numOfWordsPerPlane(int numOfCells) {
+        return (numOfCells + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static void putPlane(ByteBuffer buffer, boolean[] cells) {
+        long word = 0L;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i]) {
+                // shifts of longs only use the lowest 6 bits of the distance
+                word |= 1L << i;
+            }
+            if (i % Long.SIZE == Long.SIZE - 1) {
+                buffer.putLong(word);
+                word = 0L;
+            }
+        }
+        if (cells.length % Long.SIZE != 0) {
+            buffer.putLong(word);
+        }
+    }
+
+    /**
+     * @return Number of set cells, or -1 if bits past the last cell are set.
+     */
+    private static int getPlane(ByteBuffer buffer, boolean[] cells) {
+        int numOfSetCells = 0;
+        for (int w = 0; w < numOfWordsPerPlane(cells.length); w++) {
+            final long word = buffer.getLong();
+            final int firstCell = w * Long.SIZE;
+            final int numOfCellsInWord = Math.min(Long.SIZE, cells.length - firstCell);
+            if (numOfCellsInWord < Long.SIZE && (word >>> numOfCellsInWord) != 0) {
+                return -1;
+            }
+            for (int k = 0; k < numOfCellsInWord; k++) {
+                cells[firstCell + k] = ((word >>> k) & 1L) != 0;
+            }
+            numOfSetCells += Long.bitCount(word);
+        }
+        return numOfSetCells;
+    }
+
+    /**
+     * Replaces this game with the given (already validated) one.
+     */
+    private void loadGame(int newGridHeight, int newGridWidth, int newNumOfMines,
+                          boolean newMinesAreCreated, boolean newPlayerHasLost,
+                          boolean[] newIsMine, boolean[] newIsVisible, boolean[] newIsMarked) {
+        initGrid(newGridHeight, newGridWidth, newNumOfMines);
+        isMine = newIsMine;
+        isVisible = newIsVisible;
+        isMarked = newIsMarked;
+        minesAreCreated = newMinesAreCreated;
+        playerHasLost = newPlayerHasLost;
+        updateNumOfNeighbourMines();
+
+        visualStateTracker.beginUpdate();
+        for (int i = 0; i < isMine.length; i++) {
+            if (isVisible[i] && !isMine[i]) {
+                numOfVisibleSafeCells++;
+            }
+            updateCellState(i);
+        }
+        visualStateTracker.endUpdate();
+        visualStateTracker.clearNumOfCellsOpened();
+    }
+
+    private void initGrid(int gridHeight, int gridWidth, int numOfMines) {
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        this.numOfMines = numOfMines;
+        final int numOfCells = gridHeight * gridWidth;
+        this.isMine = new boolean[numOfCells];
+        this.isVisible = new boolean[numOfCells];
+        this.isMarked = new boolean[numOfCells];
+        this.numOfNeighbourMines = new byte[numOfCells];
+        this.minesAreCreated = false;
+        this.playerHasLost = false;
+        this.numOfVisibleSafeCells = 0;
+        visualStateTracker.resetAllCells(numOfCells);
+    }
+
+    private int cellStateOf(int cellIndex) {
+        if (isMarked[cellIndex]) {
+            return MARKED_STATE;
+        } else if (!isVisible[cellIndex]) {
+            return UNCHECKED_STATE;
+        } else if (isMine[cellIndex]) {
+            return MINE_STATE;
+        } else {
+            return numOfNeighbourMines[cellIndex];
+        }
+    }
+
+    private void updateCellState(int cellIndex) {
+        visualStateTracker.setCellState(cellIndex, cellStateOf(cellIndex));
+    }
+
+    private void check(int x, int y) {
+        if (!minesAreCreated) {
+            createMinesAround(x, y);
+        }
+        reveal(y * gridWidth + x);
+    }
+
+    private void mark(int x, int y) {
+        // marks before the first check are ignored (as by the native library wrapper)
+        final int i = y * gridWidth + x;
+        if (!minesAreCreated || isVisible[i]) {
+            return;
+        }
+        isMarked[i] = !isMarked[i];
+        updateCellState(i);
+    }
+
+    private void completeAround(int x, int y) {
+        final int i = y * gridWidth + x;
+        if (!isVisible[i] || isMine[i]) {
+            return;
+        }
+
+        int numOfMarkedNeighbours = 0;
+        int numOfHiddenNeighbours = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                final int n = ny * gridWidth + nx;
+                if (isMarked[n]) {
+                    numOfMarkedNeighbours++;
+                } else if (!isVisible[n]) {
+                    numOfHiddenNeighbours++;
+                }
+            }
+        }
+
+        if (numOfHiddenNeighbours == 0) {
+            return;
+        }
+        final int numOfNeighbourMinesAround = numOfNeighbourMines[i];
+        if (numOfMarkedNeighbours == numOfNeighbourMinesAround) {
+            // all mines are marked, so the rest are safe
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                    reveal(ny * gridWidth + nx);
+                }
+            }
+        } else if (numOfMarkedNeighbours + numOfHiddenNeighbours == numOfNeighbourMinesAround) {
+            // all hidden cells are mines
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                    final int n = ny * gridWidth + nx;
+                    if (!isMarked[n] && !isVisible[n]) {
+                        isMarked[n] = true;
+                        updateCellState(n);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Makes the given cell visible. If it has no neighbouring mines, the whole area around it is
+     * opened, like in the native game.
+     * </p>
+     * <p>
+     * The area is opened with a scanline fill: a seed is a hidden cell without neighbouring mines,
+     * and each seed taken from 'seedQueue' is extended to the whole horizontal span of such cells
+     * in its row. The span and its border cells are revealed, and the rows above and below are
+     * scanned once for new seeds (one per run). This keeps the queue proportional to the frontier
+     * of the area instead of its size, and reads each row sequentially.
+     * </p>
+     */
+    private void reveal(int startCellIndex) {
+        if (isVisible[startCellIndex] || isMarked[startCellIndex]) {
+            return;
+        }
+        if (!isExpandable(startCellIndex)) {
+            revealCell(startCellIndex);
+            return;
+        }
+        seedQueueHead = 0;
+        seedQueueSize = 0;
+        enqueueSeed(startCellIndex);
+
+        while (seedQueueSize > 0) {
+            final int seed = dequeueSeed();
+            if (isVisible[seed]) {
+                // (seeds may be queued more than once from neighbouring spans)
+                continue;
+            }
+            final int y = seed / gridWidth;
+            final int rowStart = y * gridWidth;
+            int left = seed - rowStart;
+            int right = left;
+            while (left > 0 && isExpandable(rowStart + left - 1)) {
+                left--;
+            }
+            while (right < gridWidth - 1 && isExpandable(rowStart + right + 1)) {
+                right++;
+            }
+            for (int x = left; x <= right; x++) {
+                revealCell(rowStart + x);
+            }
+
+            final int scanLeft = Math.max(0, left - 1);
+            final int scanRight = Math.min(gridWidth - 1, right + 1);
+            // the border cells of the span have neighbouring mines (or are visible or marked)
+            revealIfHidden(rowStart + scanLeft);
+            revealIfHidden(rowStart + scanRight);
+            if (y > 0) {
+                scanForSeeds(rowStart - gridWidth, scanLeft, scanRight);
+            }
+            if (y < gridHeight - 1) {
+                scanForSeeds(rowStart + gridWidth, scanLeft, scanRight);
+            }
+        }
+    }
+
+    /**
+     * Reveals the hidden cells with neighbouring mines in the given columns of a row, and queues
+     * one seed for each run of hidden cells without neighbouring mines.
+     */
+    private void scanForSeeds(int rowStart, int fromX, int toX) {
+        boolean inRun = false;
+        for (int x = fromX; x <= toX; x++) {
+            final int i = rowStart + x;
+            if (isVisible[i] || isMarked[i]) {
+                inRun = false;
+            } else if (numOfNeighbourMines[i] == 0) {
+                if (!inRun) {
+                    enqueueSeed(i);
+                    inRun = true;
+                }
+            } else {
+                revealCell(i);
+                inRun = false;
+            }
+        }
+    }
+
+    /**
+     * @return Whether the given cell is a hidden, unmarked cell without neighbouring mines (and
+     * so not a mine, as the count includes the cell itself).
+     */
+    private boolean isExpandable(int i) {
+        return !isVisible[i] && !isMarked[i] && numOfNeighbourMines[i] == 0;
+    }
+
+    private void revealIfHidden(int i) {
+        if (!isVisible[i] && !isMarked[i]) {
+            revealCell(i);
+        }
+    }
+
+    private void revealCell(int i) {
+        isVisible[i] = true;
+        updateCellState(i);
+        if (isMine[i]) {
+            playerHasLost = true;
+        } else {
+            numOfVisibleSafeCells++;
+        }
+    }
+
+    private void enqueueSeed(int i) {
+        if (seedQueueSize == seedQueue.length) {
+            // unwrap the ring into a buffer twice the size
+            final int[] newSeedQueue = new int[2 * seedQueue.length];
+            final int numOfTailSeeds = seedQueue.length - seedQueueHead;
+            System.arraycopy(seedQueue, seedQueueHead, newSeedQueue, 0, numOfTailSeeds);
+            System.arraycopy(seedQueue, 0, newSeedQueue, numOfTailSeeds, seedQueueHead);
+            seedQueue = newSeedQueue;
+            seedQueueHead = 0;
+        }
+        seedQueue[(seedQueueHead + seedQueueSize) % seedQueue.length] = i;
+        seedQueueSize++;
+    }
+
+    private int dequeueSeed() {
+        final int i = seedQueue[seedQueueHead];
+        seedQueueHead = (seedQueueHead + 1) % seedQueue.length;
+        seedQueueSize--;
+        return i;
+    }
+
+    /**
+     * Creates mines at random cells, leaving the given cell and its neighbours free of mines.
+     * (See {@link MinePlacement}.)
+     */
+    private void createMinesAround(int x, int y) {
+        final MinePlacement.MineGrid mineGrid = new MinePlacement.MineGrid() {
+            @Override
+            public boolean isMine(int cellIndex) {
+                return isMine[cellIndex];
+            }
+
+            @Override
+            public void setMine(int cellIndex, boolean mine) {
+                isMine[cellIndex] = mine;
+            }
+        };
+        MinePlacement.placeMinesAround(random, gridHeight, gridWidth, numOfMines, x, y,
+                                       bandExecutor, mineGrid);
+        minesAreCreated = true;
+        updateNumOfNeighbourMines();
+    }
+
+    private void updateNumOfNeighbourMines() {
+        bandExecutor.forEachBand(gridHeight, (band, fromY, toY) -> updateNumOfNeighbourMines(
+                fromY, toY));
+    }
+
+    /**
+     * Counts the neighbouring mines of the cells of the given rows, reading the mines of the rows
+     * around them as well.
+     */
+    private void updateNumOfNeighbourMines(int fromY, int toY) {
+        for (int y = fromY; y < toY; y++) {
+            for (int x = 0; x < gridWidth; x++) {
+                int count = 0;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1); nx++) {
+                        if (isMine[ny * gridWidth + nx]) {
+                            count++;
+                        }
+                    }
+                }
+                numOfNeighbourMines[y * gridWidth + x] = (byte) count;
+            }
+        }
+    }
+}
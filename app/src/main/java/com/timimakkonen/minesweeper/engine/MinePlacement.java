@@ -0,0 +1,184 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.util.Random;
+
+/**
+ * <p>
+ * Random mine placement shared by the Java engines, so that equally seeded engines create the
+ * same mines.
+ * </p>
+ * <p>
+ * The candidate cells are all cells except the (up to nine) cells around the first check. They
+ * are never listed: the k:th candidate is found by skipping the excluded cells, which are few and
+ * sorted. Mines are drawn with Floyd's sampling algorithm (an in-place equivalent of a partial
+ * Fisher-Yates shuffle), using the grid itself as the set of drawn cells. Above half density the
+ * safe cells are drawn instead, from a grid filled with mines. Either way, only
+ * 'min(numOfMines, numOfCandidates - numOfMines)' random numbers are drawn, and the time does not
+ * degrade with density the way retrying random cells does.
+ * </p>
+ * <p>
+ * Mines are placed band by band (see {@link RowBandExecutor}), so that bands can be filled in
+ * parallel. One board seed is drawn from the given random number generator. From it, the mines
+ * are first split between the bands, in proportion to their candidates (systematic sampling,
+ * which gives each band the floor or the ceiling of its share). Then each band draws its own
+ * mines from a stream seeded by the board seed and the band index alone. ('ChunkedMinesweeperGame'
+ * splits and draws the mines in the same way, by tile instead of by band.)
+ * </p>
+ */
+final class MinePlacement {
+
+    /**
+     * Mines of a grid, by cell index (row by row). Calls for different rows may come from
+     * different threads at the same time.
+     */
+    interface MineGrid {
+
+        boolean isMine(int cellIndex);
+
+        void setMine(int cellIndex, boolean isMine);
+    }
+
+    private static final int MAX_NUM_OF_EXCLUDED_CELLS = 9;
+
+    private MinePlacement() {}
+
+    /**
+     * Places mines at random, leaving the given cell and its neighbours free of mines.
+     *
+     * @param grid Grid without any mines yet.
+     */
+    static void placeMinesAround(Random random, int gridHeight, int gridWidth, int numOfMines,
+                                 int safeX, int safeY, RowBandExecutor bandExecutor,
+                                 MineGrid grid) {
+        // cells around the first check, in increasing order
+        final int[] excludedCells = new int[MAX_NUM_OF_EXCLUDED_CELLS];
+        int numOfExcludedCells = 0;
+        for (int y = Math.max(0, safeY - 1); y <= Math.min(gridHeight - 1, safeY + 1); y++) {
+            for (int x = Math.max(0, safeX - 1); x <= Math.min(gridWidth - 1, safeX + 1); x++) {
+                excludedCells[numOfExcludedCells++] = y * gridWidth + x;
+            }
+        }
+        final int numOfCandidates = gridHeight * gridWidth - numOfExcludedCells;
+        if (numOfMines < 0 || numOfMines > numOfCandidates) {
+            throw new IllegalArgumentException("Trying to place invalid number of mines.");
+        }
+
+        final long boardSeed = random.nextLong();
+        final int[] numOfMinesPerBand = splitMinesBetweenBands(
+                new Random(boardSeed), gridHeight, gridWidth, numOfMines, numOfCandidates,
+                excludedCells, numOfExcludedCells);
+        final int finalNumOfExcludedCells = numOfExcludedCells;
+        bandExecutor.forEachBand(gridHeight, (band, fromY, toY) -> placeMinesInCells(
+                new Random(streamSeed(boardSeed, band)), fromY * gridWidth, toY * gridWidth,
+                numOfMinesPerBand[band], excludedCells, finalNumOfExcludedCells, grid));
+    }
+
+    /**
+     * @return Seed of the given random stream (such as the one of a band), decorrelated from the
+     * board seed and the seeds of the other streams (SplitMix64 finaliser).
+     */
+    static long streamSeed(long boardSeed, int stream) {
+        long z = boardSeed + (stream + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int[] splitMinesBetweenBands(Random random, int gridHeight, int gridWidth,
+                                                int numOfMines, int numOfCandidates,
+                                                int[] excludedCells, int numOfExcludedCells) {
+        final int numOfBands = RowBandExecutor.numOfBands(gridHeight);
+        final int[] numOfCandidatesPerBand = new int[numOfBands];
+        for (int band = 0; band < numOfBands; band++) {
+            final int firstCell = band * RowBandExecutor.BAND_HEIGHT * gridWidth;
+            final int endCell = Math.min(gridHeight * gridWidth,
+                                         firstCell + RowBandExecutor.BAND_HEIGHT * gridWidth);
+            numOfCandidatesPerBand[band] = (endCell - firstCell) -
+                                           numOfExcludedCellsIn(firstCell, endCell, excludedCells,
+                                                                numOfExcludedCells);
+        }
+        return splitMines(random, numOfMines, numOfCandidates, numOfCandidatesPerBand);
+    }
+
+    /**
+     * Splits the mines between parts of a grid in proportion to their candidates (systematic
+     * sampling, which gives each part the floor or the ceiling of its share).
+     *
+     * @param numOfCandidates Sum of 'numOfCandidatesPerPart'.
+     */
+    static int[] splitMines(Random random, int numOfMines, int numOfCandidates,
+                            int[] numOfCandidatesPerPart) {
+        final int[] numOfMinesPerPart = new int[numOfCandidatesPerPart.length];
+        if (numOfCandidates == 0) {
+            return numOfMinesPerPart;
+        }
+        // part p gets the number of points 'offset + i * numOfCandidates' (i = 0, 1, ...) in
+        // [candidatesBefore(p), candidatesBefore(p + 1)) * numOfMines
+        final long offset = random.nextInt(numOfCandidates);
+        long numOfCandidatesBefore = 0;
+        for (int part = 0; part < numOfCandidatesPerPart.length; part++) {
+            final long numOfCandidatesAfter = numOfCandidatesBefore + numOfCandidatesPerPart[part];
+            numOfMinesPerPart[part] = (int) (
+                    (numOfCandidatesAfter * numOfMines + offset) / numOfCandidates -
+                    (numOfCandidatesBefore * numOfMines + offset) / numOfCandidates);
+            numOfCandidatesBefore = numOfCandidatesAfter;
+        }
+        return numOfMinesPerPart;
+    }
+
+    /**
+     * Places the given number of mines uniformly at random into the cells of
+     * [firstCell, endCell), except the excluded ones (sorted, and possibly outside the range).
+     */
+    static void placeMinesInCells(Random random, int firstCell, int endCell,
+                                          int numOfMines, int[] excludedCells,
+                                          int numOfExcludedCells, MineGrid grid) {
+        final int numOfCandidates = endCell - firstCell -
+                                    numOfExcludedCellsIn(firstCell, endCell, excludedCells,
+                                                         numOfExcludedCells);
+        final boolean drawSafeCells = 2 * numOfMines > numOfCandidates;
+        if (drawSafeCells) {
+            for (int k = 0; k < numOfCandidates; k++) {
+                grid.setMine(candidateCell(firstCell, k, excludedCells, numOfExcludedCells),
+                             true);
+            }
+        }
+        final int numOfDraws = drawSafeCells ? numOfCandidates - numOfMines : numOfMines;
+        final boolean drawnState = !drawSafeCells;
+
+        // Floyd: for each j, draw from [0, j], taking j itself if the drawn one is taken already
+        for (int j = numOfCandidates - numOfDraws; j < numOfCandidates; j++) {
+            int cellIndex = candidateCell(firstCell, random.nextInt(j + 1), excludedCells,
+                                          numOfExcludedCells);
+            if (grid.isMine(cellIndex) == drawnState) {
+                cellIndex = candidateCell(firstCell, j, excludedCells, numOfExcludedCells);
+            }
+            grid.setMine(cellIndex, drawnState);
+        }
+    }
+
+    /**
+     * @return Cell index of the k:th cell from 'firstCell' on that is not excluded.
+     */
+    private static int candidateCell(int firstCell, int k, int[] excludedCells,
+                                     int numOfExcludedCells) {
+        int cellIndex = firstCell + k;
+        for (int i = 0; i < numOfExcludedCells && excludedCells[i] <= cellIndex; i++) {
+            if (excludedCells[i] >= firstCell) {
+                cellIndex++;
+            }
+        }
+        return cellIndex;
+    }
+
+    private static int numOfExcludedCellsIn(int firstCell, int endCell, int[] excludedCells,
+                                            int numOfExcludedCells) {
+        int count = 0;
+        for (int i = 0; i < numOfExcludedCells; i++) {
+            if (excludedCells[i] >= firstCell && excludedCells[i] < endCell) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
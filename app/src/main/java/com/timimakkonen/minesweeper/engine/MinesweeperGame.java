@@ -0,0 +1,215 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Common interface of minesweeper game engines, such as the native {@link
+ * com.timimakkonen.minesweeper.jni.AndroidMinesweeperGame} and the pure-Java {@link
+ * JavaMinesweeperGame}.
+ * </p>
+ * <p>
+ * Cells are addressed with (x, y) coordinates, x being the column and y the row. Whole grids are
+ * laid out row by row, so cell (x, y) has index 'y * gridWidth + x'. Visual cell values are: -1
+ * (unchecked), 0-8 (number of neighbouring mines), 9 (mine) and 10 (marked).
+ * </p>
+ * <p>
+ * Implementations are not thread-safe.
+ * </p>
+ */
+public interface MinesweeperGame extends AutoCloseable {
+
+    // Action types used by 'applyActions'.
+    int CHECK_ACTION = 0;
+    int MARK_ACTION = 1;
+    int COMPLETE_AROUND_ACTION = 2;
+    int ACTION_SIZE = 3;
+
+    // Indices of the status record filled by 'getStatus'.
+    int STATUS_GRID_HEIGHT = 0;
+    int STATUS_GRID_WIDTH = 1;
+    int STATUS_NUM_OF_MINES = 2;
+    int STATUS_PLAYER_HAS_WON = 3;
+    int STATUS_PLAYER_HAS_LOST = 4;
+    int STATUS_NUM_OF_REVEALED_CELLS = 5;
+    int STATUS_NUM_OF_MARKED_CELLS = 6;
+    int STATUS_STATE_REVISION = 7;
+    int STATUS_NUM_OF_TRIPPED_MINES = 8;
+    int STATUS_SIZE = 9;
+
+    // 'numOfChanges' returned by 'visualiseChangesSince' when the changes are not available.
+    int CHANGES_UNAVAILABLE = -1;
+
+    // reset and new game methods:
+
+    void reset(boolean keepCreatedMines);
+
+    void newGame(int gridHeight, int gridWidth, int numOfMines);
+
+    void newGame(int gridHeight, int gridWidth, double proportionOfMines);
+
+    // actions:
+
+    /**
+     * Checks the given cell, making it visible. Mines are created on the first check of a game, so
+     * that the checked cell and its neighbours are free of mines.
+     */
+    void checkInputCoordinates(int x, int y);
+
+    /**
+     * Marks (or unmarks) the given cell. Ignored before the first check and on visible cells.
+     */
+    void markInputCoordinates(int x, int y);
+
+    /**
+     * Checks (or marks) the trivial cells around an already visible cell. Ignored on cells that
+     * are not visible, including every cell before the first check.
+     */
+    void completeAroundInputCoordinates(int x, int y);
+
+    /**
+     * Applies a batch of actions, updating the visual state only once at the end.
+     *
+     * @param actions Actions packed as [actionType0, x0, y0, actionType1, x1, y1, ...]. Actions
+     *                outside the grid and complete arounds on invisible cells are ignored.
+     */
+    void applyActions(int[] actions);
+
+    // game progress information:
+    // (Every engine keeps the counters below up to date on each action, reset and load, so none
+    //  of these scan the grid.)
+
+    boolean playerHasWon();
+
+    boolean playerHasLost();
+
+    /**
+     * @return Number of visible cells without a mine.
+     */
+    int getNumOfRevealedSafeCells();
+
+    /**
+     * @return Number of marked (flagged) cells. The number of mines minus this is the mine
+     * counter shown to the player.
+     */
+    int getNumOfMarkedCells();
+
+    /**
+     * @return Number of cells without a mine that are still hidden. The game is won once this
+     * reaches zero without tripping a mine.
+     */
+    int getNumOfRemainingSafeCells();
+
+    /**
+     * @return Number of checked (and so visible) mines. The game is lost once this is nonzero.
+     */
+    int getNumOfTrippedMines();
+
+    /**
+     * @return Number of cells made visible by the last check, complete around or batch of
+     * actions, including whole areas opened by a single check. Zero after resetting, starting or
+     * loading a game.
+     */
+    int getNumOfCellsOpenedByLastAction();
+
+    // cell information:
+
+    boolean isCellVisible(int x, int y);
+
+    // getters:
+
+    int getGridHeight();
+
+    int getGridWidth();
+
+    int getNumOfMines();
+
+    // visualisation:
+
+    /**
+     * @param result Array with room for at least 'gridHeight * gridWidth' ints, to be filled with
+     *               the visual value of each cell.
+     */
+    void visualiseInto(int[] result);
+
+    /**
+     * @param result Array with room for at least 'gridHeight * gridWidth' ints, to be filled with
+     *               the solution of each cell. (Every cell as: empty, number or marked.)
+     */
+    void visualiseSolutionInto(int[] result);
+
+    /**
+     * @return Visual values of the cells that have changed after the given revision, packed as
+     * [newRevision, numOfChanges, cellIndex0, newState0, cellIndex1, newState1, ...]. If the
+     * changes are not available anymore, 'numOfChanges' is 'CHANGES_UNAVAILABLE' and the whole
+     * visual state has to be re-read.
+     */
+    int[] visualiseChangesSince(int revision);
+
+    /**
+     * @return Buffer over the up-to-date visual value of each cell (one byte per cell). The buffer
+     * stays valid until the grid is resized by 'newGame' or 'deserialise'.
+     */
+    ByteBuffer getVisualStateBuffer();
+
+    /**
+     * @param status Array with room for at least 'STATUS_SIZE' ints. Indexed by the 'STATUS_*'
+     *               constants, with booleans stored as 0 or 1.
+     */
+    void getStatus(int[] status);
+
+    // save and load:
+
+    String serialise();
+
+    /**
+     * @return True if successful, false if the input could not be loaded.
+     */
+    boolean deserialise(String inStr);
+
+    /**
+     * @return Buffer holding this game in a compact binary encoding, between its position (0) and
+     * its limit. The buffer may be reused by the game, so it is only valid until the next call of
+     * this method.
+     */
+    ByteBuffer serialiseToBuffer();
+
+    /**
+     * Loads a game saved by {@link #serialiseToBuffer()} from the bytes between the position and
+     * the limit of the given buffer, without moving its position. Direct buffers (such as mapped
+     * files) are read in place by the native engine.
+     *
+     * @return True if successful, false if the input could not be loaded.
+     */
+    boolean deserialiseFromBuffer(ByteBuffer buffer);
+
+    // memory accounting:
+
+    /**
+     * @return Approximate number of bytes held by this game for its current board (cell storage,
+     * visual state, change log and reused buffers).
+     */
+    long getBoardMemoryUsage();
+
+    /**
+     * @return Approximate number of bytes held by native result vectors that have not been copied
+     * into Java and freed yet (including pooled ones). Zero for engines without native memory.
+     */
+    long getPendingResultMemoryUsage();
+
+    // limits of the number/proportion of mines:
+
+    int getMaxNumOfMines(int gridHeight, int gridWidth);
+
+    double getMaxProportionOfMines(int gridHeight, int gridWidth);
+
+    int getMinNumOfMines();
+
+    double getMinProportionOfMines();
+
+    /**
+     * Frees any resources held by this game. The game must not be used afterwards.
+     */
+    @Override
+    void close();
+}
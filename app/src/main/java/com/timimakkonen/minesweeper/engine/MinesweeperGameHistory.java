@@ -0,0 +1,625 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * This class keeps an unlimited undo and redo history of a {@link MinesweeperGame}, working with
+ * any engine through its interface.
+ * </p>
+ * <p>
+ * Each step of the history is an action (or a batch of actions) together with its delta: the
+ * cells it changed, with their old and new visual values, and the cell counters after it. The
+ * deltas are stored in flat arrays shared by all the steps, so the history grows with the number
+ * of cells changed rather than with the size of the grid. Actions that change nothing are not
+ * recorded.
+ * </p>
+ * <p>
+ * Engines cannot hide revealed cells, so the game is moved back by loading a checkpoint (a
+ * compact binary save, see {@link MinesweeperGame#serialiseToBuffer()}) and replaying the actions
+ * after it in one batch. A checkpoint is taken whenever the steps since the previous one have
+ * changed 'numOfCells / NUM_OF_CHECKPOINTS_PER_GRID' cells, so an undo costs at most one load
+ * plus a replay of fewer cells than that, and the checkpoints take about as much memory per
+ * changed cell as the deltas. Steps made of marks only are undone by marking the same cells
+ * again, and redo always replays the actions of the steps, so neither loads anything.
+ * </p>
+ * <p>
+ * A history started on a grid with all cells hidden (a new or restarted game) starts with
+ * 'reset(true)' instead of a checkpoint, which keeps the mines created by the first check, so
+ * the first check can be undone and redone on the same board.
+ * </p>
+ * <p>
+ * The deltas are also returned by {@link #moveTo(int)}, in the format of {@link
+ * MinesweeperGame#visualiseChangesSince(int)}, so callers can update their views without
+ * re-reading the whole grid. This class is not thread-safe.
+ * </p>
+ */
+public final class MinesweeperGameHistory {
+
+    static final int NUM_OF_CHECKPOINTS_PER_GRID = 4;
+    static final int MIN_NUM_OF_CELLS_BETWEEN_CHECKPOINTS = 256;
+
+    // binary serialisation: magic ('MSGH'), version, gridHeight, gridWidth, numOfSteps, position,
+    // numOfActionInts, numOfChanges, then the steps, the counters and the checkpoints
+    private static final int BINARY_SERIALISATION_MAGIC = 0x4D534748;
+    private static final byte BINARY_SERIALISATION_VERSION = 1;
+    // length of a checkpoint restored by 'reset(true)'
+    private static final int RESET_CHECKPOINT_LENGTH = -1;
+
+    private static final int MIN_STATE = -1;
+    private static final int MAX_STATE = 10;
+
+    // counters kept per position: revealed cells, marked cells and tripped mines
+    private static final int[] COUNTER_STATUS_INDICES = {
+            MinesweeperGame.STATUS_NUM_OF_REVEALED_CELLS,
+            MinesweeperGame.STATUS_NUM_OF_MARKED_CELLS,
+            MinesweeperGame.STATUS_NUM_OF_TRIPPED_MINES};
+    private static final int NUM_OF_COUNTERS = COUNTER_STATUS_INDICES.length;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final MinesweeperGame game;
+    private final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+
+    private int gridHeight = 0;
+    private int gridWidth = 0;
+    // visual value of each cell at the current position
+    private byte[] visualState = new byte[0];
+    // state revision of the game at the current position
+    private int revision = -1;
+
+    private int numOfSteps = 0;
+    // number of steps made from the start of the history to reach the current state
+    private int position = 0;
+
+    // actions of step s: 'actions[actionStarts[s]]' up to 'actions[actionStarts[s + 1]]'
+    private int[] actionStarts = new int[INITIAL_CAPACITY + 1];
+    private int[] actions = new int[INITIAL_CAPACITY];
+    // delta of step s: entries from 'changeStarts[s]' up to 'changeStarts[s + 1]'
+    private int[] changeStarts = new int[INITIAL_CAPACITY + 1];
+    private int[] changedCellIndices = new int[INITIAL_CAPACITY];
+    private byte[] oldStates = new byte[INITIAL_CAPACITY];
+    private byte[] newStates = new byte[INITIAL_CAPACITY];
+    // 'NUM_OF_COUNTERS' counters at each position (from 0 to 'numOfSteps')
+    private int[] counters = new int[(INITIAL_CAPACITY + 1) * NUM_OF_COUNTERS];
+
+    // checkpoints in increasing order of position, the first one at position 0
+    private int[] checkpointPositions = new int[INITIAL_CAPACITY];
+    // saves of the game at the checkpoints (null: all cells hidden, restored by 'reset(true)')
+    private final List<byte[]> checkpoints = new ArrayList<>();
+
+    /**
+     * Starts the history at the current state of the game.
+     */
+    public MinesweeperGameHistory(MinesweeperGame game) {
+        this.game = game;
+        clear();
+    }
+
+    /**
+     * Forgets all the steps, starting the history again at the current state of the game. Called
+     * after the game has been changed by anything but recorded actions (such as a new game, a
+     * reset or a load).
+     */
+    public void clear() {
+        game.getStatus(status);
+        gridHeight = status[MinesweeperGame.STATUS_GRID_HEIGHT];
+        gridWidth = status[MinesweeperGame.STATUS_GRID_WIDTH];
+        readVisualState();
+        revision = status[MinesweeperGame.STATUS_STATE_REVISION];
+
+        numOfSteps = 0;
+        position = 0;
+        setCounters(0);
+        checkpoints.clear();
+        final boolean allCellsAreHidden =
+                status[MinesweeperGame.STATUS_NUM_OF_REVEALED_CELLS] == 0 &&
+                status[MinesweeperGame.STATUS_NUM_OF_MARKED_CELLS] == 0 &&
+                status[MinesweeperGame.STATUS_NUM_OF_TRIPPED_MINES] == 0;
+        addCheckpoint(0, allCellsAreHidden ? null : saveGame());
+    }
+
+    /**
+     * Records actions just applied to the game as a new step, dropping the steps that could have
+     * been redone. Nothing is recorded if the actions changed no cell.
+     * <p>
+     * A batch must not have actions before a check that creates the mines: they are applied
+     * without mines, but would be redone with them (so the check has to start its own step).
+     * </p>
+     *
+     * @param stepActions Actions packed as [actionType, x, y] triples, as given to {@link
+     *                    MinesweeperGame#applyActions(int[])}.
+     */
+    public void record(int[] stepActions) {
+        if (stepActions.length % MinesweeperGame.ACTION_SIZE != 0) {
+            throw new IllegalArgumentException("Trying to record a malformed batch of actions.");
+        }
+        final int[] changes = game.visualiseChangesSince(revision);
+        game.getStatus(status);
+        if (status[MinesweeperGame.STATUS_GRID_HEIGHT] != gridHeight ||
+            status[MinesweeperGame.STATUS_GRID_WIDTH] != gridWidth) {
+            // (actions do not resize the grid, so the game has been replaced)
+            clear();
+            return;
+        }
+
+        truncateToPosition();
+        final int changeStart = changeStarts[numOfSteps];
+        int numOfChanges = 0;
+        if (changes[1] == MinesweeperGame.CHANGES_UNAVAILABLE) {
+            // (for example, after the game has been loaded by the action)
+            final ByteBuffer states = visualStateBuffer();
+            for (int cellIndex = 0; cellIndex < visualState.length; cellIndex++) {
+                numOfChanges += addChange(changeStart + numOfChanges, cellIndex,
+                                          states.get(cellIndex));
+            }
+        } else {
+            for (int k = 0; k < changes[1]; k++) {
+                numOfChanges += addChange(changeStart + numOfChanges, changes[2 + 2 * k],
+                                          (byte) changes[3 + 2 * k]);
+            }
+        }
+        revision = status[MinesweeperGame.STATUS_STATE_REVISION];
+        if (numOfChanges == 0) {
+            return;
+        }
+
+        final int actionStart = actionStarts[numOfSteps];
+        actions = ensureCapacity(actions, actionStart + stepActions.length);
+        System.arraycopy(stepActions, 0, actions, actionStart, stepActions.length);
+        actionStarts = ensureCapacity(actionStarts, numOfSteps + 2);
+        actionStarts[numOfSteps + 1] = actionStart + stepActions.length;
+        changeStarts = ensureCapacity(changeStarts, numOfSteps + 2);
+        changeStarts[numOfSteps + 1] = changeStart + numOfChanges;
+        numOfSteps++;
+        position = numOfSteps;
+        setCounters(position);
+
+        final int lastCheckpointPosition = checkpointPositions[checkpoints.size() - 1];
+        if (changeStarts[position] - changeStarts[lastCheckpointPosition] >=
+            getNumOfCellsBetweenCheckpoints()) {
+            addCheckpoint(position, saveGame());
+        }
+    }
+
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    public boolean canRedo() {
+        return position < numOfSteps;
+    }
+
+    /**
+     * @return Changes made to the visual state (see {@link #moveTo(int)}).
+     */
+    public int[] undo() {
+        if (!canUndo()) {
+            throw new IllegalStateException("Trying to undo with nothing to undo.");
+        }
+        return moveTo(position - 1);
+    }
+
+    /**
+     * @return Changes made to the visual state (see {@link #moveTo(int)}).
+     */
+    public int[] redo() {
+        if (!canRedo()) {
+            throw new IllegalStateException("Trying to redo with nothing to redo.");
+        }
+        return moveTo(position + 1);
+    }
+
+    /**
+     * Moves the game to the state after the given number of steps.
+     *
+     * @return Visual values of the cells changed by the move, packed as [newRevision,
+     * numOfChanges, cellIndex0, newState0, ...] as by {@link
+     * MinesweeperGame#visualiseChangesSince(int)}, or null if the game could not be moved there.
+     * In that case the game may have been left in any state, and the history is cleared.
+     */
+    public int[] moveTo(int newPosition) {
+        if (newPosition < 0 || newPosition > numOfSteps) {
+            throw new IllegalArgumentException("Trying to move outside the history.");
+        }
+        if (newPosition < position && !isMarkedOnly(newPosition, position)) {
+            int checkpoint = checkpoints.size() - 1;
+            while (checkpointPositions[checkpoint] > newPosition) {
+                checkpoint--;
+            }
+            if (!restoreCheckpoint(checkpoint)) {
+                clear();
+                return null;
+            }
+            replaySteps(checkpointPositions[checkpoint], newPosition);
+        } else if (newPosition < position) {
+            // (marking the same cells again unmarks them)
+            replaySteps(newPosition, position);
+        } else {
+            replaySteps(position, newPosition);
+        }
+
+        game.getStatus(status);
+        for (int c = 0; c < NUM_OF_COUNTERS; c++) {
+            if (status[COUNTER_STATUS_INDICES[c]] != counters[newPosition * NUM_OF_COUNTERS + c]) {
+                clear();
+                return null;
+            }
+        }
+        final int[] changes = moveVisualState(newPosition);
+        revision = status[MinesweeperGame.STATUS_STATE_REVISION];
+        changes[0] = revision;
+        position = newPosition;
+        return changes;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getNumOfSteps() {
+        return numOfSteps;
+    }
+
+    int getNumOfCheckpoints() {
+        return checkpoints.size();
+    }
+
+    /**
+     * @return Approximate number of bytes held by this history, including the visual state kept
+     * of the current position and the checkpoints.
+     */
+    public long getMemoryUsage() {
+        long bytes = visualState.length +
+                     (long) Integer.BYTES * (actionStarts.length + actions.length +
+                                             changeStarts.length + changedCellIndices.length +
+                                             counters.length + checkpointPositions.length) +
+                     oldStates.length + newStates.length;
+        for (byte[] checkpoint : checkpoints) {
+            bytes += (checkpoint != null) ? checkpoint.length : 0;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return Buffer holding this history in a compact binary encoding, between its position (0)
+     * and its limit. It can only be loaded into a history of a game in the same state (see {@link
+     * #deserialiseFromBuffer(ByteBuffer)}).
+     */
+    public ByteBuffer serialiseToBuffer() {
+        final int numOfActionInts = actionStarts[numOfSteps];
+        final int numOfChanges = changeStarts[numOfSteps];
+        long size = Integer.BYTES + 1 + 6 * Integer.BYTES +
+                    (long) Integer.BYTES * (2 * numOfSteps + numOfActionInts + numOfChanges +
+                                            (numOfSteps + 1) * NUM_OF_COUNTERS + 1) +
+                    2L * numOfChanges;
+        for (byte[] checkpoint : checkpoints) {
+            size += 2 * Integer.BYTES + ((checkpoint != null) ? checkpoint.length : 0);
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Trying to save a history too large for a buffer.");
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(BINARY_SERIALISATION_MAGIC);
+        buffer.put(BINARY_SERIALISATION_VERSION);
+        buffer.putInt(gridHeight);
+        buffer.putInt(gridWidth);
+        buffer.putInt(numOfSteps);
+        buffer.putInt(position);
+        buffer.putInt(numOfActionInts);
+        buffer.putInt(numOfChanges);
+        for (int s = 1; s <= numOfSteps; s++) {
+            buffer.putInt(actionStarts[s]);
+            buffer.putInt(changeStarts[s]);
+        }
+        for (int i = 0; i < numOfActionInts; i++) {
+            buffer.putInt(actions[i]);
+        }
+        for (int i = 0; i < numOfChanges; i++) {
+            buffer.putInt(changedCellIndices[i]);
+        }
+        buffer.put(oldStates, 0, numOfChanges);
+        buffer.put(newStates, 0, numOfChanges);
+        for (int i = 0; i < (numOfSteps + 1) * NUM_OF_COUNTERS; i++) {
+            buffer.putInt(counters[i]);
+        }
+        buffer.putInt(checkpoints.size());
+        for (int k = 0; k < checkpoints.size(); k++) {
+            final byte[] checkpoint = checkpoints.get(k);
+            buffer.putInt(checkpointPositions[k]);
+            buffer.putInt((checkpoint != null) ? checkpoint.length : RESET_CHECKPOINT_LENGTH);
+            if (checkpoint != null) {
+                buffer.put(checkpoint);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Loads a history saved by {@link #serialiseToBuffer()} from the bytes between the position
+     * and the limit of the given buffer, without moving its position. The game must be in the
+     * state the history was saved in (such as loaded from a save made at the same time).
+     *
+     * @return True if successful. If the input is invalid or does not fit the game, the history
+     * is cleared instead, and false is returned.
+     */
+    public boolean deserialiseFromBuffer(ByteBuffer buffer) {
+        try {
+            if (readHistory(buffer.duplicate())) {
+                return true;
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // (handled below)
+        }
+        clear();
+        return false;
+    }
+
+    private boolean readHistory(ByteBuffer input) {
+        if (input.getInt() != BINARY_SERIALISATION_MAGIC ||
+            input.get() != BINARY_SERIALISATION_VERSION) {
+            return false;
+        }
+        game.getStatus(status);
+        final int newGridHeight = input.getInt();
+        final int newGridWidth = input.getInt();
+        final int newNumOfSteps = input.getInt();
+        final int newPosition = input.getInt();
+        final int numOfActionInts = input.getInt();
+        final int numOfChanges = input.getInt();
+        if (newGridHeight != status[MinesweeperGame.STATUS_GRID_HEIGHT] ||
+            newGridWidth != status[MinesweeperGame.STATUS_GRID_WIDTH] || newNumOfSteps < 0 ||
+            newPosition < 0 || newPosition > newNumOfSteps || numOfActionInts < 0 ||
+            numOfChanges < 0 || input.remaining() < (long) Integer.BYTES *
+                                                    (2L * newNumOfSteps + numOfActionInts +
+                                                     numOfChanges) + 2L * numOfChanges) {
+            return false;
+        }
+        final int numOfCells = newGridHeight * newGridWidth;
+
+        final int[] newActionStarts = new int[newNumOfSteps + 1];
+        final int[] newChangeStarts = new int[newNumOfSteps + 1];
+        for (int s = 1; s <= newNumOfSteps; s++) {
+            newActionStarts[s] = input.getInt();
+            newChangeStarts[s] = input.getInt();
+            if (newActionStarts[s] < newActionStarts[s - 1] ||
+                (newActionStarts[s] - newActionStarts[s - 1]) % MinesweeperGame.ACTION_SIZE !=
+                0 || newChangeStarts[s] < newChangeStarts[s - 1]) {
+                return false;
+            }
+        }
+        if (newActionStarts[newNumOfSteps] != numOfActionInts ||
+            newChangeStarts[newNumOfSteps] != numOfChanges) {
+            return false;
+        }
+        final int[] newActions = new int[Math.max(numOfActionInts, INITIAL_CAPACITY)];
+        for (int i = 0; i < numOfActionInts; i++) {
+            newActions[i] = input.getInt();
+        }
+        final int[] newChangedCellIndices = new int[Math.max(numOfChanges, INITIAL_CAPACITY)];
+        for (int i = 0; i < numOfChanges; i++) {
+            newChangedCellIndices[i] = input.getInt();
+            if (newChangedCellIndices[i] < 0 || newChangedCellIndices[i] >= numOfCells) {
+                return false;
+            }
+        }
+        final byte[] newOldStates = new byte[newChangedCellIndices.length];
+        final byte[] newNewStates = new byte[newChangedCellIndices.length];
+        input.get(newOldStates, 0, numOfChanges);
+        input.get(newNewStates, 0, numOfChanges);
+        for (int i = 0; i < numOfChanges; i++) {
+            if (!isValidState(newOldStates[i]) || !isValidState(newNewStates[i])) {
+                return false;
+            }
+        }
+        final int[] newCounters = new int[(newNumOfSteps + 1) * NUM_OF_COUNTERS];
+        for (int i = 0; i < newCounters.length; i++) {
+            newCounters[i] = input.getInt();
+        }
+        for (int c = 0; c < NUM_OF_COUNTERS; c++) {
+            if (newCounters[newPosition * NUM_OF_COUNTERS + c] !=
+                status[COUNTER_STATUS_INDICES[c]]) {
+                return false;
+            }
+        }
+
+        final int numOfCheckpoints = input.getInt();
+        if (numOfCheckpoints < 1 || numOfCheckpoints > newNumOfSteps + 1) {
+            return false;
+        }
+        final int[] newCheckpointPositions = new int[numOfCheckpoints];
+        final List<byte[]> newCheckpoints = new ArrayList<>(numOfCheckpoints);
+        for (int k = 0; k < numOfCheckpoints; k++) {
+            newCheckpointPositions[k] = input.getInt();
+            final int length = input.getInt();
+            if (newCheckpointPositions[k] > newNumOfSteps ||
+                (k == 0 && newCheckpointPositions[k] != 0) ||
+                (k > 0 && newCheckpointPositions[k] <= newCheckpointPositions[k - 1]) ||
+                length < RESET_CHECKPOINT_LENGTH || length > input.remaining()) {
+                return false;
+            }
+            byte[] checkpoint = null;
+            if (length != RESET_CHECKPOINT_LENGTH) {
+                checkpoint = new byte[length];
+                input.get(checkpoint);
+            }
+            newCheckpoints.add(checkpoint);
+        }
+
+        gridHeight = newGridHeight;
+        gridWidth = newGridWidth;
+        readVisualState();
+        revision = status[MinesweeperGame.STATUS_STATE_REVISION];
+        numOfSteps = newNumOfSteps;
+        position = newPosition;
+        actionStarts = newActionStarts;
+        actions = newActions;
+        changeStarts = newChangeStarts;
+        changedCellIndices = newChangedCellIndices;
+        oldStates = newOldStates;
+        newStates = newNewStates;
+        counters = newCounters;
+        checkpointPositions = newCheckpointPositions;
+        checkpoints.clear();
+        checkpoints.addAll(newCheckpoints);
+        return true;
+    }
+
+    private int getNumOfCellsBetweenCheckpoints() {
+        return Math.max(MIN_NUM_OF_CELLS_BETWEEN_CHECKPOINTS,
+                        gridHeight * gridWidth / NUM_OF_CHECKPOINTS_PER_GRID);
+    }
+
+    // drops the steps (and their checkpoints) after the current position
+    private void truncateToPosition() {
+        numOfSteps = position;
+        while (checkpointPositions[checkpoints.size() - 1] > position) {
+            checkpoints.remove(checkpoints.size() - 1);
+        }
+    }
+
+    /**
+     * Adds the change of a cell to the current visual state, and to the delta of the next step at
+     * the given index if the cell actually changed.
+     *
+     * @return Number of changes added (0 or 1).
+     */
+    private int addChange(int changeIndex, int cellIndex, byte newState) {
+        final byte oldState = visualState[cellIndex];
+        if (oldState == newState) {
+            return 0;
+        }
+        changedCellIndices = ensureCapacity(changedCellIndices, changeIndex + 1);
+        if (oldStates.length < changeIndex + 1) {
+            oldStates = Arrays.copyOf(oldStates, changedCellIndices.length);
+            newStates = Arrays.copyOf(newStates, changedCellIndices.length);
+        }
+        changedCellIndices[changeIndex] = cellIndex;
+        oldStates[changeIndex] = oldState;
+        newStates[changeIndex] = newState;
+        visualState[cellIndex] = newState;
+        return 1;
+    }
+
+    private void setCounters(int atPosition) {
+        counters = ensureCapacity(counters, (atPosition + 1) * NUM_OF_COUNTERS);
+        for (int c = 0; c < NUM_OF_COUNTERS; c++) {
+            counters[atPosition * NUM_OF_COUNTERS + c] = status[COUNTER_STATUS_INDICES[c]];
+        }
+    }
+
+    private void addCheckpoint(int atPosition, byte[] checkpoint) {
+        checkpointPositions = ensureCapacity(checkpointPositions, checkpoints.size() + 1);
+        checkpointPositions[checkpoints.size()] = atPosition;
+        checkpoints.add(checkpoint);
+    }
+
+    private byte[] saveGame() {
+        final ByteBuffer save = game.serialiseToBuffer().duplicate();
+        final byte[] checkpoint = new byte[save.remaining()];
+        save.get(checkpoint);
+        return checkpoint;
+    }
+
+    private boolean restoreCheckpoint(int checkpoint) {
+        final byte[] save = checkpoints.get(checkpoint);
+        if (save == null) {
+            game.reset(true);
+            return true;
+        }
+        return game.deserialiseFromBuffer(ByteBuffer.wrap(save));
+    }
+
+    /**
+     * @return True if the steps from 'fromPosition' up to 'toPosition' are made of marks only.
+     */
+    private boolean isMarkedOnly(int fromPosition, int toPosition) {
+        for (int i = actionStarts[fromPosition]; i < actionStarts[toPosition];
+             i += MinesweeperGame.ACTION_SIZE) {
+            if (actions[i] != MinesweeperGame.MARK_ACTION) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // applies the actions of the steps from 'fromPosition' up to 'toPosition' in one batch
+    private void replaySteps(int fromPosition, int toPosition) {
+        if (fromPosition < toPosition) {
+            game.applyActions(Arrays.copyOfRange(actions, actionStarts[fromPosition],
+                                                 actionStarts[toPosition]));
+        }
+    }
+
+    /**
+     * Moves the kept visual state from the current position to the given one, along the deltas
+     * of the steps in between.
+     *
+     * @return Changed cells with their new values, packed as by 'visualiseChangesSince' (with
+     * the revision left for the caller to fill in).
+     */
+    private int[] moveVisualState(int newPosition) {
+        final int fromChange = changeStarts[Math.min(position, newPosition)];
+        final int toChange = changeStarts[Math.max(position, newPosition)];
+        if (newPosition < position) {
+            // (backwards, so a cell changed several times ends up with its oldest value)
+            for (int i = toChange - 1; i >= fromChange; i--) {
+                visualState[changedCellIndices[i]] = oldStates[i];
+            }
+        } else {
+            for (int i = fromChange; i < toChange; i++) {
+                visualState[changedCellIndices[i]] = newStates[i];
+            }
+        }
+
+        final int[] touchedCellIndices = Arrays.copyOfRange(changedCellIndices, fromChange,
+                                                            toChange);
+        Arrays.sort(touchedCellIndices);
+        final int[] changes = new int[2 + 2 * touchedCellIndices.length];
+        int numOfChanges = 0;
+        for (int k = 0; k < touchedCellIndices.length; k++) {
+            if (k > 0 && touchedCellIndices[k] == touchedCellIndices[k - 1]) {
+                continue;
+            }
+            changes[2 + 2 * numOfChanges] = touchedCellIndices[k];
+            changes[3 + 2 * numOfChanges] = visualState[touchedCellIndices[k]];
+            numOfChanges++;
+        }
+        changes[1] = numOfChanges;
+        return (numOfChanges == touchedCellIndices.length)
+               ? changes
+               : Arrays.copyOf(changes, 2 + 2 * numOfChanges);
+    }
+
+    private void readVisualState() {
+        final int numOfCells = gridHeight * gridWidth;
+        if (visualState.length != numOfCells) {
+            visualState = new byte[numOfCells];
+        }
+        if (numOfCells > 0) {
+            visualStateBuffer().get(visualState, 0, numOfCells);
+        }
+    }
+
+    private ByteBuffer visualStateBuffer() {
+        final ByteBuffer states = game.getVisualStateBuffer().duplicate();
+        states.position(0);
+        return states;
+    }
+
+    private static boolean isValidState(byte state) {
+        return state >= MIN_STATE && state <= MAX_STATE;
+    }
+
+    private static int[] ensureCapacity(int[] array, int minCapacity) {
+        return (array.length >= minCapacity)
+               ? array
+               : Arrays.copyOf(array, Math.max(minCapacity, 2 * array.length));
+    }
+}
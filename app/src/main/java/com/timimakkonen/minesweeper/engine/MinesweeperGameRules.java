@@ -0,0 +1,68 @@
+package com.timimakkonen.minesweeper.engine;
+
+/**
+ * <p>
+ * Rules shared by the Java engines, matching the ones of the native minesweeper library.
+ * </p>
+ * <p>
+ * The first check of a game leaves the checked cell and its (up to eight) neighbours free of
+ * mines, so at most 'gridHeight * gridWidth - 9' mines fit in a grid.
+ * </p>
+ */
+final class MinesweeperGameRules {
+
+    static final int MIN_NUM_OF_MINES = 0;
+    static final double MIN_PROPORTION_OF_MINES = 0.0;
+
+    private static final int NUM_OF_SAFE_CELLS_AROUND_FIRST_CHECK = 9;
+
+    private MinesweeperGameRules() {}
+
+    static int maxNumOfMines(int gridHeight, int gridWidth) {
+        return Math.max(0, gridHeight * gridWidth - NUM_OF_SAFE_CELLS_AROUND_FIRST_CHECK);
+    }
+
+    static double maxProportionOfMines(int gridHeight, int gridWidth) {
+        final int numOfCells = gridHeight * gridWidth;
+        return numOfCells == 0 ? 0.0 : (double) maxNumOfMines(gridHeight, gridWidth) / numOfCells;
+    }
+
+    static void verifyNewGame(int gridHeight, int gridWidth, int numOfMines)
+            throws IllegalArgumentException {
+        if (gridHeight < 0 || gridWidth < 0) {
+            throw new IllegalArgumentException(
+                    "Trying to start a new game with negative grid dimension.");
+        }
+        if (numOfMines < MIN_NUM_OF_MINES || numOfMines > maxNumOfMines(gridHeight, gridWidth)) {
+            throw new IllegalArgumentException(
+                    "Trying to start a new game with invalid number of mines.");
+        }
+    }
+
+    static int numOfMinesFromProportion(int gridHeight, int gridWidth, double proportionOfMines)
+            throws IllegalArgumentException {
+        if (gridHeight < 0 || gridWidth < 0) {
+            throw new IllegalArgumentException(
+                    "Trying to start a new game with negative grid dimension.");
+        }
+        if (proportionOfMines < MIN_PROPORTION_OF_MINES ||
+            proportionOfMines > maxProportionOfMines(gridHeight, gridWidth)) {
+            throw new IllegalArgumentException(
+                    "Trying to start a new game with invalid proportion of mines.");
+        }
+        return (int) (proportionOfMines * gridHeight * gridWidth);
+    }
+
+    static void verifyCoordinates(int x, int y, int gridHeight, int gridWidth)
+            throws IllegalArgumentException {
+        if (x < 0 || y < 0 || x >= gridWidth || y >= gridHeight) {
+            throw new IllegalArgumentException("Trying to use a cell outside the grid.");
+        }
+    }
+
+    static void verifyBufferSize(int[] buffer, int requiredSize) {
+        if (buffer.length < requiredSize) {
+            throw new IndexOutOfBoundsException("Trying to fill too small an array.");
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * This class runs many independent headless games in parallel on a fixed pool of threads (by
+ * default one per core), for bots, tests and benchmarks.
+ * </p>
+ * <p>
+ * Each game is created by the given {@link GameFactory}, driven by a {@link GameTask} and closed
+ * right after, so nothing is shared with the game shown by the UI or between games. With native
+ * 'MinesweeperGameSession's from the factory, the games live in the native session table, and
+ * thousands of them can be created and destroyed safely from all the threads.
+ * </p>
+ */
+public final class ParallelGameRunner implements AutoCloseable {
+
+    private final GameFactory gameFactory;
+    private final int numOfThreads;
+    private final ExecutorService executorService;
+
+    public ParallelGameRunner(GameFactory gameFactory) {
+        this(gameFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelGameRunner(GameFactory gameFactory, int numOfThreads) {
+        if (numOfThreads < 1) {
+            throw new IllegalArgumentException("Trying to run games on less than one thread.");
+        }
+        this.gameFactory = gameFactory;
+        this.numOfThreads = numOfThreads;
+
+        final AtomicInteger numOfCreatedThreads = new AtomicInteger(0);
+        this.executorService = Executors.newFixedThreadPool(numOfThreads, task -> {
+            final Thread thread = new Thread(
+                    task, "ParallelGameRunner-" + numOfCreatedThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the given task once per game, each on a new game of its own, and waits for all of them
+     * to finish.
+     *
+     * @param numOfGames Number of games to run.
+     * @param task       Task driving a single game. It may be called from several threads at the
+     *                   same time (with different games).
+     * @param <T>        Type of the result of a single game.
+     * @return Results of the games, in the order of their game indices.
+     * @throws ExecutionException   if any of the tasks threw. (The first one by game index.)
+     * @throws InterruptedException if interrupted while waiting for the games.
+     */
+    public <T> List<T> runGames(int numOfGames, GameTask<T> task)
+            throws ExecutionException, InterruptedException {
+        if (numOfGames < 0) {
+            throw new IllegalArgumentException("Trying to run a negative number of games.");
+        }
+        final List<Callable<T>> gameRuns = new ArrayList<>(numOfGames);
+        for (int i = 0; i < numOfGames; i++) {
+            final int gameIndex = i;
+            gameRuns.add(() -> {
+                try (MinesweeperGame game = gameFactory.newGame(gameIndex)) {
+                    return task.run(game, gameIndex);
+                }
+            });
+        }
+
+        final List<T> results = new ArrayList<>(numOfGames);
+        for (Future<T> futureResult : executorService.invokeAll(gameRuns)) {
+            results.add(futureResult.get());
+        }
+        return results;
+    }
+
+    public int getNumOfThreads() {
+        return numOfThreads;
+    }
+
+    /**
+     * Stops the threads of this runner, once the games already running have finished.
+     */
+    @Override
+    public void close() {
+        executorService.shutdown();
+    }
+
+    public interface GameFactory {
+        /**
+         * @param gameIndex Index of the game the new game is for, which can be used to seed it, so
+         *                  that results do not depend on the order the games are run in.
+         */
+        MinesweeperGame newGame(int gameIndex);
+    }
+
+    public interface GameTask<T> {
+        T run(MinesweeperGame game, int gameIndex) throws Exception;
+    }
+}
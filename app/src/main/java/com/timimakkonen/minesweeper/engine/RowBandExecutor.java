@@ -0,0 +1,133 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * This class runs the steps of board generation of the Java engines (mine placement and
+ * neighbour counting) band by band, in parallel on a fixed pool of threads.
+ * </p>
+ * <p>
+ * A grid is split into bands of 'BAND_HEIGHT' rows. The bands do not depend on the number of
+ * threads, so neither does anything computed per band (such as the random stream used to place
+ * its mines): the same seed gives the same board on any number of threads.
+ * </p>
+ * <p>
+ * Each step returns only once every band is done, so the next step can read the rows around its
+ * band (the halo) from the neighbouring bands. Bands only write their own rows, and the engines
+ * keep rows apart in their storage, so writes of different bands never share an element.
+ * </p>
+ */
+public final class RowBandExecutor implements AutoCloseable {
+
+    static final int BAND_HEIGHT = 64;
+
+    /**
+     * Executor running all the bands on the calling thread, one after another.
+     */
+    public static final RowBandExecutor SEQUENTIAL = new RowBandExecutor(1);
+
+    private final int numOfThreads;
+    // null when running on the calling thread
+    private final ExecutorService executorService;
+
+    public RowBandExecutor(int numOfThreads) {
+        if (numOfThreads < 1) {
+            throw new IllegalArgumentException(
+                    "Trying to generate boards on less than one thread.");
+        }
+        this.numOfThreads = numOfThreads;
+        if (numOfThreads == 1) {
+            this.executorService = null;
+            return;
+        }
+
+        final AtomicInteger numOfCreatedThreads = new AtomicInteger(0);
+        this.executorService = Executors.newFixedThreadPool(numOfThreads, task -> {
+            final Thread thread = new Thread(
+                    task, "RowBandExecutor-" + numOfCreatedThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static int numOfBands(int gridHeight) {
+        return (gridHeight + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    }
+
+    /**
+     * Runs the given task once per band of a grid, and waits for all of them to finish.
+     *
+     * @param task Task for a single band. It may be called from several threads at the same time
+     *             (with different bands).
+     */
+    void forEachBand(int gridHeight, BandTask task) {
+        final int numOfBands = numOfBands(gridHeight);
+        if (executorService == null || numOfBands <= 1) {
+            for (int band = 0; band < numOfBands; band++) {
+                runBand(gridHeight, band, task);
+            }
+            return;
+        }
+
+        final List<Callable<Void>> bandRuns = new ArrayList<>(numOfBands);
+        for (int i = 0; i < numOfBands; i++) {
+            final int band = i;
+            bandRuns.add(() -> {
+                runBand(gridHeight, band, task);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> bandRun : executorService.invokeAll(bandRuns)) {
+                bandRun.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating a board.", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void runBand(int gridHeight, int band, BandTask task) {
+        final int fromY = band * BAND_HEIGHT;
+        task.run(band, fromY, Math.min(gridHeight, fromY + BAND_HEIGHT));
+    }
+
+    public int getNumOfThreads() {
+        return numOfThreads;
+    }
+
+    /**
+     * Stops the threads of this executor. Engines using it can not start new games after this.
+     */
+    @Override
+    public void close() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+    }
+
+    interface BandTask {
+        /**
+         * @param band  Index of the band.
+         * @param fromY First row of the band.
+         * @param toY   Row after the last row of the band.
+         */
+        void run(int band, int fromY, int toY);
+    }
+}
@@ -0,0 +1,162 @@
+package com.timimakkonen.minesweeper.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * This class keeps the visual value of each cell of a Java engine, together with a revision
+ * number and a log of changed cells, in the same way as the native game does. (See {@link
+ * MinesweeperGame#visualiseChangesSince(int)}.)
+ * </p>
+ * <p>
+ * Engines wrap each action between {@link #beginUpdate()} and {@link #endUpdate()}, and report
+ * every cell whose visual value may have changed with {@link #setCellState(int, int)}. The
+ * revision is incremented once per update, and only if some cell actually changed.
+ * </p>
+ */
+final class VisualStateTracker {
+
+    private static final int UNCHECKED_STATE = -1;
+    private static final int MIN_REVEALED_STATE = 0;
+    private static final int MAX_REVEALED_STATE = 9;
+    private static final int MINE_STATE = 9;
+    private static final int MARKED_STATE = 10;
+
+    private byte[] visualState = new byte[0];
+    private int revision = 0;
+    private final CellChangeLog changeLog = new CellChangeLog();
+
+    private int numOfRevealedCells = 0;
+    private int numOfMarkedCells = 0;
+    private int numOfTrippedMines = 0;
+
+    private int numOfRevealedCellsBeforeUpdate = 0;
+    private int numOfCellsOpenedByLastUpdate = 0;
+
+    private boolean cellsChangedDuringUpdate = false;
+
+    private static boolean isRevealedState(int state) {
+        return state >= MIN_REVEALED_STATE && state <= MAX_REVEALED_STATE;
+    }
+
+    /**
+     * Sets all the cells as unchecked. The old cell indices are meaningless after this, so the
+     * change log is cleared. The storage is only reallocated if the number of cells changes.
+     */
+    void resetAllCells(int numOfCells) {
+        if (visualState.length != numOfCells) {
+            visualState = new byte[numOfCells];
+        }
+        Arrays.fill(visualState, (byte) UNCHECKED_STATE);
+        numOfRevealedCells = 0;
+        numOfMarkedCells = 0;
+        numOfTrippedMines = 0;
+        numOfCellsOpenedByLastUpdate = 0;
+        revision++;
+        changeLog.clear(revision);
+    }
+
+    void beginUpdate() {
+        cellsChangedDuringUpdate = false;
+        numOfRevealedCellsBeforeUpdate = numOfRevealedCells;
+    }
+
+    void setCellState(int cellIndex, int newState) {
+        final int oldState = visualState[cellIndex];
+        if (oldState == newState) {
+            return;
+        }
+        if (isRevealedState(oldState)) {
+            numOfRevealedCells--;
+        } else if (oldState == MARKED_STATE) {
+            numOfMarkedCells--;
+        }
+        if (oldState == MINE_STATE) {
+            numOfTrippedMines--;
+        }
+        if (isRevealedState(newState)) {
+            numOfRevealedCells++;
+        } else if (newState == MARKED_STATE) {
+            numOfMarkedCells++;
+        }
+        if (newState == MINE_STATE) {
+            // (only checked mines are visible)
+            numOfTrippedMines++;
+        }
+        visualState[cellIndex] = (byte) newState;
+        // a log longer than the grid is dropped at the end of the update (see 'endUpdate')
+        if (changeLog.size() <= visualState.length) {
+            changeLog.append(revision + 1, cellIndex);
+        }
+        cellsChangedDuringUpdate = true;
+    }
+
+    void endUpdate() {
+        if (cellsChangedDuringUpdate) {
+            revision++;
+        }
+        cellsChangedDuringUpdate = false;
+        // (resets hide cells, which does not count as opening any)
+        numOfCellsOpenedByLastUpdate =
+                Math.max(0, numOfRevealedCells - numOfRevealedCellsBeforeUpdate);
+
+        // once the log outgrows the grid, re-reading the whole visual state is cheaper
+        if (changeLog.size() > visualState.length) {
+            changeLog.clear(revision);
+        }
+    }
+
+    int getCellState(int cellIndex) {
+        return visualState[cellIndex];
+    }
+
+    int getRevision() {
+        return revision;
+    }
+
+    int getNumOfRevealedCells() {
+        return numOfRevealedCells;
+    }
+
+    int getNumOfMarkedCells() {
+        return numOfMarkedCells;
+    }
+
+    int getNumOfTrippedMines() {
+        return numOfTrippedMines;
+    }
+
+    int getNumOfCellsOpenedByLastUpdate() {
+        return numOfCellsOpenedByLastUpdate;
+    }
+
+    /**
+     * Forgets the cells opened by the last update, for updates that are not actions (such as
+     * loading a game).
+     */
+    void clearNumOfCellsOpened() {
+        numOfCellsOpenedByLastUpdate = 0;
+    }
+
+    /**
+     * @return Number of bytes used by the visual state and the change log (array contents only).
+     */
+    long getMemoryUsage() {
+        return (long) visualState.length + changeLog.getMemoryUsage();
+    }
+
+    void visualiseInto(int[] result) {
+        for (int i = 0; i < visualState.length; i++) {
+            result[i] = visualState[i];
+        }
+    }
+
+    ByteBuffer getBuffer() {
+        return ByteBuffer.wrap(visualState);
+    }
+
+    int[] visualiseChangesSince(int sinceRevision) {
+        return changeLog.changesSince(sinceRevision, revision, this::getCellState);
+    }
+}
@@ -1,127 +1,313 @@
-/* ----------------------------------------------------------------------------
- * This file was automatically generated by SWIG (http://www.swig.org).
- * Version 4.0.1
- *
- * Do not make changes to this file unless you know what you are doing--modify
- * the SWIG interface file instead.
- * ----------------------------------------------------------------------------- */
-
 package com.timimakkonen.minesweeper.jni;
 
-public class AndroidMinesweeperGame {
-  private transient long swigCPtr;
-  protected transient boolean swigCMemOwn;
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Java proxy of the native 'android_minesweeper::AndroidMinesweeperGame'.
+ * </p>
+ * <p>
+ * The action types and status record indices are the ones of {@link MinesweeperGame}. (They must
+ * match the ones in 'game.cpp'.)
+ * </p>
+ * <p>
+ * Native memory is freed by {@link #close()}/{@link #delete()} or, if neither is called, by {@link
+ * NativeResourceCleaner} once this proxy has become unreachable.
+ * </p>
+ */
+public class AndroidMinesweeperGame implements MinesweeperGame {
+
+    private static final int NUM_OF_POOLED_RESULT_VECTORS = 2;
+
+    // native result vectors reused between solution visualisations (of all games)
+    private static final VectorIntPool resultVectorPool =
+            new VectorIntPool(NUM_OF_POOLED_RESULT_VECTORS);
+
+    private long nativePtr;
+    private boolean ownsNativeMemory;
+    private NativeResourceCleaner.Cleanable cleanable;
+    // direct buffer over the native visual state, created once per grid allocation (null until
+    // asked for, and again once 'newGame' or a load may have reallocated the grid)
+    private ByteBuffer visualStateBuffer;
+
+    AndroidMinesweeperGame(long nativePtr, boolean ownsNativeMemory) {
+        this.nativePtr = nativePtr;
+        this.ownsNativeMemory = ownsNativeMemory;
+        if (ownsNativeMemory) {
+            this.cleanable = NativeResourceCleaner.register(this, nativePtr,
+                                                            MinesweeperGameJni::deleteGame);
+        }
+    }
+
+    public AndroidMinesweeperGame() {
+        this(MinesweeperGameJni.newGame(), true);
+    }
+
+    public AndroidMinesweeperGame(int gridHeight, int gridWidth, int numOfMines) {
+        this(MinesweeperGameJni.newGameWithMines(gridHeight, gridWidth, numOfMines), true);
+    }
+
+    static long getNativePtr(AndroidMinesweeperGame game) {
+        return (game == null) ? 0 : game.nativePtr;
+    }
+
+    public static int maxNumOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameJni.maxNumOfMines(gridHeight, gridWidth);
+    }
+
+    public static double maxProportionOfMines(int gridHeight, int gridWidth) {
+        return MinesweeperGameJni.maxProportionOfMines(gridHeight, gridWidth);
+    }
+
+    public static int minNumOfMines() {
+        return MinesweeperGameJni.minNumOfMines();
+    }
+
+    public static double minProportionOfMines() {
+        return MinesweeperGameJni.minProportionOfMines();
+    }
+
+    @Override
+    public void close() {
+        delete();
+    }
+
+    public synchronized void delete() {
+        if (nativePtr != 0) {
+            if (ownsNativeMemory) {
+                ownsNativeMemory = false;
+                cleanable.clean();
+            }
+            nativePtr = 0;
+            visualStateBuffer = null;
+        }
+    }
+
+    @Override
+    public void reset(boolean keepCreatedMines) {
+        MinesweeperGameJni.reset(nativePtr, this, keepCreatedMines);
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, int numOfMines) {
+        visualStateBuffer = null;
+        MinesweeperGameJni.newGame(nativePtr, this, gridHeight, gridWidth, numOfMines);
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, double proportionOfMines) {
+        visualStateBuffer = null;
+        MinesweeperGameJni.newGame(nativePtr, this, gridHeight, gridWidth, proportionOfMines);
+    }
+
+    @Override
+    public void checkInputCoordinates(int x, int y) {
+        MinesweeperGameJni.checkInputCoordinates(nativePtr, this, x, y);
+    }
+
+    @Override
+    public void markInputCoordinates(int x, int y) {
+        MinesweeperGameJni.markInputCoordinates(nativePtr, this, x, y);
+    }
 
-  protected AndroidMinesweeperGame(long cPtr, boolean cMemoryOwn) {
-    swigCMemOwn = cMemoryOwn;
-    swigCPtr = cPtr;
-  }
+    @Override
+    public void completeAroundInputCoordinates(int x, int y) {
+        MinesweeperGameJni.completeAroundInputCoordinates(nativePtr, this, x, y);
+    }
 
-  protected static long getCPtr(AndroidMinesweeperGame obj) {
-    return (obj == null) ? 0 : obj.swigCPtr;
-  }
+    @Override
+    public void applyActions(int[] actions) {
+        MinesweeperGameJni.applyActions(nativePtr, this, actions);
+    }
 
-  @SuppressWarnings("deprecation")
-  protected void finalize() {
-    delete();
-  }
+    @Override
+    public boolean playerHasWon() {
+        return MinesweeperGameJni.playerHasWon(nativePtr, this);
+    }
 
-  public synchronized void delete() {
-    if (swigCPtr != 0) {
-      if (swigCMemOwn) {
-        swigCMemOwn = false;
-        minesweeper_gameJNI.delete_AndroidMinesweeperGame(swigCPtr);
-      }
-      swigCPtr = 0;
+    @Override
+    public boolean playerHasLost() {
+        return MinesweeperGameJni.playerHasLost(nativePtr, this);
     }
-  }
 
-  public AndroidMinesweeperGame() {
-    this(minesweeper_gameJNI.new_AndroidMinesweeperGame__SWIG_0(), true);
-  }
+    @Override
+    public int getNumOfRevealedSafeCells() {
+        return MinesweeperGameJni.getNumOfRevealedSafeCells(nativePtr, this);
+    }
 
-  public AndroidMinesweeperGame(int gridHeight, int gridWidth, int numOfMines) {
-    this(minesweeper_gameJNI.new_AndroidMinesweeperGame__SWIG_1(gridHeight, gridWidth, numOfMines), true);
-  }
+    @Override
+    public int getNumOfMarkedCells() {
+        return MinesweeperGameJni.getNumOfMarkedCells(nativePtr, this);
+    }
 
-  public void reset(boolean keepCreatedMines) {
-    minesweeper_gameJNI.AndroidMinesweeperGame_reset(swigCPtr, this, keepCreatedMines);
-  }
+    @Override
+    public int getNumOfRemainingSafeCells() {
+        return MinesweeperGameJni.getNumOfRemainingSafeCells(nativePtr, this);
+    }
 
-  public void newGame(int gridHeight, int gridWidth, int numOfMines) {
-    minesweeper_gameJNI.AndroidMinesweeperGame_newGame__SWIG_0(swigCPtr, this, gridHeight, gridWidth, numOfMines);
-  }
+    @Override
+    public int getNumOfTrippedMines() {
+        return MinesweeperGameJni.getNumOfTrippedMines(nativePtr, this);
+    }
 
-  public void newGame(int gridHeight, int gridWidth, double proportionOfMines) {
-    minesweeper_gameJNI.AndroidMinesweeperGame_newGame__SWIG_1(swigCPtr, this, gridHeight, gridWidth, proportionOfMines);
-  }
+    @Override
+    public int getNumOfCellsOpenedByLastAction() {
+        return MinesweeperGameJni.getNumOfCellsOpenedByLastAction(nativePtr, this);
+    }
 
-  public void checkInputCoordinates(int x, int y) {
-    minesweeper_gameJNI.AndroidMinesweeperGame_checkInputCoordinates(swigCPtr, this, x, y);
-  }
+    @Override
+    public boolean isCellVisible(int x, int y) {
+        return MinesweeperGameJni.isCellVisible(nativePtr, this, x, y);
+    }
 
-  public void markInputCoordinates(int x, int y) {
-    minesweeper_gameJNI.AndroidMinesweeperGame_markInputCoordinates(swigCPtr, this, x, y);
-  }
+    @Override
+    public int getGridHeight() {
+        return MinesweeperGameJni.getGridHeight(nativePtr, this);
+    }
 
-  public void completeAroundInputCoordinates(int x, int y) {
-    minesweeper_gameJNI.AndroidMinesweeperGame_completeAroundInputCoordinates(swigCPtr, this, x, y);
-  }
+    @Override
+    public int getGridWidth() {
+        return MinesweeperGameJni.getGridWidth(nativePtr, this);
+    }
 
-  public boolean playerHasWon() {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_playerHasWon(swigCPtr, this);
-  }
+    @Override
+    public int getNumOfMines() {
+        return MinesweeperGameJni.getNumOfMines(nativePtr, this);
+    }
 
-  public boolean playerHasLost() {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_playerHasLost(swigCPtr, this);
-  }
+    public vector_int visualise() {
+        return new vector_int(MinesweeperGameJni.visualise(nativePtr, this), true);
+    }
 
-  public boolean isCellVisible(int x, int y) {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_isCellVisible(swigCPtr, this, x, y);
-  }
+    public vector_int visualiseSolution() {
+        return new vector_int(MinesweeperGameJni.visualiseSolution(nativePtr, this), true);
+    }
 
-  public int getGridHeight() {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_getGridHeight(swigCPtr, this);
-  }
+    @Override
+    public void visualiseInto(int[] result) {
+        final int numOfCells = getGridHeight() * getGridWidth();
+        if (result.length < numOfCells) {
+            throw new IndexOutOfBoundsException("Trying to fill too small an array.");
+        }
+        // the visual state buffer is kept up to date natively, so this does not cross JNI per cell
+        final ByteBuffer visualState = getVisualStateBuffer();
+        for (int i = 0; i < numOfCells; i++) {
+            result[i] = visualState.get(i);
+        }
+    }
 
-  public int getGridWidth() {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_getGridWidth(swigCPtr, this);
-  }
+    @Override
+    public void visualiseSolutionInto(int[] result) {
+        final vector_int resultVector = resultVectorPool.acquire();
+        try {
+            visualiseSolutionInto(resultVector);
+            resultVector.copyTo(result);
+        } finally {
+            resultVectorPool.release(resultVector);
+        }
+    }
 
-  public int getNumOfMines() {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_getNumOfMines(swigCPtr, this);
-  }
+    public void visualiseSolutionInto(vector_int result) {
+        if (result == null) {
+            throw new NullPointerException("Trying to visualise solution into null vector.");
+        }
+        MinesweeperGameJni.visualiseSolutionInto(nativePtr, this, vector_int.getNativePtr(result),
+                                                 result);
+    }
 
-  public vector_int visualise() {
-    return new vector_int(minesweeper_gameJNI.AndroidMinesweeperGame_visualise(swigCPtr, this), true);
-  }
+    @Override
+    public int[] visualiseChangesSince(int revision) {
+        return MinesweeperGameJni.visualiseChangesSince(nativePtr, this, revision);
+    }
 
-  public vector_int visualiseSolution() {
-    return new vector_int(minesweeper_gameJNI.AndroidMinesweeperGame_visualiseSolution(swigCPtr, this), true);
-  }
+    @Override
+    public void getStatus(int[] status) {
+        MinesweeperGameJni.getStatus(nativePtr, this, status);
+    }
 
-  public String serialise() {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_serialise(swigCPtr, this);
-  }
+    /**
+     * @return Direct buffer over the native visual state. The same buffer is returned until the
+     * grid is reallocated, so callers must only read it with absolute gets.
+     */
+    @Override
+    public ByteBuffer getVisualStateBuffer() {
+        if (visualStateBuffer == null) {
+            visualStateBuffer = MinesweeperGameJni.getVisualStateBuffer(nativePtr, this);
+        }
+        return visualStateBuffer;
+    }
 
-  public boolean deserialise(String inStr) {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_deserialise(swigCPtr, this, inStr);
-  }
+    @Override
+    public long getBoardMemoryUsage() {
+        return MinesweeperGameJni.getMemoryUsage(nativePtr, this);
+    }
 
-  public static int maxNumOfMines(int gridHeight, int gridWidth) {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_maxNumOfMines(gridHeight, gridWidth);
-  }
+    /**
+     * Result vectors are pooled between all native games, so this is the same for each of them.
+     */
+    @Override
+    public long getPendingResultMemoryUsage() {
+        return resultVectorPool.getMemoryUsage();
+    }
 
-  public static double maxProportionOfMines(int gridHeight, int gridWidth) {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_maxProportionOfMines(gridHeight, gridWidth);
-  }
+    @Override
+    public int getMaxNumOfMines(int gridHeight, int gridWidth) {
+        return maxNumOfMines(gridHeight, gridWidth);
+    }
 
-  public static int minNumOfMines() {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_minNumOfMines();
-  }
+    @Override
+    public double getMaxProportionOfMines(int gridHeight, int gridWidth) {
+        return maxProportionOfMines(gridHeight, gridWidth);
+    }
 
-  public static double minProportionOfMines() {
-    return minesweeper_gameJNI.AndroidMinesweeperGame_minProportionOfMines();
-  }
+    @Override
+    public int getMinNumOfMines() {
+        return minNumOfMines();
+    }
 
+    @Override
+    public double getMinProportionOfMines() {
+        return minProportionOfMines();
+    }
+
+    @Override
+    public String serialise() {
+        return MinesweeperGameJni.serialise(nativePtr, this);
+    }
+
+    @Override
+    public boolean deserialise(String inStr) {
+        visualStateBuffer = null;
+        return MinesweeperGameJni.deserialise(nativePtr, this, inStr);
+    }
+
+    /**
+     * @return Direct buffer over native memory of this game, holding the serialisation of the
+     * native library after a small header. It is only valid until the next call of this method.
+     */
+    @Override
+    public ByteBuffer serialiseToBuffer() {
+        return MinesweeperGameJni.serialiseToBuffer(nativePtr, this);
+    }
+
+    @Override
+    public boolean deserialiseFromBuffer(ByteBuffer buffer) {
+        visualStateBuffer = null;
+        final int offset = buffer.position();
+        final int length = buffer.remaining();
+        if (buffer.isDirect()) {
+            return MinesweeperGameJni.deserialiseFromDirectBuffer(nativePtr, this, buffer, offset,
+                                                                  length);
+        } else if (buffer.hasArray()) {
+            return MinesweeperGameJni.deserialiseFromArray(nativePtr, this, buffer.array(),
+                                                           buffer.arrayOffset() + offset, length);
+        } else {
+            // read-only heap buffers do not expose their array
+            final byte[] bytes = new byte[length];
+            buffer.duplicate().get(bytes);
+            return MinesweeperGameJni.deserialiseFromArray(nativePtr, this, bytes, 0, length);
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package com.timimakkonen.minesweeper.jni;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Native methods of the minesweeper library. These are registered in 'JNI_OnLoad' (see
+ * 'game_jni.cpp'), so the library must be loaded before this class is used.
+ * </p>
+ * <p>
+ * Every method reading or changing a game or a vector through its native pointer also takes the
+ * owning Java proxy, which keeps it (and its native memory) reachable until the call returns, so
+ * the cleaner can not free the memory during the call. None of them is '@CriticalNative', as that
+ * would not let them take the proxy. Methods that do not touch the memory of a proxy (such as the
+ * constructors, the deleters and {@link #maxNumOfMines(int, int)}) take primitives alone. All of
+ * them are eligible for '@FastNative'.
+ * </p>
+ * <p>
+ * Game sessions are addressed by integer handles instead of pointers. {@link #lockSession(int)}
+ * may block, so it is not eligible for '@FastNative'.
+ * </p>
+ */
+final class MinesweeperGameJni {
+
+    private MinesweeperGameJni() {}
+
+    // 'std::vector<int>':
+
+    static native long newVector();
+
+    static native long newVectorCopy(long otherPtr, Object other);
+
+    static native long newVectorFilled(int count, int value);
+
+    static native void deleteVector(long vectorPtr);
+
+    static native int vectorSize(long vectorPtr, Object owner);
+
+    static native long vectorCapacity(long vectorPtr, Object owner);
+
+    static native void vectorReserve(long vectorPtr, Object owner, long n);
+
+    static native void vectorClear(long vectorPtr, Object owner);
+
+    static native int vectorGet(long vectorPtr, Object owner, int index);
+
+    static native int vectorSet(long vectorPtr, Object owner, int index, int value);
+
+    static native void vectorAdd(long vectorPtr, Object owner, int value);
+
+    static native void vectorInsert(long vectorPtr, Object owner, int index, int value);
+
+    static native int vectorRemove(long vectorPtr, Object owner, int index);
+
+    static native void vectorRemoveRange(long vectorPtr, Object owner, int fromIndex, int toIndex);
+
+    static native void vectorCopyTo(long vectorPtr, Object owner, int[] target);
+
+    // 'AndroidMinesweeperGame':
+
+    static native long newGame();
+
+    static native long newGameWithMines(int gridHeight, int gridWidth, int numOfMines);
+
+    static native void deleteGame(long gamePtr);
+
+    static native void reset(long gamePtr, Object owner, boolean keepCreatedMines);
+
+    static native void newGame(long gamePtr, Object owner, int gridHeight, int gridWidth,
+                               int numOfMines);
+
+    static native void newGame(long gamePtr, Object owner, int gridHeight, int gridWidth,
+                               double proportionOfMines);
+
+    static native void checkInputCoordinates(long gamePtr, Object owner, int x, int y);
+
+    static native void markInputCoordinates(long gamePtr, Object owner, int x, int y);
+
+    static native void completeAroundInputCoordinates(long gamePtr, Object owner, int x, int y);
+
+    static native void applyActions(long gamePtr, Object owner, int[] actions);
+
+    static native boolean playerHasWon(long gamePtr, Object owner);
+
+    static native boolean playerHasLost(long gamePtr, Object owner);
+
+    static native int getNumOfCellsOpenedByLastAction(long gamePtr, Object owner);
+
+    static native int getNumOfRevealedSafeCells(long gamePtr, Object owner);
+
+    static native int getNumOfMarkedCells(long gamePtr, Object owner);
+
+    static native int getNumOfRemainingSafeCells(long gamePtr, Object owner);
+
+    static native int getNumOfTrippedMines(long gamePtr, Object owner);
+
+    static native boolean isCellVisible(long gamePtr, Object owner, int x, int y);
+
+    static native int getGridHeight(long gamePtr, Object owner);
+
+    static native int getGridWidth(long gamePtr, Object owner);
+
+    static native int getNumOfMines(long gamePtr, Object owner);
+
+    static native long getMemoryUsage(long gamePtr, Object owner);
+
+    static native long visualise(long gamePtr, Object owner);
+
+    static native long visualiseSolution(long gamePtr, Object owner);
+
+    static native void visualiseSolutionInto(long gamePtr, Object owner, long resultPtr,
+                                             Object result);
+
+    static native int[] visualiseChangesSince(long gamePtr, Object owner, int revision);
+
+    static native void getStatus(long gamePtr, Object owner, int[] status);
+
+    static native ByteBuffer getVisualStateBuffer(long gamePtr, Object owner);
+
+    static native String serialise(long gamePtr, Object owner);
+
+    static native boolean deserialise(long gamePtr, Object owner, String inStr);
+
+    static native ByteBuffer serialiseToBuffer(long gamePtr, Object owner);
+
+    static native boolean deserialiseFromDirectBuffer(long gamePtr, Object owner,
+                                                      ByteBuffer buffer, int offset, int length);
+
+    static native boolean deserialiseFromArray(long gamePtr, Object owner, byte[] array,
+                                               int offset, int length);
+
+    static native int maxNumOfMines(int gridHeight, int gridWidth);
+
+    static native double maxProportionOfMines(int gridHeight, int gridWidth);
+
+    static native int minNumOfMines();
+
+    static native double minProportionOfMines();
+
+    // 'GameSessionTable':
+
+    static native int newSession(int gridHeight, int gridWidth, int numOfMines);
+
+    static native boolean deleteSession(int sessionHandle);
+
+    static native long lockSession(int sessionHandle);
+
+    static native void unlockSession(long sessionPtr);
+
+    static native long getSessionGame(long sessionPtr);
+
+    static native int getNumOfSessions();
+}
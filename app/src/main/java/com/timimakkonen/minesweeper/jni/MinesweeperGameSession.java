@@ -0,0 +1,421 @@
+package com.timimakkonen.minesweeper.jni;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Native game living in the process wide session table of the native library (see
+ * 'game_session_table.h'), addressed by an integer handle.
+ * </p>
+ * <p>
+ * Unlike {@link AndroidMinesweeperGame}, sessions are meant to be created and thrown away in large
+ * numbers, for bots, tests and benchmarks running in parallel (see {@link
+ * com.timimakkonen.minesweeper.engine.ParallelGameRunner}), without touching the game of the UI.
+ * Each session has its own random number generator. This class is thread-safe: each call locks
+ * the session natively, so different sessions run in parallel, while calls on the same session
+ * are serialised.
+ * </p>
+ * <p>
+ * The session is destroyed by {@link #close()} or, if it is never called, by {@link
+ * NativeResourceCleaner} once this object has become unreachable. Using a closed session throws
+ * {@link IllegalStateException}.
+ * </p>
+ */
+public class MinesweeperGameSession implements MinesweeperGame {
+
+    private final int sessionHandle;
+    // non-owning proxy of the game of the session (only used while the session is locked)
+    private final AndroidMinesweeperGame game;
+    private final NativeResourceCleaner.Cleanable cleanable;
+
+    public MinesweeperGameSession() {
+        this(0, 0, 0);
+    }
+
+    public MinesweeperGameSession(int gridHeight, int gridWidth, int numOfMines) {
+        this.sessionHandle = MinesweeperGameJni.newSession(gridHeight, gridWidth, numOfMines);
+        if (sessionHandle < 0) {
+            throw new IllegalStateException("Trying to create too many game sessions.");
+        }
+        final long sessionPtr = MinesweeperGameJni.lockSession(sessionHandle);
+        try {
+            this.game = new AndroidMinesweeperGame(MinesweeperGameJni.getSessionGame(sessionPtr),
+                                                   false);
+        } finally {
+            MinesweeperGameJni.unlockSession(sessionPtr);
+        }
+        this.cleanable = NativeResourceCleaner.register(
+                this, sessionHandle, handle -> MinesweeperGameJni.deleteSession((int) handle));
+    }
+
+    /**
+     * @return Number of game sessions currently alive in the native session table.
+     */
+    public static int getNumOfSessions() {
+        return MinesweeperGameJni.getNumOfSessions();
+    }
+
+    public int getSessionHandle() {
+        return sessionHandle;
+    }
+
+    @Override
+    public void close() {
+        cleanable.clean();
+    }
+
+    private long lock() throws IllegalStateException {
+        final long sessionPtr = MinesweeperGameJni.lockSession(sessionHandle);
+        if (sessionPtr == 0) {
+            throw new IllegalStateException("Trying to use a closed game session.");
+        }
+        return sessionPtr;
+    }
+
+    private static void unlock(long sessionPtr) {
+        MinesweeperGameJni.unlockSession(sessionPtr);
+    }
+
+    // +---------------------+
+    // | reset and new game: |
+    // +---------------------+
+
+    @Override
+    public void reset(boolean keepCreatedMines) {
+        final long sessionPtr = lock();
+        try {
+            game.reset(keepCreatedMines);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, int numOfMines) {
+        final long sessionPtr = lock();
+        try {
+            game.newGame(gridHeight, gridWidth, numOfMines);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, double proportionOfMines) {
+        final long sessionPtr = lock();
+        try {
+            game.newGame(gridHeight, gridWidth, proportionOfMines);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    // +----------+
+    // | actions: |
+    // +----------+
+
+    @Override
+    public void checkInputCoordinates(int x, int y) {
+        final long sessionPtr = lock();
+        try {
+            game.checkInputCoordinates(x, y);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public void markInputCoordinates(int x, int y) {
+        final long sessionPtr = lock();
+        try {
+            game.markInputCoordinates(x, y);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public void completeAroundInputCoordinates(int x, int y) {
+        final long sessionPtr = lock();
+        try {
+            game.completeAroundInputCoordinates(x, y);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public void applyActions(int[] actions) {
+        final long sessionPtr = lock();
+        try {
+            game.applyActions(actions);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    // +---------------------------+
+    // | game and cell information: |
+    // +---------------------------+
+
+    @Override
+    public boolean playerHasWon() {
+        final long sessionPtr = lock();
+        try {
+            return game.playerHasWon();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public boolean playerHasLost() {
+        final long sessionPtr = lock();
+        try {
+            return game.playerHasLost();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public int getNumOfRevealedSafeCells() {
+        final long sessionPtr = lock();
+        try {
+            return game.getNumOfRevealedSafeCells();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public int getNumOfMarkedCells() {
+        final long sessionPtr = lock();
+        try {
+            return game.getNumOfMarkedCells();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public int getNumOfRemainingSafeCells() {
+        final long sessionPtr = lock();
+        try {
+            return game.getNumOfRemainingSafeCells();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public int getNumOfTrippedMines() {
+        final long sessionPtr = lock();
+        try {
+            return game.getNumOfTrippedMines();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public int getNumOfCellsOpenedByLastAction() {
+        final long sessionPtr = lock();
+        try {
+            return game.getNumOfCellsOpenedByLastAction();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public boolean isCellVisible(int x, int y) {
+        final long sessionPtr = lock();
+        try {
+            return game.isCellVisible(x, y);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public int getGridHeight() {
+        final long sessionPtr = lock();
+        try {
+            return game.getGridHeight();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public int getGridWidth() {
+        final long sessionPtr = lock();
+        try {
+            return game.getGridWidth();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public int getNumOfMines() {
+        final long sessionPtr = lock();
+        try {
+            return game.getNumOfMines();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public void getStatus(int[] status) {
+        final long sessionPtr = lock();
+        try {
+            game.getStatus(status);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    // +----------------+
+    // | visualisation: |
+    // +----------------+
+
+    @Override
+    public void visualiseInto(int[] result) {
+        final long sessionPtr = lock();
+        try {
+            game.visualiseInto(result);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public void visualiseSolutionInto(int[] result) {
+        final long sessionPtr = lock();
+        try {
+            game.visualiseSolutionInto(result);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public int[] visualiseChangesSince(int revision) {
+        final long sessionPtr = lock();
+        try {
+            return game.visualiseChangesSince(revision);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    /**
+     * @return Direct buffer over the native visual state of the session. It is only valid while
+     * the session is alive and its grid is not resized, and it is not read under the session lock.
+     */
+    @Override
+    public ByteBuffer getVisualStateBuffer() {
+        final long sessionPtr = lock();
+        try {
+            return game.getVisualStateBuffer();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    // +----------------+
+    // | save and load: |
+    // +----------------+
+
+    @Override
+    public String serialise() {
+        final long sessionPtr = lock();
+        try {
+            return game.serialise();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public boolean deserialise(String inStr) {
+        final long sessionPtr = lock();
+        try {
+            return game.deserialise(inStr);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    /**
+     * @return Direct buffer over native memory of the session. It is only valid until the next
+     * call of this method, and while the session is alive.
+     */
+    @Override
+    public ByteBuffer serialiseToBuffer() {
+        final long sessionPtr = lock();
+        try {
+            return game.serialiseToBuffer();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public boolean deserialiseFromBuffer(ByteBuffer buffer) {
+        final long sessionPtr = lock();
+        try {
+            return game.deserialiseFromBuffer(buffer);
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    // +--------------------+
+    // | memory accounting: |
+    // +--------------------+
+
+    @Override
+    public long getBoardMemoryUsage() {
+        final long sessionPtr = lock();
+        try {
+            return game.getBoardMemoryUsage();
+        } finally {
+            unlock(sessionPtr);
+        }
+    }
+
+    @Override
+    public long getPendingResultMemoryUsage() {
+        return game.getPendingResultMemoryUsage();
+    }
+
+    // +----------------------------+
+    // | limits of number of mines: |
+    // +----------------------------+
+
+    @Override
+    public int getMaxNumOfMines(int gridHeight, int gridWidth) {
+        return AndroidMinesweeperGame.maxNumOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public double getMaxProportionOfMines(int gridHeight, int gridWidth) {
+        return AndroidMinesweeperGame.maxProportionOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public int getMinNumOfMines() {
+        return AndroidMinesweeperGame.minNumOfMines();
+    }
+
+    @Override
+    public double getMinProportionOfMines() {
+        return AndroidMinesweeperGame.minProportionOfMines();
+    }
+}
@@ -0,0 +1,109 @@
+package com.timimakkonen.minesweeper.jni;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * This class frees native memory owned by Java proxy objects (such as {@link
+ * AndroidMinesweeperGame} and {@link vector_int}) without relying on 'finalize()'.
+ * </p>
+ * <p>
+ * Each owner registers its native pointer and deleter, and gets a {@link Cleanable} back. Calling
+ * {@link Cleanable#clean()} frees the memory straight away. If that never happens, the memory is
+ * freed on a background daemon thread once the owner has become phantom reachable. (This is what
+ * 'java.lang.ref.Cleaner' does, but that is only available from API level 33.)
+ * </p>
+ * <p>
+ * The number of live native allocations is counted, which makes leaks visible in debug builds.
+ * </p>
+ */
+public final class NativeResourceCleaner {
+
+    private static final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
+
+    // phantom references have to stay strongly reachable until they have been processed
+    private static final Set<Cleanable> liveCleanables =
+            Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private static final AtomicInteger numOfLiveNativeAllocations = new AtomicInteger(0);
+
+    static {
+        final Thread cleanerThread = new Thread(NativeResourceCleaner::processReferenceQueue,
+                                                "NativeResourceCleaner");
+        cleanerThread.setDaemon(true);
+        cleanerThread.start();
+    }
+
+    private NativeResourceCleaner() {}
+
+    /**
+     * Registers native memory owned by the given owner.
+     *
+     * @param owner   Java object owning the native memory. It must not be referenced by the
+     *                deleter.
+     * @param cPtr    Native pointer to be freed.
+     * @param deleter Function that frees the native pointer.
+     * @return Cleanable that can be used to free the native memory deterministically.
+     */
+    public static Cleanable register(Object owner, long cPtr, NativeDeleter deleter) {
+        final Cleanable cleanable = new Cleanable(owner, cPtr, deleter);
+        liveCleanables.add(cleanable);
+        numOfLiveNativeAllocations.incrementAndGet();
+        return cleanable;
+    }
+
+    /**
+     * @return Number of registered native allocations that have not been freed yet.
+     */
+    public static int getNumOfLiveNativeAllocations() {
+        return numOfLiveNativeAllocations.get();
+    }
+
+    private static void processReferenceQueue() {
+        //noinspection InfiniteLoopStatement
+        while (true) {
+            try {
+                ((Cleanable) referenceQueue.remove()).clean();
+            } catch (InterruptedException e) {
+                // keep processing, this thread lives as long as the application
+            }
+        }
+    }
+
+    public interface NativeDeleter {
+        void delete(long cPtr);
+    }
+
+    /**
+     * Handle to registered native memory. The memory is freed exactly once, either by an explicit
+     * {@link #clean()} or after its owner has been garbage collected.
+     */
+    public static final class Cleanable extends PhantomReference<Object> {
+
+        private final long cPtr;
+        private final NativeDeleter deleter;
+        private final AtomicBoolean cleaned;
+
+        private Cleanable(Object owner, long cPtr, NativeDeleter deleter) {
+            super(owner, referenceQueue);
+            this.cPtr = cPtr;
+            this.deleter = deleter;
+            this.cleaned = new AtomicBoolean(false);
+        }
+
+        public void clean() {
+            if (cleaned.compareAndSet(false, true)) {
+                liveCleanables.remove(this);
+                clear();
+                deleter.delete(cPtr);
+                numOfLiveNativeAllocations.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.timimakkonen.minesweeper.jni;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * This class keeps a small pool of reusable native {@link vector_int} result buffers, so that
+ * repeated visualisations do not allocate (and later free) a new native vector each time.
+ * </p>
+ * <p>
+ * Vectors are taken with {@link #acquire()} and given back with {@link #release(vector_int)}.
+ * Vectors that do not fit into the pool are freed straight away. This class is thread-safe.
+ * </p>
+ * <p>
+ * The pool also keeps account of the native memory of the vectors it owns (see {@link
+ * #getMemoryUsage()}).
+ * </p>
+ */
+public class VectorIntPool implements AutoCloseable {
+
+    private final int maxNumOfPooledVectors;
+    private final ArrayDeque<vector_int> pooledVectors;
+    // capacity of each vector owned by this pool (pooled or lent out), as of its last release
+    private final Map<vector_int, Long> knownCapacities;
+
+    public VectorIntPool(int maxNumOfPooledVectors) {
+        if (maxNumOfPooledVectors < 0) {
+            throw new IllegalArgumentException("Trying to create a pool with negative size.");
+        }
+        this.maxNumOfPooledVectors = maxNumOfPooledVectors;
+        this.pooledVectors = new ArrayDeque<>(maxNumOfPooledVectors);
+        // identity map, since 'vector_int' equality compares native contents
+        this.knownCapacities = new IdentityHashMap<>();
+    }
+
+    public synchronized vector_int acquire() {
+        final vector_int pooledVector = pooledVectors.pollFirst();
+        if (pooledVector != null) {
+            return pooledVector;
+        }
+        final vector_int newVector = new vector_int();
+        knownCapacities.put(newVector, 0L);
+        return newVector;
+    }
+
+    public synchronized void release(vector_int vector) {
+        if (pooledVectors.size() < maxNumOfPooledVectors) {
+            pooledVectors.addFirst(vector);
+            knownCapacities.put(vector, vector.capacity());
+        } else {
+            knownCapacities.remove(vector);
+            vector.close();
+        }
+    }
+
+    /**
+     * Lent out vectors are counted with their capacity as of when they were last released, since
+     * they may be resized by another thread at the same time.
+     *
+     * @return Number of bytes of native memory held by the vectors owned by this pool.
+     */
+    public synchronized long getMemoryUsage() {
+        long numOfElements = 0;
+        for (long capacity : knownCapacities.values()) {
+            numOfElements += capacity;
+        }
+        return numOfElements * Integer.BYTES;
+    }
+
+    /**
+     * Frees all the pooled vectors.
+     */
+    @Override
+    public synchronized void close() {
+        for (vector_int pooledVector : pooledVectors) {
+            knownCapacities.remove(pooledVector);
+            pooledVector.close();
+        }
+        pooledVectors.clear();
+    }
+}
@@ -1,144 +1,144 @@
-/* ----------------------------------------------------------------------------
- * This file was automatically generated by SWIG (http://www.swig.org).
- * Version 4.0.1
- *
- * Do not make changes to this file unless you know what you are doing--modify
- * the SWIG interface file instead.
- * ----------------------------------------------------------------------------- */
-
 package com.timimakkonen.minesweeper.jni;
 
-public class vector_int extends java.util.AbstractList<Integer> implements java.util.RandomAccess {
-  private transient long swigCPtr;
-  protected transient boolean swigCMemOwn;
-
-  protected vector_int(long cPtr, boolean cMemoryOwn) {
-    swigCMemOwn = cMemoryOwn;
-    swigCPtr = cPtr;
-  }
-
-  protected static long getCPtr(vector_int obj) {
-    return (obj == null) ? 0 : obj.swigCPtr;
-  }
-
-  @SuppressWarnings("deprecation")
-  protected void finalize() {
-    delete();
-  }
-
-  public synchronized void delete() {
-    if (swigCPtr != 0) {
-      if (swigCMemOwn) {
-        swigCMemOwn = false;
-        minesweeper_gameJNI.delete_vector_int(swigCPtr);
-      }
-      swigCPtr = 0;
-    }
-  }
-
-  public vector_int(int[] initialElements) {
-    this();
-    reserve(initialElements.length);
-
-    for (int element : initialElements) {
-      add(element);
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * Java proxy of a native 'std::vector&lt;int&gt;', viewed as a {@link java.util.List}.
+ * </p>
+ * <p>
+ * Native memory is freed by {@link #close()}/{@link #delete()} or, if neither is called, by {@link
+ * NativeResourceCleaner} once this proxy has become unreachable.
+ * </p>
+ */
+public class vector_int extends AbstractList<Integer> implements RandomAccess, AutoCloseable {
+
+    private long nativePtr;
+    private boolean ownsNativeMemory;
+    private NativeResourceCleaner.Cleanable cleanable;
+
+    vector_int(long nativePtr, boolean ownsNativeMemory) {
+        this.nativePtr = nativePtr;
+        this.ownsNativeMemory = ownsNativeMemory;
+        if (ownsNativeMemory) {
+            this.cleanable = NativeResourceCleaner.register(this, nativePtr,
+                                                            MinesweeperGameJni::deleteVector);
+        }
     }
-  }
 
-  public vector_int(Iterable<Integer> initialElements) {
-    this();
-    for (int element : initialElements) {
-      add(element);
+    public vector_int() {
+        this(MinesweeperGameJni.newVector(), true);
     }
-  }
 
-  public Integer get(int index) {
-    return doGet(index);
-  }
+    public vector_int(vector_int other) {
+        this(MinesweeperGameJni.newVectorCopy(getNativePtr(other), other), true);
+    }
 
-  public Integer set(int index, Integer e) {
-    return doSet(index, e);
-  }
+    public vector_int(int count, int value) {
+        this(MinesweeperGameJni.newVectorFilled(count, value), true);
+    }
 
-  public boolean add(Integer e) {
-    modCount++;
-    doAdd(e);
-    return true;
-  }
+    public vector_int(int[] initialElements) {
+        this();
+        reserve(initialElements.length);
 
-  public void add(int index, Integer e) {
-    modCount++;
-    doAdd(index, e);
-  }
+        for (int element : initialElements) {
+            add(element);
+        }
+    }
 
-  public Integer remove(int index) {
-    modCount++;
-    return doRemove(index);
-  }
+    public vector_int(Iterable<Integer> initialElements) {
+        this();
+        for (int element : initialElements) {
+            add(element);
+        }
+    }
 
-  protected void removeRange(int fromIndex, int toIndex) {
-    modCount++;
-    doRemoveRange(fromIndex, toIndex);
-  }
+    static long getNativePtr(vector_int vector) {
+        return (vector == null) ? 0 : vector.nativePtr;
+    }
 
-  public int size() {
-    return doSize();
-  }
+    @Override
+    public void close() {
+        delete();
+    }
 
-  public vector_int() {
-    this(minesweeper_gameJNI.new_vector_int__SWIG_0(), true);
-  }
+    public synchronized void delete() {
+        if (nativePtr != 0) {
+            if (ownsNativeMemory) {
+                ownsNativeMemory = false;
+                cleanable.clean();
+            }
+            nativePtr = 0;
+        }
+    }
 
-  public vector_int(vector_int other) {
-    this(minesweeper_gameJNI.new_vector_int__SWIG_1(vector_int.getCPtr(other), other), true);
-  }
+    @Override
+    public Integer get(int index) {
+        return MinesweeperGameJni.vectorGet(nativePtr, this, index);
+    }
 
-  public long capacity() {
-    return minesweeper_gameJNI.vector_int_capacity(swigCPtr, this);
-  }
+    @Override
+    public Integer set(int index, Integer e) {
+        return MinesweeperGameJni.vectorSet(nativePtr, this, index, e);
+    }
 
-  public void reserve(long n) {
-    minesweeper_gameJNI.vector_int_reserve(swigCPtr, this, n);
-  }
+    @Override
+    public boolean add(Integer e) {
+        modCount++;
+        MinesweeperGameJni.vectorAdd(nativePtr, this, e);
+        return true;
+    }
 
-  public boolean isEmpty() {
-    return minesweeper_gameJNI.vector_int_isEmpty(swigCPtr, this);
-  }
+    @Override
+    public void add(int index, Integer e) {
+        modCount++;
+        MinesweeperGameJni.vectorInsert(nativePtr, this, index, e);
+    }
 
-  public void clear() {
-    minesweeper_gameJNI.vector_int_clear(swigCPtr, this);
-  }
-
-  public vector_int(int count, int value) {
-    this(minesweeper_gameJNI.new_vector_int__SWIG_2(count, value), true);
-  }
-
-  private int doSize() {
-    return minesweeper_gameJNI.vector_int_doSize(swigCPtr, this);
-  }
+    @Override
+    public Integer remove(int index) {
+        modCount++;
+        return MinesweeperGameJni.vectorRemove(nativePtr, this, index);
+    }
 
-  private void doAdd(int x) {
-    minesweeper_gameJNI.vector_int_doAdd__SWIG_0(swigCPtr, this, x);
-  }
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        MinesweeperGameJni.vectorRemoveRange(nativePtr, this, fromIndex, toIndex);
+    }
 
-  private void doAdd(int index, int x) {
-    minesweeper_gameJNI.vector_int_doAdd__SWIG_1(swigCPtr, this, index, x);
-  }
+    @Override
+    public int size() {
+        return MinesweeperGameJni.vectorSize(nativePtr, this);
+    }
 
-  private int doRemove(int index) {
-    return minesweeper_gameJNI.vector_int_doRemove(swigCPtr, this, index);
-  }
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
 
-  private int doGet(int index) {
-    return minesweeper_gameJNI.vector_int_doGet(swigCPtr, this, index);
-  }
+    @Override
+    public void clear() {
+        modCount++;
+        MinesweeperGameJni.vectorClear(nativePtr, this);
+    }
 
-  private int doSet(int index, int val) {
-    return minesweeper_gameJNI.vector_int_doSet(swigCPtr, this, index, val);
-  }
+    public long capacity() {
+        return MinesweeperGameJni.vectorCapacity(nativePtr, this);
+    }
 
-  private void doRemoveRange(int fromIndex, int toIndex) {
-    minesweeper_gameJNI.vector_int_doRemoveRange(swigCPtr, this, fromIndex, toIndex);
-  }
+    public void reserve(long n) {
+        MinesweeperGameJni.vectorReserve(nativePtr, this, n);
+    }
 
+    /**
+     * Copies all the elements into the beginning of the given array with one native call.
+     *
+     * @param target Array with room for at least {@link #size()} elements.
+     */
+    public void copyTo(int[] target) {
+        MinesweeperGameJni.vectorCopyTo(nativePtr, this, target);
+    }
 }
@@ -0,0 +1,238 @@
+package com.timimakkonen.minesweeper.replay;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGameHistory;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * This class re-runs a replay log written by {@link ReplayLogWriter} through a {@link
+ * MinesweeperGame}, such as {@link com.timimakkonen.minesweeper.jni.AndroidMinesweeperGame}, at
+ * any speed.
+ * </p>
+ * <p>
+ * Mines come from the binary saves in the log, so the game must be of the same engine as the
+ * one recorded. Undo and redo are replayed through a {@link MinesweeperGameHistory} of the game,
+ * recording the actions just like 'MinesweeperRepository' does (a batch as one step), so the
+ * replayed game ends up in the very state the recorded one was in. Replaying with {@link
+ * #AS_FAST_AS_POSSIBLE} and comparing the final states verifies the log (or an engine).
+ * </p>
+ * <p>
+ * This class is not thread-safe, and the game must not be used elsewhere during a replay.
+ * </p>
+ */
+public final class ReplayEngine {
+
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final MinesweeperGame game;
+    private final MinesweeperGameHistory history;
+    // reused for every action replayed outside a batch
+    private final int[] action = new int[MinesweeperGame.ACTION_SIZE];
+    // actions of the batch being replayed, reused while batches are of the same size
+    private int[] batch = new int[0];
+
+    private int numOfRecords = 0;
+    private long durationMillis = 0;
+
+    public ReplayEngine(MinesweeperGame game) {
+        this.game = game;
+        this.history = new MinesweeperGameHistory(game);
+    }
+
+    /**
+     * Replays the log between the position and the limit of the given buffer, without moving its
+     * position.
+     *
+     * @param speed    Speed relative to the recorded one (2.0 replays twice as fast), or {@link
+     *                 #AS_FAST_AS_POSSIBLE} to replay without waiting between records.
+     * @param listener Listener called after each record has been replayed, or null.
+     * @return True if the whole log was replayed. False if it is malformed (such as cut short by
+     * a crash) or a save in it could not be loaded, in which case the game is left as it was
+     * after the last record replayed.
+     * @throws InterruptedException if interrupted while waiting between records.
+     */
+    public boolean replay(ByteBuffer log, double speed, Listener listener)
+            throws InterruptedException {
+        if (!(speed > 0.0)) {
+            throw new IllegalArgumentException("Trying to replay with a non-positive speed.");
+        }
+        numOfRecords = 0;
+        durationMillis = 0;
+        final ByteBuffer input = log.duplicate();
+        try {
+            if (input.getInt() != ReplayLogFormat.MAGIC) {
+                return false;
+            }
+            // (logs of older versions are a subset of the current format)
+            final byte version = input.get();
+            if (version < 1 || version > ReplayLogFormat.VERSION) {
+                return false;
+            }
+            final long startTime = System.nanoTime();
+            int x = 0;
+            int y = 0;
+            // number of ints of the current batch still to be read, if inside a batch
+            int numOfMissingBatchInts = 0;
+            while (input.hasRemaining()) {
+                final long recordHeader = ReplayLogFormat.getVarLong(input);
+                final int recordType = (int) (recordHeader & ReplayLogFormat.TYPE_MASK);
+                durationMillis += recordHeader >>> ReplayLogFormat.TYPE_BITS;
+                if ((numOfRecords == 0) != (recordType == ReplayLogFormat.NEW_GAME_RECORD ||
+                                            recordType == ReplayLogFormat.SNAPSHOT_RECORD)) {
+                    // (a log starts with a new game or a snapshot, and only with one)
+                    return false;
+                }
+                if (numOfMissingBatchInts > 0 &&
+                    recordType > MinesweeperGame.COMPLETE_AROUND_ACTION) {
+                    // (a batch holds nothing but actions)
+                    return false;
+                }
+                if (speed != AS_FAST_AS_POSSIBLE) {
+                    waitUntil(startTime + (long) (durationMillis * NANOS_PER_MILLI / speed));
+                }
+
+                switch (recordType) {
+                    case MinesweeperGame.CHECK_ACTION:
+                    case MinesweeperGame.MARK_ACTION:
+                    case MinesweeperGame.COMPLETE_AROUND_ACTION:
+                        x += ReplayLogFormat.getZigZag(input);
+                        y += ReplayLogFormat.getZigZag(input);
+                        if (numOfMissingBatchInts > 0) {
+                            int i = batch.length - numOfMissingBatchInts;
+                            batch[i++] = recordType;
+                            batch[i++] = x;
+                            batch[i] = y;
+                            numOfMissingBatchInts -= MinesweeperGame.ACTION_SIZE;
+                            if (numOfMissingBatchInts == 0) {
+                                game.applyActions(batch);
+                                history.record(batch);
+                            }
+                            break;
+                        }
+                        action[0] = recordType;
+                        action[1] = x;
+                        action[2] = y;
+                        game.applyActions(action);
+                        history.record(action);
+                        break;
+                    case ReplayLogFormat.BATCH_RECORD:
+                        final int numOfActions = ReplayLogFormat.getVarInt(input);
+                        // (each action record takes at least 3 bytes)
+                        if (numOfActions < 2 || numOfActions > input.remaining() / 3) {
+                            return false;
+                        }
+                        if (batch.length != numOfActions * MinesweeperGame.ACTION_SIZE) {
+                            batch = new int[numOfActions * MinesweeperGame.ACTION_SIZE];
+                        }
+                        numOfMissingBatchInts = batch.length;
+                        break;
+                    case ReplayLogFormat.UNDO_RECORD:
+                        if (history.canUndo() && history.undo() == null) {
+                            return false;
+                        }
+                        break;
+                    case ReplayLogFormat.REDO_RECORD:
+                        if (history.canRedo() && history.redo() == null) {
+                            return false;
+                        }
+                        break;
+                    case ReplayLogFormat.RESET_RECORD:
+                        game.reset(ReplayLogFormat.getVarInt(input) != 0);
+                        history.clear();
+                        break;
+                    case ReplayLogFormat.LAYOUT_RECORD:
+                        if (!game.deserialiseFromBuffer(getBytes(input))) {
+                            return false;
+                        }
+                        game.reset(true);
+                        history.clear();
+                        break;
+                    case ReplayLogFormat.NEW_GAME_RECORD:
+                        final int gridHeight = ReplayLogFormat.getVarInt(input);
+                        final int gridWidth = ReplayLogFormat.getVarInt(input);
+                        game.newGame(gridHeight, gridWidth, ReplayLogFormat.getVarInt(input));
+                        history.clear();
+                        break;
+                    case ReplayLogFormat.SNAPSHOT_RECORD:
+                        if (!game.deserialiseFromBuffer(getBytes(input))) {
+                            return false;
+                        }
+                        final ByteBuffer historySave = getBytes(input);
+                        if (!historySave.hasRemaining()) {
+                            history.clear();
+                        } else if (!history.deserialiseFromBuffer(historySave)) {
+                            return false;
+                        }
+                        break;
+                    default:
+                        return false;
+                }
+                numOfRecords++;
+                if (listener != null) {
+                    listener.onRecordReplayed(recordType, durationMillis);
+                }
+            }
+            // (a log cut short inside a batch is malformed)
+            return numOfRecords > 0 && numOfMissingBatchInts == 0;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Number of records replayed by the last replay.
+     */
+    public int getNumOfRecords() {
+        return numOfRecords;
+    }
+
+    /**
+     * @return Recorded time from the start of the log to the last record replayed, in
+     * milliseconds.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return History of the replayed game, in the state the recorded history was in.
+     */
+    public MinesweeperGameHistory getHistory() {
+        return history;
+    }
+
+    // slice of the next 'varint length' bytes of the input
+    private static ByteBuffer getBytes(ByteBuffer input) {
+        final int length = ReplayLogFormat.getVarInt(input);
+        if (length > input.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final ByteBuffer bytes = input.slice();
+        bytes.limit(length);
+        input.position(input.position() + length);
+        return bytes;
+    }
+
+    private static void waitUntil(long time) throws InterruptedException {
+        final long remainingNanos = time - System.nanoTime();
+        if (remainingNanos > 0) {
+            Thread.sleep(remainingNanos / NANOS_PER_MILLI,
+                         (int) (remainingNanos % NANOS_PER_MILLI));
+        }
+    }
+
+    public interface Listener {
+
+        /**
+         * @param recordType     Action type of {@link MinesweeperGame} for actions, or another
+         *                       record type of {@link ReplayLogFormat}.
+         * @param durationMillis Recorded time from the start of the log to this record.
+         */
+        void onRecordReplayed(int recordType, long durationMillis);
+    }
+}
@@ -0,0 +1,105 @@
+package com.timimakkonen.minesweeper.replay;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Constants and varint helpers of the replay log format, shared by {@link ReplayLogWriter} and
+ * {@link ReplayEngine}.
+ * </p>
+ * <p>
+ * A log starts with 'MAGIC' and 'VERSION', followed by records. Each record starts with a varint
+ * holding the milliseconds since the previous record shifted left by 'TYPE_BITS', with the record
+ * type in the low bits. The first record is either a 'NEW_GAME_RECORD' (varint grid height, grid
+ * width and number of mines) or a 'SNAPSHOT_RECORD' (a binary save of the game and one of its
+ * undo history, each as a varint length followed by the bytes). Action records (whose types are
+ * the action types of {@link MinesweeperGame}) are followed by the zigzag varint differences of x
+ * and y from the previous action, which are small for the local taps of a usual game.
+ * </p>
+ * <p>
+ * A 'LAYOUT_RECORD' (a binary save as above) comes before the check that created the mines, and
+ * holds the game after that check. It is replayed by loading the save and hiding all the cells
+ * with 'reset(true)', so the check itself is then replayed on the recorded mines.
+ * </p>
+ * <p>
+ * A 'BATCH_RECORD' (a varint count of at least two) groups the action records following it into
+ * one batch, which is applied with one call and undone as one step, as it was recorded. Logs of
+ * 'VERSION' 1 have no batches.
+ * </p>
+ */
+public final class ReplayLogFormat {
+
+    // 'MSRL'
+    static final int MAGIC = 0x4D53524C;
+    static final byte VERSION = 2;
+
+    static final int TYPE_BITS = 4;
+    static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+    // (action records use 'CHECK_ACTION', 'MARK_ACTION' and 'COMPLETE_AROUND_ACTION')
+    public static final int UNDO_RECORD = 3;
+    public static final int REDO_RECORD = 4;
+    public static final int RESET_RECORD = 5;
+    public static final int LAYOUT_RECORD = 6;
+    public static final int NEW_GAME_RECORD = 7;
+    public static final int SNAPSHOT_RECORD = 8;
+    public static final int BATCH_RECORD = 9;
+
+    // largest record without a save: a 10 byte varint and two 5 byte varints (or three for a new
+    // game)
+    static final int MAX_FIXED_RECORD_SIZE = 10 + 3 * 5;
+
+    private ReplayLogFormat() {
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void putVarInt(ByteBuffer buffer, int value) {
+        putVarLong(buffer, value & 0xFFFFFFFFL);
+    }
+
+    static void putZigZag(ByteBuffer buffer, int value) {
+        putVarInt(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the varint is longer than a long.
+     * @throws BufferUnderflowException if the buffer ends inside the varint.
+     */
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Trying to read a malformed varint.");
+    }
+
+    /**
+     * @throws IllegalArgumentException if the varint does not fit into an int.
+     */
+    static int getVarInt(ByteBuffer buffer) {
+        final long value = getVarLong(buffer);
+        if ((value & ~0xFFFFFFFFL) != 0) {
+            throw new IllegalArgumentException("Trying to read a malformed varint.");
+        }
+        return (int) value;
+    }
+
+    static int getZigZag(ByteBuffer buffer) {
+        final int value = getVarInt(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
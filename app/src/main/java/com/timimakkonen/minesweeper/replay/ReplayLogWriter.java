@@ -0,0 +1,265 @@
+package com.timimakkonen.minesweeper.replay;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>
+ * This class writes the events of a game session into an append-only binary replay log (see
+ * {@link ReplayLogFormat}), which {@link ReplayEngine} can re-run.
+ * </p>
+ * <p>
+ * Records are encoded into a direct buffer, which is written into the channel whenever it gets
+ * full and on {@link #flush()}, so recording an action allocates nothing and usually makes no
+ * system call. A 1000-move game takes a few kilobytes, most records being 3 or 4 bytes long.
+ * </p>
+ * <p>
+ * Like 'PrintWriter', this class never throws on I/O errors: the first error closes the log and
+ * is remembered (see {@link #checkError()}), and later records are dropped, so a failing log
+ * never gets in the way of the game. Records are also dropped while no log is open. The
+ * timestamps given must come from a monotonic clock. This class is not thread-safe.
+ * </p>
+ */
+public final class ReplayLogWriter {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private WritableByteChannel channel;
+    private IOException error;
+
+    private long previousTimeMillis;
+    private int previousX;
+    private int previousY;
+
+    /**
+     * Closes the current log (if any), and starts a new one into the given channel with a new
+     * game, whose mines are created by its first check.
+     */
+    public void startNewGame(WritableByteChannel newChannel, int gridHeight, int gridWidth,
+                             int numOfMines, long timeMillis) {
+        if (!open(newChannel, timeMillis)) {
+            return;
+        }
+        putRecordHeader(ReplayLogFormat.NEW_GAME_RECORD, timeMillis);
+        ReplayLogFormat.putVarInt(buffer, gridHeight);
+        ReplayLogFormat.putVarInt(buffer, gridWidth);
+        ReplayLogFormat.putVarInt(buffer, numOfMines);
+    }
+
+    /**
+     * Closes the current log (if any), and starts a new one into the given channel with a game
+     * loaded from a save.
+     *
+     * @param gameSave    Binary save of the game (see {@link MinesweeperGame#serialiseToBuffer()}).
+     * @param historySave Binary save of its undo history (see {@link
+     *                    com.timimakkonen.minesweeper.engine.MinesweeperGameHistory}).
+     */
+    public void startFromSnapshot(WritableByteChannel newChannel, ByteBuffer gameSave,
+                                  ByteBuffer historySave, long timeMillis) {
+        if (!open(newChannel, timeMillis)) {
+            return;
+        }
+        putRecordHeader(ReplayLogFormat.SNAPSHOT_RECORD, timeMillis);
+        putBytes(gameSave);
+        putBytes(historySave);
+    }
+
+    /**
+     * @param actionType 'CHECK_ACTION', 'MARK_ACTION' or 'COMPLETE_AROUND_ACTION' of {@link
+     *                   MinesweeperGame}.
+     */
+    public void writeAction(int actionType, int x, int y, long timeMillis) {
+        if (actionType < MinesweeperGame.CHECK_ACTION ||
+            actionType > MinesweeperGame.COMPLETE_AROUND_ACTION) {
+            throw new IllegalArgumentException("Trying to log an unknown action type.");
+        }
+        if (!isOpen()) {
+            return;
+        }
+        putRecordHeader(actionType, timeMillis);
+        ReplayLogFormat.putZigZag(buffer, x - previousX);
+        ReplayLogFormat.putZigZag(buffer, y - previousY);
+        previousX = x;
+        previousY = y;
+    }
+
+    /**
+     * Logs a batch of actions applied with one call (see {@link
+     * MinesweeperGame#applyActions(int[])}), so that it is replayed and undone as one step. A
+     * single action is logged as by {@link #writeAction(int, int, int, long)}.
+     *
+     * @param actions Actions packed as [actionType, x, y] triples.
+     */
+    public void writeActions(int[] actions, long timeMillis) {
+        if (actions.length % MinesweeperGame.ACTION_SIZE != 0) {
+            throw new IllegalArgumentException("Trying to log a malformed batch of actions.");
+        }
+        for (int i = 0; i < actions.length; i += MinesweeperGame.ACTION_SIZE) {
+            // (checked before anything is written, so a batch is never left unfinished)
+            if (actions[i] < MinesweeperGame.CHECK_ACTION ||
+                actions[i] > MinesweeperGame.COMPLETE_AROUND_ACTION) {
+                throw new IllegalArgumentException("Trying to log an unknown action type.");
+            }
+        }
+        final int numOfActions = actions.length / MinesweeperGame.ACTION_SIZE;
+        if (numOfActions > 1 && isOpen()) {
+            putRecordHeader(ReplayLogFormat.BATCH_RECORD, timeMillis);
+            ReplayLogFormat.putVarInt(buffer, numOfActions);
+        }
+        for (int i = 0; i < actions.length; i += MinesweeperGame.ACTION_SIZE) {
+            writeAction(actions[i], actions[i + 1], actions[i + 2], timeMillis);
+        }
+    }
+
+    public void writeUndo(long timeMillis) {
+        if (isOpen()) {
+            putRecordHeader(ReplayLogFormat.UNDO_RECORD, timeMillis);
+        }
+    }
+
+    public void writeRedo(long timeMillis) {
+        if (isOpen()) {
+            putRecordHeader(ReplayLogFormat.REDO_RECORD, timeMillis);
+        }
+    }
+
+    public void writeReset(boolean keepCreatedMines, long timeMillis) {
+        if (isOpen()) {
+            putRecordHeader(ReplayLogFormat.RESET_RECORD, timeMillis);
+            ReplayLogFormat.putVarInt(buffer, keepCreatedMines ? 1 : 0);
+        }
+    }
+
+    /**
+     * Logs the mines just created by a check, before the record (or the batch) of that check.
+     *
+     * @param gameSave Binary save of the game right after the check.
+     */
+    public void writeLayout(ByteBuffer gameSave, long timeMillis) {
+        if (isOpen()) {
+            putRecordHeader(ReplayLogFormat.LAYOUT_RECORD, timeMillis);
+            putBytes(gameSave);
+        }
+    }
+
+    /**
+     * Writes the buffered records into the channel.
+     */
+    public void flush() {
+        if (!isOpen()) {
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes and closes the current log, if any.
+     */
+    public void close() {
+        if (!isOpen()) {
+            return;
+        }
+        flush();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                error = e;
+            }
+            channel = null;
+        }
+    }
+
+    public boolean isOpen() {
+        return channel != null;
+    }
+
+    /**
+     * @return Error that closed the current log, or null if there has been none. Cleared when a
+     * new log is started.
+     */
+    public IOException checkError() {
+        return error;
+    }
+
+    private boolean open(WritableByteChannel newChannel, long timeMillis) {
+        close();
+        error = null;
+        if (newChannel == null) {
+            return false;
+        }
+        channel = newChannel;
+        buffer.clear();
+        previousTimeMillis = timeMillis;
+        previousX = 0;
+        previousY = 0;
+        buffer.putInt(ReplayLogFormat.MAGIC);
+        buffer.put(ReplayLogFormat.VERSION);
+        return true;
+    }
+
+    private void putRecordHeader(int recordType, long timeMillis) {
+        if (buffer.remaining() < ReplayLogFormat.MAX_FIXED_RECORD_SIZE) {
+            flush();
+        }
+        final long elapsedMillis = Math.max(0, timeMillis - previousTimeMillis);
+        previousTimeMillis = Math.max(previousTimeMillis, timeMillis);
+        ReplayLogFormat.putVarLong(buffer, (elapsedMillis << ReplayLogFormat.TYPE_BITS) |
+                                           recordType);
+    }
+
+    // writes a varint length and the bytes between the position and the limit of the given buffer
+    private void putBytes(ByteBuffer bytes) {
+        final int length = (bytes != null) ? bytes.remaining() : 0;
+        // (room for the longest varint length)
+        if (buffer.remaining() < 5) {
+            flush();
+            if (!isOpen()) {
+                return;
+            }
+        }
+        ReplayLogFormat.putVarInt(buffer, length);
+        if (length <= buffer.remaining()) {
+            if (length > 0) {
+                buffer.put(bytes.duplicate());
+            }
+            return;
+        }
+        // (too large to buffer, so written straight into the channel)
+        flush();
+        if (!isOpen()) {
+            return;
+        }
+        final ByteBuffer remainingBytes = bytes.duplicate();
+        try {
+            while (remainingBytes.hasRemaining()) {
+                channel.write(remainingBytes);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        error = e;
+        try {
+            channel.close();
+        } catch (IOException closeError) {
+            // (the first error is kept)
+        }
+        channel = null;
+    }
+}
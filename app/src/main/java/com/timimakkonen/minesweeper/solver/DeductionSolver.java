@@ -0,0 +1,516 @@
+package com.timimakkonen.minesweeper.solver;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * This class deduces which hidden cells of a minesweeper grid are certainly safe and which are
+ * certainly mines, from the visual state of the grid alone (visual values as returned by {@link
+ * com.timimakkonen.minesweeper.engine.MinesweeperGame#visualiseChangesSince(int)}).
+ * </p>
+ * <p>
+ * Every revealed number is a constraint: its unknown neighbours (hidden cells not deduced yet)
+ * hold exactly its number minus its known mines. Constraints with unknown neighbours form the
+ * frontier. Two rules are applied to them:
+ * </p>
+ * <ul>
+ *     <li>single-point: if a constraint needs no more mines, all its unknown neighbours are safe,
+ *     and if it needs a mine in each of them, they are all mines</li>
+ *     <li>subset/superset: if the unknown neighbours of one constraint are a subset of those of
+ *     another, the cells only in the larger one hold the difference of their mines, and the
+ *     single-point rule is applied to them</li>
+ * </ul>
+ * <p>
+ * The solver is incremental. Constraints are kept per cell and refreshed only around cells that
+ * change (by an update or by a deduction), and only refreshed constraints are queued to be
+ * examined again. Two constraints can only share an unknown cell if they are at most two cells
+ * apart, so the subset rule only looks at the 24 cells around a constraint. An update costs time
+ * in proportion to the cells it changes and the deductions they lead to, not to the size of the
+ * grid.
+ * </p>
+ * <p>
+ * Marks are not trusted: a marked cell is a hidden cell like any other (so a wrong mark can be
+ * hinted as safe). Visible (tripped) mines count as mines. Deductions are never undone
+ * incrementally, so hiding revealed cells (a reset) rebuilds the constraints from scratch.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public final class DeductionSolver {
+
+    private static final int UNCHECKED_STATE = -1;
+    private static final int MAX_NUMBER_STATE = 8;
+    private static final int MINE_STATE = 9;
+    private static final int MARKED_STATE = 10;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte SAFE = 1;
+    private static final byte MINE = 2;
+
+    // neighbours in increasing cell index order
+    private static final int NUM_OF_NEIGHBOURS = 8;
+    private static final int[] NEIGHBOUR_DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final int[] NEIGHBOUR_DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+    // constraints further apart than this can not share an unknown cell
+    private static final int MAX_SHARING_DISTANCE = 2;
+
+    private static final int INITIAL_WORK_QUEUE_CAPACITY = 64;
+
+    private int gridHeight = 0;
+    private int gridWidth = 0;
+    private byte[] cellStates = new byte[0];
+    // deduced knowledge of hidden cells (UNKNOWN for revealed cells)
+    private byte[] knowledge = new byte[0];
+
+    // constraint of each revealed number: a bit per unknown neighbour (in 'NEIGHBOUR_DX/DY' order)
+    // and the number of mines still to be found among them
+    private byte[] unknownNeighbours = new byte[0];
+    private byte[] numOfUnknownMines = new byte[0];
+    private int numOfFrontierConstraints = 0;
+
+    private final CellSet knownSafeCells = new CellSet();
+    private final CellSet knownMines = new CellSet();
+
+    // constraints waiting to be examined (a stack, since the order does not matter)
+    private int[] workQueue = new int[INITIAL_WORK_QUEUE_CAPACITY];
+    private int workQueueSize = 0;
+    private boolean[] isQueued = new boolean[0];
+
+    // unknown neighbours of the examined constraint and of the one compared to it
+    private final int[] variables = new int[NUM_OF_NEIGHBOURS];
+    private final int[] otherVariables = new int[NUM_OF_NEIGHBOURS];
+
+    private static boolean isNumberState(int state) {
+        return state >= 0 && state <= MAX_NUMBER_STATE;
+    }
+
+    private static boolean isHiddenState(int state) {
+        return state == UNCHECKED_STATE || state == MARKED_STATE;
+    }
+
+    /**
+     * Forgets everything known and solves the given grid from scratch.
+     *
+     * @param states Visual value of each cell, row by row.
+     * @throws IllegalArgumentException if the number of states does not match the dimensions.
+     */
+    public void reset(int gridHeight, int gridWidth, int[] states)
+            throws IllegalArgumentException {
+        if (gridHeight < 0 || gridWidth < 0 || (long) gridHeight * gridWidth != states.length) {
+            throw new IllegalArgumentException("Trying to solve a grid of invalid dimensions.");
+        }
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        final int numOfCells = states.length;
+        if (cellStates.length != numOfCells) {
+            cellStates = new byte[numOfCells];
+            knowledge = new byte[numOfCells];
+            unknownNeighbours = new byte[numOfCells];
+            numOfUnknownMines = new byte[numOfCells];
+            isQueued = new boolean[numOfCells];
+        }
+        for (int i = 0; i < numOfCells; i++) {
+            cellStates[i] = (byte) states[i];
+        }
+        rebuild();
+    }
+
+    /**
+     * Applies the given changes and deduces what follows from them.
+     *
+     * @param changedCellIndices Indices (row by row) of the cells changed since the last update or
+     *                           reset.
+     * @param newStates          New visual value of each changed cell.
+     * @throws IllegalArgumentException if a change is outside the grid.
+     */
+    public void update(int[] changedCellIndices, int[] newStates)
+            throws IllegalArgumentException {
+        if (changedCellIndices.length != newStates.length) {
+            throw new IllegalArgumentException("Trying to update cells without their states.");
+        }
+        boolean revealedCellsWereHidden = false;
+        for (int k = 0; k < changedCellIndices.length; k++) {
+            final int cellIndex = changedCellIndices[k];
+            if (cellIndex < 0 || cellIndex >= cellStates.length) {
+                throw new IllegalArgumentException("Trying to update a cell outside the grid.");
+            }
+            if (!isHiddenState(cellStates[cellIndex]) && isHiddenState(newStates[k])) {
+                revealedCellsWereHidden = true;
+            }
+            cellStates[cellIndex] = (byte) newStates[k];
+        }
+        if (revealedCellsWereHidden) {
+            rebuild();
+            return;
+        }
+
+        for (int cellIndex : changedCellIndices) {
+            // marking or unmarking a hidden cell changes nothing
+            if (!isHiddenState(cellStates[cellIndex])) {
+                // (a revealed cell is no longer a hint)
+                setKnowledge(cellIndex, UNKNOWN);
+                refreshConstraint(cellIndex);
+                refreshConstraintsAround(cellIndex);
+            }
+        }
+        solve();
+    }
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public boolean isKnownSafe(int cellIndex) {
+        return knowledge[cellIndex] == SAFE;
+    }
+
+    public boolean isKnownMine(int cellIndex) {
+        return knowledge[cellIndex] == MINE;
+    }
+
+    public int getNumOfKnownSafeCells() {
+        return knownSafeCells.size;
+    }
+
+    public int getNumOfKnownMines() {
+        return knownMines.size;
+    }
+
+    /**
+     * @return Indices of the hidden cells known to be safe, in increasing order.
+     */
+    public int[] getKnownSafeCells() {
+        return knownSafeCells.toSortedArray();
+    }
+
+    /**
+     * @return Indices of the hidden cells known to be mines, in increasing order.
+     */
+    public int[] getKnownMines() {
+        return knownMines.toSortedArray();
+    }
+
+    /**
+     * @return Number of revealed numbers that still have unknown neighbours.
+     */
+    public int getNumOfFrontierConstraints() {
+        return numOfFrontierConstraints;
+    }
+
+    /**
+     * @return Visual value of the given cell.
+     */
+    int getCellState(int cellIndex) {
+        return cellStates[cellIndex];
+    }
+
+    /**
+     * @return Unknown neighbours of the given cell (its constraint), as one bit per neighbour. Zero
+     * for cells that are not revealed numbers.
+     */
+    int getUnknownNeighbours(int cellIndex) {
+        return unknownNeighbours[cellIndex] & 0xFF;
+    }
+
+    /**
+     * @return Number of mines among the unknown neighbours of the given cell (see {@link
+     * #getUnknownNeighbours(int)}).
+     */
+    int getNumOfUnknownMines(int cellIndex) {
+        return numOfUnknownMines[cellIndex];
+    }
+
+    /**
+     * @param result Array with room for eight cells, to be filled with the unknown neighbours of
+     *               the given cell, in increasing order.
+     * @return Number of unknown neighbours.
+     */
+    int collectUnknownNeighbours(int cellIndex, int[] result) {
+        return collectVariables(cellIndex, unknownNeighbours[cellIndex] & 0xFF, result);
+    }
+
+    private void rebuild() {
+        final int numOfCells = cellStates.length;
+        Arrays.fill(knowledge, UNKNOWN);
+        Arrays.fill(unknownNeighbours, (byte) 0);
+        Arrays.fill(numOfUnknownMines, (byte) 0);
+        Arrays.fill(isQueued, false);
+        workQueueSize = 0;
+        numOfFrontierConstraints = 0;
+        knownSafeCells.reset(numOfCells);
+        knownMines.reset(numOfCells);
+
+        for (int i = 0; i < numOfCells; i++) {
+            refreshConstraint(i);
+        }
+        solve();
+    }
+
+    private void solve() {
+        while (workQueueSize > 0) {
+            final int cellIndex = workQueue[--workQueueSize];
+            isQueued[cellIndex] = false;
+            examineConstraint(cellIndex);
+        }
+    }
+
+    private void examineConstraint(int cellIndex) {
+        final int mask = unknownNeighbours[cellIndex] & 0xFF;
+        if (mask == 0) {
+            return;
+        }
+        final int numOfVariables = collectVariables(cellIndex, mask, variables);
+        final int numOfMines = numOfUnknownMines[cellIndex];
+
+        // single-point rule
+        if (numOfMines == 0) {
+            deduceAll(variables, numOfVariables, SAFE);
+            return;
+        } else if (numOfMines == numOfVariables) {
+            deduceAll(variables, numOfVariables, MINE);
+            return;
+        } else if (numOfMines < 0 || numOfMines > numOfVariables) {
+            // contradicting numbers (such as tripped mines) give nothing to deduce from
+            return;
+        }
+
+        // subset/superset rule against the constraints sharing unknown cells with this one
+        final int x = cellIndex % gridWidth;
+        final int y = cellIndex / gridWidth;
+        for (int otherY = Math.max(0, y - MAX_SHARING_DISTANCE);
+             otherY <= Math.min(gridHeight - 1, y + MAX_SHARING_DISTANCE); otherY++) {
+            for (int otherX = Math.max(0, x - MAX_SHARING_DISTANCE);
+                 otherX <= Math.min(gridWidth - 1, x + MAX_SHARING_DISTANCE); otherX++) {
+                final int otherCellIndex = otherY * gridWidth + otherX;
+                final int otherMask = unknownNeighbours[otherCellIndex] & 0xFF;
+                if (otherCellIndex == cellIndex || otherMask == 0) {
+                    continue;
+                }
+                final int numOfOtherVariables =
+                        collectVariables(otherCellIndex, otherMask, otherVariables);
+                final int numOfSharedVariables = numOfSharedCells(
+                        variables, numOfVariables, otherVariables, numOfOtherVariables);
+                final int numOfOtherMines = numOfUnknownMines[otherCellIndex];
+                if (numOfSharedVariables == numOfVariables) {
+                    deduceDifference(otherVariables, numOfOtherVariables, variables,
+                                     numOfVariables, numOfOtherMines - numOfMines);
+                } else if (numOfSharedVariables == numOfOtherVariables) {
+                    deduceDifference(variables, numOfVariables, otherVariables,
+                                     numOfOtherVariables, numOfMines - numOfOtherMines);
+                }
+
+                // a deduction changed this constraint, which is queued again with its new cells
+                if ((unknownNeighbours[cellIndex] & 0xFF) != mask) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the single-point rule to the cells of 'superset' that are not in 'subset'.
+     *
+     * @param numOfMines Number of mines among those cells.
+     */
+    private void deduceDifference(int[] superset, int supersetSize, int[] subset, int subsetSize,
+                                  int numOfMines) {
+        final int numOfCells = supersetSize - subsetSize;
+        if (numOfCells == 0 || (numOfMines != 0 && numOfMines != numOfCells)) {
+            return;
+        }
+        final byte deducedKnowledge = (numOfMines == 0) ? SAFE : MINE;
+        // both are in increasing order
+        for (int i = 0, j = 0; i < supersetSize; i++) {
+            while (j < subsetSize && subset[j] < superset[i]) {
+                j++;
+            }
+            if (j == subsetSize || subset[j] != superset[i]) {
+                deduce(superset[i], deducedKnowledge);
+            }
+        }
+    }
+
+    private void deduceAll(int[] cellIndices, int numOfCells, byte deducedKnowledge) {
+        for (int i = 0; i < numOfCells; i++) {
+            deduce(cellIndices[i], deducedKnowledge);
+        }
+    }
+
+    private void deduce(int cellIndex, byte deducedKnowledge) {
+        if (knowledge[cellIndex] != UNKNOWN) {
+            return;
+        }
+        setKnowledge(cellIndex, deducedKnowledge);
+        refreshConstraintsAround(cellIndex);
+    }
+
+    private void setKnowledge(int cellIndex, byte newKnowledge) {
+        final byte oldKnowledge = knowledge[cellIndex];
+        if (oldKnowledge == newKnowledge) {
+            return;
+        }
+        if (oldKnowledge == SAFE) {
+            knownSafeCells.remove(cellIndex);
+        } else if (oldKnowledge == MINE) {
+            knownMines.remove(cellIndex);
+        }
+        if (newKnowledge == SAFE) {
+            knownSafeCells.add(cellIndex);
+        } else if (newKnowledge == MINE) {
+            knownMines.add(cellIndex);
+        }
+        knowledge[cellIndex] = newKnowledge;
+    }
+
+    private void refreshConstraintsAround(int cellIndex) {
+        final int x = cellIndex % gridWidth;
+        final int y = cellIndex / gridWidth;
+        for (int d = 0; d < NUM_OF_NEIGHBOURS; d++) {
+            final int neighbourX = x + NEIGHBOUR_DX[d];
+            final int neighbourY = y + NEIGHBOUR_DY[d];
+            if (neighbourX >= 0 && neighbourX < gridWidth && neighbourY >= 0 &&
+                neighbourY < gridHeight) {
+                refreshConstraint(neighbourY * gridWidth + neighbourX);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the constraint of the given cell from its neighbours, and queues it to be
+     * examined if it changed.
+     */
+    private void refreshConstraint(int cellIndex) {
+        final int state = cellStates[cellIndex];
+        int mask = 0;
+        int numOfMines = 0;
+        if (isNumberState(state)) {
+            numOfMines = state;
+            final int x = cellIndex % gridWidth;
+            final int y = cellIndex / gridWidth;
+            for (int d = 0; d < NUM_OF_NEIGHBOURS; d++) {
+                final int neighbourX = x + NEIGHBOUR_DX[d];
+                final int neighbourY = y + NEIGHBOUR_DY[d];
+                if (neighbourX < 0 || neighbourX >= gridWidth || neighbourY < 0 ||
+                    neighbourY >= gridHeight) {
+                    continue;
+                }
+                final int neighbourIndex = neighbourY * gridWidth + neighbourX;
+                final int neighbourState = cellStates[neighbourIndex];
+                if (neighbourState == MINE_STATE || knowledge[neighbourIndex] == MINE) {
+                    numOfMines--;
+                } else if (isHiddenState(neighbourState) &&
+                           knowledge[neighbourIndex] == UNKNOWN) {
+                    mask |= 1 << d;
+                }
+            }
+        }
+
+        final int oldMask = unknownNeighbours[cellIndex] & 0xFF;
+        if (mask == oldMask && numOfMines == numOfUnknownMines[cellIndex]) {
+            return;
+        }
+        if (oldMask == 0 && mask != 0) {
+            numOfFrontierConstraints++;
+        } else if (oldMask != 0 && mask == 0) {
+            numOfFrontierConstraints--;
+        }
+        unknownNeighbours[cellIndex] = (byte) mask;
+        numOfUnknownMines[cellIndex] = (byte) numOfMines;
+        if (mask != 0) {
+            enqueue(cellIndex);
+        }
+    }
+
+    private void enqueue(int cellIndex) {
+        if (isQueued[cellIndex]) {
+            return;
+        }
+        if (workQueueSize == workQueue.length) {
+            workQueue = Arrays.copyOf(workQueue, 2 * workQueueSize);
+        }
+        workQueue[workQueueSize++] = cellIndex;
+        isQueued[cellIndex] = true;
+    }
+
+    /**
+     * @return Number of cells written into 'result': the cell indices of the neighbours in the
+     * mask, in increasing order.
+     */
+    private int collectVariables(int cellIndex, int mask, int[] result) {
+        int numOfVariables = 0;
+        for (int d = 0; d < NUM_OF_NEIGHBOURS; d++) {
+            if ((mask & (1 << d)) != 0) {
+                result[numOfVariables++] = cellIndex + NEIGHBOUR_DY[d] * gridWidth +
+                                           NEIGHBOUR_DX[d];
+            }
+        }
+        return numOfVariables;
+    }
+
+    private static int numOfSharedCells(int[] cells, int numOfCells, int[] otherCells,
+                                        int numOfOtherCells) {
+        int numOfShared = 0;
+        // both are in increasing order
+        for (int i = 0, j = 0; i < numOfCells && j < numOfOtherCells; ) {
+            if (cells[i] < otherCells[j]) {
+                i++;
+            } else if (cells[i] > otherCells[j]) {
+                j++;
+            } else {
+                numOfShared++;
+                i++;
+                j++;
+            }
+        }
+        return numOfShared;
+    }
+
+    /**
+     * Set of cell indices with constant time insertion and removal.
+     */
+    private static final class CellSet {
+
+        private int[] cells = new int[INITIAL_WORK_QUEUE_CAPACITY];
+        private int size = 0;
+        // position of each cell in 'cells', plus one (zero for cells not in the set)
+        private int[] positions = new int[0];
+
+        void reset(int numOfCells) {
+            if (positions.length != numOfCells) {
+                positions = new int[numOfCells];
+            } else {
+                for (int i = 0; i < size; i++) {
+                    positions[cells[i]] = 0;
+                }
+            }
+            size = 0;
+        }
+
+        void add(int cellIndex) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, 2 * size);
+            }
+            cells[size++] = cellIndex;
+            positions[cellIndex] = size;
+        }
+
+        void remove(int cellIndex) {
+            final int position = positions[cellIndex] - 1;
+            final int lastCellIndex = cells[--size];
+            cells[position] = lastCellIndex;
+            positions[lastCellIndex] = position + 1;
+            positions[cellIndex] = 0;
+        }
+
+        int[] toSortedArray() {
+            final int[] result = Arrays.copyOf(cells, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
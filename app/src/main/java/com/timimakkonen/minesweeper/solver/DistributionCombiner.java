@@ -0,0 +1,284 @@
+package com.timimakkonen.minesweeper.solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * This class combines the distributions of the frontier components into the probability of each
+ * unknown cell being a mine.
+ * </p>
+ * <p>
+ * The other unknown cells (the interior) are unconstrained, so a total of 's' mines on the
+ * frontier leaves 'C(I, M - s)' placements for the rest, 'I' being the number of interior cells
+ * and 'M' the number of mines left. The components are combined by convolving their
+ * distributions (weighted by these binomials), and the mines of the interior are spread evenly
+ * over it. Over a frontier too large to combine exactly, every mine is instead weighted by the
+ * density of the mines left, as if the components were independent.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+final class DistributionCombiner {
+
+    static final int MAX_NUM_OF_EXACTLY_COMBINED_VARIABLES = 4096;
+    // keeps the odds of the density finite
+    private static final double MIN_DENSITY = 1e-9;
+
+    // log(n!) for n up to its length - 1
+    private double[] logFactorials = {0.0};
+
+    /**
+     * Fills in the probabilities of the unknown cells.
+     *
+     * @param probabilities     Probabilities of the cells that are not unknown, and -1 for the
+     *                          unknown cells. Filled in place.
+     * @param components        Components to combine. The cells of any other components are
+     *                          counted as interior cells.
+     * @param distributions     Distribution of each component.
+     * @param numOfUnknownCells Number of unknown cells, including those of the components.
+     * @param numOfMinesLeft    Number of mines among the unknown cells.
+     * @param isExact           False if the distributions or the components are incomplete.
+     */
+    MineProbabilities combine(int gridHeight, int gridWidth, float[] probabilities,
+                              List<FrontierComponent> components,
+                              List<FrontierComponent.Distribution> distributions,
+                              int numOfUnknownCells, int numOfMinesLeft, boolean isExact) {
+        int numOfFrontierCells = 0;
+        for (FrontierComponent component : components) {
+            numOfFrontierCells += component.getNumOfVariables();
+        }
+        final int numOfInteriorCells = numOfUnknownCells - numOfFrontierCells;
+
+        final float interiorProbability;
+        if (numOfFrontierCells <= MAX_NUM_OF_EXACTLY_COMBINED_VARIABLES) {
+            interiorProbability = combineExactly(components, distributions, numOfInteriorCells,
+                                                 numOfMinesLeft, probabilities);
+        } else {
+            interiorProbability = combineIndependently(components, distributions,
+                                                       numOfInteriorCells, numOfMinesLeft,
+                                                       numOfUnknownCells, probabilities);
+        }
+
+        // the rest of the unknown cells, including those of components left out
+        for (int i = 0; i < probabilities.length; i++) {
+            if (probabilities[i] == -1f) {
+                probabilities[i] = interiorProbability;
+            }
+        }
+        return new MineProbabilities(gridHeight, gridWidth, probabilities,
+                                     isExact &&
+                                     numOfFrontierCells <= MAX_NUM_OF_EXACTLY_COMBINED_VARIABLES);
+    }
+
+    /**
+     * Fills in the probabilities of the frontier cells, weighting each total number of frontier
+     * mines 's' by 'C(numOfInteriorCells, numOfMinesLeft - s)'.
+     *
+     * @return Probability of an interior cell being a mine.
+     */
+    private float combineExactly(List<FrontierComponent> components,
+                                 List<FrontierComponent.Distribution> distributions,
+                                 int numOfInteriorCells, int numOfMinesLeft,
+                                 float[] probabilities) {
+        final int numOfComponents = components.size();
+        final double[][] weights = new double[numOfComponents][];
+        for (int c = 0; c < numOfComponents; c++) {
+            weights[c] = distributions.get(c).weights;
+        }
+
+        // prefixes[c]: distribution of the mines of the components before c
+        final double[][] prefixes = new double[numOfComponents + 1][];
+        prefixes[0] = new double[]{1.0};
+        for (int c = 0; c < numOfComponents; c++) {
+            prefixes[c + 1] = normalised(convolve(prefixes[c], weights[c]));
+        }
+        final double[] total = prefixes[numOfComponents];
+        final double[] binomials = binomialWeights(numOfInteriorCells, numOfMinesLeft,
+                                                   total.length - 1);
+
+        double normaliser = 0.0;
+        double interiorMines = 0.0;
+        for (int s = 0; s < total.length; s++) {
+            normaliser += total[s] * binomials[s];
+            interiorMines += total[s] * binomials[s] * (numOfMinesLeft - s);
+        }
+        if (!(normaliser > 0.0)) {
+            // no placement of the mines fits what is visible
+            for (FrontierComponent component : components) {
+                for (int cellIndex : component.variables) {
+                    probabilities[cellIndex] = Float.NaN;
+                }
+            }
+            return Float.NaN;
+        }
+
+        // suffixWeights[t]: weight of 't' mines placed before the components from c on, summed
+        // over the configurations of those components and the interior
+        double[] suffixWeights = binomials;
+        for (int c = numOfComponents - 1; c >= 0; c--) {
+            final double[] componentWeights = weights[c];
+            // weight of each number of mines of component c
+            final double[] othersWeights = new double[componentWeights.length];
+            for (int k = 0; k < componentWeights.length; k++) {
+                for (int s = 0; s < prefixes[c].length && s + k < suffixWeights.length; s++) {
+                    othersWeights[k] += prefixes[c][s] * suffixWeights[s + k];
+                }
+            }
+            setComponentProbabilities(components.get(c), distributions.get(c), othersWeights,
+                                      probabilities);
+
+            final double[] newSuffixWeights = new double[prefixes[c].length];
+            for (int t = 0; t < newSuffixWeights.length; t++) {
+                for (int k = 0; k < componentWeights.length && t + k < suffixWeights.length;
+                     k++) {
+                    newSuffixWeights[t] += componentWeights[k] * suffixWeights[t + k];
+                }
+            }
+            suffixWeights = normalised(newSuffixWeights);
+        }
+
+        return (numOfInteriorCells > 0)
+               ? (float) (interiorMines / normaliser / numOfInteriorCells)
+               : Float.NaN;
+    }
+
+    /**
+     * Fills in the probabilities of the frontier cells, treating the components as independent
+     * and weighting each mine by the odds of the density of the mines left.
+     *
+     * @return Probability of an interior cell being a mine.
+     */
+    private float combineIndependently(List<FrontierComponent> components,
+                                       List<FrontierComponent.Distribution> distributions,
+                                       int numOfInteriorCells, int numOfMinesLeft,
+                                       int numOfUnknownCells, float[] probabilities) {
+        final double density = Math.min(1.0 - MIN_DENSITY, Math.max(
+                MIN_DENSITY, (double) numOfMinesLeft / Math.max(1, numOfUnknownCells)));
+        final double logOdds = Math.log(density) - Math.log(1.0 - density);
+
+        double numOfFrontierMines = 0.0;
+        for (int c = 0; c < components.size(); c++) {
+            final double[] componentWeights = distributions.get(c).weights;
+            // 'odds^k', scaled in log space (the odds may be tiny or huge) so that the largest
+            // possible one is one
+            double maxLogOdds = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < componentWeights.length; k++) {
+                if (componentWeights[k] > 0.0) {
+                    maxLogOdds = Math.max(maxLogOdds, k * logOdds);
+                }
+            }
+            final double[] othersWeights = new double[componentWeights.length];
+            double normaliser = 0.0;
+            double numOfComponentMines = 0.0;
+            for (int k = 0; k < componentWeights.length; k++) {
+                if (componentWeights[k] > 0.0) {
+                    othersWeights[k] = Math.exp(k * logOdds - maxLogOdds);
+                    normaliser += componentWeights[k] * othersWeights[k];
+                    numOfComponentMines += k * componentWeights[k] * othersWeights[k];
+                }
+            }
+            if (normaliser > 0.0) {
+                numOfFrontierMines += numOfComponentMines / normaliser;
+            }
+            setComponentProbabilities(components.get(c), distributions.get(c), othersWeights,
+                                      probabilities);
+        }
+
+        return (numOfInteriorCells > 0)
+               ? (float) Math.min(1.0, Math.max(0.0, (numOfMinesLeft - numOfFrontierMines) /
+                                                     numOfInteriorCells))
+               : Float.NaN;
+    }
+
+    /**
+     * @param othersWeights Weight of each number of mines of the component, coming from
+     *                      everything outside it.
+     */
+    private static void setComponentProbabilities(FrontierComponent component,
+                                                  FrontierComponent.Distribution distribution,
+                                                  double[] othersWeights, float[] probabilities) {
+        double normaliser = 0.0;
+        for (int k = 0; k < othersWeights.length; k++) {
+            normaliser += distribution.weights[k] * othersWeights[k];
+        }
+        for (int i = 0; i < component.variables.length; i++) {
+            double mineWeight = 0.0;
+            for (int k = 0; k < othersWeights.length; k++) {
+                // (counts that never occurred may have no mine weights)
+                if (distribution.mineWeights[k] != null) {
+                    mineWeight += distribution.mineWeights[k][i] * othersWeights[k];
+                }
+            }
+            probabilities[component.variables[i]] =
+                    (normaliser > 0.0) ? (float) (mineWeight / normaliser) : Float.NaN;
+        }
+    }
+
+    /**
+     * @return For each 's' up to 'maxNumOfFrontierMines', 'C(numOfInteriorCells,
+     * numOfMinesLeft - s)', scaled so that the largest is one.
+     */
+    private double[] binomialWeights(int numOfInteriorCells, int numOfMinesLeft,
+                                     int maxNumOfFrontierMines) {
+        ensureLogFactorials(numOfInteriorCells);
+        final double[] logBinomials = new double[maxNumOfFrontierMines + 1];
+        double maxLogBinomial = Double.NEGATIVE_INFINITY;
+        for (int s = 0; s <= maxNumOfFrontierMines; s++) {
+            final int numOfInteriorMines = numOfMinesLeft - s;
+            if (numOfInteriorMines < 0 || numOfInteriorMines > numOfInteriorCells) {
+                logBinomials[s] = Double.NEGATIVE_INFINITY;
+            } else {
+                logBinomials[s] = logFactorials[numOfInteriorCells] -
+                                  logFactorials[numOfInteriorMines] -
+                                  logFactorials[numOfInteriorCells - numOfInteriorMines];
+            }
+            maxLogBinomial = Math.max(maxLogBinomial, logBinomials[s]);
+        }
+        final double[] binomials = new double[maxNumOfFrontierMines + 1];
+        for (int s = 0; s <= maxNumOfFrontierMines; s++) {
+            binomials[s] = Math.exp(logBinomials[s] - maxLogBinomial);
+        }
+        return binomials;
+    }
+
+    private void ensureLogFactorials(int n) {
+        if (n < logFactorials.length) {
+            return;
+        }
+        final int oldLength = logFactorials.length;
+        logFactorials = Arrays.copyOf(logFactorials, Math.max(n + 1, 2 * oldLength));
+        for (int i = oldLength; i < logFactorials.length; i++) {
+            logFactorials[i] = logFactorials[i - 1] + Math.log(i);
+        }
+    }
+
+    private static double[] convolve(double[] a, double[] b) {
+        final double[] result = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0.0) {
+                continue;
+            }
+            for (int j = 0; j < b.length; j++) {
+                result[i + j] += a[i] * b[j];
+            }
+        }
+        return result;
+    }
+
+    // scales the weights so that the largest is one (only ratios matter, and products of
+    // counts would overflow)
+    private static double[] normalised(double[] weights) {
+        double max = 0.0;
+        for (double weight : weights) {
+            max = Math.max(max, weight);
+        }
+        if (max > 0.0) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= max;
+            }
+        }
+        return weights;
+    }
+}
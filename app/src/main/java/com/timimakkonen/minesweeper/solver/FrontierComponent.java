@@ -0,0 +1,232 @@
+package com.timimakkonen.minesweeper.solver;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * This class is an independent part of the frontier: a set of unknown cells (variables) and the
+ * constraints on them, such that no constraint outside the component touches its cells. The
+ * mines of different components only depend on each other through the total number of mines.
+ * </p>
+ * <p>
+ * Components are equal if they have the same cells and the same constraints, so they can be used
+ * as keys of a cache of their (expensive) distributions.
+ * </p>
+ */
+final class FrontierComponent {
+
+    /**
+     * Distribution of the mines of a component: for each number of mines 'k', the number of
+     * configurations with 'k' mines, and for each cell the number of those with a mine in it.
+     * Weights may be scaled by any common factor.
+     */
+    static final class Distribution {
+
+        // false if the enumeration was cut short and the weights are incomplete
+        final boolean isExact;
+        final double[] weights;
+        final double[][] mineWeights;
+
+        Distribution(boolean isExact, double[] weights, double[][] mineWeights) {
+            this.isExact = isExact;
+            this.weights = weights;
+            this.mineWeights = mineWeights;
+        }
+    }
+
+    // cell indices, in increasing order
+    final int[] variables;
+    // positions (in 'variables') of the cells of each constraint, and its number of mines
+    final int[][] constraintVariables;
+    final int[] constraintMines;
+
+    private final int hashCode;
+
+    FrontierComponent(int[] variables, int[][] constraintVariables, int[] constraintMines) {
+        this.variables = variables;
+        this.constraintVariables = constraintVariables;
+        this.constraintMines = constraintMines;
+        this.hashCode = 31 * (31 * Arrays.hashCode(variables) +
+                              Arrays.deepHashCode(constraintVariables)) +
+                        Arrays.hashCode(constraintMines);
+    }
+
+    int getNumOfVariables() {
+        return variables.length;
+    }
+
+    /**
+     * Counts the configurations of mines satisfying every constraint, by backtracking over the
+     * cells (in an order following the constraints, so that they are closed early).
+     *
+     * @param maxNumOfSearchNodes Number of search steps after which enumeration is given up and
+     *                            an inexact (incomplete) distribution is returned.
+     */
+    Distribution enumerate(long maxNumOfSearchNodes) {
+        return new Enumeration(this, maxNumOfSearchNodes).run();
+    }
+
+    /**
+     * @return For each cell (by position), the constraints on it.
+     */
+    int[][] constraintsOfVariables() {
+        final int[] numOfConstraints = new int[variables.length];
+        for (int[] cells : constraintVariables) {
+            for (int position : cells) {
+                numOfConstraints[position]++;
+            }
+        }
+        final int[][] constraintsOfVariables = new int[variables.length][];
+        for (int i = 0; i < variables.length; i++) {
+            constraintsOfVariables[i] = new int[numOfConstraints[i]];
+            numOfConstraints[i] = 0;
+        }
+        for (int c = 0; c < constraintVariables.length; c++) {
+            for (int position : constraintVariables[c]) {
+                constraintsOfVariables[position][numOfConstraints[position]++] = c;
+            }
+        }
+        return constraintsOfVariables;
+    }
+
+    /**
+     * @return Positions of the cells in breadth-first order over shared constraints.
+     */
+    int[] searchOrder(int[][] constraintsOfVariables) {
+        final int[] order = new int[variables.length];
+        final boolean[] isOrdered = new boolean[variables.length];
+        int numOfOrdered = 0;
+        for (int start = 0; start < variables.length; start++) {
+            if (isOrdered[start]) {
+                continue;
+            }
+            int head = numOfOrdered;
+            order[numOfOrdered++] = start;
+            isOrdered[start] = true;
+            while (head < numOfOrdered) {
+                final int position = order[head++];
+                for (int c : constraintsOfVariables[position]) {
+                    for (int other : constraintVariables[c]) {
+                        if (!isOrdered[other]) {
+                            order[numOfOrdered++] = other;
+                            isOrdered[other] = true;
+                        }
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FrontierComponent)) {
+            return false;
+        }
+        final FrontierComponent other = (FrontierComponent) o;
+        return hashCode == other.hashCode && Arrays.equals(variables, other.variables) &&
+               Arrays.equals(constraintMines, other.constraintMines) &&
+               Arrays.deepEquals(constraintVariables, other.constraintVariables);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    private static final class Enumeration {
+
+        private final FrontierComponent component;
+        private final long maxNumOfSearchNodes;
+        private final int[][] constraintsOfVariables;
+        private final int[] order;
+
+        // per constraint: mines still needed and cells still unassigned
+        private final int[] numOfNeededMines;
+        private final int[] numOfUnassignedCells;
+        // positions of the cells assigned a mine on the current search path
+        private final int[] minePositions;
+
+        private final double[] weights;
+        private final double[][] mineWeights;
+        private long numOfSearchNodes = 0;
+
+        Enumeration(FrontierComponent component, long maxNumOfSearchNodes) {
+            this.component = component;
+            this.maxNumOfSearchNodes = maxNumOfSearchNodes;
+            this.constraintsOfVariables = component.constraintsOfVariables();
+            this.order = component.searchOrder(constraintsOfVariables);
+
+            final int numOfConstraints = component.constraintMines.length;
+            this.numOfNeededMines = component.constraintMines.clone();
+            this.numOfUnassignedCells = new int[numOfConstraints];
+            for (int c = 0; c < numOfConstraints; c++) {
+                numOfUnassignedCells[c] = component.constraintVariables[c].length;
+            }
+            final int numOfVariables = component.getNumOfVariables();
+            this.minePositions = new int[numOfVariables];
+            this.weights = new double[numOfVariables + 1];
+            this.mineWeights = new double[numOfVariables + 1][numOfVariables];
+        }
+
+        Distribution run() {
+            final boolean isExact = search(0, 0);
+            return new Distribution(isExact, weights, mineWeights);
+        }
+
+        /**
+         * @return False if the search was given up.
+         */
+        private boolean search(int depth, int numOfMines) {
+            if (++numOfSearchNodes > maxNumOfSearchNodes) {
+                return false;
+            }
+            if (depth == order.length) {
+                weights[numOfMines]++;
+                final double[] mineWeightsOfCount = mineWeights[numOfMines];
+                for (int i = 0; i < numOfMines; i++) {
+                    mineWeightsOfCount[minePositions[i]]++;
+                }
+                return true;
+            }
+
+            final int position = order[depth];
+            for (int isMine = 0; isMine <= 1; isMine++) {
+                if (!canAssign(position, isMine)) {
+                    continue;
+                }
+                assign(position, isMine, 1);
+                if (isMine == 1) {
+                    minePositions[numOfMines] = position;
+                }
+                final boolean isComplete = search(depth + 1, numOfMines + isMine);
+                assign(position, isMine, -1);
+                if (!isComplete) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean canAssign(int position, int isMine) {
+            for (int c : constraintsOfVariables[position]) {
+                final int numOfMinesLeft = numOfNeededMines[c] - isMine;
+                if (numOfMinesLeft < 0 || numOfMinesLeft > numOfUnassignedCells[c] - 1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // direction 1 assigns the cell, and -1 undoes the assignment
+        private void assign(int position, int isMine, int direction) {
+            for (int c : constraintsOfVariables[position]) {
+                numOfNeededMines[c] -= direction * isMine;
+                numOfUnassignedCells[c] -= direction;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.timimakkonen.minesweeper.solver;
+
+/**
+ * <p>
+ * This class is an immutable grid of the probability of each hidden cell being a mine, given
+ * everything visible and the total number of mines (every consistent placement of the mines
+ * being equally likely).
+ * </p>
+ * <p>
+ * Visible cells have no probability (NaN). Neither do hidden cells of a grid that no placement of
+ * mines is consistent with (such as after a mine has been tripped).
+ * </p>
+ */
+public final class MineProbabilities {
+
+    public static final MineProbabilities EMPTY = new MineProbabilities(0, 0, new float[0], true);
+
+    private final int gridHeight;
+    private final int gridWidth;
+    private final float[] probabilities;
+    private final boolean isExact;
+
+    MineProbabilities(int gridHeight, int gridWidth, float[] probabilities, boolean isExact) {
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        this.probabilities = probabilities;
+        this.isExact = isExact;
+    }
+
+    // getters:
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    /**
+     * @return False if some probabilities are estimates, because parts of the frontier were too
+     * large to enumerate exactly.
+     */
+    public boolean isExact() {
+        return isExact;
+    }
+
+    public float getProbability(int x, int y) {
+        return probabilities[y * gridWidth + x];
+    }
+
+    /**
+     * @return Copy of the probabilities of all cells, row by row.
+     */
+    public float[] getProbabilities() {
+        return probabilities.clone();
+    }
+
+    /**
+     * @return Index of a hidden cell least likely to be a mine, or -1 if there is none.
+     */
+    public int getSafestCellIndex() {
+        int safestCellIndex = -1;
+        for (int i = 0; i < probabilities.length; i++) {
+            if (!Float.isNaN(probabilities[i]) &&
+                (safestCellIndex < 0 || probabilities[i] < probabilities[safestCellIndex])) {
+                safestCellIndex = i;
+            }
+        }
+        return safestCellIndex;
+    }
+}
@@ -0,0 +1,312 @@
+package com.timimakkonen.minesweeper.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p>
+ * This class computes the exact probability of each hidden cell being a mine, from the state of a
+ * {@link DeductionSolver} and the total number of mines.
+ * </p>
+ * <p>
+ * The unknown cells next to revealed numbers (the frontier) are split into independent components
+ * (see {@link FrontierComponent}), joined by union-find over the constraints sharing cells. The
+ * consistent configurations of each component are counted per number of mines, with the
+ * components enumerated in parallel on a fork-join pool, and the distributions are combined with
+ * the unconstrained rest of the unknown cells (see {@link DistributionCombiner}).
+ * </p>
+ * <p>
+ * Distributions are cached per component. A move usually changes a single component, and only
+ * that one is enumerated again; the cache keeps the components of the last computation.
+ * </p>
+ * <p>
+ * Components too large to enumerate, or a frontier too large to combine exactly, fall back to
+ * estimates, and the result is flagged as inexact: unenumerated cells are counted as interior
+ * cells, and over a huge frontier every mine is weighted by the density of the mines left, as if
+ * the components were independent. The unenumerated components can then be estimated by
+ * sampling, with a {@link MineProbabilitySampler} made by {@link #newSampler(Random)}.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public final class MineProbabilityEngine {
+
+    private static final int MINE_STATE = 9;
+    private static final int UNCHECKED_STATE = -1;
+    private static final int MARKED_STATE = 10;
+
+    static final int MAX_NUM_OF_ENUMERATED_VARIABLES = 256;
+    static final long MAX_NUM_OF_SEARCH_NODES = 1L << 22;
+
+    private static final FrontierComponent.Distribution NOT_ENUMERATED =
+            new FrontierComponent.Distribution(false, null, null);
+
+    private final ForkJoinPool forkJoinPool;
+    private final int maxNumOfEnumeratedVariables;
+    private final DistributionCombiner distributionCombiner = new DistributionCombiner();
+
+    private Map<FrontierComponent, FrontierComponent.Distribution> distributionCache =
+            new HashMap<>();
+    private int numOfEnumeratedComponents = 0;
+
+    // per cell, reused between computations
+    private int[] unionParents = new int[0];
+    private int[] ownerConstraints = new int[0];
+    private int[] componentsOfRoots = new int[0];
+    private final int[] neighbours = new int[8];
+
+    // the last computation, kept for sampling if some of its components were not enumerated
+    private int lastGridHeight = 0;
+    private int lastGridWidth = 0;
+    // probabilities of the cells that are not unknown (-1 for unknown cells), or null if every
+    // component was enumerated
+    private float[] lastKnownProbabilities = null;
+    private List<FrontierComponent> lastExactComponents = new ArrayList<>();
+    private List<FrontierComponent.Distribution> lastExactDistributions = new ArrayList<>();
+    private List<FrontierComponent> lastInexactComponents = new ArrayList<>();
+    private int lastNumOfUnknownCells = 0;
+    private int lastNumOfMinesLeft = 0;
+
+    /**
+     * @param forkJoinPool Pool on which the components are enumerated.
+     */
+    public MineProbabilityEngine(ForkJoinPool forkJoinPool) {
+        this(forkJoinPool, MAX_NUM_OF_ENUMERATED_VARIABLES);
+    }
+
+    /**
+     * @param maxNumOfEnumeratedVariables Number of cells above which a component is not
+     *                                    enumerated.
+     */
+    MineProbabilityEngine(ForkJoinPool forkJoinPool, int maxNumOfEnumeratedVariables) {
+        this.forkJoinPool = forkJoinPool;
+        this.maxNumOfEnumeratedVariables = maxNumOfEnumeratedVariables;
+    }
+
+    /**
+     * @param numOfMines Total number of mines of the grid.
+     */
+    public MineProbabilities computeProbabilities(DeductionSolver solver, int numOfMines) {
+        final List<FrontierComponent> components = new ArrayList<>();
+        final float[] probabilities = new float[solver.getGridHeight() * solver.getGridWidth()];
+        // number of unknown cells, and of mines among them
+        final int[] unknownCounts = findComponents(solver, numOfMines, components, probabilities);
+        final List<FrontierComponent.Distribution> distributions = distributionsOf(components);
+
+        final List<FrontierComponent> exactComponents = new ArrayList<>();
+        final List<FrontierComponent.Distribution> exactDistributions = new ArrayList<>();
+        final List<FrontierComponent> inexactComponents = new ArrayList<>();
+        for (int c = 0; c < components.size(); c++) {
+            if (distributions.get(c).isExact) {
+                exactComponents.add(components.get(c));
+                exactDistributions.add(distributions.get(c));
+            } else {
+                inexactComponents.add(components.get(c));
+            }
+        }
+
+        lastGridHeight = solver.getGridHeight();
+        lastGridWidth = solver.getGridWidth();
+        lastKnownProbabilities = inexactComponents.isEmpty() ? null : probabilities.clone();
+        lastExactComponents = exactComponents;
+        lastExactDistributions = exactDistributions;
+        lastInexactComponents = inexactComponents;
+        lastNumOfUnknownCells = unknownCounts[0];
+        lastNumOfMinesLeft = unknownCounts[1];
+
+        return distributionCombiner.combine(solver.getGridHeight(), solver.getGridWidth(),
+                                            probabilities, exactComponents, exactDistributions,
+                                            unknownCounts[0], unknownCounts[1],
+                                            inexactComponents.isEmpty());
+    }
+
+    /**
+     * Makes a sampler estimating the components that the last computation could not enumerate.
+     * The sampler keeps what it needs of the computation, so it may be used on another thread
+     * while this engine moves on.
+     *
+     * @return Sampler of the last computation, or null if every component was enumerated.
+     */
+    public MineProbabilitySampler newSampler(Random random) {
+        if (lastKnownProbabilities == null) {
+            return null;
+        }
+        return new MineProbabilitySampler(lastGridHeight, lastGridWidth,
+                                          lastKnownProbabilities.clone(), lastExactComponents,
+                                          lastExactDistributions, lastInexactComponents,
+                                          lastNumOfUnknownCells, lastNumOfMinesLeft, random);
+    }
+
+    /**
+     * @return Number of components enumerated (not found in the cache) so far.
+     */
+    int getNumOfEnumeratedComponents() {
+        return numOfEnumeratedComponents;
+    }
+
+    /**
+     * Splits the frontier into components, and fills in the probabilities of the cells that are
+     * not unknown. Unknown cells are set to -1.
+     *
+     * @return Number of unknown cells, and the number of mines among them.
+     */
+    private int[] findComponents(DeductionSolver solver, int numOfMines,
+                                 List<FrontierComponent> components, float[] probabilities) {
+        final int numOfCells = probabilities.length;
+        if (unionParents.length != numOfCells) {
+            unionParents = new int[numOfCells];
+            ownerConstraints = new int[numOfCells];
+            componentsOfRoots = new int[numOfCells];
+        }
+        Arrays.fill(ownerConstraints, -1);
+
+        int numOfUnknownCells = 0;
+        int numOfMinesLeft = numOfMines;
+        for (int i = 0; i < numOfCells; i++) {
+            final int state = solver.getCellState(i);
+            if (state == MINE_STATE || solver.isKnownMine(i)) {
+                numOfMinesLeft--;
+                probabilities[i] = (state == MINE_STATE) ? Float.NaN : 1f;
+            } else if (state != UNCHECKED_STATE && state != MARKED_STATE) {
+                probabilities[i] = Float.NaN;
+            } else if (solver.isKnownSafe(i)) {
+                probabilities[i] = 0f;
+            } else {
+                numOfUnknownCells++;
+                probabilities[i] = -1f;
+            }
+
+            // join the constraints sharing unknown cells (earlier constraints are set up already)
+            if (solver.getUnknownNeighbours(i) != 0) {
+                unionParents[i] = i;
+                componentsOfRoots[i] = -1;
+                final int numOfNeighbours = solver.collectUnknownNeighbours(i, neighbours);
+                for (int k = 0; k < numOfNeighbours; k++) {
+                    final int owner = ownerConstraints[neighbours[k]];
+                    if (owner < 0) {
+                        ownerConstraints[neighbours[k]] = i;
+                    } else {
+                        union(owner, i);
+                    }
+                }
+            }
+        }
+
+        // cells and constraints of each component, in increasing order
+        final List<IntList> componentVariables = new ArrayList<>();
+        final List<IntList> componentConstraints = new ArrayList<>();
+        for (int i = 0; i < numOfCells; i++) {
+            if (solver.getUnknownNeighbours(i) != 0) {
+                final int root = find(i);
+                if (componentsOfRoots[root] < 0) {
+                    componentsOfRoots[root] = componentVariables.size();
+                    componentVariables.add(new IntList());
+                    componentConstraints.add(new IntList());
+                }
+                componentConstraints.get(componentsOfRoots[root]).add(i);
+            }
+        }
+        for (int i = 0; i < numOfCells; i++) {
+            if (ownerConstraints[i] >= 0) {
+                componentVariables.get(componentsOfRoots[find(ownerConstraints[i])]).add(i);
+            }
+        }
+        for (int c = 0; c < componentVariables.size(); c++) {
+            components.add(newComponent(solver, componentVariables.get(c).toArray(),
+                                        componentConstraints.get(c)));
+        }
+        return new int[]{numOfUnknownCells, numOfMinesLeft};
+    }
+
+    private FrontierComponent newComponent(DeductionSolver solver, int[] variables,
+                                           IntList constraints) {
+        final int[][] constraintVariables = new int[constraints.size][];
+        final int[] constraintMines = new int[constraints.size];
+        for (int c = 0; c < constraints.size; c++) {
+            final int cellIndex = constraints.values[c];
+            final int numOfNeighbours = solver.collectUnknownNeighbours(cellIndex, neighbours);
+            constraintVariables[c] = new int[numOfNeighbours];
+            for (int k = 0; k < numOfNeighbours; k++) {
+                constraintVariables[c][k] = Arrays.binarySearch(variables, neighbours[k]);
+            }
+            constraintMines[c] = solver.getNumOfUnknownMines(cellIndex);
+        }
+        return new FrontierComponent(variables, constraintVariables, constraintMines);
+    }
+
+    /**
+     * @return Distribution of each component, from the cache or enumerated in parallel.
+     */
+    private List<FrontierComponent.Distribution> distributionsOf(
+            List<FrontierComponent> components) {
+        final Map<FrontierComponent, FrontierComponent.Distribution> newCache = new HashMap<>();
+        final Map<FrontierComponent, ForkJoinTask<FrontierComponent.Distribution>> tasks =
+                new HashMap<>();
+        for (FrontierComponent component : components) {
+            final FrontierComponent.Distribution cached = distributionCache.get(component);
+            if (cached != null) {
+                newCache.put(component, cached);
+            } else if (component.getNumOfVariables() > maxNumOfEnumeratedVariables) {
+                newCache.put(component, NOT_ENUMERATED);
+            } else if (!tasks.containsKey(component)) {
+                tasks.put(component, forkJoinPool.submit(
+                        () -> component.enumerate(MAX_NUM_OF_SEARCH_NODES)));
+            }
+        }
+        for (Map.Entry<FrontierComponent, ForkJoinTask<FrontierComponent.Distribution>> task :
+                tasks.entrySet()) {
+            newCache.put(task.getKey(), task.getValue().join());
+        }
+        numOfEnumeratedComponents += tasks.size();
+        distributionCache = newCache;
+
+        final List<FrontierComponent.Distribution> distributions =
+                new ArrayList<>(components.size());
+        for (FrontierComponent component : components) {
+            distributions.add(newCache.get(component));
+        }
+        return distributions;
+    }
+
+    private int find(int cellIndex) {
+        while (unionParents[cellIndex] != cellIndex) {
+            // path halving
+            unionParents[cellIndex] = unionParents[unionParents[cellIndex]];
+            cellIndex = unionParents[cellIndex];
+        }
+        return cellIndex;
+    }
+
+    private void union(int a, int b) {
+        final int rootA = find(a);
+        final int rootB = find(b);
+        if (rootA != rootB) {
+            // the smaller index becomes the root
+            unionParents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[8];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.timimakkonen.minesweeper.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * This class estimates the mine probabilities of the frontier components too large to enumerate
+ * exactly, by sampling random consistent configurations of their mines. The estimates are
+ * refined by every call to {@link #sample(int)} or {@link #sampleFor(long)}, and can be combined
+ * into a probability grid at any time with {@link #getProbabilities()}.
+ * </p>
+ * <p>
+ * The sampling is guided by the constraints: the cells of a component are assigned in the search
+ * order of its enumeration, a cell is only assigned a value that leaves every constraint on it
+ * satisfiable, and when both values are possible a mine is chosen with the probability of the
+ * mines still needed by its constraints. Each configuration reached is weighted by the inverse of
+ * the probability of the choices leading to it, so the weights of the configurations with 'k'
+ * mines estimate (without bias) how many such configurations there are, as enumeration would
+ * count. Choices leading to a dead end are dropped.
+ * </p>
+ * <p>
+ * The sampler is a snapshot made by {@link MineProbabilityEngine#newSampler(Random)}, so it stays
+ * valid while the engine and the solver move on. This class is not thread-safe.
+ * </p>
+ */
+public final class MineProbabilitySampler {
+
+    // larger components are left as interior cells
+    static final int MAX_NUM_OF_SAMPLED_VARIABLES = 1 << 14;
+
+    private final int gridHeight;
+    private final int gridWidth;
+    private final float[] knownProbabilities;
+    private final List<FrontierComponent> exactComponents;
+    private final List<FrontierComponent.Distribution> exactDistributions;
+    private final int numOfUnknownCells;
+    private final int numOfMinesLeft;
+    private final ComponentSampler[] componentSamplers;
+    private final DistributionCombiner distributionCombiner = new DistributionCombiner();
+
+    private long numOfSamples = 0;
+
+    /**
+     * @param knownProbabilities Probabilities of the cells that are not unknown, and -1 for the
+     *                           unknown cells.
+     * @param sampledComponents  Components to estimate.
+     * @param numOfUnknownCells  Number of unknown cells, including those of all the components.
+     * @param numOfMinesLeft     Number of mines among the unknown cells.
+     */
+    MineProbabilitySampler(int gridHeight, int gridWidth, float[] knownProbabilities,
+                           List<FrontierComponent> exactComponents,
+                           List<FrontierComponent.Distribution> exactDistributions,
+                           List<FrontierComponent> sampledComponents, int numOfUnknownCells,
+                           int numOfMinesLeft, Random random) {
+        this.gridHeight = gridHeight;
+        this.gridWidth = gridWidth;
+        this.knownProbabilities = knownProbabilities;
+        this.exactComponents = exactComponents;
+        this.exactDistributions = exactDistributions;
+        this.numOfUnknownCells = numOfUnknownCells;
+        this.numOfMinesLeft = numOfMinesLeft;
+
+        final List<ComponentSampler> componentSamplers = new ArrayList<>();
+        for (FrontierComponent component : sampledComponents) {
+            if (component.getNumOfVariables() <= MAX_NUM_OF_SAMPLED_VARIABLES) {
+                componentSamplers.add(new ComponentSampler(component, random));
+            }
+        }
+        this.componentSamplers = componentSamplers.toArray(new ComponentSampler[0]);
+    }
+
+    /**
+     * Draws a number of samples of every sampled component.
+     */
+    public void sample(int numOfSamples) {
+        for (int n = 0; n < numOfSamples; n++) {
+            for (ComponentSampler componentSampler : componentSamplers) {
+                componentSampler.sample();
+            }
+        }
+        this.numOfSamples += numOfSamples;
+    }
+
+    /**
+     * Draws samples of every sampled component for about the given time (at least one sample).
+     */
+    public void sampleFor(long durationNanos) {
+        final long startTime = System.nanoTime();
+        do {
+            sample(1);
+        } while (System.nanoTime() - startTime < durationNanos);
+    }
+
+    /**
+     * @return Number of samples drawn of each sampled component so far.
+     */
+    public long getNumOfSamples() {
+        return numOfSamples;
+    }
+
+    /**
+     * @return Estimated probabilities, combining the samples drawn so far with the enumerated
+     * components. Components that have no consistent sample yet are counted as interior cells.
+     */
+    public MineProbabilities getProbabilities() {
+        final List<FrontierComponent> components = new ArrayList<>(exactComponents);
+        final List<FrontierComponent.Distribution> distributions =
+                new ArrayList<>(exactDistributions);
+        for (ComponentSampler componentSampler : componentSamplers) {
+            if (componentSampler.hasConsistentSamples()) {
+                components.add(componentSampler.component);
+                distributions.add(componentSampler.estimate());
+            }
+        }
+        return distributionCombiner.combine(gridHeight, gridWidth, knownProbabilities.clone(),
+                                            components, distributions, numOfUnknownCells,
+                                            numOfMinesLeft, false);
+    }
+
+    private static final class ComponentSampler {
+
+        private final FrontierComponent component;
+        private final Random random;
+        private final int[][] constraintsOfVariables;
+        private final int[] order;
+        private final int[] numOfConstraintCells;
+
+        // per constraint: mines still needed and cells still unassigned
+        private final int[] numOfNeededMines;
+        private final int[] numOfUnassignedCells;
+        // positions of the cells assigned a mine in the current sample
+        private final int[] minePositions;
+
+        // weights are stored scaled by 'exp(-logScale)', 'logScale' being the largest log
+        // weight of a sample so far
+        private final double[] weights;
+        // rows are only allocated for the numbers of mines sampled
+        private final double[][] mineWeights;
+        private double logScale = Double.NEGATIVE_INFINITY;
+
+        ComponentSampler(FrontierComponent component, Random random) {
+            this.component = component;
+            this.random = random;
+            this.constraintsOfVariables = component.constraintsOfVariables();
+            this.order = component.searchOrder(constraintsOfVariables);
+
+            final int numOfConstraints = component.constraintMines.length;
+            this.numOfConstraintCells = new int[numOfConstraints];
+            for (int c = 0; c < numOfConstraints; c++) {
+                numOfConstraintCells[c] = component.constraintVariables[c].length;
+            }
+            this.numOfNeededMines = new int[numOfConstraints];
+            this.numOfUnassignedCells = new int[numOfConstraints];
+            final int numOfVariables = component.getNumOfVariables();
+            this.minePositions = new int[numOfVariables];
+            this.weights = new double[numOfVariables + 1];
+            this.mineWeights = new double[numOfVariables + 1][];
+        }
+
+        boolean hasConsistentSamples() {
+            return logScale != Double.NEGATIVE_INFINITY;
+        }
+
+        FrontierComponent.Distribution estimate() {
+            return new FrontierComponent.Distribution(false, weights, mineWeights);
+        }
+
+        void sample() {
+            System.arraycopy(component.constraintMines, 0, numOfNeededMines, 0,
+                             numOfNeededMines.length);
+            System.arraycopy(numOfConstraintCells, 0, numOfUnassignedCells, 0,
+                             numOfUnassignedCells.length);
+            double logWeight = 0.0;
+            int numOfMines = 0;
+            for (int position : order) {
+                final boolean canBeSafe = canAssign(position, 0);
+                final boolean canBeMine = canAssign(position, 1);
+                final int isMine;
+                if (canBeSafe && canBeMine) {
+                    final double mineProbability = guessMineProbability(position);
+                    if (random.nextDouble() < mineProbability) {
+                        isMine = 1;
+                        logWeight -= Math.log(mineProbability);
+                    } else {
+                        isMine = 0;
+                        logWeight -= Math.log1p(-mineProbability);
+                    }
+                } else if (canBeSafe || canBeMine) {
+                    isMine = canBeMine ? 1 : 0;
+                } else {
+                    // dead end
+                    return;
+                }
+                assign(position, isMine);
+                if (isMine == 1) {
+                    minePositions[numOfMines++] = position;
+                }
+            }
+            add(logWeight, numOfMines);
+        }
+
+        private void add(double logWeight, int numOfMines) {
+            if (logWeight > logScale) {
+                final double rescaling = Math.exp(logScale - logWeight);
+                for (int k = 0; k < weights.length; k++) {
+                    weights[k] *= rescaling;
+                    if (mineWeights[k] != null) {
+                        for (int i = 0; i < mineWeights[k].length; i++) {
+                            mineWeights[k][i] *= rescaling;
+                        }
+                    }
+                }
+                logScale = logWeight;
+            }
+            final double weight = Math.exp(logWeight - logScale);
+            weights[numOfMines] += weight;
+            if (mineWeights[numOfMines] == null) {
+                mineWeights[numOfMines] = new double[component.getNumOfVariables()];
+            }
+            for (int i = 0; i < numOfMines; i++) {
+                mineWeights[numOfMines][minePositions[i]] += weight;
+            }
+        }
+
+        /**
+         * @return Average share of mines still needed by the constraints on the cell, which is
+         * strictly between 0 and 1 if the cell can be either.
+         */
+        private double guessMineProbability(int position) {
+            double sumOfShares = 0.0;
+            for (int c : constraintsOfVariables[position]) {
+                sumOfShares += (double) numOfNeededMines[c] / numOfUnassignedCells[c];
+            }
+            return sumOfShares / constraintsOfVariables[position].length;
+        }
+
+        private boolean canAssign(int position, int isMine) {
+            for (int c : constraintsOfVariables[position]) {
+                final int numOfMinesLeft = numOfNeededMines[c] - isMine;
+                if (numOfMinesLeft < 0 || numOfMinesLeft > numOfUnassignedCells[c] - 1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void assign(int position, int isMine) {
+            for (int c : constraintsOfVariables[position]) {
+                numOfNeededMines[c] -= isMine;
+                numOfUnassignedCells[c]--;
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.timimakkonen.minesweeper.solver;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+import com.timimakkonen.minesweeper.engine.ParallelGameRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * This class generates games that can be solved without guessing from their first check.
+ * </p>
+ * <p>
+ * Candidate games are created by the given factory and started with the usual 'newGame' and
+ * first check, so their mines are placed by the engine itself (with its own random number
+ * generator). Each candidate is then played by a {@link DeductionSolver}, checking every cell it
+ * knows to be safe, until the game is won (the candidate is accepted) or the solver knows of no
+ * safe cell (the candidate would need a guess). The solver does not use the total number of
+ * mines, so candidates that could only be finished by counting mines are rejected as well.
+ * </p>
+ * <p>
+ * Candidates are searched in parallel, one worker per thread, and the first accepted one wins.
+ * The other workers are cancelled as soon as there is a winner: they check for it after every
+ * round of the solver, and close their candidates before {@link #generate} returns.
+ * </p>
+ * <p>
+ * {@link #generate} must not be called by several threads at the same time.
+ * </p>
+ */
+public final class NoGuessGameGenerator implements AutoCloseable {
+
+    private final ParallelGameRunner.GameFactory candidateFactory;
+    private final int numOfThreads;
+    private final ExecutorService executorService;
+
+    // index of the next candidate given to the factory, over all generations
+    private final AtomicInteger nextCandidateIndex = new AtomicInteger(0);
+    private int numOfCandidatesOfLastGeneration = 0;
+
+    public NoGuessGameGenerator(ParallelGameRunner.GameFactory candidateFactory) {
+        this(candidateFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param candidateFactory Factory of the candidate games, which must be of the same engine
+     *                         as the games the winners are loaded into. It may be called from
+     *                         several threads at the same time.
+     */
+    public NoGuessGameGenerator(ParallelGameRunner.GameFactory candidateFactory,
+                                int numOfThreads) {
+        if (numOfThreads < 1) {
+            throw new IllegalArgumentException(
+                    "Trying to generate games on less than one thread.");
+        }
+        this.candidateFactory = candidateFactory;
+        this.numOfThreads = numOfThreads;
+
+        final AtomicInteger numOfCreatedThreads = new AtomicInteger(0);
+        this.executorService = Executors.newFixedThreadPool(numOfThreads, task -> {
+            final Thread thread = new Thread(
+                    task, "NoGuessGameGenerator-" + numOfCreatedThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches for a game that can be solved without guessing from a check of the given cell.
+     *
+     * @param maxNumOfCandidates Number of candidates after which the search is given up.
+     * @return Game (from the factory) with the first check made, which the caller must close, or
+     * null if none of the candidates could be solved without guessing.
+     * @throws InterruptedException if interrupted while waiting for the workers. (They are
+     *                              cancelled.)
+     */
+    public MinesweeperGame generate(int gridHeight, int gridWidth, int numOfMines, int firstX,
+                                    int firstY, int maxNumOfCandidates)
+            throws InterruptedException {
+        if (firstX < 0 || firstY < 0 || firstX >= gridWidth || firstY >= gridHeight) {
+            throw new IllegalArgumentException("Trying to make the first check outside the grid.");
+        }
+        if (maxNumOfCandidates < 0) {
+            throw new IllegalArgumentException(
+                    "Trying to generate a game from a negative number of candidates.");
+        }
+
+        final AtomicBoolean isFound = new AtomicBoolean(false);
+        final AtomicInteger numOfCandidates = new AtomicInteger(0);
+        final CountDownLatch workersAreDone = new CountDownLatch(numOfThreads);
+        final ExecutorCompletionService<MinesweeperGame> completionService =
+                new ExecutorCompletionService<>(executorService);
+        final List<Future<MinesweeperGame>> workers = new ArrayList<>(numOfThreads);
+        for (int i = 0; i < numOfThreads; i++) {
+            workers.add(completionService.submit(() -> {
+                try {
+                    return searchCandidates(gridHeight, gridWidth, numOfMines, firstX, firstY,
+                                            maxNumOfCandidates, numOfCandidates, isFound);
+                } finally {
+                    workersAreDone.countDown();
+                }
+            }));
+        }
+
+        MinesweeperGame winner = null;
+        Throwable failure = null;
+        boolean isInterrupted = false;
+        try {
+            for (int i = 0; i < numOfThreads && winner == null && failure == null; i++) {
+                try {
+                    winner = completionService.take().get();
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                }
+            }
+        } catch (InterruptedException e) {
+            isInterrupted = true;
+        }
+        // cancels the other workers (set by the winner already, but not if the search failed or
+        // was interrupted)
+        isFound.set(true);
+        awaitUninterruptibly(workersAreDone);
+        numOfCandidatesOfLastGeneration = Math.min(numOfCandidates.get(), maxNumOfCandidates);
+
+        if (isInterrupted || failure != null) {
+            // another worker may have found a winner after all
+            for (Future<MinesweeperGame> worker : workers) {
+                final MinesweeperGame game = resultOf(worker);
+                if (game != null) {
+                    game.close();
+                }
+            }
+            if (isInterrupted) {
+                throw new InterruptedException("Interrupted while generating a game.");
+            }
+            throw asRuntimeException(failure);
+        }
+        return winner;
+    }
+
+    /**
+     * @return Number of candidates tried by the last call of {@link #generate}, including the
+     * winner.
+     */
+    public int getNumOfCandidatesOfLastGeneration() {
+        return numOfCandidatesOfLastGeneration;
+    }
+
+    public int getNumOfThreads() {
+        return numOfThreads;
+    }
+
+    /**
+     * Stops the threads of this generator, once the searches running have been cancelled.
+     */
+    @Override
+    public void close() {
+        executorService.shutdown();
+    }
+
+    /**
+     * @return Winning candidate, or null if there was none (or it was found by another worker).
+     */
+    private MinesweeperGame searchCandidates(int gridHeight, int gridWidth, int numOfMines,
+                                             int firstX, int firstY, int maxNumOfCandidates,
+                                             AtomicInteger numOfCandidates,
+                                             AtomicBoolean isFound) {
+        final DeductionSolver solver = new DeductionSolver();
+        final int[] states = new int[gridHeight * gridWidth];
+        while (!isFound.get() && !Thread.currentThread().isInterrupted() &&
+               numOfCandidates.getAndIncrement() < maxNumOfCandidates) {
+            final MinesweeperGame game =
+                    candidateFactory.newGame(nextCandidateIndex.getAndIncrement());
+            boolean isWinner = false;
+            try {
+                game.newGame(gridHeight, gridWidth, numOfMines);
+                game.checkInputCoordinates(firstX, firstY);
+                if (isSolvableWithoutGuessing(game, solver, states, isFound) &&
+                    isFound.compareAndSet(false, true)) {
+                    // back to the position after the first check
+                    game.reset(true);
+                    game.checkInputCoordinates(firstX, firstY);
+                    isWinner = true;
+                    return game;
+                }
+            } finally {
+                if (!isWinner) {
+                    game.close();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Plays the game by checking every cell the solver knows to be safe, round by round.
+     *
+     * @param isCancelled Checked after every round, giving up when set.
+     * @return True if the game was won.
+     */
+    static boolean isSolvableWithoutGuessing(MinesweeperGame game, DeductionSolver solver,
+                                             int[] states, AtomicBoolean isCancelled) {
+        final int gridHeight = game.getGridHeight();
+        final int gridWidth = game.getGridWidth();
+        int revision = -1;
+        while (!game.playerHasWon()) {
+            if (game.playerHasLost() || isCancelled.get() ||
+                Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+
+            final int[] changes = game.visualiseChangesSince(revision);
+            if (revision < 0 || changes[1] == MinesweeperGame.CHANGES_UNAVAILABLE) {
+                game.visualiseInto(states);
+                solver.reset(gridHeight, gridWidth, states);
+            } else {
+                final int[] changedCellIndices = new int[changes[1]];
+                final int[] newStates = new int[changes[1]];
+                for (int k = 0; k < changedCellIndices.length; k++) {
+                    changedCellIndices[k] = changes[2 + 2 * k];
+                    newStates[k] = changes[3 + 2 * k];
+                }
+                solver.update(changedCellIndices, newStates);
+            }
+            revision = changes[0];
+
+            final int[] knownSafeCells = solver.getKnownSafeCells();
+            if (knownSafeCells.length == 0) {
+                return false;
+            }
+            final int[] actions = new int[knownSafeCells.length * MinesweeperGame.ACTION_SIZE];
+            for (int k = 0, j = 0; k < knownSafeCells.length; k++) {
+                actions[j++] = MinesweeperGame.CHECK_ACTION;
+                actions[j++] = knownSafeCells[k] % gridWidth;
+                actions[j++] = knownSafeCells[k] / gridWidth;
+            }
+            game.applyActions(actions);
+        }
+        return true;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // result of a finished worker, or null if it failed
+    private static MinesweeperGame resultOf(Future<MinesweeperGame> worker) {
+        try {
+            return worker.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    private static RuntimeException asRuntimeException(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+}
@@ -0,0 +1,524 @@
+package com.timimakkonen.minesweeper.engine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Behaviour every {@link MinesweeperGame} engine has to share. Each engine runs this suite by
+ * extending it and implementing {@link #createGame()}.
+ */
+public abstract class MinesweeperGameConformanceTest {
+
+    private static final int UNCHECKED_STATE = -1;
+    private static final int MARKED_STATE = 10;
+
+    private static final int GRID_HEIGHT = 9;
+    private static final int GRID_WIDTH = 11;
+    private static final int NUM_OF_MINES = 20;
+
+    protected MinesweeperGame game;
+
+    protected abstract MinesweeperGame createGame();
+
+    @Before
+    public void setUp() {
+        game = createGame();
+        game.newGame(GRID_HEIGHT, GRID_WIDTH, NUM_OF_MINES);
+    }
+
+    @After
+    public void tearDown() {
+        game.close();
+    }
+
+    @Test
+    public void newGame_setsDimensionsAndNumOfMines() {
+        assertEquals(GRID_HEIGHT, game.getGridHeight());
+        assertEquals(GRID_WIDTH, game.getGridWidth());
+        assertEquals(NUM_OF_MINES, game.getNumOfMines());
+        assertFalse(game.playerHasWon());
+        assertFalse(game.playerHasLost());
+        assertArrayEquals(filled(UNCHECKED_STATE), visualise());
+    }
+
+    @Test
+    public void limits_leaveRoomForSafeFirstCheck() {
+        assertEquals(0, game.getMinNumOfMines());
+        assertEquals(0.0, game.getMinProportionOfMines(), 0.0);
+        assertEquals(GRID_HEIGHT * GRID_WIDTH - 9, game.getMaxNumOfMines(GRID_HEIGHT, GRID_WIDTH));
+        assertEquals((double) (GRID_HEIGHT * GRID_WIDTH - 9) / (GRID_HEIGHT * GRID_WIDTH),
+                     game.getMaxProportionOfMines(GRID_HEIGHT, GRID_WIDTH), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void newGame_withTooManyMines_throws() {
+        game.newGame(GRID_HEIGHT, GRID_WIDTH, game.getMaxNumOfMines(GRID_HEIGHT, GRID_WIDTH) + 1);
+    }
+
+    @Test
+    public void firstCheck_isSafeWithSafeNeighbours() {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            game.newGame(GRID_HEIGHT, GRID_WIDTH, game.getMaxNumOfMines(GRID_HEIGHT, GRID_WIDTH));
+            game.checkInputCoordinates(5, 4);
+
+            assertFalse(game.playerHasLost());
+            assertTrue(game.isCellVisible(5, 4));
+            final int[] solution = visualiseSolution();
+            assertEquals(game.getNumOfMines(), count(solution, MARKED_STATE));
+            for (int y = 3; y <= 5; y++) {
+                for (int x = 4; x <= 6; x++) {
+                    assertTrue(solution[y * GRID_WIDTH + x] != MARKED_STATE);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mark_beforeFirstCheck_isIgnored() {
+        game.markInputCoordinates(0, 0);
+
+        assertArrayEquals(filled(UNCHECKED_STATE), visualise());
+    }
+
+    @Test
+    public void completeAround_beforeFirstCheck_isIgnored() {
+        game.completeAroundInputCoordinates(5, 4);
+        game.applyActions(new int[]{MinesweeperGame.COMPLETE_AROUND_ACTION, 5, 4});
+
+        assertArrayEquals(filled(UNCHECKED_STATE), visualise());
+        assertFalse(game.playerHasLost());
+        assertEquals(0, game.getNumOfRevealedSafeCells());
+
+        // (the first check still creates the mines around it)
+        game.checkInputCoordinates(5, 4);
+        assertTrue(game.isCellVisible(5, 4));
+        assertFalse(game.playerHasLost());
+    }
+
+    @Test
+    public void mark_togglesHiddenCell() {
+        game.checkInputCoordinates(5, 4);
+        final int hiddenCellIndex = firstIndexOf(visualise(), UNCHECKED_STATE);
+        final int x = hiddenCellIndex % GRID_WIDTH;
+        final int y = hiddenCellIndex / GRID_WIDTH;
+
+        game.markInputCoordinates(x, y);
+        assertEquals(MARKED_STATE, visualise()[hiddenCellIndex]);
+
+        game.markInputCoordinates(x, y);
+        assertEquals(UNCHECKED_STATE, visualise()[hiddenCellIndex]);
+    }
+
+    @Test
+    public void checkingAllSafeCells_wins() {
+        game.checkInputCoordinates(5, 4);
+        final int[] solution = visualiseSolution();
+        for (int i = 0; i < solution.length; i++) {
+            if (solution[i] != MARKED_STATE) {
+                game.checkInputCoordinates(i % GRID_WIDTH, i / GRID_WIDTH);
+            }
+        }
+
+        assertTrue(game.playerHasWon());
+        assertFalse(game.playerHasLost());
+    }
+
+    @Test
+    public void checkingMine_loses() {
+        game.checkInputCoordinates(5, 4);
+        final int mineIndex = firstIndexOf(visualiseSolution(), MARKED_STATE);
+
+        game.checkInputCoordinates(mineIndex % GRID_WIDTH, mineIndex / GRID_WIDTH);
+
+        assertTrue(game.playerHasLost());
+        assertFalse(game.playerHasWon());
+    }
+
+    @Test
+    public void reset_keepingMines_keepsSolution() {
+        game.checkInputCoordinates(5, 4);
+        final int[] solution = visualiseSolution();
+
+        game.reset(true);
+
+        assertArrayEquals(filled(UNCHECKED_STATE), visualise());
+        assertArrayEquals(solution, visualiseSolution());
+    }
+
+    @Test
+    public void serialise_roundTripsGame() {
+        game.checkInputCoordinates(5, 4);
+        final int hiddenCellIndex = firstIndexOf(visualise(), UNCHECKED_STATE);
+        game.markInputCoordinates(hiddenCellIndex % GRID_WIDTH, hiddenCellIndex / GRID_WIDTH);
+        final String saved = game.serialise();
+
+        final MinesweeperGame loadedGame = createGame();
+        try {
+            assertTrue(loadedGame.deserialise(saved));
+            assertEquals(GRID_HEIGHT, loadedGame.getGridHeight());
+            assertEquals(GRID_WIDTH, loadedGame.getGridWidth());
+            assertEquals(NUM_OF_MINES, loadedGame.getNumOfMines());
+            assertArrayEquals(visualise(), visualise(loadedGame));
+            assertArrayEquals(visualiseSolution(), visualiseSolution(loadedGame));
+        } finally {
+            loadedGame.close();
+        }
+    }
+
+    @Test
+    public void deserialise_garbage_returnsFalseAndKeepsGame() {
+        game.checkInputCoordinates(5, 4);
+        final int[] visualState = visualise();
+
+        assertFalse(game.deserialise("not a saved game"));
+
+        assertEquals(GRID_HEIGHT, game.getGridHeight());
+        assertEquals(GRID_WIDTH, game.getGridWidth());
+        assertArrayEquals(visualState, visualise());
+    }
+
+    @Test
+    public void serialiseToBuffer_roundTripsGame_fromHeapAndDirectBuffers() {
+        game.checkInputCoordinates(5, 4);
+        final int hiddenCellIndex = firstIndexOf(visualise(), UNCHECKED_STATE);
+        game.markInputCoordinates(hiddenCellIndex % GRID_WIDTH, hiddenCellIndex / GRID_WIDTH);
+        final ByteBuffer saved = game.serialiseToBuffer();
+        final byte[] savedBytes = new byte[saved.remaining()];
+        saved.duplicate().get(savedBytes);
+
+        // the saved game preceded by unrelated bytes, read from its position
+        final ByteBuffer heapBuffer = ByteBuffer.allocate(3 + savedBytes.length);
+        heapBuffer.put(new byte[3]).put(savedBytes).position(3);
+        final ByteBuffer directBuffer = ByteBuffer.allocateDirect(3 + savedBytes.length);
+        directBuffer.put(new byte[3]).put(savedBytes).position(3);
+
+        for (ByteBuffer buffer : new ByteBuffer[]{heapBuffer, directBuffer}) {
+            final MinesweeperGame loadedGame = createGame();
+            try {
+                assertTrue(loadedGame.deserialiseFromBuffer(buffer));
+                assertEquals(3, buffer.position());
+                assertEquals(GRID_HEIGHT, loadedGame.getGridHeight());
+                assertEquals(GRID_WIDTH, loadedGame.getGridWidth());
+                assertEquals(NUM_OF_MINES, loadedGame.getNumOfMines());
+                assertArrayEquals(visualise(), visualise(loadedGame));
+                assertArrayEquals(visualiseSolution(), visualiseSolution(loadedGame));
+            } finally {
+                loadedGame.close();
+            }
+        }
+    }
+
+    @Test
+    public void deserialiseFromBuffer_garbage_returnsFalseAndKeepsGame() {
+        game.checkInputCoordinates(5, 4);
+        final int[] visualState = visualise();
+        final ByteBuffer saved = game.serialiseToBuffer();
+        final byte[] truncatedBytes = new byte[saved.remaining() / 2];
+        saved.duplicate().get(truncatedBytes);
+
+        assertFalse(game.deserialiseFromBuffer(ByteBuffer.wrap(new byte[]{1, 2, 3})));
+        assertEquals(GRID_HEIGHT, game.getGridHeight());
+        assertEquals(GRID_WIDTH, game.getGridWidth());
+        assertArrayEquals(visualState, visualise());
+
+        // (the native library may have partially loaded a truncated game, so only the result is
+        //  common to all engines)
+        assertFalse(game.deserialiseFromBuffer(ByteBuffer.wrap(truncatedBytes)));
+    }
+
+    @Test
+    public void visualiseChangesSince_matchesVisualState() {
+        final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+        game.getStatus(status);
+        final int[] tracked = visualise();
+
+        game.checkInputCoordinates(5, 4);
+        final int hiddenCellIndex = firstIndexOf(visualise(), UNCHECKED_STATE);
+        game.markInputCoordinates(hiddenCellIndex % GRID_WIDTH, hiddenCellIndex / GRID_WIDTH);
+
+        final int[] changes =
+                game.visualiseChangesSince(status[MinesweeperGame.STATUS_STATE_REVISION]);
+        if (changes[1] != MinesweeperGame.CHANGES_UNAVAILABLE) {
+            for (int j = 0; j < changes[1]; j++) {
+                tracked[changes[2 + 2 * j]] = changes[3 + 2 * j];
+            }
+            assertArrayEquals(visualise(), tracked);
+        }
+        game.getStatus(status);
+        assertEquals(status[MinesweeperGame.STATUS_STATE_REVISION], changes[0]);
+    }
+
+    @Test
+    public void visualStateBuffer_matchesVisualState() {
+        game.checkInputCoordinates(5, 4);
+
+        final ByteBuffer buffer = game.getVisualStateBuffer();
+        final int[] visualState = visualise();
+        for (int i = 0; i < visualState.length; i++) {
+            assertEquals(visualState[i], buffer.get(i));
+        }
+    }
+
+    @Test
+    public void getStatus_matchesGame() {
+        game.checkInputCoordinates(5, 4);
+        final int hiddenCellIndex = firstIndexOf(visualise(), UNCHECKED_STATE);
+        game.markInputCoordinates(hiddenCellIndex % GRID_WIDTH, hiddenCellIndex / GRID_WIDTH);
+
+        final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+        game.getStatus(status);
+        final int[] visualState = visualise();
+
+        assertEquals(GRID_HEIGHT, status[MinesweeperGame.STATUS_GRID_HEIGHT]);
+        assertEquals(GRID_WIDTH, status[MinesweeperGame.STATUS_GRID_WIDTH]);
+        assertEquals(NUM_OF_MINES, status[MinesweeperGame.STATUS_NUM_OF_MINES]);
+        assertEquals(0, status[MinesweeperGame.STATUS_PLAYER_HAS_WON]);
+        assertEquals(0, status[MinesweeperGame.STATUS_PLAYER_HAS_LOST]);
+        assertEquals(visualState.length - count(visualState, UNCHECKED_STATE) -
+                     count(visualState, MARKED_STATE),
+                     status[MinesweeperGame.STATUS_NUM_OF_REVEALED_CELLS]);
+        assertEquals(1, status[MinesweeperGame.STATUS_NUM_OF_MARKED_CELLS]);
+    }
+
+    @Test
+    public void applyActions_matchesSequentialActions() {
+        game.checkInputCoordinates(5, 4);
+        final String saved = game.serialise();
+        final int[] solution = visualiseSolution();
+        final int mineIndex = firstIndexOf(solution, MARKED_STATE);
+        final int[] actions = {
+                MinesweeperGame.MARK_ACTION, mineIndex % GRID_WIDTH, mineIndex / GRID_WIDTH,
+                MinesweeperGame.CHECK_ACTION, 0, 0,
+                MinesweeperGame.CHECK_ACTION, GRID_WIDTH - 1, GRID_HEIGHT - 1,
+                MinesweeperGame.COMPLETE_AROUND_ACTION, 5, 4,
+        };
+
+        final MinesweeperGame sequentialGame = createGame();
+        try {
+            assertTrue(sequentialGame.deserialise(saved));
+            for (int i = 0; i < actions.length; i += MinesweeperGame.ACTION_SIZE) {
+                final int x = actions[i + 1];
+                final int y = actions[i + 2];
+                switch (actions[i]) {
+                    case MinesweeperGame.CHECK_ACTION:
+                        sequentialGame.checkInputCoordinates(x, y);
+                        break;
+                    case MinesweeperGame.MARK_ACTION:
+                        sequentialGame.markInputCoordinates(x, y);
+                        break;
+                    default:
+                        sequentialGame.completeAroundInputCoordinates(x, y);
+                        break;
+                }
+            }
+
+            game.applyActions(actions);
+
+            assertArrayEquals(visualise(sequentialGame), visualise());
+            assertEquals(sequentialGame.playerHasLost(), game.playerHasLost());
+        } finally {
+            sequentialGame.close();
+        }
+    }
+
+    @Test
+    public void applyActions_outsideGrid_isIgnored() {
+        game.checkInputCoordinates(5, 4);
+        final int[] visualState = visualise();
+
+        game.applyActions(new int[]{
+                MinesweeperGame.CHECK_ACTION, -1, 0,
+                MinesweeperGame.MARK_ACTION, GRID_WIDTH, 0,
+                MinesweeperGame.CHECK_ACTION, 0, GRID_HEIGHT,
+        });
+
+        assertArrayEquals(visualState, visualise());
+    }
+
+    @Test
+    public void boardMemoryUsage_growsWithGrid() {
+        final long smallGridMemoryUsage = game.getBoardMemoryUsage();
+        assertTrue(smallGridMemoryUsage > 0);
+
+        game.newGame(10 * GRID_HEIGHT, 10 * GRID_WIDTH, NUM_OF_MINES);
+
+        assertTrue(game.getBoardMemoryUsage() > smallGridMemoryUsage);
+        assertTrue(game.getPendingResultMemoryUsage() >= 0);
+    }
+
+    @Test
+    public void checkOnGridWithoutMines_opensWholeGrid() {
+        game.newGame(GRID_HEIGHT, GRID_WIDTH, 0);
+        assertEquals(0, game.getNumOfCellsOpenedByLastAction());
+
+        game.checkInputCoordinates(5, 4);
+
+        assertEquals(GRID_HEIGHT * GRID_WIDTH, game.getNumOfCellsOpenedByLastAction());
+        assertArrayEquals(filled(0), visualise());
+        assertTrue(game.playerHasWon());
+    }
+
+    @Test
+    public void firstCheck_opensExactlyTheAreaAroundEmptyCells() {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            game.newGame(GRID_HEIGHT, GRID_WIDTH, NUM_OF_MINES);
+            game.checkInputCoordinates(5, 4);
+
+            final int[] visualState = visualise();
+            final int numOfVisibleCells = GRID_HEIGHT * GRID_WIDTH -
+                                          count(visualState, UNCHECKED_STATE);
+            assertEquals(numOfVisibleCells, game.getNumOfCellsOpenedByLastAction());
+            for (int y = 0; y < GRID_HEIGHT; y++) {
+                for (int x = 0; x < GRID_WIDTH; x++) {
+                    final int state = visualState[y * GRID_WIDTH + x];
+                    if (state == 0) {
+                        // empty cells open all their neighbours
+                        assertEquals(0, countAround(visualState, x, y, UNCHECKED_STATE));
+                    } else if (state != UNCHECKED_STATE && (x != 5 || y != 4)) {
+                        // other cells are only opened next to empty cells
+                        assertTrue(countAround(visualState, x, y, 0) > 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void actionsThatOpenNothing_reportNoOpenedCells() {
+        game.checkInputCoordinates(5, 4);
+        assertTrue(game.getNumOfCellsOpenedByLastAction() > 0);
+
+        game.checkInputCoordinates(5, 4);
+        assertEquals(0, game.getNumOfCellsOpenedByLastAction());
+
+        final int hiddenCellIndex = firstIndexOf(visualise(), UNCHECKED_STATE);
+        game.markInputCoordinates(hiddenCellIndex % GRID_WIDTH, hiddenCellIndex / GRID_WIDTH);
+        assertEquals(0, game.getNumOfCellsOpenedByLastAction());
+
+        game.reset(true);
+        assertEquals(0, game.getNumOfCellsOpenedByLastAction());
+    }
+
+    @Test
+    public void counters_followActionsResetsAndLoads() {
+        final int numOfSafeCells = GRID_HEIGHT * GRID_WIDTH - NUM_OF_MINES;
+        assertCounters(0, 0, numOfSafeCells, 0);
+
+        game.checkInputCoordinates(5, 4);
+        final int numOfRevealedCells = GRID_HEIGHT * GRID_WIDTH -
+                                       count(visualise(), UNCHECKED_STATE);
+        final int hiddenCellIndex = firstIndexOf(visualise(), UNCHECKED_STATE);
+        game.markInputCoordinates(hiddenCellIndex % GRID_WIDTH, hiddenCellIndex / GRID_WIDTH);
+        assertCounters(numOfRevealedCells, 1, numOfSafeCells - numOfRevealedCells, 0);
+
+        final String save = game.serialise();
+        final int[] solution = visualiseSolution();
+        // (checks on marked cells are ignored)
+        solution[hiddenCellIndex] = UNCHECKED_STATE;
+        final int mineIndex = firstIndexOf(solution, MARKED_STATE);
+        game.checkInputCoordinates(mineIndex % GRID_WIDTH, mineIndex / GRID_WIDTH);
+        assertCounters(numOfRevealedCells, 1, numOfSafeCells - numOfRevealedCells, 1);
+        assertTrue(game.playerHasLost());
+
+        assertTrue(game.deserialise(save));
+        assertCounters(numOfRevealedCells, 1, numOfSafeCells - numOfRevealedCells, 0);
+        assertFalse(game.playerHasLost());
+
+        game.reset(true);
+        assertCounters(0, 0, numOfSafeCells, 0);
+    }
+
+    @Test
+    public void status_matchesCounters() {
+        game.checkInputCoordinates(5, 4);
+        final int mineIndex = firstIndexOf(visualiseSolution(), MARKED_STATE);
+        game.checkInputCoordinates(mineIndex % GRID_WIDTH, mineIndex / GRID_WIDTH);
+
+        final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+        game.getStatus(status);
+
+        assertEquals(game.getNumOfTrippedMines(),
+                     status[MinesweeperGame.STATUS_NUM_OF_TRIPPED_MINES]);
+        assertEquals(game.getNumOfRevealedSafeCells(),
+                     status[MinesweeperGame.STATUS_NUM_OF_REVEALED_CELLS] -
+                     status[MinesweeperGame.STATUS_NUM_OF_TRIPPED_MINES]);
+    }
+
+    // +----------+
+    // | helpers: |
+    // +----------+
+
+    private int[] visualise() {
+        return visualise(game);
+    }
+
+    private int[] visualiseSolution() {
+        return visualiseSolution(game);
+    }
+
+    private void assertCounters(int numOfRevealedSafeCells, int numOfMarkedCells,
+                                int numOfRemainingSafeCells, int numOfTrippedMines) {
+        assertEquals(numOfRevealedSafeCells, game.getNumOfRevealedSafeCells());
+        assertEquals(numOfMarkedCells, game.getNumOfMarkedCells());
+        assertEquals(numOfRemainingSafeCells, game.getNumOfRemainingSafeCells());
+        assertEquals(numOfTrippedMines, game.getNumOfTrippedMines());
+    }
+
+    private static int[] visualise(MinesweeperGame game) {
+        final int[] result = new int[game.getGridHeight() * game.getGridWidth()];
+        game.visualiseInto(result);
+        return result;
+    }
+
+    private static int[] visualiseSolution(MinesweeperGame game) {
+        final int[] result = new int[game.getGridHeight() * game.getGridWidth()];
+        game.visualiseSolutionInto(result);
+        return result;
+    }
+
+    private static int[] filled(int value) {
+        final int[] result = new int[GRID_HEIGHT * GRID_WIDTH];
+        Arrays.fill(result, value);
+        return result;
+    }
+
+    private static int count(int[] values, int value) {
+        int count = 0;
+        for (int v : values) {
+            if (v == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int countAround(int[] visualState, int x, int y, int value) {
+        int count = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(GRID_HEIGHT - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(GRID_WIDTH - 1, x + 1); nx++) {
+                if (visualState[ny * GRID_WIDTH + nx] == value) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int firstIndexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        throw new AssertionError("Value " + value + " not found.");
+    }
+}
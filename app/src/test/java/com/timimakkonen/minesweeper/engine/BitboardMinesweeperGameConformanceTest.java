@@ -0,0 +1,12 @@
+package com.timimakkonen.minesweeper.engine;
+
+/**
+ * Runs the engine conformance suite against the bitboard engine on the JVM.
+ */
+public class BitboardMinesweeperGameConformanceTest extends MinesweeperGameConformanceTest {
+
+    @Override
+    protected MinesweeperGame createGame() {
+        return new BitboardMinesweeperGame();
+    }
+}
@@ -0,0 +1,87 @@
+package com.timimakkonen.minesweeper.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the bitboard engine with the plain Java engine on grids spanning several words per
+ * row. Both engines place mines in the same way, so with equally seeded random number generators
+ * they play the same games, on any number of board generation threads.
+ */
+public class BitboardMinesweeperGameTest {
+
+    private static final long SEED = 42L;
+
+    @Test
+    public void playsLikeJavaEngine_onWideGrids() {
+        final int[][] gridSizes = {{1, 200}, {70, 64}, {33, 129}, {90, 150}};
+        for (int[] gridSize : gridSizes) {
+            for (double proportionOfMines : new double[]{0.02, 0.15, 0.3}) {
+                playSameGame(gridSize[0], gridSize[1], proportionOfMines);
+            }
+        }
+    }
+
+    @Test
+    public void generatesSameBoard_onAnyNumOfThreads() {
+        final int gridHeight = 4 * RowBandExecutor.BAND_HEIGHT + 9;
+        final int gridWidth = 150;
+        final int[] expected = generateBoard(new JavaMinesweeperGame(new Random(SEED)),
+                                             gridHeight, gridWidth);
+        for (int numOfThreads : new int[]{1, 2, 5}) {
+            try (RowBandExecutor bandExecutor = new RowBandExecutor(numOfThreads)) {
+                assertArrayEquals(expected, generateBoard(
+                        new JavaMinesweeperGame(new Random(SEED), bandExecutor), gridHeight,
+                        gridWidth));
+                assertArrayEquals(expected, generateBoard(
+                        new BitboardMinesweeperGame(new Random(SEED), bandExecutor), gridHeight,
+                        gridWidth));
+            }
+        }
+    }
+
+    /**
+     * @return Solution of a new game, after its first check.
+     */
+    private static int[] generateBoard(MinesweeperGame game, int gridHeight, int gridWidth) {
+        game.newGame(gridHeight, gridWidth, gridHeight * gridWidth / 5);
+        game.checkInputCoordinates(gridWidth / 2, RowBandExecutor.BAND_HEIGHT);
+        final int[] solution = new int[gridHeight * gridWidth];
+        game.visualiseSolutionInto(solution);
+        return solution;
+    }
+
+    private static void playSameGame(int gridHeight, int gridWidth, double proportionOfMines) {
+        final MinesweeperGame javaGame = new JavaMinesweeperGame(new Random(SEED));
+        final MinesweeperGame bitboardGame = new BitboardMinesweeperGame(new Random(SEED));
+        final Random actionRandom = new Random(SEED);
+        final int numOfMines = Math.min((int) (proportionOfMines * gridHeight * gridWidth),
+                                        javaGame.getMaxNumOfMines(gridHeight, gridWidth));
+        javaGame.newGame(gridHeight, gridWidth, numOfMines);
+        bitboardGame.newGame(gridHeight, gridWidth, numOfMines);
+
+        final int[] javaCells = new int[gridHeight * gridWidth];
+        final int[] bitboardCells = new int[gridHeight * gridWidth];
+        for (int i = 0; i < 200 && !javaGame.playerHasLost() && !javaGame.playerHasWon(); i++) {
+            final int action = (i == 0) ? MinesweeperGame.CHECK_ACTION : actionRandom.nextInt(3);
+            final int[] actions = {action, actionRandom.nextInt(gridWidth),
+                                   actionRandom.nextInt(gridHeight)};
+            javaGame.applyActions(actions);
+            bitboardGame.applyActions(actions);
+
+            javaGame.visualiseInto(javaCells);
+            bitboardGame.visualiseInto(bitboardCells);
+            assertArrayEquals(javaCells, bitboardCells);
+            assertEquals(javaGame.playerHasLost(), bitboardGame.playerHasLost());
+            assertEquals(javaGame.playerHasWon(), bitboardGame.playerHasWon());
+        }
+
+        javaGame.visualiseSolutionInto(javaCells);
+        bitboardGame.visualiseSolutionInto(bitboardCells);
+        assertArrayEquals(javaCells, bitboardCells);
+    }
+}
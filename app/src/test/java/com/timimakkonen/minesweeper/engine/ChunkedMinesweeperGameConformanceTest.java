@@ -0,0 +1,12 @@
+package com.timimakkonen.minesweeper.engine;
+
+/**
+ * Runs the engine conformance suite against the chunked engine on the JVM.
+ */
+public class ChunkedMinesweeperGameConformanceTest extends MinesweeperGameConformanceTest {
+
+    @Override
+    protected MinesweeperGame createGame() {
+        return new ChunkedMinesweeperGame();
+    }
+}
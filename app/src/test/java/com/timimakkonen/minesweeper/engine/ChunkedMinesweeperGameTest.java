@@ -0,0 +1,151 @@
+package com.timimakkonen.minesweeper.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the chunked engine with the plain Java engine on grids spanning several tiles, by
+ * loading the mines of the chunked engine into the Java engine, and checks that a huge grid only
+ * takes memory for the area explored and that its change log stays complete.
+ */
+public class ChunkedMinesweeperGameTest {
+
+    private static final long SEED = 42L;
+
+    @Test
+    public void playsLikeJavaEngine_acrossTiles() {
+        final int[][] gridSizes = {{1, 200}, {70, 64}, {130, 129}, {150, 200}};
+        for (int[] gridSize : gridSizes) {
+            for (double proportionOfMines : new double[]{0.0, 0.02, 0.15, 0.3}) {
+                playSameGame(gridSize[0], gridSize[1], proportionOfMines);
+            }
+        }
+    }
+
+    @Test
+    public void visualiseChangesSince_isCompleteWhenRevealOpensSeveralTiles() {
+        // (the log limit grows with the opened tiles, also in the middle of a reveal)
+        for (long seed = SEED; seed < SEED + 64; seed++) {
+            final ChunkedMinesweeperGame game = new ChunkedMinesweeperGame(new Random(seed));
+            game.newGame(101, 110, 0.1);
+            final int[] tracked = new int[101 * 110];
+            game.visualiseInto(tracked);
+            final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+            game.getStatus(status);
+
+            game.checkInputCoordinates(55, 50);
+
+            final int[] changes =
+                    game.visualiseChangesSince(status[MinesweeperGame.STATUS_STATE_REVISION]);
+            if (changes[1] != MinesweeperGame.CHANGES_UNAVAILABLE) {
+                for (int j = 0; j < changes[1]; j++) {
+                    tracked[changes[2 + 2 * j]] = changes[3 + 2 * j];
+                }
+                final int[] visualState = new int[101 * 110];
+                game.visualiseInto(visualState);
+                assertArrayEquals(visualState, tracked);
+            }
+        }
+    }
+
+    @Test
+    public void hugeGrid_onlyTakesMemoryForExploredArea() {
+        final ChunkedMinesweeperGame game = new ChunkedMinesweeperGame(new Random(SEED));
+        game.newGame(10000, 10000, 0.1);
+        game.checkInputCoordinates(5000, 5000);
+        final Random random = new Random(SEED);
+        for (int i = 0; i < 100 && !game.playerHasLost(); i++) {
+            game.checkInputCoordinates(4900 + random.nextInt(200), 4900 + random.nextInt(200));
+        }
+
+        assertTrue(game.getNumOfRevealedSafeCells() > 0);
+        assertTrue(game.getNumOfOpenedTiles() <= 25);
+        assertTrue(game.getNumOfMinedTiles() <= 49);
+        assertTrue(game.getBoardMemoryUsage() < 1024 * 1024);
+
+        final ByteBuffer saved = game.serialiseToBuffer();
+        assertTrue(saved.remaining() < 64 * 1024);
+        final ChunkedMinesweeperGame loadedGame = new ChunkedMinesweeperGame();
+        assertTrue(loadedGame.deserialiseFromBuffer(saved));
+        final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+        final int[] loadedStatus = new int[MinesweeperGame.STATUS_SIZE];
+        game.getStatus(status);
+        loadedGame.getStatus(loadedStatus);
+        for (int i : new int[]{MinesweeperGame.STATUS_NUM_OF_REVEALED_CELLS,
+                               MinesweeperGame.STATUS_PLAYER_HAS_LOST,
+                               MinesweeperGame.STATUS_NUM_OF_TRIPPED_MINES}) {
+            assertEquals(status[i], loadedStatus[i]);
+        }
+        assertEquals(game.getNumOfRevealedSafeCells(), loadedGame.getNumOfRevealedSafeCells());
+        assertTrue(loadedGame.isCellVisible(5000, 5000));
+    }
+
+    private static void playSameGame(int gridHeight, int gridWidth, double proportionOfMines) {
+        final MinesweeperGame chunkedGame = new ChunkedMinesweeperGame(new Random(SEED));
+        final Random actionRandom = new Random(SEED);
+        final int numOfMines = Math.min((int) (proportionOfMines * gridHeight * gridWidth),
+                                        chunkedGame.getMaxNumOfMines(gridHeight, gridWidth));
+        chunkedGame.newGame(gridHeight, gridWidth, numOfMines);
+        final int[] firstCheck = {MinesweeperGame.CHECK_ACTION, actionRandom.nextInt(gridWidth),
+                                  actionRandom.nextInt(gridHeight)};
+        chunkedGame.applyActions(firstCheck);
+        final MinesweeperGame javaGame = new JavaMinesweeperGame();
+        assertTrue(javaGame.deserialise(javaSaveOfMines(chunkedGame)));
+        javaGame.applyActions(firstCheck);
+
+        final int[] javaCells = new int[gridHeight * gridWidth];
+        final int[] chunkedCells = new int[gridHeight * gridWidth];
+        for (int i = 0; i < 200 && !javaGame.playerHasLost() && !javaGame.playerHasWon(); i++) {
+            javaGame.visualiseInto(javaCells);
+            chunkedGame.visualiseInto(chunkedCells);
+            assertArrayEquals(javaCells, chunkedCells);
+            assertEquals(javaGame.getNumOfCellsOpenedByLastAction(),
+                         chunkedGame.getNumOfCellsOpenedByLastAction());
+
+            final int[] actions = {actionRandom.nextInt(3), actionRandom.nextInt(gridWidth),
+                                   actionRandom.nextInt(gridHeight)};
+            javaGame.applyActions(actions);
+            chunkedGame.applyActions(actions);
+        }
+        javaGame.visualiseInto(javaCells);
+        chunkedGame.visualiseInto(chunkedCells);
+        assertArrayEquals(javaCells, chunkedCells);
+        assertEquals(javaGame.playerHasLost(), chunkedGame.playerHasLost());
+        assertEquals(javaGame.playerHasWon(), chunkedGame.playerHasWon());
+        assertEquals(javaGame.getNumOfMarkedCells(), chunkedGame.getNumOfMarkedCells());
+        assertFalse(chunkedGame.getNumOfTrippedMines() > 0 && !chunkedGame.playerHasLost());
+
+        javaGame.visualiseSolutionInto(javaCells);
+        chunkedGame.visualiseSolutionInto(chunkedCells);
+        assertArrayEquals(javaCells, chunkedCells);
+    }
+
+    /**
+     * @return Text save of the Java engine (see {@link JavaMinesweeperGame#serialise()}) with
+     * the mines of the given game, and no visible or marked cells.
+     */
+    private static String javaSaveOfMines(MinesweeperGame game) {
+        final int gridHeight = game.getGridHeight();
+        final int gridWidth = game.getGridWidth();
+        final int[] solution = new int[gridHeight * gridWidth];
+        game.visualiseSolutionInto(solution);
+        final StringBuilder sb = new StringBuilder("JavaMinesweeperGame 1\n");
+        sb.append(gridHeight).append(' ').append(gridWidth).append(' ')
+          .append(game.getNumOfMines()).append(" 1 0\n");
+        for (int y = 0; y < gridHeight; y++) {
+            for (int x = 0; x < gridWidth; x++) {
+                // (a marked cell of the solution is a mine)
+                sb.append(solution[y * gridWidth + x] == 10 ? '1' : '0');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
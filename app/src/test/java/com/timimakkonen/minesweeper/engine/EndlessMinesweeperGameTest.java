@@ -0,0 +1,213 @@
+package com.timimakkonen.minesweeper.engine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the mines of the endless engine only depend on the board seed and the position,
+ * that wandering far keeps the number of loaded chunks bounded while evicted chunks come back as
+ * they were, and that saves are loaded together with the chunk store.
+ */
+public class EndlessMinesweeperGameTest {
+
+    private static final long SEED = 42L;
+    private static final int GRID_HEIGHT = 40;
+    private static final int GRID_WIDTH = 30;
+
+    private File storeFile;
+
+    @Before
+    public void createStoreFile() throws IOException {
+        storeFile = File.createTempFile("endless", ".chunks");
+    }
+
+    @After
+    public void deleteStoreFile() {
+        //noinspection ResultOfMethodCallIgnored
+        storeFile.delete();
+    }
+
+    @Test
+    public void mines_onlyDependOnSeedAndPosition() throws IOException {
+        final EndlessMinesweeperGame game = newGame(new Random(SEED));
+        // (without a chunk store, far chunks are only dropped if they can be drawn again)
+        final EndlessMinesweeperGame movedGame =
+                new EndlessMinesweeperGame(new Random(SEED), new ChunkStore(null));
+        movedGame.newGame(GRID_HEIGHT, GRID_WIDTH, 0.2);
+        game.checkInputCoordinates(5, 5);
+        movedGame.checkInputCoordinates(5, 5);
+        movedGame.moveWindow(1000, -1000);
+        movedGame.moveWindow(-1000 + 7, 1000 - 3);
+
+        final int[] solution = new int[GRID_HEIGHT * GRID_WIDTH];
+        final int[] movedSolution = new int[GRID_HEIGHT * GRID_WIDTH];
+        game.moveWindow(7, -3);
+        game.visualiseSolutionInto(solution);
+        movedGame.visualiseSolutionInto(movedSolution);
+        assertArrayEquals(solution, movedSolution);
+
+        int numOfMines = 0;
+        for (int cell : solution) {
+            if (cell == 10) {
+                numOfMines++;
+            }
+        }
+        assertTrue(numOfMines > 0 && numOfMines < solution.length / 2);
+        game.close();
+        movedGame.close();
+    }
+
+    @Test
+    public void wanderingFar_evictsChunksAndReloadsThem() throws IOException {
+        final EndlessMinesweeperGame game = newGame(new Random(SEED));
+        game.checkInputCoordinates(GRID_WIDTH / 2, GRID_HEIGHT / 2);
+        final int[] startCells = new int[GRID_HEIGHT * GRID_WIDTH];
+        game.visualiseInto(startCells);
+        final int numOfRevealedSafeCells = game.getNumOfRevealedSafeCells();
+
+        // mark a cell in each window along a long walk, so the chunks have to be stored
+        final Random walkRandom = new Random(SEED);
+        final int numOfSteps = 600;
+        for (int i = 0; i < numOfSteps; i++) {
+            game.moveWindow(GRID_WIDTH, 0);
+            game.markInputCoordinates(walkRandom.nextInt(GRID_WIDTH),
+                                      walkRandom.nextInt(GRID_HEIGHT));
+            assertTrue(game.getNumOfLoadedChunks() <= 256);
+        }
+        assertEquals(numOfSteps, game.getNumOfMarkedCells());
+        assertTrue(game.getNumOfOpenedChunks() < 256);
+
+        game.moveWindow(-numOfSteps * GRID_WIDTH, 0);
+        final int[] cells = new int[GRID_HEIGHT * GRID_WIDTH];
+        game.visualiseInto(cells);
+        assertArrayEquals(startCells, cells);
+        assertEquals(numOfRevealedSafeCells, game.getNumOfRevealedSafeCells());
+        game.close();
+    }
+
+    @Test
+    public void saveAndLoad_restoresWindowAndStoredChunks() throws IOException {
+        final EndlessMinesweeperGame game = newGame(new Random(SEED));
+        game.checkInputCoordinates(GRID_WIDTH / 2, GRID_HEIGHT / 2);
+        final int[] startCells = new int[GRID_HEIGHT * GRID_WIDTH];
+        game.visualiseInto(startCells);
+        for (int i = 0; i < 400; i++) {
+            game.moveWindow(0, GRID_HEIGHT);
+            game.markInputCoordinates(i % GRID_WIDTH, 0);
+        }
+        final ByteBuffer saved = game.serialiseToBuffer();
+        final String savedText = game.serialise();
+        final int[] cells = new int[GRID_HEIGHT * GRID_WIDTH];
+        game.visualiseInto(cells);
+
+        // changes made after the save are dropped on load
+        game.moveWindow(0, -400 * GRID_HEIGHT);
+        game.markInputCoordinates(0, 0);
+        game.moveWindow(0, 400 * GRID_HEIGHT);
+        game.close();
+
+        // (starting a new game would clear the chunk store)
+        final EndlessMinesweeperGame loadedGame =
+                new EndlessMinesweeperGame(new Random(), openStore());
+        assertTrue(loadedGame.deserialiseFromBuffer(saved));
+        final int[] loadedCells = new int[GRID_HEIGHT * GRID_WIDTH];
+        loadedGame.visualiseInto(loadedCells);
+        assertArrayEquals(cells, loadedCells);
+        assertEquals(400, loadedGame.getNumOfMarkedCells());
+        assertEquals(game.getWindowY(), loadedGame.getWindowY());
+
+        loadedGame.moveWindow(0, -400 * GRID_HEIGHT);
+        loadedGame.visualiseInto(loadedCells);
+        assertArrayEquals(startCells, loadedCells);
+
+        assertTrue(loadedGame.deserialise(savedText));
+        assertFalse(loadedGame.deserialise(savedText.replace('0', 'x')));
+        assertEquals(400, loadedGame.getNumOfMarkedCells());
+        loadedGame.close();
+    }
+
+    // (the conformance suite assumes an exact number of mines, so this case is repeated here)
+    @Test
+    public void completeAround_beforeFirstCheck_isIgnored() throws IOException {
+        final EndlessMinesweeperGame game = newGame(new Random(SEED));
+        game.completeAroundInputCoordinates(5, 5);
+        game.applyActions(new int[]{MinesweeperGame.COMPLETE_AROUND_ACTION, 5, 5});
+
+        final int[] cells = new int[GRID_HEIGHT * GRID_WIDTH];
+        game.visualiseInto(cells);
+        final int[] uncheckedCells = new int[GRID_HEIGHT * GRID_WIDTH];
+        Arrays.fill(uncheckedCells, -1);
+        assertArrayEquals(uncheckedCells, cells);
+        assertFalse(game.playerHasLost());
+        assertEquals(0, game.getNumOfRevealedSafeCells());
+
+        game.checkInputCoordinates(5, 5);
+        assertTrue(game.isCellVisible(5, 5));
+        assertFalse(game.playerHasLost());
+        game.close();
+    }
+
+    @Test
+    public void chunkStore_compactsAndRestores() throws IOException {
+        final ChunkStore store = openStore();
+        store.clear(1L);
+        final long[] mines = new long[64];
+        final long[] visible = new long[64];
+        final long[] marked = new long[64];
+        mines[3] = 0xF0L;
+        visible[3] = ~0xF0L;
+        marked[5] = 1L;
+        assertTrue(store.save(0, 0, mines, visible, marked));
+        assertTrue(store.save(-1, 2, mines, visible, new long[64]));
+        final long savedLength = store.getLength();
+        marked[6] = 2L;
+        assertTrue(store.save(0, 0, mines, visible, marked));
+        assertTrue(store.getGarbageLength() > 0);
+
+        // a save made before the last record only sees the first version of chunk (0, 0)
+        assertTrue(store.restore(1L, savedLength));
+        assertEquals(2, store.getNumOfChunks());
+        final long[] loadedVisible = new long[64];
+        final long[] loadedMarked = new long[64];
+        assertTrue(store.load(0, 0, mines, loadedVisible, loadedMarked));
+        assertArrayEquals(visible, loadedVisible);
+        assertEquals(0L, loadedMarked[6]);
+        assertFalse(store.restore(2L, savedLength));
+
+        assertTrue(store.save(0, 0, mines, visible, marked));
+        store.compact(2L);
+        assertEquals(0, store.getGarbageLength());
+        store.close();
+
+        final ChunkStore reopenedStore = openStore();
+        assertEquals(2L, reopenedStore.getGeneration());
+        assertTrue(reopenedStore.load(0, 0, mines, loadedVisible, loadedMarked));
+        assertArrayEquals(marked, loadedMarked);
+        assertTrue(reopenedStore.contains(-1, 2));
+        assertFalse(reopenedStore.contains(1, 2));
+        reopenedStore.close();
+    }
+
+    private EndlessMinesweeperGame newGame(Random random) throws IOException {
+        final EndlessMinesweeperGame game = new EndlessMinesweeperGame(random, openStore());
+        game.newGame(GRID_HEIGHT, GRID_WIDTH, 0.2);
+        return game;
+    }
+
+    private ChunkStore openStore() throws IOException {
+        return new ChunkStore(new RandomAccessFile(storeFile, "rw").getChannel());
+    }
+}
@@ -0,0 +1,12 @@
+package com.timimakkonen.minesweeper.engine;
+
+/**
+ * Runs the engine conformance suite against the pure-Java engine on the JVM.
+ */
+public class JavaMinesweeperGameConformanceTest extends MinesweeperGameConformanceTest {
+
+    @Override
+    protected MinesweeperGame createGame() {
+        return new JavaMinesweeperGame();
+    }
+}
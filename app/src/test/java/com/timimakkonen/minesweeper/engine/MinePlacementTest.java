@@ -0,0 +1,149 @@
+package com.timimakkonen.minesweeper.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MinePlacementTest {
+
+    private static final long SEED = 42L;
+
+    @Test
+    public void placesAllMines_outsideFirstCheckArea_atAnyDensity() {
+        final Random random = new Random(SEED);
+        final int gridHeight = 13;
+        final int gridWidth = 17;
+        final int[][] safeCells = {{0, 0}, {16, 12}, {8, 6}, {0, 6}, {8, 12}};
+        for (int[] safeCell : safeCells) {
+            final int numOfCandidates = gridHeight * gridWidth - numOfCellsAround(
+                    safeCell[0], safeCell[1], gridHeight, gridWidth);
+            for (int numOfMines = 0; numOfMines <= numOfCandidates; numOfMines += 7) {
+                final boolean[] isMine = placeMines(random, gridHeight, gridWidth, numOfMines,
+                                                    safeCell[0], safeCell[1]);
+
+                assertEquals(numOfMines, countMines(isMine));
+                for (int y = 0; y < gridHeight; y++) {
+                    for (int x = 0; x < gridWidth; x++) {
+                        if (Math.abs(x - safeCell[0]) <= 1 && Math.abs(y - safeCell[1]) <= 1) {
+                            assertFalse(isMine[y * gridWidth + x]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void placesAllMines_acrossBands() {
+        final Random random = new Random(SEED);
+        // several bands, the first check on a band boundary
+        final int gridHeight = 3 * RowBandExecutor.BAND_HEIGHT + 5;
+        final int gridWidth = 7;
+        final int safeY = RowBandExecutor.BAND_HEIGHT;
+        final int maxNumOfMines = gridHeight * gridWidth - 9;
+        for (int numOfMines : new int[]{0, 1, 100, maxNumOfMines / 2, maxNumOfMines - 1,
+                                        maxNumOfMines}) {
+            final boolean[] isMine = placeMines(random, gridHeight, gridWidth, numOfMines, 3,
+                                                safeY);
+
+            assertEquals(numOfMines, countMines(isMine));
+            for (int y = safeY - 1; y <= safeY + 1; y++) {
+                for (int x = 2; x <= 4; x++) {
+                    assertFalse(isMine[y * gridWidth + x]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameSeed_placesSameMines_onAnyNumOfThreads() {
+        final int gridHeight = 5 * RowBandExecutor.BAND_HEIGHT + 17;
+        final int gridWidth = 100;
+        for (int numOfMines : new int[]{1000, 20000}) {
+            final boolean[] expected = placeMines(new Random(SEED), gridHeight, gridWidth,
+                                                  numOfMines, 50, 100);
+            for (int numOfThreads : new int[]{2, 3, 8}) {
+                try (RowBandExecutor bandExecutor = new RowBandExecutor(numOfThreads)) {
+                    final boolean[] isMine = placeMines(new Random(SEED), gridHeight, gridWidth,
+                                                        numOfMines, 50, 100, bandExecutor);
+                    assertArrayEquals(expected, isMine);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fillsAllCandidates_atMaxDensity() {
+        final boolean[] isMine = placeMines(new Random(SEED), 5, 5, 16, 2, 2);
+
+        assertEquals(16, countMines(isMine));
+    }
+
+    @Test
+    public void choosesCandidatesUniformly_belowAndAboveHalfDensity() {
+        // 4 x 4 grid with the first check in a corner leaves 12 candidates
+        for (int numOfMines : new int[]{3, 9}) {
+            final Random random = new Random(SEED);
+            final int numOfTrials = 20000;
+            final int[] numOfTimesMine = new int[16];
+            for (int trial = 0; trial < numOfTrials; trial++) {
+                final boolean[] isMine = placeMines(random, 4, 4, numOfMines, 0, 0);
+                for (int i = 0; i < isMine.length; i++) {
+                    numOfTimesMine[i] += isMine[i] ? 1 : 0;
+                }
+            }
+
+            final double expected = (double) numOfTrials * numOfMines / 12;
+            for (int i = 0; i < 16; i++) {
+                if (i % 4 <= 1 && i / 4 <= 1) {
+                    assertEquals(0, numOfTimesMine[i]);
+                } else {
+                    assertTrue(Math.abs(numOfTimesMine[i] - expected) < 0.05 * expected);
+                }
+            }
+        }
+    }
+
+    private static boolean[] placeMines(Random random, int gridHeight, int gridWidth,
+                                        int numOfMines, int safeX, int safeY) {
+        return placeMines(random, gridHeight, gridWidth, numOfMines, safeX, safeY,
+                          RowBandExecutor.SEQUENTIAL);
+    }
+
+    private static boolean[] placeMines(Random random, int gridHeight, int gridWidth,
+                                        int numOfMines, int safeX, int safeY,
+                                        RowBandExecutor bandExecutor) {
+        final boolean[] isMine = new boolean[gridHeight * gridWidth];
+        MinePlacement.placeMinesAround(random, gridHeight, gridWidth, numOfMines, safeX, safeY,
+                                       bandExecutor, new MinePlacement.MineGrid() {
+                                           @Override
+                                           public boolean isMine(int cellIndex) {
+                                               return isMine[cellIndex];
+                                           }
+
+                                           @Override
+                                           public void setMine(int cellIndex, boolean mine) {
+                                               isMine[cellIndex] = mine;
+                                           }
+                                       });
+        return isMine;
+    }
+
+    private static int numOfCellsAround(int x, int y, int gridHeight, int gridWidth) {
+        return (Math.min(gridWidth - 1, x + 1) - Math.max(0, x - 1) + 1) *
+               (Math.min(gridHeight - 1, y + 1) - Math.max(0, y - 1) + 1);
+    }
+
+    private static int countMines(boolean[] isMine) {
+        int count = 0;
+        for (boolean mine : isMine) {
+            count += mine ? 1 : 0;
+        }
+        return count;
+    }
+}
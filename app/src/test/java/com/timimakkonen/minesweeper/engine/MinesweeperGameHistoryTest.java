@@ -0,0 +1,244 @@
+package com.timimakkonen.minesweeper.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plays random games with the plain Java engine, recording every action, and checks that moving
+ * around the history restores the exact visual state and counters of each step.
+ */
+public class MinesweeperGameHistoryTest {
+
+    private static final long SEED = 42L;
+
+    @Test
+    public void moveTo_restoresEveryRecordedState() {
+        final Random random = new Random(SEED);
+        final int gridHeight = 40;
+        final int gridWidth = 50;
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        game.newGame(gridHeight, gridWidth, 150);
+        final MinesweeperGameHistory history = new MinesweeperGameHistory(game);
+
+        final List<int[]> snapshots = new ArrayList<>();
+        snapshots.add(visualise(game));
+        for (int i = 0; i < 300 && !game.playerHasWon(); i++) {
+            final int action = (i == 0) ? MinesweeperGame.CHECK_ACTION : random.nextInt(3);
+            final int[] actions = {action, random.nextInt(gridWidth), random.nextInt(gridHeight)};
+            game.applyActions(actions);
+            history.record(actions);
+            if (history.getNumOfSteps() == snapshots.size()) {
+                snapshots.add(visualise(game));
+            }
+            assertEquals(snapshots.size() - 1, history.getNumOfSteps());
+        }
+        assertTrue(history.getNumOfCheckpoints() > 1);
+
+        final int[] mirror = visualise(game);
+        for (int i = 0; i < 200; i++) {
+            final int position = random.nextInt(snapshots.size());
+            final int[] changes = history.moveTo(position);
+            assertNotNull(changes);
+            assertEquals(position, history.getPosition());
+            for (int k = 0; k < changes[1]; k++) {
+                mirror[changes[2 + 2 * k]] = changes[3 + 2 * k];
+            }
+            assertArrayEquals(snapshots.get(position), mirror);
+            assertArrayEquals(snapshots.get(position), visualise(game));
+        }
+    }
+
+    @Test
+    public void undo_ofFirstCheck_keepsMines() {
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        game.newGame(16, 16, 40);
+        final MinesweeperGameHistory history = new MinesweeperGameHistory(game);
+        final int[] check = {MinesweeperGame.CHECK_ACTION, 8, 8};
+        game.applyActions(check);
+        history.record(check);
+        final int[] afterCheck = visualise(game);
+        final int[] solution = new int[16 * 16];
+        game.visualiseSolutionInto(solution);
+
+        assertNotNull(history.undo());
+        assertEquals(0, game.getNumOfRevealedSafeCells());
+        assertFalse(history.canUndo());
+        assertNotNull(history.redo());
+        assertArrayEquals(afterCheck, visualise(game));
+        final int[] solutionAfterRedo = new int[16 * 16];
+        game.visualiseSolutionInto(solutionAfterRedo);
+        assertArrayEquals(solution, solutionAfterRedo);
+    }
+
+    @Test
+    public void redo_ofFirstCheck_afterMarkBeforeIt_keepsMarkIgnored() {
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        game.newGame(9, 9, 10);
+        final MinesweeperGameHistory history = new MinesweeperGameHistory(game);
+        // (a batch is split at the check creating the mines, as by 'MinesweeperRepository')
+        final int[] markBeforeCheck = {MinesweeperGame.MARK_ACTION, 8, 8};
+        game.applyActions(markBeforeCheck);
+        history.record(markBeforeCheck);
+        final int[] check = {MinesweeperGame.CHECK_ACTION, 0, 0};
+        game.applyActions(check);
+        history.record(check);
+        final int[] afterCheck = visualise(game);
+        assertEquals(1, history.getNumOfSteps());
+
+        assertNotNull(history.undo());
+        assertNotNull(history.redo());
+        assertFalse(history.canRedo());
+        assertEquals(0, game.getNumOfMarkedCells());
+        assertArrayEquals(afterCheck, visualise(game));
+    }
+
+    @Test
+    public void undo_ofMarks_loadsNothing() {
+        final CountingMinesweeperGame game = new CountingMinesweeperGame();
+        game.newGame(16, 16, 40);
+        final MinesweeperGameHistory history = new MinesweeperGameHistory(game);
+        final int[] check = {MinesweeperGame.CHECK_ACTION, 0, 0};
+        game.applyActions(check);
+        history.record(check);
+        for (int x = 0; x < 16; x++) {
+            final int[] mark = {MinesweeperGame.MARK_ACTION, x, 15};
+            game.applyActions(mark);
+            history.record(mark);
+        }
+        final int numOfMarkedCells = game.getNumOfMarkedCells();
+        assertTrue(numOfMarkedCells > 0);
+
+        while (game.getNumOfMarkedCells() > 0) {
+            assertNotNull(history.undo());
+        }
+        assertEquals(0, game.numOfLoads);
+        assertEquals(0, game.numOfResets);
+        history.moveTo(history.getNumOfSteps());
+        assertEquals(numOfMarkedCells, game.getNumOfMarkedCells());
+        assertEquals(0, game.numOfLoads);
+    }
+
+    @Test
+    public void record_afterUndo_dropsRedo() {
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        game.newGame(16, 16, 40);
+        final MinesweeperGameHistory history = new MinesweeperGameHistory(game);
+        final int[] check = {MinesweeperGame.CHECK_ACTION, 8, 8};
+        game.applyActions(check);
+        history.record(check);
+        final int[] mark = {MinesweeperGame.MARK_ACTION, 0, 0};
+        game.applyActions(mark);
+        history.record(mark);
+        history.undo();
+        assertTrue(history.canRedo());
+
+        final int[] otherMark = {MinesweeperGame.MARK_ACTION, 15, 15};
+        game.applyActions(otherMark);
+        history.record(otherMark);
+        assertFalse(history.canRedo());
+        assertEquals(2, history.getNumOfSteps());
+    }
+
+    @Test
+    public void record_ignoresActionsChangingNothing() {
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        game.newGame(16, 16, 40);
+        final MinesweeperGameHistory history = new MinesweeperGameHistory(game);
+        // (marks are ignored before the first check)
+        final int[] mark = {MinesweeperGame.MARK_ACTION, 3, 3};
+        game.applyActions(mark);
+        history.record(mark);
+        assertEquals(0, history.getNumOfSteps());
+        assertFalse(history.canUndo());
+    }
+
+    @Test
+    public void deserialiseFromBuffer_restoresSerialisedHistory() {
+        final Random random = new Random(SEED);
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        game.newGame(30, 30, 100);
+        final MinesweeperGameHistory history = new MinesweeperGameHistory(game);
+        final int[] initialState = visualise(game);
+        for (int i = 0; i < 50 && !game.playerHasLost() && !game.playerHasWon(); i++) {
+            final int action = (i == 0) ? MinesweeperGame.CHECK_ACTION : random.nextInt(2);
+            final int[] actions = {action, random.nextInt(30), random.nextInt(30)};
+            game.applyActions(actions);
+            history.record(actions);
+        }
+        history.moveTo(history.getNumOfSteps() / 2);
+        final int[] currentState = visualise(game);
+        final ByteBuffer gameSave = game.serialiseToBuffer();
+        final ByteBuffer historySave = history.serialiseToBuffer();
+
+        final MinesweeperGame loadedGame = new JavaMinesweeperGame(new Random(SEED));
+        assertTrue(loadedGame.deserialiseFromBuffer(gameSave));
+        final MinesweeperGameHistory loadedHistory = new MinesweeperGameHistory(loadedGame);
+        assertTrue(loadedHistory.deserialiseFromBuffer(historySave));
+        assertEquals(history.getPosition(), loadedHistory.getPosition());
+        assertEquals(history.getNumOfSteps(), loadedHistory.getNumOfSteps());
+        assertArrayEquals(currentState, visualise(loadedGame));
+
+        assertNotNull(loadedHistory.moveTo(0));
+        assertArrayEquals(initialState, visualise(loadedGame));
+    }
+
+    @Test
+    public void deserialiseFromBuffer_rejectsHistoryOfOtherState() {
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        game.newGame(16, 16, 40);
+        final MinesweeperGameHistory history = new MinesweeperGameHistory(game);
+        final int[] check = {MinesweeperGame.CHECK_ACTION, 8, 8};
+        game.applyActions(check);
+        history.record(check);
+        final ByteBuffer historySave = history.serialiseToBuffer();
+
+        final MinesweeperGame otherGame = new JavaMinesweeperGame(new Random(SEED));
+        otherGame.newGame(16, 16, 40);
+        final MinesweeperGameHistory otherHistory = new MinesweeperGameHistory(otherGame);
+        assertFalse(otherHistory.deserialiseFromBuffer(historySave));
+        assertEquals(0, otherHistory.getNumOfSteps());
+
+        final ByteBuffer truncated = (ByteBuffer) historySave.duplicate().limit(20);
+        assertFalse(history.deserialiseFromBuffer(truncated));
+        assertEquals(0, history.getNumOfSteps());
+    }
+
+    private static int[] visualise(MinesweeperGame game) {
+        final int[] cells = new int[game.getGridHeight() * game.getGridWidth()];
+        game.visualiseInto(cells);
+        return cells;
+    }
+
+    // counts the loads and resets made by the history
+    private static final class CountingMinesweeperGame extends JavaMinesweeperGame {
+
+        int numOfLoads = 0;
+        int numOfResets = 0;
+
+        CountingMinesweeperGame() {
+            super(new Random(SEED));
+        }
+
+        @Override
+        public void reset(boolean keepCreatedMines) {
+            numOfResets++;
+            super.reset(keepCreatedMines);
+        }
+
+        @Override
+        public boolean deserialiseFromBuffer(ByteBuffer buffer) {
+            numOfLoads++;
+            return super.deserialiseFromBuffer(buffer);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.timimakkonen.minesweeper.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelGameRunnerTest {
+
+    private static final int GRID_HEIGHT = 16;
+    private static final int GRID_WIDTH = 30;
+    private static final int NUM_OF_MINES = 99;
+    private static final int NUM_OF_GAMES = 200;
+
+    @Test
+    public void runGames_matchesSequentialGames() throws Exception {
+        final List<String> sequentialResults = new ArrayList<>();
+        for (int i = 0; i < NUM_OF_GAMES; i++) {
+            try (MinesweeperGame game = new JavaMinesweeperGame(new Random(i))) {
+                sequentialResults.add(playGame(game, i));
+            }
+        }
+
+        final List<String> parallelResults;
+        try (ParallelGameRunner runner = new ParallelGameRunner(
+                gameIndex -> new JavaMinesweeperGame(new Random(gameIndex)), 4)) {
+            parallelResults = runner.runGames(NUM_OF_GAMES, ParallelGameRunnerTest::playGame);
+        }
+
+        assertEquals(sequentialResults, parallelResults);
+    }
+
+    @Test
+    public void runGames_closesEveryGame() throws Exception {
+        final AtomicInteger numOfOpenGames = new AtomicInteger(0);
+        try (ParallelGameRunner runner = new ParallelGameRunner(gameIndex -> {
+            numOfOpenGames.incrementAndGet();
+            return new JavaMinesweeperGame() {
+                @Override
+                public void close() {
+                    numOfOpenGames.decrementAndGet();
+                }
+            };
+        })) {
+            final List<Integer> results = runner.runGames(NUM_OF_GAMES, (game, gameIndex) -> {
+                game.newGame(GRID_HEIGHT, GRID_WIDTH, NUM_OF_MINES);
+                return gameIndex;
+            });
+            assertEquals(NUM_OF_GAMES, results.size());
+            for (int i = 0; i < NUM_OF_GAMES; i++) {
+                assertEquals(i, (int) results.get(i));
+            }
+        }
+        assertEquals(0, numOfOpenGames.get());
+    }
+
+    @Test
+    public void runGames_throwingTask_throwsExecutionException() throws Exception {
+        try (ParallelGameRunner runner = new ParallelGameRunner(gameIndex -> new JavaMinesweeperGame(), 2)) {
+            runner.runGames(10, (game, gameIndex) -> {
+                if (gameIndex == 3) {
+                    throw new IllegalStateException("game " + gameIndex);
+                }
+                return gameIndex;
+            });
+            fail("Expected an ExecutionException.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_withoutThreads_throws() {
+        new ParallelGameRunner(gameIndex -> new JavaMinesweeperGame(), 0);
+    }
+
+    /**
+     * Checks cells from the top left corner onwards until the game ends.
+     *
+     * @return Summary of the finished game.
+     */
+    private static String playGame(MinesweeperGame game, int gameIndex) {
+        game.newGame(GRID_HEIGHT, GRID_WIDTH, NUM_OF_MINES);
+        final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+        for (int cellIndex = 0; cellIndex < GRID_HEIGHT * GRID_WIDTH; cellIndex++) {
+            final int x = cellIndex % GRID_WIDTH;
+            final int y = cellIndex / GRID_WIDTH;
+            if (!game.isCellVisible(x, y)) {
+                game.checkInputCoordinates(x, y);
+            }
+            if (game.playerHasWon() || game.playerHasLost()) {
+                break;
+            }
+        }
+        game.getStatus(status);
+        return gameIndex + ":" + game.playerHasWon() + ":" +
+               status[MinesweeperGame.STATUS_NUM_OF_REVEALED_CELLS];
+    }
+}
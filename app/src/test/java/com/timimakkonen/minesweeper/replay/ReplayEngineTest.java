@@ -0,0 +1,291 @@
+package com.timimakkonen.minesweeper.replay;
+
+import com.timimakkonen.minesweeper.engine.JavaMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGameHistory;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records random sessions with the plain Java engine the way 'MinesweeperRepository' does, and
+ * replays them into games with differently seeded mines, which must end up in the same state.
+ */
+public class ReplayEngineTest {
+
+    private static final long SEED = 42L;
+
+    @Test
+    public void replay_reproducesRecordedSession() throws InterruptedException {
+        final Session session = new Session(new JavaMinesweeperGame(new Random(SEED)));
+        session.startNewGame(30, 40, 200);
+        session.play(new Random(SEED), 300);
+        session.reset(true);
+        session.play(new Random(SEED + 1), 100);
+        session.reset(false);
+        session.play(new Random(SEED + 2), 100);
+
+        final MinesweeperGame replayedGame = new JavaMinesweeperGame(new Random(SEED + 3));
+        final ReplayEngine replayEngine = new ReplayEngine(replayedGame);
+        final int[] numOfRecords = {0};
+        assertTrue(replayEngine.replay(session.getLog(), ReplayEngine.AS_FAST_AS_POSSIBLE,
+                                       (recordType, durationMillis) -> numOfRecords[0]++));
+        assertEquals(replayEngine.getNumOfRecords(), numOfRecords[0]);
+        assertEquals(session.timeMillis, replayEngine.getDurationMillis());
+        assertSameState(session.game, replayedGame);
+        assertEquals(session.history.getPosition(), replayEngine.getHistory().getPosition());
+        assertEquals(session.history.getNumOfSteps(),
+                     replayEngine.getHistory().getNumOfSteps());
+    }
+
+    @Test
+    public void replay_startsFromSnapshot() throws InterruptedException {
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        final Session session = new Session(game);
+        session.startNewGame(16, 16, 40);
+        session.play(new Random(SEED), 50);
+        session.startFromSnapshot();
+        session.play(new Random(SEED + 1), 50);
+
+        final MinesweeperGame replayedGame = new JavaMinesweeperGame(new Random(SEED + 3));
+        assertTrue(new ReplayEngine(replayedGame).replay(
+                session.getLog(), ReplayEngine.AS_FAST_AS_POSSIBLE, null));
+        assertSameState(game, replayedGame);
+    }
+
+    @Test
+    public void replay_recordsBatchesAsOneStep() throws InterruptedException {
+        final Session session = new Session(new JavaMinesweeperGame(new Random(SEED)));
+        session.startNewGame(16, 16, 40);
+        // (the first check creates the mines, and the layout is logged before its batch)
+        session.applyBatch(new int[]{MinesweeperGame.CHECK_ACTION, 8, 8,
+                                     MinesweeperGame.MARK_ACTION, 0, 0,
+                                     MinesweeperGame.MARK_ACTION, 15, 15});
+        final Random random = new Random(SEED);
+        for (int i = 0; i < 10; i++) {
+            final int[] actions = new int[(1 + random.nextInt(4)) * MinesweeperGame.ACTION_SIZE];
+            for (int j = 0; j < actions.length; j += MinesweeperGame.ACTION_SIZE) {
+                actions[j] = random.nextInt(2) == 0 ? MinesweeperGame.MARK_ACTION
+                                                    : MinesweeperGame.CHECK_ACTION;
+                actions[j + 1] = random.nextInt(16);
+                actions[j + 2] = random.nextInt(16);
+            }
+            session.timeMillis += 500;
+            session.applyBatch(actions);
+        }
+        session.writer.writeUndo(session.timeMillis);
+        session.history.undo();
+        final int lengthBeforeLastBatch = session.getLog().remaining();
+        session.applyBatch(new int[]{MinesweeperGame.MARK_ACTION, 1, 2,
+                                     MinesweeperGame.MARK_ACTION, 3, 4});
+        final ByteBuffer log = session.getLog();
+
+        final MinesweeperGame replayedGame = new JavaMinesweeperGame(new Random(SEED + 3));
+        final ReplayEngine replayEngine = new ReplayEngine(replayedGame);
+        assertTrue(replayEngine.replay(log, ReplayEngine.AS_FAST_AS_POSSIBLE, null));
+        assertSameState(session.game, replayedGame);
+        assertEquals(session.history.getPosition(), replayEngine.getHistory().getPosition());
+        assertEquals(session.history.getNumOfSteps(),
+                     replayEngine.getHistory().getNumOfSteps());
+
+        // undoing back to the first batch removes its marks together with its check
+        replayEngine.getHistory().moveTo(0);
+        assertEquals(0, replayedGame.getNumOfMarkedCells());
+        assertEquals(0, replayedGame.getNumOfRevealedSafeCells());
+
+        // a log cut inside a batch is malformed (the batch header and the count take a byte each)
+        final ByteBuffer truncatedLog = log.duplicate();
+        truncatedLog.limit(lengthBeforeLastBatch + 2);
+        assertFalse(replayEngine.replay(truncatedLog, ReplayEngine.AS_FAST_AS_POSSIBLE, null));
+        truncatedLog.limit(lengthBeforeLastBatch);
+        assertTrue(replayEngine.replay(truncatedLog, ReplayEngine.AS_FAST_AS_POSSIBLE, null));
+    }
+
+    @Test
+    public void replay_ofMarkBeforeFirstCheck_matchesLiveGame() throws InterruptedException {
+        final Session session = new Session(new JavaMinesweeperGame(new Random(SEED)));
+        session.startNewGame(9, 9, 10);
+        // (the mark is ignored, as there are no mines yet)
+        session.applyBatch(new int[]{MinesweeperGame.MARK_ACTION, 8, 8,
+                                     MinesweeperGame.CHECK_ACTION, 0, 0});
+        assertEquals(0, session.game.getNumOfMarkedCells());
+        session.play(new Random(SEED), 50);
+
+        final MinesweeperGame replayedGame = new JavaMinesweeperGame(new Random(SEED + 3));
+        final ReplayEngine replayEngine = new ReplayEngine(replayedGame);
+        assertTrue(replayEngine.replay(session.getLog(), ReplayEngine.AS_FAST_AS_POSSIBLE, null));
+        assertSameState(session.game, replayedGame);
+        assertEquals(session.history.getPosition(), replayEngine.getHistory().getPosition());
+        assertEquals(session.history.getNumOfSteps(),
+                     replayEngine.getHistory().getNumOfSteps());
+    }
+
+    @Test
+    public void log_ofThousandMoves_fitsInFewKilobytes() {
+        final Session session = new Session(new JavaMinesweeperGame(new Random(SEED)));
+        session.startNewGame(30, 16, 99);
+        final Random random = new Random(SEED);
+        int x = 8;
+        int y = 15;
+        for (int i = 0; i < 1000; i++) {
+            // (local taps, a few hundred milliseconds apart)
+            x = Math.max(0, Math.min(15, x + random.nextInt(5) - 2));
+            y = Math.max(0, Math.min(29, y + random.nextInt(5) - 2));
+            session.timeMillis += 100 + random.nextInt(1000);
+            session.apply((i == 0) ? MinesweeperGame.CHECK_ACTION : random.nextInt(3), x, y);
+        }
+        assertTrue(session.getLog().remaining() < 5 * 1024);
+    }
+
+    @Test
+    public void replay_rejectsMalformedLogs() throws InterruptedException {
+        final Session session = new Session(new JavaMinesweeperGame(new Random(SEED)));
+        session.startNewGame(16, 16, 40);
+        session.play(new Random(SEED), 20);
+        final ByteBuffer log = session.getLog();
+
+        final ReplayEngine replayEngine =
+                new ReplayEngine(new JavaMinesweeperGame(new Random(SEED)));
+        final ByteBuffer truncatedLog = log.duplicate();
+        truncatedLog.limit(log.limit() - 1);
+        assertFalse(replayEngine.replay(truncatedLog, ReplayEngine.AS_FAST_AS_POSSIBLE, null));
+        final ByteBuffer headerlessLog = log.duplicate();
+        headerlessLog.position(1);
+        assertFalse(replayEngine.replay(headerlessLog, ReplayEngine.AS_FAST_AS_POSSIBLE, null));
+        assertTrue(replayEngine.replay(log, ReplayEngine.AS_FAST_AS_POSSIBLE, null));
+    }
+
+    private static void assertSameState(MinesweeperGame expected, MinesweeperGame actual) {
+        final int numOfCells = expected.getGridHeight() * expected.getGridWidth();
+        final int[] expectedCells = new int[numOfCells];
+        final int[] actualCells = new int[numOfCells];
+        expected.visualiseInto(expectedCells);
+        actual.visualiseInto(actualCells);
+        assertArrayEquals(expectedCells, actualCells);
+        expected.visualiseSolutionInto(expectedCells);
+        actual.visualiseSolutionInto(actualCells);
+        assertArrayEquals(expectedCells, actualCells);
+        assertEquals(expected.playerHasLost(), actual.playerHasLost());
+        assertEquals(expected.getNumOfMarkedCells(), actual.getNumOfMarkedCells());
+    }
+
+    // game recorded like in 'MinesweeperRepository', with a fake clock
+    private static final class Session {
+
+        final MinesweeperGame game;
+        final MinesweeperGameHistory history;
+        final ReplayLogWriter writer = new ReplayLogWriter();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long timeMillis = 0;
+        boolean minesMayBeUncreated = false;
+
+        Session(MinesweeperGame game) {
+            this.game = game;
+            this.history = new MinesweeperGameHistory(game);
+        }
+
+        void startNewGame(int gridHeight, int gridWidth, int numOfMines) {
+            game.newGame(gridHeight, gridWidth, numOfMines);
+            history.clear();
+            minesMayBeUncreated = true;
+            // (the old log is closed before its output is reused)
+            writer.close();
+            output.reset();
+            writer.startNewGame(Channels.newChannel(output), gridHeight, gridWidth, numOfMines,
+                                timeMillis);
+        }
+
+        void startFromSnapshot() {
+            // (the old log is closed before its output is reused)
+            writer.close();
+            output.reset();
+            writer.startFromSnapshot(Channels.newChannel(output), game.serialiseToBuffer(),
+                                     history.serialiseToBuffer(), timeMillis);
+        }
+
+        void reset(boolean keepCreatedMines) {
+            game.reset(keepCreatedMines);
+            history.clear();
+            minesMayBeUncreated |= !keepCreatedMines;
+            writer.writeReset(keepCreatedMines, timeMillis);
+        }
+
+        void play(Random random, int numOfMoves) {
+            for (int i = 0; i < numOfMoves && !game.playerHasLost() && !game.playerHasWon();
+                 i++) {
+                timeMillis += random.nextInt(2000);
+                final int move = random.nextInt(10);
+                if (move == 0 && history.canUndo()) {
+                    writer.writeUndo(timeMillis);
+                    history.undo();
+                } else if (move == 1 && history.canRedo()) {
+                    writer.writeRedo(timeMillis);
+                    history.redo();
+                } else {
+                    apply((i == 0) ? MinesweeperGame.CHECK_ACTION : random.nextInt(3),
+                          random.nextInt(game.getGridWidth()),
+                          random.nextInt(game.getGridHeight()));
+                }
+            }
+        }
+
+        void apply(int actionType, int x, int y) {
+            applyBatch(new int[]{actionType, x, y});
+        }
+
+        void applyBatch(int[] actions) {
+            // (split at the check that may create the mines, so the layout is logged before it)
+            final int firstCheck = minesMayBeUncreated ? indexOfFirstCheck(actions) : -1;
+            if (firstCheck > 0) {
+                applyStep(Arrays.copyOfRange(actions, 0, firstCheck));
+                applyStep(Arrays.copyOfRange(actions, firstCheck, actions.length));
+            } else {
+                applyStep(actions);
+            }
+        }
+
+        private void applyStep(int[] actions) {
+            game.applyActions(actions);
+            if (minesMayBeUncreated && containsCheck(actions) &&
+                game.getNumOfRevealedSafeCells() > 0) {
+                writer.writeLayout(game.serialiseToBuffer(), timeMillis);
+                minesMayBeUncreated = false;
+            }
+            writer.writeActions(actions, timeMillis);
+            history.record(actions);
+        }
+
+        private static int indexOfFirstCheck(int[] actions) {
+            for (int i = 0; i < actions.length; i += MinesweeperGame.ACTION_SIZE) {
+                if (actions[i] == MinesweeperGame.CHECK_ACTION) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean containsCheck(int[] actions) {
+            for (int i = 0; i < actions.length; i += MinesweeperGame.ACTION_SIZE) {
+                if (actions[i] == MinesweeperGame.CHECK_ACTION) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        ByteBuffer getLog() {
+            writer.flush();
+            return ByteBuffer.wrap(output.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.timimakkonen.minesweeper.replay;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that saves are written whole into the log wherever they fall in the buffer of the
+ * writer.
+ */
+public class ReplayLogWriterTest {
+
+    // magic, version and the 1 byte header of a record at the start time
+    private static final int HEADER_SIZE = 4 + 1 + 1;
+
+    @Test
+    public void snapshot_withGameSaveFillingBuffer_keepsBothSaves() {
+        // (after its 2 byte length, leaves 1 byte of the buffer, too few for the length of the
+        // history save)
+        final ByteBuffer gameSave =
+                filledBuffer(ReplayLogWriter.BUFFER_SIZE - HEADER_SIZE - 2 - 1, (byte) 1);
+        final ByteBuffer historySave = filledBuffer(300, (byte) 2);
+        final ReplayLogWriter writer = new ReplayLogWriter();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.startFromSnapshot(Channels.newChannel(output), gameSave, historySave, 0);
+        writer.close();
+        assertNull(writer.checkError());
+
+        final ByteBuffer log = ByteBuffer.wrap(output.toByteArray());
+        assertEquals(ReplayLogFormat.MAGIC, log.getInt());
+        assertEquals(ReplayLogFormat.VERSION, log.get());
+        assertEquals(ReplayLogFormat.SNAPSHOT_RECORD, ReplayLogFormat.getVarLong(log));
+        assertSameBytes(gameSave, log);
+        assertSameBytes(historySave, log);
+        assertEquals(0, log.remaining());
+    }
+
+    @Test
+    public void layout_largerThanBuffer_isWrittenWhole() {
+        final ByteBuffer gameSave = filledBuffer(3 * ReplayLogWriter.BUFFER_SIZE, (byte) 3);
+        final ReplayLogWriter writer = new ReplayLogWriter();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.startNewGame(Channels.newChannel(output), 16, 16, 40, 0);
+        writer.writeLayout(gameSave, 0);
+        writer.close();
+        assertNull(writer.checkError());
+
+        final ByteBuffer log = ByteBuffer.wrap(output.toByteArray());
+        log.position(HEADER_SIZE + 3);
+        assertEquals(ReplayLogFormat.LAYOUT_RECORD, ReplayLogFormat.getVarLong(log));
+        assertSameBytes(gameSave, log);
+        assertEquals(0, log.remaining());
+    }
+
+    private static ByteBuffer filledBuffer(int size, byte value) {
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            buffer.put(value);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // reads a varint length and the bytes after it from the log
+    private static void assertSameBytes(ByteBuffer expected, ByteBuffer log) {
+        final int length = ReplayLogFormat.getVarInt(log);
+        assertEquals(expected.remaining(), length);
+        final ByteBuffer bytes = log.slice();
+        bytes.limit(length);
+        assertTrue(expected.equals(bytes));
+        log.position(log.position() + length);
+    }
+}
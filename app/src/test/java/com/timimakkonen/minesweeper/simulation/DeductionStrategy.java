@@ -0,0 +1,99 @@
+package com.timimakkonen.minesweeper.simulation;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+import com.timimakkonen.minesweeper.solver.DeductionSolver;
+
+import java.util.Random;
+
+/**
+ * <p>
+ * Strategy following the hints of a {@link DeductionSolver}, as a careful player would: every
+ * cell known to be safe is checked and every cell known to be a mine is marked, in one batch of
+ * actions per round. When nothing is known, a random hidden cell that is not marked is checked
+ * (starting with the first check).
+ * </p>
+ * <p>
+ * The solver is kept up to date with the changes of each round (see 'visualiseChangesSince'), so
+ * a game costs about as much in the solver as it does in the engine. The win rate is that of
+ * guessing uniformly whenever stuck, without using mine probabilities.
+ * </p>
+ */
+final class DeductionStrategy implements SimulationHarness.Strategy {
+
+    @Override
+    public String getName() {
+        return "deduction";
+    }
+
+    @Override
+    public void play(MinesweeperGame game, Random random) {
+        final int gridHeight = game.getGridHeight();
+        final int gridWidth = game.getGridWidth();
+        final int numOfCells = gridHeight * gridWidth;
+        final DeductionSolver solver = new DeductionSolver();
+        final int[] states = new int[numOfCells];
+        // (marking again would unmark)
+        final boolean[] isMarked = new boolean[numOfCells];
+
+        int revision = -1;
+        while (!game.playerHasWon() && !game.playerHasLost()) {
+            final int[] changes = game.visualiseChangesSince(revision);
+            if (revision < 0 || changes[1] == MinesweeperGame.CHANGES_UNAVAILABLE) {
+                game.visualiseInto(states);
+                solver.reset(gridHeight, gridWidth, states);
+            } else {
+                final int[] changedCellIndices = new int[changes[1]];
+                final int[] newStates = new int[changes[1]];
+                for (int k = 0; k < changedCellIndices.length; k++) {
+                    changedCellIndices[k] = changes[2 + 2 * k];
+                    newStates[k] = changes[3 + 2 * k];
+                }
+                solver.update(changedCellIndices, newStates);
+            }
+            revision = changes[0];
+
+            final int[] knownSafeCells = solver.getKnownSafeCells();
+            if (knownSafeCells.length == 0) {
+                checkRandomCell(game, random, isMarked);
+                continue;
+            }
+            final int[] knownMines = solver.getKnownMines();
+            int numOfNewMarks = 0;
+            for (int cellIndex : knownMines) {
+                numOfNewMarks += isMarked[cellIndex] ? 0 : 1;
+            }
+            final int[] actions =
+                    new int[(knownSafeCells.length + numOfNewMarks) * MinesweeperGame.ACTION_SIZE];
+            int j = 0;
+            for (int cellIndex : knownSafeCells) {
+                actions[j++] = MinesweeperGame.CHECK_ACTION;
+                actions[j++] = cellIndex % gridWidth;
+                actions[j++] = cellIndex / gridWidth;
+            }
+            for (int cellIndex : knownMines) {
+                if (!isMarked[cellIndex]) {
+                    isMarked[cellIndex] = true;
+                    actions[j++] = MinesweeperGame.MARK_ACTION;
+                    actions[j++] = cellIndex % gridWidth;
+                    actions[j++] = cellIndex / gridWidth;
+                }
+            }
+            game.applyActions(actions);
+        }
+    }
+
+    private static void checkRandomCell(MinesweeperGame game, Random random, boolean[] isMarked) {
+        final int gridWidth = game.getGridWidth();
+        // (there is a hidden cell without a mark, since only mines are marked and the game is
+        //  not won yet)
+        while (true) {
+            final int cellIndex = random.nextInt(isMarked.length);
+            final int x = cellIndex % gridWidth;
+            final int y = cellIndex / gridWidth;
+            if (!isMarked[cellIndex] && !game.isCellVisible(x, y)) {
+                game.checkInputCoordinates(x, y);
+                return;
+            }
+        }
+    }
+}
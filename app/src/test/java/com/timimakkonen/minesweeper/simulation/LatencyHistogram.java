@@ -0,0 +1,102 @@
+package com.timimakkonen.minesweeper.simulation;
+
+/**
+ * <p>
+ * Histogram of latencies (in nanoseconds) with log-linear buckets, so that percentiles of
+ * millions of timings can be kept in constant space.
+ * </p>
+ * <p>
+ * Latencies below '2 * NUM_OF_SUB_BUCKETS' ns are counted exactly. Larger ones are counted in
+ * 'NUM_OF_SUB_BUCKETS' buckets per power of two, so a percentile is off by less than
+ * '1 / NUM_OF_SUB_BUCKETS' of its value (about 3%).
+ * </p>
+ * <p>
+ * This class is not thread-safe: each thread records into a histogram of its own, and the
+ * histograms are added together afterwards.
+ * </p>
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int NUM_OF_SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // the highest bit of a positive long is bit 62
+    private static final int NUM_OF_BUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
+
+    private final long[] counts = new long[NUM_OF_BUCKETS];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            // (the clock is monotonic, but let's not trust every platform)
+            nanos = 0;
+        }
+        counts[bucketIndex(nanos)]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        totalNanos += other.totalNanos;
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getTotalNanos() {
+        return totalNanos;
+    }
+
+    long getMaxNanos() {
+        return maxNanos;
+    }
+
+    double getMeanNanos() {
+        return (count > 0) ? (double) totalNanos / count : Double.NaN;
+    }
+
+    /**
+     * @return The given percentile (nearest rank), as the upper bound of its bucket (but at most
+     * the maximum), or 0 if nothing was recorded.
+     */
+    long getPercentileNanos(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, Math.min(count, (long) Math.ceil(fraction * count)));
+        long numOfCountedLatencies = 0;
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            numOfCountedLatencies += counts[i];
+            if (numOfCountedLatencies >= rank) {
+                return Math.min(maxNanos, bucketUpperBound(i));
+            }
+        }
+        return maxNanos;
+    }
+
+    private static int bucketIndex(long nanos) {
+        if (nanos < 2 * NUM_OF_SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        // (the top bits are in [NUM_OF_SUB_BUCKETS, 2 * NUM_OF_SUB_BUCKETS))
+        return (shift << SUB_BUCKET_BITS) + (int) (nanos >>> shift);
+    }
+
+    private static long bucketUpperBound(int bucketIndex) {
+        if (bucketIndex < 2 * NUM_OF_SUB_BUCKETS) {
+            return bucketIndex;
+        }
+        final int shift = (bucketIndex >>> SUB_BUCKET_BITS) - 1;
+        final long topBits = (bucketIndex & (NUM_OF_SUB_BUCKETS - 1)) + NUM_OF_SUB_BUCKETS;
+        return ((topBits + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,49 @@
+package com.timimakkonen.minesweeper.simulation;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import java.util.Random;
+
+/**
+ * <p>
+ * Strategy checking the hidden cells in random order until the game ends, reading the status and
+ * the changes after each check, as the repository does.
+ * </p>
+ * <p>
+ * It (nearly) never wins, so it mostly measures the engine: checks and their cascades, change
+ * tracking and status reads.
+ * </p>
+ */
+final class RandomStrategy implements SimulationHarness.Strategy {
+
+    @Override
+    public String getName() {
+        return "random";
+    }
+
+    @Override
+    public void play(MinesweeperGame game, Random random) {
+        final int gridWidth = game.getGridWidth();
+        final int[] cellOrder = new int[game.getGridHeight() * gridWidth];
+        for (int i = 0; i < cellOrder.length; i++) {
+            final int j = random.nextInt(i + 1);
+            cellOrder[i] = cellOrder[j];
+            cellOrder[j] = i;
+        }
+
+        final int[] status = new int[MinesweeperGame.STATUS_SIZE];
+        for (int cellIndex : cellOrder) {
+            final int x = cellIndex % gridWidth;
+            final int y = cellIndex / gridWidth;
+            if (game.isCellVisible(x, y)) {
+                continue;
+            }
+            game.getStatus(status);
+            game.checkInputCoordinates(x, y);
+            game.visualiseChangesSince(status[MinesweeperGame.STATUS_STATE_REVISION]);
+            if (game.playerHasLost() || game.playerHasWon()) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.timimakkonen.minesweeper.simulation;
+
+import com.timimakkonen.minesweeper.engine.BitboardMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.JavaMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.ParallelGameRunner;
+import com.timimakkonen.minesweeper.jni.AndroidMinesweeperGame;
+import com.timimakkonen.minesweeper.jni.MinesweeperGameSession;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * <p>
+ * Runs the {@link SimulationHarness} on the easy, medium and hard presets of 'GameViewModel' on
+ * the JVM, and prints a report per preset. It takes a while, so it is skipped unless an engine
+ * is given with '-Dsimulation.engine' (the 'simulation.*' options of Gradle are passed on to the
+ * unit tests, see 'build.gradle'):
+ * </p>
+ * <pre>
+ * ./gradlew :app:testDebugUnitTest --tests '*.SimulationBenchmark' -i \
+ *     -Dsimulation.engine=native -Dsimulation.nativeLibraryDir=$PWD/build/host/src
+ * </pre>
+ * <p>
+ * The native engines need the native library built for the host, with JNI found by CMake:
+ * </p>
+ * <pre>
+ * cmake -S app/src/main/cpp -B build/host -DFIND_JNI=ON -DCMAKE_BUILD_TYPE=Release
+ * cmake --build build/host
+ * </pre>
+ * <p>
+ * Options:
+ * </p>
+ * <ul>
+ * <li>'simulation.engine': 'native' (an 'AndroidMinesweeperGame' per game), 'session' (a
+ * 'MinesweeperGameSession' per game), 'java' or 'bitboard'.</li>
+ * <li>'simulation.nativeLibraryDir': Directory of the native library. If not given, it is
+ * searched for on 'java.library.path'.</li>
+ * <li>'simulation.strategy': 'deduction' (default) or 'random'.</li>
+ * <li>'simulation.games': Number of games per preset (default 10000), after a tenth as many to
+ * warm up.</li>
+ * <li>'simulation.threads': Number of threads (default: one per core).</li>
+ * <li>'simulation.seed': Seed of the strategies and the pure-Java engines (default 1234).</li>
+ * </ul>
+ */
+public class SimulationBenchmark {
+
+    private static final String NATIVE_LIBRARY_NAME = "libandroidminesweeper";
+
+    private static final int DEFAULT_NUM_OF_GAMES = 10000;
+    private static final int WARM_UP_DIVISOR = 10;
+    private static final long DEFAULT_SEED = 1234L;
+
+    @Test
+    public void simulatePresets() throws Exception {
+        final String engine = System.getProperty("simulation.engine");
+        assumeTrue(engine != null);
+
+        final long seed = Long.getLong("simulation.seed", DEFAULT_SEED);
+        final int numOfGames = Integer.getInteger("simulation.games", DEFAULT_NUM_OF_GAMES);
+        final int numOfThreads = Integer.getInteger("simulation.threads",
+                                                    Runtime.getRuntime().availableProcessors());
+        final SimulationHarness.Strategy strategy =
+                newStrategy(System.getProperty("simulation.strategy", "deduction"));
+
+        try (SimulationHarness harness = new SimulationHarness(newGameFactory(engine, seed),
+                                                               numOfThreads, seed)) {
+            for (SimulationHarness.Configuration configuration : SimulationHarness.PRESETS) {
+                harness.run(configuration, Math.max(1, numOfGames / WARM_UP_DIVISOR), strategy);
+                final SimulationHarness.Result result =
+                        harness.run(configuration, numOfGames, strategy);
+
+                assertEquals(numOfGames, result.getLatencies(
+                        TimedMinesweeperGame.Operation.NEW_GAME).getCount());
+                System.out.println(engine + " engine: " + result);
+            }
+        }
+    }
+
+    private static SimulationHarness.Strategy newStrategy(String name) {
+        if ("deduction".equals(name)) {
+            return new DeductionStrategy();
+        } else if ("random".equals(name)) {
+            return new RandomStrategy();
+        }
+        throw new IllegalArgumentException("Trying to simulate an unknown strategy: " + name);
+    }
+
+    private static ParallelGameRunner.GameFactory newGameFactory(String engine, long seed) {
+        switch (engine) {
+            case "native":
+                loadNativeLibrary();
+                return gameIndex -> new AndroidMinesweeperGame();
+            case "session":
+                loadNativeLibrary();
+                return gameIndex -> new MinesweeperGameSession();
+            case "java":
+                return gameIndex -> new JavaMinesweeperGame(new Random(seed + gameIndex));
+            case "bitboard":
+                return gameIndex -> new BitboardMinesweeperGame(new Random(seed + gameIndex));
+            default:
+                throw new IllegalArgumentException(
+                        "Trying to simulate an unknown engine: " + engine);
+        }
+    }
+
+    private static void loadNativeLibrary() {
+        final String nativeLibraryDir = System.getProperty("simulation.nativeLibraryDir");
+        if (nativeLibraryDir == null) {
+            System.loadLibrary(NATIVE_LIBRARY_NAME);
+        } else {
+            System.load(new File(nativeLibraryDir, System.mapLibraryName(NATIVE_LIBRARY_NAME))
+                                .getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.timimakkonen.minesweeper.simulation;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+import com.timimakkonen.minesweeper.engine.ParallelGameRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <p>
+ * This class plays many headless games per board configuration with a pluggable {@link
+ * Strategy}, on all cores (see {@link ParallelGameRunner}), and reports games per second, actions
+ * per second, the win rate and the latency percentiles of each game operation (see {@link
+ * TimedMinesweeperGame}).
+ * </p>
+ * <p>
+ * Games come from the given factory, so any engine can be simulated on the JVM: the pure-Java
+ * ones, or the native ones with the library built on the host (see {@link SimulationBenchmark}).
+ * Each game gets a random number generator seeded by the seed of the harness and its game index,
+ * so the moves of a strategy do not depend on the number of threads. (The mines are placed by
+ * the engine, with the generator it was given by the factory.)
+ * </p>
+ * <p>
+ * Latencies are recorded into histograms of the thread playing the game, which are added
+ * together once all the games have finished, so the threads share nothing while playing.
+ * </p>
+ */
+final class SimulationHarness implements AutoCloseable {
+
+    // the presets of 'GameViewModel'
+    static final Configuration EASY = new Configuration("easy", 9, 9, 10);
+    static final Configuration MEDIUM = new Configuration("medium", 16, 16, 40);
+    static final Configuration HARD = new Configuration("hard", 30, 16, 99);
+    static final List<Configuration> PRESETS =
+            Collections.unmodifiableList(Arrays.asList(EASY, MEDIUM, HARD));
+
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.99};
+
+    private final ParallelGameRunner gameRunner;
+    private final long seed;
+
+    SimulationHarness(ParallelGameRunner.GameFactory gameFactory, int numOfThreads, long seed) {
+        this.gameRunner = new ParallelGameRunner(gameFactory, numOfThreads);
+        this.seed = seed;
+    }
+
+    int getNumOfThreads() {
+        return gameRunner.getNumOfThreads();
+    }
+
+    /**
+     * Plays the given number of games of the configuration, each started with 'newGame' and then
+     * played by the strategy.
+     *
+     * @param strategy Strategy playing the games. It is called from all the threads at the same
+     *                 time (with different games).
+     * @throws ExecutionException   if the strategy or the engine threw.
+     * @throws InterruptedException if interrupted while waiting for the games.
+     */
+    Result run(Configuration configuration, int numOfGames, Strategy strategy)
+            throws ExecutionException, InterruptedException {
+        // (a new thread local per run, so that every run starts from empty histograms)
+        final List<ThreadResult> threadResults = new ArrayList<>();
+        final ThreadLocal<ThreadResult> threadResult = new ThreadLocal<ThreadResult>() {
+            @Override
+            protected ThreadResult initialValue() {
+                final ThreadResult newThreadResult = new ThreadResult();
+                synchronized (threadResults) {
+                    threadResults.add(newThreadResult);
+                }
+                return newThreadResult;
+            }
+        };
+
+        final long startTime = System.nanoTime();
+        gameRunner.runGames(numOfGames, (game, gameIndex) -> {
+            final ThreadResult result = threadResult.get();
+            final TimedMinesweeperGame timedGame =
+                    new TimedMinesweeperGame(game, result.latencies);
+            timedGame.newGame(configuration.gridHeight, configuration.gridWidth,
+                              configuration.numOfMines);
+            strategy.play(timedGame, new Random(seed + gameIndex));
+
+            result.numOfActions += timedGame.getNumOfActions();
+            if (game.playerHasWon()) {
+                result.numOfWins++;
+            }
+            return null;
+        });
+        final long elapsedNanos = System.nanoTime() - startTime;
+
+        // (the games have finished, so the results of the threads are visible here)
+        final LatencyHistogram[] latencies = TimedMinesweeperGame.newLatencies();
+        long numOfActions = 0;
+        int numOfWins = 0;
+        synchronized (threadResults) {
+            for (ThreadResult result : threadResults) {
+                for (int i = 0; i < latencies.length; i++) {
+                    latencies[i].add(result.latencies[i]);
+                }
+                numOfActions += result.numOfActions;
+                numOfWins += result.numOfWins;
+            }
+        }
+        return new Result(configuration, strategy.getName(), getNumOfThreads(), numOfGames,
+                          numOfWins, numOfActions, elapsedNanos, latencies);
+    }
+
+    /**
+     * Stops the threads of this harness.
+     */
+    @Override
+    public void close() {
+        gameRunner.close();
+    }
+
+    interface Strategy {
+
+        String getName();
+
+        /**
+         * Plays a new game (with no checks made yet) until it is won or lost, or the strategy
+         * gives up.
+         *
+         * @param random Generator of this game, for any random choices.
+         */
+        void play(MinesweeperGame game, Random random);
+    }
+
+    static final class Configuration {
+
+        final String name;
+        final int gridHeight;
+        final int gridWidth;
+        final int numOfMines;
+
+        Configuration(String name, int gridHeight, int gridWidth, int numOfMines) {
+            this.name = name;
+            this.gridHeight = gridHeight;
+            this.gridWidth = gridWidth;
+            this.numOfMines = numOfMines;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s (%dx%d, %d mines)", name, gridHeight, gridWidth,
+                                 numOfMines);
+        }
+    }
+
+    static final class Result {
+
+        final Configuration configuration;
+        final String strategyName;
+        final int numOfThreads;
+        final int numOfGames;
+        final int numOfWins;
+        final long numOfActions;
+        final long elapsedNanos;
+        // indexed by the ordinals of the operations
+        private final LatencyHistogram[] latencies;
+
+        private Result(Configuration configuration, String strategyName, int numOfThreads,
+                       int numOfGames, int numOfWins, long numOfActions, long elapsedNanos,
+                       LatencyHistogram[] latencies) {
+            this.configuration = configuration;
+            this.strategyName = strategyName;
+            this.numOfThreads = numOfThreads;
+            this.numOfGames = numOfGames;
+            this.numOfWins = numOfWins;
+            this.numOfActions = numOfActions;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        double getGamesPerSecond() {
+            return numOfGames / (elapsedNanos / 1e9);
+        }
+
+        double getActionsPerSecond() {
+            return numOfActions / (elapsedNanos / 1e9);
+        }
+
+        double getWinRate() {
+            return (numOfGames > 0) ? (double) numOfWins / numOfGames : Double.NaN;
+        }
+
+        LatencyHistogram getLatencies(TimedMinesweeperGame.Operation operation) {
+            return latencies[operation.ordinal()];
+        }
+
+        /**
+         * @return Multi-line report, with a row of latencies (in microseconds) for each
+         * operation made.
+         */
+        @Override
+        public String toString() {
+            final StringBuilder report = new StringBuilder();
+            report.append(String.format(
+                    Locale.ROOT, "%s, %s strategy on %d thread(s): %d games in %.1f ms, "
+                                 + "%.0f games/s, %.0f actions/s, win rate %.1f%%%n",
+                    configuration, strategyName, numOfThreads, numOfGames, elapsedNanos / 1e6,
+                    getGamesPerSecond(), getActionsPerSecond(), 100 * getWinRate()));
+            report.append(String.format(Locale.ROOT, "  %-32s %10s %9s %9s %9s %9s %9s%n",
+                                        "operation (us)", "count", "mean", "p50", "p90", "p99",
+                                        "max"));
+            for (TimedMinesweeperGame.Operation operation :
+                    TimedMinesweeperGame.Operation.values()) {
+                final LatencyHistogram histogram = getLatencies(operation);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                report.append(String.format(Locale.ROOT, "  %-32s %10d %9.2f", operation.methodName,
+                                            histogram.getCount(),
+                                            histogram.getMeanNanos() / 1e3));
+                for (double fraction : PERCENTILES) {
+                    report.append(String.format(Locale.ROOT, " %9.2f",
+                                                histogram.getPercentileNanos(fraction) / 1e3));
+                }
+                report.append(String.format(Locale.ROOT, " %9.2f%n",
+                                            histogram.getMaxNanos() / 1e3));
+            }
+            return report.toString();
+        }
+    }
+
+    // results of the games played by one thread
+    private static final class ThreadResult {
+        final LatencyHistogram[] latencies = TimedMinesweeperGame.newLatencies();
+        long numOfActions = 0;
+        int numOfWins = 0;
+    }
+}
@@ -0,0 +1,110 @@
+package com.timimakkonen.minesweeper.simulation;
+
+import com.timimakkonen.minesweeper.engine.JavaMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.ParallelGameRunner;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimulationHarnessTest {
+
+    private static final long SEED = 42L;
+    private static final int NUM_OF_GAMES = 60;
+
+    private static final ParallelGameRunner.GameFactory JAVA_GAMES =
+            gameIndex -> new JavaMinesweeperGame(new Random(SEED + gameIndex));
+
+    @Test
+    public void deductionStrategy_winsEasyGames() throws Exception {
+        final SimulationHarness.Result result;
+        try (SimulationHarness harness = new SimulationHarness(JAVA_GAMES, 2, SEED)) {
+            result = harness.run(SimulationHarness.EASY, NUM_OF_GAMES, new DeductionStrategy());
+        }
+
+        assertEquals(NUM_OF_GAMES, result.numOfGames);
+        // most easy games need no guess after the first check
+        assertTrue(result.getWinRate() > 0.5);
+        assertTrue(result.numOfActions >= NUM_OF_GAMES);
+        assertTrue(result.getGamesPerSecond() > 0);
+        assertEquals(NUM_OF_GAMES, result.getLatencies(
+                TimedMinesweeperGame.Operation.NEW_GAME).getCount());
+        assertTrue(result.getLatencies(TimedMinesweeperGame.Operation.APPLY_ACTIONS)
+                         .getCount() > 0);
+    }
+
+    @Test
+    public void results_doNotDependOnNumOfThreads() throws Exception {
+        final SimulationHarness.Result expected;
+        try (SimulationHarness harness = new SimulationHarness(JAVA_GAMES, 1, SEED)) {
+            expected = harness.run(SimulationHarness.HARD, NUM_OF_GAMES, new DeductionStrategy());
+        }
+        try (SimulationHarness harness = new SimulationHarness(JAVA_GAMES, 4, SEED)) {
+            final SimulationHarness.Result result =
+                    harness.run(SimulationHarness.HARD, NUM_OF_GAMES, new DeductionStrategy());
+
+            assertEquals(expected.numOfWins, result.numOfWins);
+            assertEquals(expected.numOfActions, result.numOfActions);
+            for (TimedMinesweeperGame.Operation operation :
+                    TimedMinesweeperGame.Operation.values()) {
+                assertEquals(expected.getLatencies(operation).getCount(),
+                             result.getLatencies(operation).getCount());
+            }
+        }
+    }
+
+    @Test
+    public void everyRun_startsFromEmptyHistograms() throws Exception {
+        try (SimulationHarness harness = new SimulationHarness(JAVA_GAMES, 2, SEED)) {
+            for (int i = 0; i < 2; i++) {
+                final SimulationHarness.Result result =
+                        harness.run(SimulationHarness.MEDIUM, NUM_OF_GAMES, new RandomStrategy());
+
+                assertEquals(NUM_OF_GAMES, result.getLatencies(
+                        TimedMinesweeperGame.Operation.NEW_GAME).getCount());
+                assertEquals(result.numOfActions, result.getLatencies(
+                        TimedMinesweeperGame.Operation.CHECK).getCount());
+            }
+        }
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMaxNanos());
+        assertEquals(50_000.5, histogram.getMeanNanos(), 1e-9);
+        assertEquals(1, histogram.getPercentileNanos(0.0));
+        for (double fraction : new double[]{0.5, 0.9, 0.99}) {
+            final double expected = fraction * 100_000;
+            final long percentile = histogram.getPercentileNanos(fraction);
+            assertTrue(percentile >= expected);
+            assertTrue(percentile <= expected * (1 + 1.0 / 32));
+        }
+        assertEquals(100_000, histogram.getPercentileNanos(1.0));
+    }
+
+    @Test
+    public void addedHistograms_countEverything() {
+        final LatencyHistogram first = new LatencyHistogram();
+        final LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(1_000_000);
+        second.record(-5);
+        first.add(second);
+
+        assertEquals(3, first.getCount());
+        assertEquals(1_000_010, first.getTotalNanos());
+        assertEquals(1_000_000, first.getMaxNanos());
+        assertEquals(0, first.getPercentileNanos(0.2));
+        assertEquals(10, first.getPercentileNanos(0.5));
+        assertEquals(1_000_000, first.getPercentileNanos(1.0));
+    }
+}
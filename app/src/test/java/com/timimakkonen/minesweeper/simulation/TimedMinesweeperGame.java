@@ -0,0 +1,302 @@
+package com.timimakkonen.minesweeper.simulation;
+
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Decorator of a {@link MinesweeperGame} that records the latency of each game operation into a
+ * {@link LatencyHistogram} per {@link Operation}, and counts the player actions made.
+ * </p>
+ * <p>
+ * Only the operations a game session makes are timed (actions, visualisations, status and save
+ * and load). The counters, getters and limits are passed through untimed. Each timing costs two
+ * reads of 'System.nanoTime()', which is included in the recorded latencies.
+ * </p>
+ * <p>
+ * The game is not closed by this class (the wrapped game is owned by its creator). This class is
+ * not thread-safe.
+ * </p>
+ */
+final class TimedMinesweeperGame implements MinesweeperGame {
+
+    enum Operation {
+        NEW_GAME("newGame"),
+        RESET("reset"),
+        CHECK("checkInputCoordinates"),
+        MARK("markInputCoordinates"),
+        COMPLETE_AROUND("completeAroundInputCoordinates"),
+        APPLY_ACTIONS("applyActions"),
+        IS_CELL_VISIBLE("isCellVisible"),
+        PLAYER_HAS_WON("playerHasWon"),
+        PLAYER_HAS_LOST("playerHasLost"),
+        VISUALISE("visualiseInto"),
+        VISUALISE_SOLUTION("visualiseSolutionInto"),
+        VISUALISE_CHANGES("visualiseChangesSince"),
+        GET_STATUS("getStatus"),
+        SERIALISE("serialise"),
+        DESERIALISE("deserialise");
+
+        final String methodName;
+
+        Operation(String methodName) {
+            this.methodName = methodName;
+        }
+    }
+
+    private final MinesweeperGame game;
+    // indexed by the ordinals of the operations
+    private final LatencyHistogram[] latencies;
+
+    private long numOfActions = 0;
+
+    /**
+     * @param latencies Histogram of each operation (by ordinal), to record into.
+     */
+    TimedMinesweeperGame(MinesweeperGame game, LatencyHistogram[] latencies) {
+        if (latencies.length != Operation.values().length) {
+            throw new IllegalArgumentException(
+                    "Trying to time a game without a histogram for every operation.");
+        }
+        this.game = game;
+        this.latencies = latencies;
+    }
+
+    static LatencyHistogram[] newLatencies() {
+        final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        return latencies;
+    }
+
+    /**
+     * @return Number of checks, marks and complete arounds made, singly or in batches.
+     */
+    long getNumOfActions() {
+        return numOfActions;
+    }
+
+    private void record(Operation operation, long startTime) {
+        latencies[operation.ordinal()].record(System.nanoTime() - startTime);
+    }
+
+    @Override
+    public void reset(boolean keepCreatedMines) {
+        final long startTime = System.nanoTime();
+        game.reset(keepCreatedMines);
+        record(Operation.RESET, startTime);
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, int numOfMines) {
+        final long startTime = System.nanoTime();
+        game.newGame(gridHeight, gridWidth, numOfMines);
+        record(Operation.NEW_GAME, startTime);
+    }
+
+    @Override
+    public void newGame(int gridHeight, int gridWidth, double proportionOfMines) {
+        final long startTime = System.nanoTime();
+        game.newGame(gridHeight, gridWidth, proportionOfMines);
+        record(Operation.NEW_GAME, startTime);
+    }
+
+    @Override
+    public void checkInputCoordinates(int x, int y) {
+        final long startTime = System.nanoTime();
+        game.checkInputCoordinates(x, y);
+        record(Operation.CHECK, startTime);
+        numOfActions++;
+    }
+
+    @Override
+    public void markInputCoordinates(int x, int y) {
+        final long startTime = System.nanoTime();
+        game.markInputCoordinates(x, y);
+        record(Operation.MARK, startTime);
+        numOfActions++;
+    }
+
+    @Override
+    public void completeAroundInputCoordinates(int x, int y) {
+        final long startTime = System.nanoTime();
+        game.completeAroundInputCoordinates(x, y);
+        record(Operation.COMPLETE_AROUND, startTime);
+        numOfActions++;
+    }
+
+    @Override
+    public void applyActions(int[] actions) {
+        final long startTime = System.nanoTime();
+        game.applyActions(actions);
+        record(Operation.APPLY_ACTIONS, startTime);
+        numOfActions += actions.length / ACTION_SIZE;
+    }
+
+    @Override
+    public boolean playerHasWon() {
+        final long startTime = System.nanoTime();
+        final boolean playerHasWon = game.playerHasWon();
+        record(Operation.PLAYER_HAS_WON, startTime);
+        return playerHasWon;
+    }
+
+    @Override
+    public boolean playerHasLost() {
+        final long startTime = System.nanoTime();
+        final boolean playerHasLost = game.playerHasLost();
+        record(Operation.PLAYER_HAS_LOST, startTime);
+        return playerHasLost;
+    }
+
+    @Override
+    public int getNumOfRevealedSafeCells() {
+        return game.getNumOfRevealedSafeCells();
+    }
+
+    @Override
+    public int getNumOfMarkedCells() {
+        return game.getNumOfMarkedCells();
+    }
+
+    @Override
+    public int getNumOfRemainingSafeCells() {
+        return game.getNumOfRemainingSafeCells();
+    }
+
+    @Override
+    public int getNumOfTrippedMines() {
+        return game.getNumOfTrippedMines();
+    }
+
+    @Override
+    public int getNumOfCellsOpenedByLastAction() {
+        return game.getNumOfCellsOpenedByLastAction();
+    }
+
+    @Override
+    public boolean isCellVisible(int x, int y) {
+        final long startTime = System.nanoTime();
+        final boolean isCellVisible = game.isCellVisible(x, y);
+        record(Operation.IS_CELL_VISIBLE, startTime);
+        return isCellVisible;
+    }
+
+    @Override
+    public int getGridHeight() {
+        return game.getGridHeight();
+    }
+
+    @Override
+    public int getGridWidth() {
+        return game.getGridWidth();
+    }
+
+    @Override
+    public int getNumOfMines() {
+        return game.getNumOfMines();
+    }
+
+    @Override
+    public void visualiseInto(int[] result) {
+        final long startTime = System.nanoTime();
+        game.visualiseInto(result);
+        record(Operation.VISUALISE, startTime);
+    }
+
+    @Override
+    public void visualiseSolutionInto(int[] result) {
+        final long startTime = System.nanoTime();
+        game.visualiseSolutionInto(result);
+        record(Operation.VISUALISE_SOLUTION, startTime);
+    }
+
+    @Override
+    public int[] visualiseChangesSince(int revision) {
+        final long startTime = System.nanoTime();
+        final int[] changes = game.visualiseChangesSince(revision);
+        record(Operation.VISUALISE_CHANGES, startTime);
+        return changes;
+    }
+
+    @Override
+    public ByteBuffer getVisualStateBuffer() {
+        return game.getVisualStateBuffer();
+    }
+
+    @Override
+    public void getStatus(int[] status) {
+        final long startTime = System.nanoTime();
+        game.getStatus(status);
+        record(Operation.GET_STATUS, startTime);
+    }
+
+    @Override
+    public String serialise() {
+        final long startTime = System.nanoTime();
+        final String serialisation = game.serialise();
+        record(Operation.SERIALISE, startTime);
+        return serialisation;
+    }
+
+    @Override
+    public boolean deserialise(String inStr) {
+        final long startTime = System.nanoTime();
+        final boolean isLoaded = game.deserialise(inStr);
+        record(Operation.DESERIALISE, startTime);
+        return isLoaded;
+    }
+
+    @Override
+    public ByteBuffer serialiseToBuffer() {
+        final long startTime = System.nanoTime();
+        final ByteBuffer buffer = game.serialiseToBuffer();
+        record(Operation.SERIALISE, startTime);
+        return buffer;
+    }
+
+    @Override
+    public boolean deserialiseFromBuffer(ByteBuffer buffer) {
+        final long startTime = System.nanoTime();
+        final boolean isLoaded = game.deserialiseFromBuffer(buffer);
+        record(Operation.DESERIALISE, startTime);
+        return isLoaded;
+    }
+
+    @Override
+    public long getBoardMemoryUsage() {
+        return game.getBoardMemoryUsage();
+    }
+
+    @Override
+    public long getPendingResultMemoryUsage() {
+        return game.getPendingResultMemoryUsage();
+    }
+
+    @Override
+    public int getMaxNumOfMines(int gridHeight, int gridWidth) {
+        return game.getMaxNumOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public double getMaxProportionOfMines(int gridHeight, int gridWidth) {
+        return game.getMaxProportionOfMines(gridHeight, gridWidth);
+    }
+
+    @Override
+    public int getMinNumOfMines() {
+        return game.getMinNumOfMines();
+    }
+
+    @Override
+    public double getMinProportionOfMines() {
+        return game.getMinProportionOfMines();
+    }
+
+    @Override
+    public void close() {
+        // the wrapped game is closed by its owner
+    }
+}
@@ -0,0 +1,216 @@
+package com.timimakkonen.minesweeper.solver;
+
+import com.timimakkonen.minesweeper.engine.JavaMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Grids are written row by row, with '?' for a hidden cell, 'F' for a marked cell, '*' for a
+ * visible mine and digits for revealed numbers.
+ */
+public class DeductionSolverTest {
+
+    private static final long SEED = 42L;
+
+    private static final int UNCHECKED_STATE = -1;
+    private static final int MINE_STATE = 9;
+    private static final int MARKED_STATE = 10;
+
+    @Test
+    public void singlePointRule_findsSafeCellsAndMines() {
+        final DeductionSolver solver = solve("1?",
+                                             "??");
+
+        // the three hidden cells around the 1 hold its mine, so nothing is known
+        assertEquals(0, solver.getNumOfKnownSafeCells());
+        assertEquals(0, solver.getNumOfKnownMines());
+
+        final DeductionSolver cornerSolver = solve("1??",
+                                                   "111",
+                                                   "???");
+
+        // (0, 0) has a single hidden neighbour, which must be its mine, and the other numbers
+        // need no more mines
+        assertArrayEquals(new int[]{1}, cornerSolver.getKnownMines());
+        assertArrayEquals(new int[]{2, 6, 7, 8}, cornerSolver.getKnownSafeCells());
+        assertTrue(cornerSolver.isKnownMine(1));
+        assertTrue(cornerSolver.isKnownSafe(2));
+    }
+
+    @Test
+    public void subsetRule_solvesOneTwoOne() {
+        final DeductionSolver solver = solve("???",
+                                             "121");
+
+        assertArrayEquals(new int[]{0, 2}, solver.getKnownMines());
+        assertArrayEquals(new int[]{1}, solver.getKnownSafeCells());
+    }
+
+    @Test
+    public void subsetRule_solvesOneOneAtWall() {
+        // the first 1 has its mine in the first two cells, so the second 1 has none in the others
+        final DeductionSolver solver = solve("???",
+                                             "11?");
+
+        assertArrayEquals(new int[]{2, 5}, solver.getKnownSafeCells());
+        assertEquals(0, solver.getNumOfKnownMines());
+    }
+
+    @Test
+    public void marksAreNotTrusted_andVisibleMinesAre() {
+        final DeductionSolver markedSolver = solve("1F",
+                                                   "?1");
+
+        assertEquals(0, markedSolver.getNumOfKnownMines() + markedSolver.getNumOfKnownSafeCells());
+
+        final DeductionSolver mineSolver = solve("1*",
+                                                 "??");
+
+        assertArrayEquals(new int[]{2, 3}, mineSolver.getKnownSafeCells());
+    }
+
+    @Test
+    public void revealingCells_updatesOnlyAroundThem() {
+        final DeductionSolver solver = solve("???",
+                                             "???",
+                                             "???");
+        assertEquals(0, solver.getNumOfFrontierConstraints());
+
+        solver.update(new int[]{6, 7, 8}, new int[]{1, 2, 1});
+
+        assertArrayEquals(new int[]{3, 5}, solver.getKnownMines());
+        assertArrayEquals(new int[]{4}, solver.getKnownSafeCells());
+        // every number has all its neighbours deduced
+        assertEquals(0, solver.getNumOfFrontierConstraints());
+
+        // revealing a known safe cell removes it from the hints
+        solver.update(new int[]{4}, new int[]{2});
+
+        // (and its two mines are known, so its other neighbours are safe)
+        assertFalse(solver.isKnownSafe(4));
+        assertArrayEquals(new int[]{0, 1, 2}, solver.getKnownSafeCells());
+    }
+
+    @Test
+    public void hidingRevealedCells_forgetsDeductions() {
+        final DeductionSolver solver = solve("???",
+                                             "121");
+
+        solver.update(new int[]{3, 4, 5}, new int[]{UNCHECKED_STATE, UNCHECKED_STATE,
+                                                    UNCHECKED_STATE});
+
+        assertEquals(0, solver.getNumOfKnownSafeCells());
+        assertEquals(0, solver.getNumOfKnownMines());
+        assertEquals(0, solver.getNumOfFrontierConstraints());
+    }
+
+    @Test
+    public void incrementalUpdates_matchSolvingFromScratch_onExpertGames() {
+        final Random random = new Random(SEED);
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        final int gridHeight = 16;
+        final int gridWidth = 30;
+        final int numOfCells = gridHeight * gridWidth;
+        final int[] states = new int[numOfCells];
+        final int[] solution = new int[numOfCells];
+        final DeductionSolver solver = new DeductionSolver();
+        final DeductionSolver scratchSolver = new DeductionSolver();
+
+        int numOfDeducedCells = 0;
+        for (int i = 0; i < 20; i++) {
+            game.newGame(gridHeight, gridWidth, 99);
+            game.visualiseInto(states);
+            solver.reset(gridHeight, gridWidth, states);
+            int revision = game.visualiseChangesSince(-1)[0];
+            // mines are placed by the first check
+            boolean solutionIsKnown = false;
+
+            while (!game.playerHasWon() && !game.playerHasLost()) {
+                // play known safe cells first, as a player following the hints would
+                final int[] knownSafeCells = solver.getKnownSafeCells();
+                final int cellIndex = (knownSafeCells.length > 0)
+                                      ? knownSafeCells[random.nextInt(knownSafeCells.length)]
+                                      : random.nextInt(numOfCells);
+                if (random.nextInt(10) == 0) {
+                    game.markInputCoordinates(cellIndex % gridWidth, cellIndex / gridWidth);
+                } else {
+                    game.checkInputCoordinates(cellIndex % gridWidth, cellIndex / gridWidth);
+                    if (!solutionIsKnown) {
+                        game.visualiseSolutionInto(solution);
+                        solutionIsKnown = true;
+                    }
+                }
+
+                final int[] changes = game.visualiseChangesSince(revision);
+                revision = changes[0];
+                final int[] changedCellIndices = new int[changes[1]];
+                final int[] newStates = new int[changes[1]];
+                for (int k = 0; k < changes[1]; k++) {
+                    changedCellIndices[k] = changes[2 + 2 * k];
+                    newStates[k] = changes[3 + 2 * k];
+                }
+                solver.update(changedCellIndices, newStates);
+
+                game.visualiseInto(states);
+                scratchSolver.reset(gridHeight, gridWidth, states);
+                assertArrayEquals(scratchSolver.getKnownSafeCells(), solver.getKnownSafeCells());
+                assertArrayEquals(scratchSolver.getKnownMines(), solver.getKnownMines());
+                assertEquals(scratchSolver.getNumOfFrontierConstraints(),
+                             solver.getNumOfFrontierConstraints());
+                assertDeductionsAreSound(solver, states, solution);
+                numOfDeducedCells += solver.getNumOfKnownSafeCells() +
+                                     solver.getNumOfKnownMines();
+            }
+        }
+        assertTrue(numOfDeducedCells > 0);
+    }
+
+    private static void assertDeductionsAreSound(DeductionSolver solver, int[] states,
+                                                 int[] solution) {
+        for (int cellIndex : solver.getKnownSafeCells()) {
+            assertTrue(states[cellIndex] == UNCHECKED_STATE || states[cellIndex] == MARKED_STATE);
+            assertFalse(solution[cellIndex] == MARKED_STATE);
+        }
+        for (int cellIndex : solver.getKnownMines()) {
+            assertTrue(states[cellIndex] == UNCHECKED_STATE || states[cellIndex] == MARKED_STATE);
+            assertEquals(MARKED_STATE, solution[cellIndex]);
+        }
+    }
+
+    private static DeductionSolver solve(String... rows) {
+        final int gridHeight = rows.length;
+        final int gridWidth = rows[0].length();
+        final int[] states = new int[gridHeight * gridWidth];
+        for (int y = 0; y < gridHeight; y++) {
+            for (int x = 0; x < gridWidth; x++) {
+                states[y * gridWidth + x] = parseState(rows[y].charAt(x));
+            }
+        }
+        final DeductionSolver solver = new DeductionSolver();
+        solver.reset(gridHeight, gridWidth, states);
+        return solver;
+    }
+
+    private static int parseState(char c) {
+        switch (c) {
+            case '?':
+                return UNCHECKED_STATE;
+            case 'F':
+                return MARKED_STATE;
+            case '*':
+                return MINE_STATE;
+            case '.':
+                return 0;
+            default:
+                return c - '0';
+        }
+    }
+}
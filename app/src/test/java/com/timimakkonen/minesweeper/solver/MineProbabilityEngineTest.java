@@ -0,0 +1,226 @@
+package com.timimakkonen.minesweeper.solver;
+
+import com.timimakkonen.minesweeper.engine.JavaMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MineProbabilityEngineTest {
+
+    private static final long SEED = 42L;
+    private static final double TOLERANCE = 1e-5;
+
+    private static final int UNCHECKED_STATE = -1;
+    private static final int MARKED_STATE = 10;
+
+    @Test
+    public void oneTwoOne_isExact() {
+        // 3 x 3 grid with 3 mines: the 1-2-1 leaves one mine for the three top cells
+        final DeductionSolver solver = solve(3, 3, new int[]{-1, -1, -1,
+                                                             -1, -1, -1,
+                                                             1, 2, 1});
+        final MineProbabilities probabilities =
+                new MineProbabilityEngine(new ForkJoinPool(1)).computeProbabilities(solver, 3);
+
+        assertTrue(probabilities.isExact());
+        assertEquals(1f / 3, probabilities.getProbability(0, 0), TOLERANCE);
+        assertEquals(1f, probabilities.getProbability(0, 1), TOLERANCE);
+        assertEquals(0f, probabilities.getProbability(1, 1), TOLERANCE);
+        assertTrue(Float.isNaN(probabilities.getProbability(1, 2)));
+    }
+
+    @Test
+    public void matchesBruteForce_onSmallGames() {
+        final Random random = new Random(SEED);
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        final MineProbabilityEngine engine = new MineProbabilityEngine(new ForkJoinPool(2));
+        final int gridHeight = 5;
+        final int gridWidth = 5;
+        final int numOfMines = 5;
+        final int numOfCells = gridHeight * gridWidth;
+        final int[] states = new int[numOfCells];
+        final int[] solution = new int[numOfCells];
+
+        int numOfComparedGrids = 0;
+        for (int i = 0; i < 40; i++) {
+            game.newGame(gridHeight, gridWidth, numOfMines);
+            game.checkInputCoordinates(random.nextInt(gridWidth), random.nextInt(gridHeight));
+            game.visualiseSolutionInto(solution);
+            // reveal a few more safe cells, comparing after each
+            for (int move = 0; move < 3 && !game.playerHasWon(); move++) {
+                game.visualiseInto(states);
+                final DeductionSolver solver = solve(gridHeight, gridWidth, states);
+                final MineProbabilities probabilities =
+                        engine.computeProbabilities(solver, numOfMines);
+                final double[] expected = bruteForceProbabilities(gridHeight, gridWidth, states,
+                                                                  numOfMines);
+
+                assertTrue(probabilities.isExact());
+                for (int cellIndex = 0; cellIndex < numOfCells; cellIndex++) {
+                    final float probability = probabilities.getProbability(
+                            cellIndex % gridWidth, cellIndex / gridWidth);
+                    if (Double.isNaN(expected[cellIndex])) {
+                        assertTrue(Float.isNaN(probability));
+                    } else {
+                        assertFalse(Float.isNaN(probability));
+                        assertEquals(expected[cellIndex], probability, TOLERANCE);
+                    }
+                }
+                numOfComparedGrids++;
+
+                int cellIndex;
+                do {
+                    cellIndex = random.nextInt(numOfCells);
+                } while (solution[cellIndex] == MARKED_STATE ||
+                         states[cellIndex] != UNCHECKED_STATE);
+                game.checkInputCoordinates(cellIndex % gridWidth, cellIndex / gridWidth);
+            }
+        }
+        assertTrue(numOfComparedGrids > 0);
+    }
+
+    @Test
+    public void sameProbabilities_onAnyNumOfThreads() {
+        final int[] states = playedExpertGrid();
+        final MineProbabilities expected = new MineProbabilityEngine(new ForkJoinPool(1))
+                .computeProbabilities(solve(16, 30, states), 99);
+        for (int numOfThreads : new int[]{2, 4}) {
+            final MineProbabilities probabilities =
+                    new MineProbabilityEngine(new ForkJoinPool(numOfThreads))
+                            .computeProbabilities(solve(16, 30, states), 99);
+
+            assertArrayEquals(expected.getProbabilities(), probabilities.getProbabilities(), 0f);
+        }
+    }
+
+    @Test
+    public void unchangedComponents_areNotEnumeratedAgain() {
+        final int[] states = playedExpertGrid();
+        final DeductionSolver solver = solve(16, 30, states);
+        final MineProbabilityEngine engine = new MineProbabilityEngine(new ForkJoinPool(2));
+        final MineProbabilities first = engine.computeProbabilities(solver, 99);
+        final int numOfEnumeratedComponents = engine.getNumOfEnumeratedComponents();
+        assertTrue(numOfEnumeratedComponents > 0);
+
+        // marking a cell changes no constraint
+        int markedCellIndex = 0;
+        while (states[markedCellIndex] != UNCHECKED_STATE) {
+            markedCellIndex++;
+        }
+        solver.update(new int[]{markedCellIndex}, new int[]{MARKED_STATE});
+        final MineProbabilities second = engine.computeProbabilities(solver, 99);
+
+        assertEquals(numOfEnumeratedComponents, engine.getNumOfEnumeratedComponents());
+        assertArrayEquals(first.getProbabilities(), second.getProbabilities(), 0f);
+    }
+
+    @Test
+    public void inconsistentGrid_hasNoProbabilities() {
+        // a 2 with a single hidden neighbour
+        final DeductionSolver solver = solve(1, 2, new int[]{2, -1});
+        final MineProbabilities probabilities =
+                new MineProbabilityEngine(new ForkJoinPool(1)).computeProbabilities(solver, 1);
+
+        assertFalse(probabilities.getSafestCellIndex() >= 0);
+    }
+
+    // a hard grid after a few safe checks
+    private static int[] playedExpertGrid() {
+        final Random random = new Random(SEED);
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        final int[] solution = new int[16 * 30];
+        game.newGame(16, 30, 99);
+        game.checkInputCoordinates(15, 8);
+        game.visualiseSolutionInto(solution);
+        for (int move = 0; move < 10; move++) {
+            final int cellIndex = random.nextInt(solution.length);
+            if (solution[cellIndex] != MARKED_STATE) {
+                game.checkInputCoordinates(cellIndex % 30, cellIndex / 30);
+            }
+        }
+        final int[] states = new int[solution.length];
+        game.visualiseInto(states);
+        return states;
+    }
+
+    private static DeductionSolver solve(int gridHeight, int gridWidth, int[] states) {
+        final DeductionSolver solver = new DeductionSolver();
+        solver.reset(gridHeight, gridWidth, states);
+        return solver;
+    }
+
+    /**
+     * @return Probability of each hidden cell being a mine over all consistent placements of the
+     * mines (NaN for visible cells).
+     */
+    private static double[] bruteForceProbabilities(int gridHeight, int gridWidth, int[] states,
+                                                    int numOfMines) {
+        final int numOfCells = gridHeight * gridWidth;
+        final boolean[] isMine = new boolean[numOfCells];
+        final long[] numOfTimesMine = new long[numOfCells];
+        final long numOfPlacements = placeMines(gridHeight, gridWidth, states, isMine, 0,
+                                                numOfMines, numOfTimesMine);
+        final double[] probabilities = new double[numOfCells];
+        for (int i = 0; i < numOfCells; i++) {
+            final boolean isHidden = states[i] == UNCHECKED_STATE || states[i] == MARKED_STATE;
+            probabilities[i] = isHidden ? (double) numOfTimesMine[i] / numOfPlacements
+                                        : Double.NaN;
+        }
+        return probabilities;
+    }
+
+    private static long placeMines(int gridHeight, int gridWidth, int[] states,
+                                   boolean[] isMine, int fromCell, int numOfMinesLeft,
+                                   long[] numOfTimesMine) {
+        if (numOfMinesLeft == 0) {
+            if (!isConsistent(gridHeight, gridWidth, states, isMine)) {
+                return 0;
+            }
+            for (int i = 0; i < isMine.length; i++) {
+                numOfTimesMine[i] += isMine[i] ? 1 : 0;
+            }
+            return 1;
+        }
+        long numOfPlacements = 0;
+        for (int i = fromCell; i < isMine.length; i++) {
+            if (states[i] == UNCHECKED_STATE || states[i] == MARKED_STATE) {
+                isMine[i] = true;
+                numOfPlacements += placeMines(gridHeight, gridWidth, states, isMine, i + 1,
+                                              numOfMinesLeft - 1, numOfTimesMine);
+                isMine[i] = false;
+            }
+        }
+        return numOfPlacements;
+    }
+
+    private static boolean isConsistent(int gridHeight, int gridWidth, int[] states,
+                                        boolean[] isMine) {
+        for (int y = 0; y < gridHeight; y++) {
+            for (int x = 0; x < gridWidth; x++) {
+                final int state = states[y * gridWidth + x];
+                if (state < 0 || state > 8) {
+                    continue;
+                }
+                int numOfNeighbourMines = 0;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(gridHeight - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(gridWidth - 1, x + 1);
+                         nx++) {
+                        numOfNeighbourMines += isMine[ny * gridWidth + nx] ? 1 : 0;
+                    }
+                }
+                if (numOfNeighbourMines != state) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
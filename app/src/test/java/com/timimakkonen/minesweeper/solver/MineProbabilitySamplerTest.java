@@ -0,0 +1,128 @@
+package com.timimakkonen.minesweeper.solver;
+
+import com.timimakkonen.minesweeper.engine.JavaMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MineProbabilitySamplerTest {
+
+    private static final long SEED = 42L;
+
+    private static final int MARKED_STATE = 10;
+
+    @Test
+    public void enumeratedComponents_needNoSampler() {
+        final MineProbabilityEngine engine = new MineProbabilityEngine(new ForkJoinPool(1));
+        engine.computeProbabilities(solve(3, 3, new int[]{-1, -1, -1,
+                                                          -1, -1, -1,
+                                                          1, 2, 1}), 3);
+
+        assertNull(engine.newSampler(new Random(SEED)));
+    }
+
+    @Test
+    public void undecidedPair_isSampledEvenly() {
+        // no component is enumerated, and the single mine is either of the top cells
+        final MineProbabilityEngine engine = new MineProbabilityEngine(new ForkJoinPool(1), 0);
+        final MineProbabilities unsampled =
+                engine.computeProbabilities(solve(2, 2, new int[]{-1, -1,
+                                                                  1, 1}), 1);
+        assertFalse(unsampled.isExact());
+
+        final MineProbabilitySampler sampler = engine.newSampler(new Random(SEED));
+        sampler.sample(2000);
+        final MineProbabilities probabilities = sampler.getProbabilities();
+
+        assertEquals(2000, sampler.getNumOfSamples());
+        assertFalse(probabilities.isExact());
+        assertEquals(0.5f, probabilities.getProbability(0, 0), 0.05);
+        assertEquals(1f, probabilities.getProbability(0, 0) + probabilities.getProbability(1, 0),
+                     1e-5);
+        assertTrue(Float.isNaN(probabilities.getProbability(0, 1)));
+    }
+
+    @Test
+    public void samples_convergeToExactProbabilities() {
+        final int[] states = playedExpertGrid();
+        final MineProbabilities expected = new MineProbabilityEngine(new ForkJoinPool(1))
+                .computeProbabilities(solve(16, 30, states), 99);
+        assertTrue(expected.isExact());
+        final MineProbabilityEngine engine = new MineProbabilityEngine(new ForkJoinPool(1), 0);
+        engine.computeProbabilities(solve(16, 30, states), 99);
+        final MineProbabilitySampler sampler = engine.newSampler(new Random(SEED));
+
+        sampler.sample(20000);
+        final MineProbabilities probabilities = sampler.getProbabilities();
+
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 30; x++) {
+                final float probability = expected.getProbability(x, y);
+                if (Float.isNaN(probability)) {
+                    assertTrue(Float.isNaN(probabilities.getProbability(x, y)));
+                } else {
+                    assertFalse(Float.isNaN(probabilities.getProbability(x, y)));
+                    assertEquals(probability, probabilities.getProbability(x, y), 0.03);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sampler_isSnapshotOfItsComputation() {
+        final int[] states = playedExpertGrid();
+        final DeductionSolver solver = solve(16, 30, states);
+        final MineProbabilityEngine engine = new MineProbabilityEngine(new ForkJoinPool(1), 0);
+        engine.computeProbabilities(solver, 99);
+        final MineProbabilitySampler sampler = engine.newSampler(new Random(SEED));
+        final MineProbabilitySampler sameSampler = engine.newSampler(new Random(SEED));
+
+        // a later computation of another grid does not change the sampler
+        engine.computeProbabilities(solve(3, 3, new int[]{-1, -1, -1,
+                                                          -1, -1, -1,
+                                                          1, 2, 1}), 3);
+        sampler.sample(50);
+        sameSampler.sample(50);
+
+        assertEquals(16, sampler.getProbabilities().getGridHeight());
+        final float[] probabilities = sampler.getProbabilities().getProbabilities();
+        final float[] sameProbabilities = sameSampler.getProbabilities().getProbabilities();
+        for (int i = 0; i < probabilities.length; i++) {
+            assertEquals(Float.floatToIntBits(sameProbabilities[i]),
+                         Float.floatToIntBits(probabilities[i]));
+        }
+    }
+
+    // a hard grid after a few safe checks
+    private static int[] playedExpertGrid() {
+        final Random random = new Random(SEED);
+        final MinesweeperGame game = new JavaMinesweeperGame(new Random(SEED));
+        final int[] solution = new int[16 * 30];
+        game.newGame(16, 30, 99);
+        game.checkInputCoordinates(15, 8);
+        game.visualiseSolutionInto(solution);
+        for (int move = 0; move < 10; move++) {
+            final int cellIndex = random.nextInt(solution.length);
+            if (solution[cellIndex] != MARKED_STATE) {
+                game.checkInputCoordinates(cellIndex % 30, cellIndex / 30);
+            }
+        }
+        final int[] states = new int[solution.length];
+        game.visualiseInto(states);
+        return states;
+    }
+
+    private static DeductionSolver solve(int gridHeight, int gridWidth, int[] states) {
+        final DeductionSolver solver = new DeductionSolver();
+        solver.reset(gridHeight, gridWidth, states);
+        return solver;
+    }
+}
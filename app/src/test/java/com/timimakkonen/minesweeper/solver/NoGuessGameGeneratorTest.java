@@ -0,0 +1,149 @@
+package com.timimakkonen.minesweeper.solver;
+
+import com.timimakkonen.minesweeper.engine.JavaMinesweeperGame;
+import com.timimakkonen.minesweeper.engine.MinesweeperGame;
+import com.timimakkonen.minesweeper.engine.ParallelGameRunner;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NoGuessGameGeneratorTest {
+
+    private static final long SEED = 42L;
+    private static final int MAX_NUM_OF_CANDIDATES = 100000;
+
+    @Test
+    public void generatedGames_areSolvableWithoutGuessing() throws Exception {
+        try (NoGuessGameGenerator generator = new NoGuessGameGenerator(seededJavaGames(), 2)) {
+            for (int i = 0; i < 5; i++) {
+                try (MinesweeperGame game = generator.generate(16, 30, 99, 3, 5,
+                                                               MAX_NUM_OF_CANDIDATES)) {
+                    assertNotNull(game);
+                    assertTrue(generator.getNumOfCandidatesOfLastGeneration() >= 1);
+                    assertEquals(99, game.getNumOfMines());
+                    assertTrue(game.isCellVisible(3, 5));
+                    assertFalse(game.playerHasWon());
+
+                    assertTrue(NoGuessGameGenerator.isSolvableWithoutGuessing(
+                            game, new DeductionSolver(), new int[16 * 30],
+                            new AtomicBoolean(false)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void losingCandidates_areClosed() throws Exception {
+        final AtomicInteger numOfOpenGames = new AtomicInteger(0);
+        final ParallelGameRunner.GameFactory factory = gameIndex -> {
+            numOfOpenGames.incrementAndGet();
+            return new JavaMinesweeperGame(new Random(SEED + gameIndex)) {
+                @Override
+                public void close() {
+                    numOfOpenGames.decrementAndGet();
+                    super.close();
+                }
+            };
+        };
+        try (NoGuessGameGenerator generator = new NoGuessGameGenerator(factory, 4)) {
+            final MinesweeperGame game = generator.generate(16, 16, 40, 8, 8,
+                                                            MAX_NUM_OF_CANDIDATES);
+
+            assertNotNull(game);
+            assertEquals(1, numOfOpenGames.get());
+            game.close();
+            assertEquals(0, numOfOpenGames.get());
+        }
+    }
+
+    @Test
+    public void failingCandidate_closesWinnerOfOtherWorker() throws Exception {
+        final AtomicInteger numOfOpenGames = new AtomicInteger(0);
+        final CountDownLatch winnerIsClaimed = new CountDownLatch(1);
+        final ParallelGameRunner.GameFactory factory = gameIndex -> {
+            if (gameIndex == 1) {
+                // fails only once the other worker has claimed its winner
+                awaitBriefly(winnerIsClaimed);
+                throw new IllegalStateException("Candidate failed.");
+            }
+            numOfOpenGames.incrementAndGet();
+            return new JavaMinesweeperGame(new Random(SEED + gameIndex)) {
+                @Override
+                public void reset(boolean keepCreatedMines) {
+                    winnerIsClaimed.countDown();
+                    // lets the failure reach the generator before the winner is returned
+                    sleepBriefly();
+                    super.reset(keepCreatedMines);
+                }
+
+                @Override
+                public void close() {
+                    numOfOpenGames.decrementAndGet();
+                    super.close();
+                }
+            };
+        };
+        try (NoGuessGameGenerator generator = new NoGuessGameGenerator(factory, 2)) {
+            try {
+                generator.generate(16, 16, 40, 8, 8, MAX_NUM_OF_CANDIDATES).close();
+            } catch (IllegalStateException e) {
+                assertEquals("Candidate failed.", e.getMessage());
+            }
+            assertEquals(0, numOfOpenGames.get());
+        }
+    }
+
+    @Test
+    public void noCandidates_giveNoGame() throws Exception {
+        try (NoGuessGameGenerator generator = new NoGuessGameGenerator(seededJavaGames(), 2)) {
+            assertNull(generator.generate(16, 30, 99, 3, 5, 0));
+            assertEquals(0, generator.getNumOfCandidatesOfLastGeneration());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void firstCheckOutsideGrid_throws() throws Exception {
+        try (NoGuessGameGenerator generator = new NoGuessGameGenerator(seededJavaGames(), 1)) {
+            generator.generate(16, 30, 99, 30, 5, MAX_NUM_OF_CANDIDATES);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCandidates_throw() throws Exception {
+        try (NoGuessGameGenerator generator = new NoGuessGameGenerator(seededJavaGames(), 2)) {
+            // too many mines for the grid
+            generator.generate(4, 4, 10, 0, 0, MAX_NUM_OF_CANDIDATES);
+        }
+    }
+
+    private static void awaitBriefly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepBriefly() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ParallelGameRunner.GameFactory seededJavaGames() {
+        return gameIndex -> new JavaMinesweeperGame(new Random(SEED + gameIndex));
+    }
+}